@@ -4,9 +4,12 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class ImageProcessingMessage {
-    private String readingUrl;
+public class OperatorMappingChangedEvent {
+    private String tenantId;
+    private List<String> phoneNumbers;
 }
@@ -0,0 +1,128 @@
+package com.jalsoochak.ManagementService.kafka.producers;
+
+import com.jalsoochak.ManagementService.models.entity.PersonMaster;
+import com.jalsoochak.ManagementService.models.entity.PersonSchemeMapping;
+import com.jalsoochak.ManagementService.repositories.PersonMasterRepository;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JPA listener on {@link PersonMaster} and {@link PersonSchemeMapping} that publishes an operator-mapping-changed
+ * event for every insert, update (including soft deletes and phone number changes) and delete, whichever code
+ * path made it. Changes are collected per transaction and sent once after commit, grouped by tenant.
+ * <p>
+ * A person's previous phone number is published too, so caches drop the number the person no longer owns.
+ */
+@Slf4j
+@Component
+public class OperatorMappingChangeListener {
+
+    private final ObjectProvider<OperatorMappingProducer> operatorMappingProducer;
+    private final ObjectProvider<PersonMasterRepository> personMasterRepository;
+
+    public OperatorMappingChangeListener(ObjectProvider<OperatorMappingProducer> operatorMappingProducer,
+                                         ObjectProvider<PersonMasterRepository> personMasterRepository) {
+        this.operatorMappingProducer = operatorMappingProducer;
+        this.personMasterRepository = personMasterRepository;
+    }
+
+    /**
+     * Phone numbers by tenant, plus persons whose mappings changed and whose numbers are looked up after commit.
+     */
+    private static final class Changes {
+        private final Map<String, Set<String>> phoneNumbersByTenant = new HashMap<>();
+        private final Set<Long> mappedPersonIds = new HashSet<>();
+
+        void phoneNumber(String tenantId, String phoneNumber) {
+            if (phoneNumber != null && !phoneNumber.isBlank()) {
+                phoneNumbersByTenant.computeIfAbsent(tenantId, t -> new LinkedHashSet<>()).add(phoneNumber);
+            }
+        }
+    }
+
+    @PostLoad
+    public void onLoad(Object entity) {
+        if (entity instanceof PersonMaster person) {
+            person.setLoadedPhoneNumber(person.getPhoneNumber());
+        }
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        Changes changes = currentChanges();
+
+        if (entity instanceof PersonMaster person) {
+            changes.phoneNumber(person.getTenantId(), person.getPhoneNumber());
+            changes.phoneNumber(person.getTenantId(), person.getLoadedPhoneNumber());
+            person.setLoadedPhoneNumber(person.getPhoneNumber());
+        } else if (entity instanceof PersonSchemeMapping mapping && mapping.getPerson() != null) {
+            // the id is read without initializing a lazy person; its number is resolved after commit
+            changes.mappedPersonIds.add(mapping.getPerson().getId());
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(changes);
+        }
+    }
+
+    private Changes currentChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Changes();
+        }
+
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            Changes created = new Changes();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OperatorMappingChangeListener.this);
+                }
+            });
+            changes = created;
+        }
+        return changes;
+    }
+
+    private void publish(Changes changes) {
+        OperatorMappingProducer producer = operatorMappingProducer.getIfAvailable();
+        if (producer == null) {
+            return;
+        }
+
+        try {
+            if (!changes.mappedPersonIds.isEmpty()) {
+                for (PersonMaster person : personMasterRepository.getObject().findAllById(changes.mappedPersonIds)) {
+                    changes.phoneNumber(person.getTenantId(), person.getPhoneNumber());
+                }
+            }
+
+            changes.phoneNumbersByTenant.forEach((tenantId, phoneNumbers) ->
+                    producer.sendMappingChanged(tenantId, new ArrayList<>(phoneNumbers)));
+        } catch (Exception e) {
+            log.error("Failed to publish operator mapping changes: {}", e.getMessage(), e);
+        }
+    }
+}
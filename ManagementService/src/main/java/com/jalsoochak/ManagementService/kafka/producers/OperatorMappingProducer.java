@@ -0,0 +1,38 @@
+package com.jalsoochak.ManagementService.kafka.producers;
+
+import com.jalsoochak.ManagementService.kafka.events.OperatorMappingChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Tells services that cache operator context (person, scheme and language lookups by phone number) that the
+ * mappings for these phone numbers changed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OperatorMappingProducer {
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${kafka.topics.operator-mapping-changed:operator-mapping-changed}")
+    private String operatorMappingChangedTopic;
+
+    public void sendMappingChanged(String tenantId, List<String> phoneNumbers) {
+        if (phoneNumbers == null || phoneNumbers.isEmpty()) {
+            return;
+        }
+
+        kafkaTemplate.send(operatorMappingChangedTopic, tenantId, new OperatorMappingChangedEvent(tenantId, phoneNumbers))
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to publish mapping change for {} operators of tenant {}",
+                                phoneNumbers.size(), tenantId, ex);
+                    }
+                });
+    }
+}
@@ -1,7 +1,9 @@
 package com.jalsoochak.ManagementService.models.entity;
 
+import com.jalsoochak.ManagementService.kafka.producers.OperatorMappingChangeListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -10,6 +12,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -25,6 +28,7 @@ import java.util.List;
 @Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(OperatorMappingChangeListener.class)
 @Table(name = "person_master")
 public class PersonMaster {
 
@@ -77,5 +81,9 @@ public class PersonMaster {
     @OneToMany(mappedBy = "person", fetch = FetchType.LAZY)
     private List<BfmReading> bfmReadings;
 
+    /** Phone number as loaded, so a number change also evicts the old one (see OperatorMappingChangeListener). */
+    @Transient
+    private String loadedPhoneNumber;
+
 }
 
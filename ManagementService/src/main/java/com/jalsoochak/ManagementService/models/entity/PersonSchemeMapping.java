@@ -1,7 +1,9 @@
 package com.jalsoochak.ManagementService.models.entity;
 
+import com.jalsoochak.ManagementService.kafka.producers.OperatorMappingChangeListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -23,6 +25,7 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(OperatorMappingChangeListener.class)
 @Table(name = "person_scheme_mapping")
 public class PersonSchemeMapping {
 
@@ -2,8 +2,10 @@ package com.jalsoochak.imageprocessing;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ImageprocessingApplication {
 
 	public static void main(String[] args) {
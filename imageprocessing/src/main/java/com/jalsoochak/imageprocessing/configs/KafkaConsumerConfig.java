@@ -0,0 +1,107 @@
+package com.jalsoochak.imageprocessing.configs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+
+/**
+ * Listener containers for the image-processing pipeline.
+ * <p>
+ * {@code image-processing-topic} is consumed in batches, acknowledged manually once every record in the
+ * batch was processed or handed to {@code <topic>-retry}. The retry topic is consumed record by record with
+ * exponential backoff; records that still fail go to {@code <topic>-dlt}. Keeping the backoff on the retry
+ * topic means a bad image never holds up the main topic's partitions.
+ */
+@Slf4j
+@Configuration
+public class KafkaConsumerConfig {
+
+    @Value("${kafka.topics.image-processing:image-processing-topic}")
+    private String imageProcessingTopic;
+
+    @Value("${kafka.topics.image-processing-retry:image-processing-topic-retry}")
+    private String imageProcessingRetryTopic;
+
+    @Value("${kafka.topics.image-processing-dlt:image-processing-topic-dlt}")
+    private String imageProcessingDltTopic;
+
+    @Value("${image.processing.kafka.partitions:6}")
+    private int partitions;
+
+    @Bean
+    public NewTopic imageProcessingTopic() {
+        return TopicBuilder.name(imageProcessingTopic).partitions(partitions).build();
+    }
+
+    @Bean
+    public NewTopic imageProcessingRetryTopic() {
+        return TopicBuilder.name(imageProcessingRetryTopic).partitions(partitions).build();
+    }
+
+    @Bean
+    public NewTopic imageProcessingDltTopic() {
+        return TopicBuilder.name(imageProcessingDltTopic).partitions(partitions).build();
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> imageBatchListenerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            @Value("${image.processing.kafka.concurrency:3}") int concurrency) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // only reached when a failed record could not be handed to the retry topic; the listener names it with
+        // BatchListenerFailedException, so the records before it are committed and only it is retried
+        factory.setCommonErrorHandler(new DefaultErrorHandler(deadLetterRecoverer(kafkaTemplate), new FixedBackOff(1000L, 5)));
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> imageRetryListenerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            @Value("${image.processing.retry.attempts:4}") int attempts,
+            @Value("${image.processing.retry.initial-interval:5s}") Duration initialInterval,
+            @Value("${image.processing.retry.max-interval:2m}") Duration maxInterval) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(false);
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(attempts);
+        backOff.setInitialInterval(initialInterval.toMillis());
+        backOff.setMultiplier(3.0);
+        backOff.setMaxInterval(maxInterval.toMillis());
+        factory.setCommonErrorHandler(new DefaultErrorHandler(deadLetterRecoverer(kafkaTemplate), backOff));
+        return factory;
+    }
+
+    private DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, Object> kafkaTemplate) {
+        // a negative partition lets the producer pick one from the record key, keeping schemes together
+        return new DeadLetterPublishingRecoverer(kafkaTemplate, (record, ex) -> {
+            log.error("Sending image processing record {} to {}", record.key(), imageProcessingDltTopic, ex);
+            return new TopicPartition(imageProcessingDltTopic, -1);
+        });
+    }
+}
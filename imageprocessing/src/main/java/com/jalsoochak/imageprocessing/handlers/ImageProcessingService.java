@@ -1,5 +1,18 @@
 package com.jalsoochak.imageprocessing.handlers;
 
+import com.jalsoochak.imageprocessing.kafka.events.ImageProcessingMessage;
+import com.jalsoochak.imageprocessing.models.entities.ProcessedImage;
+
+import java.util.concurrent.CompletableFuture;
+
 public interface ImageProcessingService {
     void processImage(String imageUrl);
+
+    /**
+     * Normalizes the image on the processing pool and, when the message names the reading's scheme, checks
+     * it against the scheme's recent photos for near duplicates.
+     *
+     * @return completes with the stored result, or exceptionally when the image could not be processed
+     */
+    CompletableFuture<ProcessedImage> processImageAsync(ImageProcessingMessage message);
 }
@@ -2,31 +2,132 @@ package com.jalsoochak.imageprocessing.kafka.consumer;
 
 import com.jalsoochak.imageprocessing.handlers.ImageProcessingService;
 import com.jalsoochak.imageprocessing.kafka.events.ImageProcessingMessage;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Consumes image processing requests in batches (see {@code KafkaConsumerConfig}).
+ * <p>
+ * Records are keyed by scheme. Within a batch, records of one scheme are processed one after another, in
+ * offset order, while different schemes run in parallel on the processing pool. The batch is acknowledged
+ * only after every record was processed or forwarded to the retry topic, so a crash mid-batch redelivers it.
+ * When a failed record cannot be forwarded, the listener throws {@link BatchListenerFailedException} with the
+ * record's index: the error handler commits the records before it and retries or dead-letters only that one.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ImageProcessingConsumer {
 
+    private static final long FORWARD_TIMEOUT_SECONDS = 30;
+
     private final ImageProcessingService imageProcessingService;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String retryTopic;
+
+    public ImageProcessingConsumer(ImageProcessingService imageProcessingService,
+                                   KafkaTemplate<String, Object> kafkaTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${kafka.topics.image-processing-retry:image-processing-topic-retry}") String retryTopic) {
+        this.imageProcessingService = imageProcessingService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.retryTopic = retryTopic;
+    }
 
     @KafkaListener(
             topics = "${kafka.topics.image-processing:image-processing-topic}",
-            groupId = "${spring.application.name:imageprocessing-service}"
+            groupId = "${spring.application.name:imageprocessing-service}",
+            containerFactory = "imageBatchListenerFactory"
     )
-    public void consumeImageProcessingMessage(ImageProcessingMessage message) {
-        try {
-            log.info("Received image processing message: readingUrl={}", message.getReadingUrl());
+    public void consumeImageProcessingMessages(List<ConsumerRecord<String, ImageProcessingMessage>> records,
+                                               Acknowledgment acknowledgment) throws Exception {
+        Map<String, CompletableFuture<Void>> chains = new HashMap<>();
+        NavigableMap<Integer, CompletableFuture<Void>> forwards = new ConcurrentSkipListMap<>();
 
-            imageProcessingService.processImage(message.getReadingUrl());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, ImageProcessingMessage> record = records.get(i);
+            int index = i;
+            ImageProcessingMessage message = record.value();
+            if (message == null || message.getReadingUrl() == null || message.getReadingUrl().isBlank()) {
+                log.warn("Skipping unreadable image processing record at {}-{}@{}",
+                        record.topic(), record.partition(), record.offset());
+                count("skipped");
+                continue;
+            }
 
-            log.info("Successfully processed image for readingUrl: {}", message.getReadingUrl());
-        } catch (Exception e) {
-            log.error("Error processing image for readingUrl: {}", message.getReadingUrl(), e);
+            String key = record.key() != null ? record.key() : message.getReadingUrl();
+            CompletableFuture<Void> previous = chains.getOrDefault(key, CompletableFuture.completedFuture(null));
+            chains.put(key, previous.thenCompose(ignored -> process(record, index, forwards)));
         }
+
+        CompletableFuture.allOf(chains.values().toArray(CompletableFuture[]::new)).join();
+        // the batch is only acknowledged once every failed record is safely on the retry topic
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(FORWARD_TIMEOUT_SECONDS);
+        for (Map.Entry<Integer, CompletableFuture<Void>> forward : forwards.entrySet()) {
+            try {
+                forward.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new BatchListenerFailedException("Could not forward record to " + retryTopic,
+                        e instanceof ExecutionException ? e.getCause() : e, forward.getKey());
+            }
+        }
+        acknowledgment.acknowledge();
+    }
+
+    @KafkaListener(
+            topics = "${kafka.topics.image-processing-retry:image-processing-topic-retry}",
+            groupId = "${spring.application.name:imageprocessing-service}-retry",
+            containerFactory = "imageRetryListenerFactory"
+    )
+    public void retryImageProcessingMessage(ConsumerRecord<String, ImageProcessingMessage> record)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        ImageProcessingMessage message = record.value();
+        log.info("Retrying image processing for readingUrl={}", message.getReadingUrl());
+
+        // failures propagate to the container's error handler, which backs off and finally dead-letters
+        imageProcessingService.processImageAsync(message).get(5, TimeUnit.MINUTES);
+        count("retried");
+    }
+
+    private CompletableFuture<Void> process(ConsumerRecord<String, ImageProcessingMessage> record,
+                                            int index,
+                                            Map<Integer, CompletableFuture<Void>> forwards) {
+        ImageProcessingMessage message = record.value();
+        return imageProcessingService.processImageAsync(message)
+                .handle((processed, e) -> {
+                    if (e == null) {
+                        count("processed");
+                        return null;
+                    }
+
+                    log.warn("Image processing failed for readingUrl={}, forwarding to {}",
+                            message.getReadingUrl(), retryTopic, e);
+                    count("forwarded");
+                    forwards.put(index, kafkaTemplate.send(retryTopic, record.key(), message)
+                            .thenAccept(result -> { }));
+                    return null;
+                });
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("image.processing.records", "outcome", outcome).increment();
     }
-}
\ No newline at end of file
+}
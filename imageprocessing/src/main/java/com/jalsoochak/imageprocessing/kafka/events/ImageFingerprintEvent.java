@@ -0,0 +1,27 @@
+package com.jalsoochak.imageprocessing.kafka.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Perceptual hash of a reading's photo and, if the scheme already had a visually near-identical photo in the
+ * recent window, the reading it matched.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageFingerprintEvent {
+    private Long readingId;
+    private LocalDateTime readingDateTime;
+    private Long schemeId;
+    private String tenantId;
+    private Long perceptualHash;
+    private boolean nearDuplicate;
+    private Long nearDuplicateOf;
+    private Integer hashDistance;
+}
@@ -4,9 +4,21 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ImageProcessingMessage {
     private String readingUrl;
-}
\ No newline at end of file
+
+    /** Reading the image belongs to; absent for producers that only send the URL. */
+    private Long readingId;
+    private LocalDateTime readingDateTime;
+    private Long schemeId;
+    private String tenantId;
+
+    public ImageProcessingMessage(String readingUrl) {
+        this.readingUrl = readingUrl;
+    }
+}
@@ -0,0 +1,31 @@
+package com.jalsoochak.imageprocessing.kafka.producers;
+
+import com.jalsoochak.imageprocessing.kafka.events.ImageFingerprintEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports a reading photo's perceptual hash and near-duplicate match back to water-supply, which owns the
+ * reading.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageFingerprintProducer {
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${kafka.topics.image-fingerprint:image-fingerprint}")
+    private String imageFingerprintTopic;
+
+    public void sendFingerprint(ImageFingerprintEvent event) {
+        kafkaTemplate.send(imageFingerprintTopic, String.valueOf(event.getSchemeId()), event)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to publish fingerprint for reading {}", event.getReadingId(), ex);
+                    }
+                });
+    }
+}
@@ -0,0 +1,82 @@
+package com.jalsoochak.imageprocessing.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "processed_image",
+        indexes = {
+                @Index(name = "idx_processed_image_source_url", columnList = "source_url"),
+                @Index(name = "idx_processed_image_scheme", columnList = "scheme_id, processed_at")
+        }
+)
+public class ProcessedImage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "source_url", length = 768)
+    private String sourceUrl;
+
+    @Column(name = "reading_id")
+    private Long readingId;
+
+    @Column(name = "scheme_id")
+    private Long schemeId;
+
+    @Column(name = "tenant_id", length = 64)
+    private String tenantId;
+
+    @Column(name = "normalized_key", length = 512)
+    private String normalizedKey;
+
+    @Column(name = "normalized_url", length = 768)
+    private String normalizedUrl;
+
+    @Column(name = "original_bytes")
+    private Long originalBytes;
+
+    @Column(name = "processed_bytes")
+    private Long processedBytes;
+
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    /** 64-bit dHash of the normalized image, see {@code ImagePreprocessor#differenceHash}. */
+    @Column(name = "perceptual_hash")
+    private Long perceptualHash;
+
+    /** Reading whose photo was within the near-duplicate distance of this one, if any. */
+    @Column(name = "near_duplicate_of")
+    private Long nearDuplicateOf;
+
+    @Column(name = "hash_distance")
+    private Integer hashDistance;
+
+    @Column(name = "processing_millis")
+    private Long processingMillis;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
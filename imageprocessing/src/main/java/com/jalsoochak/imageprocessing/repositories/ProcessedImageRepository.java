@@ -0,0 +1,31 @@
+package com.jalsoochak.imageprocessing.repositories;
+
+import com.jalsoochak.imageprocessing.models.entities.ProcessedImage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProcessedImageRepository extends JpaRepository<ProcessedImage, Long> {
+    Optional<ProcessedImage> findFirstBySourceUrl(String sourceUrl);
+
+    /**
+     * Just the columns the perceptual-hash index needs, so rebuilding it does not materialize whole entities.
+     */
+    interface HashEntry {
+        Long getId();
+
+        Long getReadingId();
+
+        Long getSchemeId();
+
+        Long getPerceptualHash();
+
+        LocalDateTime getProcessedAt();
+    }
+
+    List<HashEntry> findByIdGreaterThanAndPerceptualHashIsNotNullAndSchemeIdIsNotNullAndProcessedAtGreaterThanEqualOrderByIdAsc(
+            Long afterId, LocalDateTime processedSince, Pageable pageable);
+}
@@ -0,0 +1,128 @@
+package com.jalsoochak.imageprocessing.services;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * BK-tree over 64-bit perceptual hashes with Hamming distance as the metric.
+ * <p>
+ * A node's children are keyed by their distance to it, so a radius-{@code k} search only descends into
+ * children whose edge distance lies within {@code k} of the query's distance to the node (triangle
+ * inequality). For small {@code k} that touches a tiny fraction of the tree. Children are kept in two
+ * parallel arrays rather than a map, which keeps a node at a few dozen bytes.
+ * <p>
+ * Not thread safe; {@link PerceptualHashIndex} serializes access per tree.
+ */
+final class BkTree {
+
+    /**
+     * @param distance Hamming distance between the query and the matched hash
+     */
+    record Match(long readingId, long hash, int distance, long epochDay) {
+    }
+
+    private static final class Node {
+        final long hash;
+        final long readingId;
+        final long epochDay;
+        byte[] childDistances;
+        Node[] children;
+        int childCount;
+
+        Node(long hash, long readingId, long epochDay) {
+            this.hash = hash;
+            this.readingId = readingId;
+            this.epochDay = epochDay;
+        }
+
+        Node child(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (childDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node node) {
+            if (children == null) {
+                childDistances = new byte[2];
+                children = new Node[2];
+            } else if (childCount == children.length) {
+                childDistances = Arrays.copyOf(childDistances, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            childDistances[childCount] = (byte) distance;
+            children[childCount++] = node;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a hash. Adding the same reading twice (e.g. once when processed and again from the periodic
+     * refresh) is a no-op.
+     */
+    void add(long hash, long readingId, long epochDay) {
+        if (root == null) {
+            root = new Node(hash, readingId, epochDay);
+            size = 1;
+            return;
+        }
+
+        Node node = root;
+        while (true) {
+            int distance = Long.bitCount(node.hash ^ hash);
+            if (distance == 0 && node.readingId == readingId) {
+                return;
+            }
+            Node next = node.child(distance);
+            if (next == null) {
+                node.addChild(distance, new Node(hash, readingId, epochDay));
+                size++;
+                return;
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * @return the closest hash within {@code maxDistance} recorded on or after {@code minEpochDay}, ignoring
+     * {@code excludeReadingId}; {@code null} if there is none
+     */
+    Match nearest(long hash, int maxDistance, long minEpochDay, long excludeReadingId) {
+        if (root == null) {
+            return null;
+        }
+
+        Node best = null;
+        int bestDistance = maxDistance + 1;
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = Long.bitCount(node.hash ^ hash);
+            if (distance < bestDistance && node.epochDay >= minEpochDay && node.readingId != excludeReadingId) {
+                best = node;
+                bestDistance = distance;
+            }
+
+            // shrinking the radius to the best match found so far prunes the rest of the walk further
+            int radius = Math.min(maxDistance, bestDistance);
+            for (int i = 0; i < node.childCount; i++) {
+                if (Math.abs(node.childDistances[i] - distance) <= radius) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+
+        return best == null ? null : new Match(best.readingId, best.hash, bestDistance, best.epochDay);
+    }
+}
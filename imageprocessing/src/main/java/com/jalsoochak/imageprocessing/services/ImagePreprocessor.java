@@ -0,0 +1,233 @@
+package com.jalsoochak.imageprocessing.services;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifIFD0Directory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Turns a meter photo into the image OCR needs: upright (EXIF orientation applied), no larger than
+ * {@code image.preprocess.max-long-edge} on its long edge, and re-encoded as a compact JPEG.
+ * <p>
+ * Large photos are subsampled while decoding, so a 12 MP upload never lives on the heap at full size.
+ */
+@Slf4j
+@Component
+public class ImagePreprocessor {
+
+    /**
+     * @param perceptualHash 64-bit difference hash (dHash) of the upright image; re-encoded, resized or
+     *                       slightly re-cropped copies of a photo land within a few bits of each other
+     */
+    public record Result(byte[] jpeg, int width, int height, long perceptualHash) {
+    }
+
+    private final int maxLongEdge;
+    private final float jpegQuality;
+
+    public ImagePreprocessor(@Value("${image.preprocess.max-long-edge:1280}") int maxLongEdge,
+                             @Value("${image.preprocess.jpeg-quality:0.82}") float jpegQuality) {
+        this.maxLongEdge = maxLongEdge;
+        this.jpegQuality = jpegQuality;
+    }
+
+    public Result process(byte[] original) throws IOException {
+        int orientation = readOrientation(original);
+        BufferedImage image = decode(original);
+
+        BufferedImage scaled = scale(image);
+        BufferedImage upright = orient(scaled, orientation);
+        byte[] jpeg = encodeJpeg(upright);
+        long perceptualHash = differenceHash(upright);
+
+        // an already small, upright JPEG can come out larger after re-encoding; keep the original then
+        if (jpeg.length >= original.length && upright == image && isJpeg(original)) {
+            return new Result(original, image.getWidth(), image.getHeight(), perceptualHash);
+        }
+        return new Result(jpeg, upright.getWidth(), upright.getHeight(), perceptualHash);
+    }
+
+    /**
+     * dHash: the image is reduced to a 9x8 grid of average luminance and each bit records whether a cell is
+     * brighter than its right-hand neighbour.
+     */
+    static long differenceHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long[] sums = new long[9 * 8];
+        int[] counts = new int[9 * 8];
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellY = y * 8 / height;
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                int luma = (((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114) / 1000;
+                int cell = cellY * 9 + x * 9 / width;
+                sums[cell] += luma;
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                int left = y * 9 + x;
+                long leftAvg = counts[left] == 0 ? 0 : sums[left] / counts[left];
+                long rightAvg = counts[left + 1] == 0 ? 0 : sums[left + 1] / counts[left + 1];
+                hash = (hash << 1) | (leftAvg > rightAvg ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Decodes the image, subsampling by the largest integer factor that still leaves at least twice the
+     * target resolution for the final smooth downscale.
+     */
+    private BufferedImage decode(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longEdge / (maxLongEdge * 2));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Downscales to at most {@code maxLongEdge}, halving with bilinear filtering first so the last step never
+     * shrinks by more than 2x (a single large bilinear step aliases the digits).
+     */
+    private BufferedImage scale(BufferedImage image) {
+        int longEdge = Math.max(image.getWidth(), image.getHeight());
+        if (longEdge <= maxLongEdge && image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+
+        double factor = Math.min(1.0, (double) maxLongEdge / longEdge);
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+
+        BufferedImage current = image;
+        do {
+            int width = Math.max(targetWidth, current.getWidth() / 2);
+            int height = Math.max(targetHeight, current.getHeight() / 2);
+            current = resize(current, width, height);
+        } while (current.getWidth() > targetWidth || current.getHeight() > targetHeight);
+        return current;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    /**
+     * Applies EXIF orientation 2-8 so the image is stored upright and OCR never sees a rotated meter.
+     */
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+
+        int w = image.getWidth();
+        int h = image.getHeight();
+        boolean swap = orientation >= 5;
+        AffineTransform t = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { t.translate(w, 0); t.scale(-1, 1); }
+            case 3 -> { t.translate(w, h); t.rotate(Math.PI); }
+            case 4 -> { t.translate(0, h); t.scale(1, -1); }
+            case 5 -> { t.rotate(-Math.PI / 2); t.scale(-1, 1); }
+            case 6 -> { t.translate(h, 0); t.rotate(Math.PI / 2); }
+            case 7 -> { t.scale(-1, 1); t.translate(-h, w); t.rotate(3 * Math.PI / 2); }
+            case 8 -> { t.translate(0, w); t.rotate(3 * Math.PI / 2); }
+            default -> { }
+        }
+
+        BufferedImage out = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.drawImage(image, t, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private static int readOrientation(byte[] bytes) {
+        try {
+            Metadata metadata = ImageMetadataReader.readMetadata(new ByteArrayInputStream(bytes));
+            ExifIFD0Directory exif = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+            if (exif != null && exif.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
+                return exif.getInt(ExifIFD0Directory.TAG_ORIENTATION);
+            }
+        } catch (Exception e) {
+            log.debug("No readable EXIF orientation: {}", e.getMessage());
+        }
+        return 1;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DISABLED);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isJpeg(byte[] bytes) {
+        return bytes.length > 2 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8;
+    }
+}
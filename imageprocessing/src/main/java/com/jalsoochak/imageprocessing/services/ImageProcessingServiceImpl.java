@@ -1,16 +1,183 @@
 package com.jalsoochak.imageprocessing.services;
 
 import com.jalsoochak.imageprocessing.handlers.ImageProcessingService;
-import lombok.RequiredArgsConstructor;
+import com.jalsoochak.imageprocessing.kafka.events.ImageFingerprintEvent;
+import com.jalsoochak.imageprocessing.kafka.events.ImageProcessingMessage;
+import com.jalsoochak.imageprocessing.kafka.producers.ImageFingerprintProducer;
+import com.jalsoochak.imageprocessing.models.entities.ProcessedImage;
+import com.jalsoochak.imageprocessing.repositories.ProcessedImageRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches a submitted meter photo, normalizes it with {@link ImagePreprocessor} and stores the result in
+ * MinIO under {@code image.preprocess.normalized-prefix}, recording the normalized key in
+ * {@code processed_image}.
+ * <p>
+ * The normalized image's perceptual hash is stored alongside and, for messages that carry the reading's
+ * scheme, matched against the scheme's recent photos by {@link PerceptualHashIndex}; the outcome is published
+ * so water-supply can flag the reading.
+ * <p>
+ * Decoding and encoding are CPU bound, so work runs on a pool with one thread per core (or
+ * {@code image.preprocess.workers}) and a bounded queue; when the queue is full the submitting thread does
+ * the work itself, which slows the Kafka consumer down instead of buffering without limit.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ImageProcessingServiceImpl implements ImageProcessingService {
+
+    private final MinioService minioService;
+    private final ImagePreprocessor imagePreprocessor;
+    private final ProcessedImageRepository processedImageRepository;
+    private final PerceptualHashIndex perceptualHashIndex;
+    private final ImageFingerprintProducer imageFingerprintProducer;
+    private final String normalizedPrefix;
+    private final ThreadPoolExecutor executor;
+
+    public ImageProcessingServiceImpl(MinioService minioService,
+                                      ImagePreprocessor imagePreprocessor,
+                                      ProcessedImageRepository processedImageRepository,
+                                      PerceptualHashIndex perceptualHashIndex,
+                                      ImageFingerprintProducer imageFingerprintProducer,
+                                      @Value("${image.preprocess.normalized-prefix:normalized/}") String normalizedPrefix,
+                                      @Value("${image.preprocess.workers:0}") int workers,
+                                      @Value("${image.preprocess.queue-capacity:100}") int queueCapacity) {
+        this.minioService = minioService;
+        this.imagePreprocessor = imagePreprocessor;
+        this.processedImageRepository = processedImageRepository;
+        this.perceptualHashIndex = perceptualHashIndex;
+        this.imageFingerprintProducer = imageFingerprintProducer;
+        this.normalizedPrefix = normalizedPrefix;
+
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("image-preprocess-", 0).factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
     @Override
     public void processImage(String imageUrl) {
-        log.info("It has hit the image service");
+        processImageAsync(new ImageProcessingMessage(imageUrl)).join();
+    }
+
+    @Override
+    public CompletableFuture<ProcessedImage> processImageAsync(ImageProcessingMessage message) {
+        return CompletableFuture.supplyAsync(() -> normalize(message), executor);
+    }
+
+    private ProcessedImage normalize(ImageProcessingMessage message) {
+        String imageUrl = message.getReadingUrl();
+        long start = System.nanoTime();
+        try {
+            byte[] original = minioService.download(imageUrl);
+            ImagePreprocessor.Result result = imagePreprocessor.process(original);
+
+            String normalizedKey = normalizedKeyFor(imageUrl);
+            String normalizedUrl = minioService.upload(result.jpeg(), normalizedKey, "image/jpeg");
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("Normalized {} -> {}: {} -> {} bytes, {}x{} in {} ms",
+                    imageUrl, normalizedKey, original.length, result.jpeg().length,
+                    result.width(), result.height(), millis);
+
+            LocalDateTime processedAt = LocalDateTime.now();
+            Optional<BkTree.Match> match = findNearDuplicate(message, result.perceptualHash(), processedAt);
+
+            ProcessedImage processed = processedImageRepository.save(ProcessedImage.builder()
+                    .sourceUrl(imageUrl)
+                    .readingId(message.getReadingId())
+                    .schemeId(message.getSchemeId())
+                    .tenantId(message.getTenantId())
+                    .perceptualHash(result.perceptualHash())
+                    .nearDuplicateOf(match.map(BkTree.Match::readingId).orElse(null))
+                    .hashDistance(match.map(BkTree.Match::distance).orElse(null))
+                    .normalizedKey(normalizedKey)
+                    .normalizedUrl(normalizedUrl)
+                    .originalBytes((long) original.length)
+                    .processedBytes((long) result.jpeg().length)
+                    .width(result.width())
+                    .height(result.height())
+                    .processingMillis(millis)
+                    .processedAt(processedAt)
+                    .build());
+
+            if (message.getReadingId() != null) {
+                imageFingerprintProducer.sendFingerprint(ImageFingerprintEvent.builder()
+                        .readingId(message.getReadingId())
+                        .readingDateTime(message.getReadingDateTime())
+                        .schemeId(message.getSchemeId())
+                        .tenantId(message.getTenantId())
+                        .perceptualHash(result.perceptualHash())
+                        .nearDuplicate(match.isPresent())
+                        .nearDuplicateOf(processed.getNearDuplicateOf())
+                        .hashDistance(processed.getHashDistance())
+                        .build());
+            }
+            return processed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to normalize image " + imageUrl, e);
+        }
+    }
+
+    private Optional<BkTree.Match> findNearDuplicate(ImageProcessingMessage message, long hash,
+                                                     LocalDateTime processedAt) {
+        if (message.getSchemeId() == null || message.getReadingId() == null) {
+            return Optional.empty();
+        }
+
+        Optional<BkTree.Match> match = perceptualHashIndex.matchAndAdd(
+                message.getSchemeId(), message.getReadingId(), hash, processedAt);
+        match.ifPresent(m -> log.info("Reading {} photo is within {} bits of reading {} in scheme {}",
+                message.getReadingId(), m.distance(), m.readingId(), message.getSchemeId()));
+        return match;
+    }
+
+    /**
+     * Objects in our bucket keep their name under the normalized prefix; external images are named by the
+     * SHA-256 of their URL, so two different URLs cannot overwrite each other's result.
+     */
+    private String normalizedKeyFor(String imageUrl) {
+        String source = minioService.objectNameOf(imageUrl)
+                .orElseGet(() -> "external/" + sha256Hex(imageUrl));
+        int dot = source.lastIndexOf('.');
+        int slash = source.lastIndexOf('/');
+        String base = dot > slash ? source.substring(0, dot) : source;
+        return normalizedPrefix + base + ".jpg";
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
     }
 }
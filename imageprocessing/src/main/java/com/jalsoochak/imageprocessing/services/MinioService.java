@@ -0,0 +1,145 @@
+package com.jalsoochak.imageprocessing.services;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+
+@Service
+public class MinioService {
+
+    private final MinioClient minioClient;
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final long maxBytes;
+    private final String bucket;
+    private final String endpoint;
+
+    public MinioService(@Value("${minio.endpoint}") String endpoint,
+                        @Value("${minio.access-key}") String accessKey,
+                        @Value("${minio.secret-key}") String secretKey,
+                        @Value("${minio.bucket}") String bucket,
+                        @Value("${image.download.connect-timeout:5s}") Duration connectTimeout,
+                        @Value("${image.download.request-timeout:30s}") Duration requestTimeout,
+                        @Value("${image.download.max-size:20MB}") DataSize maxSize) {
+        this.bucket = bucket;
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.minioClient = MinioClient.builder()
+                .endpoint(this.endpoint)
+                .credentials(accessKey, secretKey)
+                .build();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.requestTimeout = requestTimeout;
+        this.maxBytes = maxSize.toBytes();
+    }
+
+    /**
+     * Reads an image by URL: through the MinIO client when the URL points into our bucket (so private
+     * buckets work), otherwise with an HTTP GET bounded by {@code image.download.connect-timeout} and
+     * {@code image.download.request-timeout}, so a stalled server cannot hold a preprocessing thread.
+     * <p>
+     * Either way at most {@code image.download.max-size} bytes are read: a larger declared Content-Length is
+     * refused before the body is read, and a body that runs past the limit is cut off there.
+     */
+    public byte[] download(String url) throws IOException {
+        Optional<String> objectName = objectNameOf(url);
+        if (objectName.isPresent()) {
+            try (GetObjectResponse in = minioClient.getObject(
+                    GetObjectArgs.builder().bucket(bucket).object(objectName.get()).build())) {
+                String contentLength = in.headers().get("Content-Length");
+                return readBounded(in, contentLength != null ? Long.parseLong(contentLength) : -1, objectName.get());
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to read " + objectName.get() + " from MinIO", e);
+            }
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("Failed to download " + url + ", status: " + response.statusCode());
+                }
+                return readBounded(body, response.headers().firstValueAsLong("Content-Length").orElse(-1), url);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted downloading " + url, e);
+        }
+    }
+
+    private byte[] readBounded(InputStream in, long contentLength, String source) throws IOException {
+        if (contentLength > maxBytes) {
+            throw new IOException(source + " is " + contentLength + " bytes, more than the " + maxBytes + " allowed");
+        }
+        byte[] body = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBytes + 1));
+        if (body.length > maxBytes) {
+            throw new IOException(source + " is larger than the " + maxBytes + " bytes allowed");
+        }
+        return body;
+    }
+
+    public String upload(byte[] content, String objectName, String contentType) {
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(objectName)
+                            .stream(new ByteArrayInputStream(content), content.length, -1)
+                            .contentType(contentType)
+                            .build()
+            );
+            return buildObjectUrl(objectName);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to upload image to MinIO", e);
+        }
+    }
+
+    /**
+     * @return the object name when {@code url} is {@code <endpoint>/<bucket>/<object>}
+     */
+    public Optional<String> objectNameOf(String url) {
+        String prefix = endpoint + "/" + bucket + "/";
+        if (url == null || !url.startsWith(prefix)) {
+            return Optional.empty();
+        }
+        return Optional.of(URI.create(url).getPath().substring(bucket.length() + 2));
+    }
+
+    private String buildObjectUrl(String objectName) {
+        try {
+            URI endpointUri = new URI(endpoint);
+            String path = String.format("/%s/%s", bucket, objectName);
+            return new URI(
+                    endpointUri.getScheme(),
+                    endpointUri.getAuthority(),
+                    path,
+                    null, null
+            ).toString();
+        } catch (URISyntaxException e) {
+            throw new RuntimeException("Failed to construct MinIO object URL", e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.jalsoochak.imageprocessing.services;
+
+import com.jalsoochak.imageprocessing.repositories.ProcessedImageRepository;
+import com.jalsoochak.imageprocessing.repositories.ProcessedImageRepository.HashEntry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds near-duplicate meter photos: one in-memory {@link BkTree} of perceptual hashes per scheme, searched
+ * within {@code image.dedup.max-distance} bits among photos from the last {@code image.dedup.window}.
+ * <p>
+ * The trees are rebuilt from {@code processed_image.perceptual_hash} on startup and every
+ * {@code image.dedup.rebuild-interval} (which also drops hashes that left the window). In between, rows
+ * stored by other instances are picked up by id every {@code image.dedup.refresh-interval}; a row committed
+ * out of id order may be missed on other instances until the next rebuild.
+ */
+@Slf4j
+@Service
+public class PerceptualHashIndex {
+
+    private static final int PAGE_SIZE = 5000;
+
+    private final ProcessedImageRepository processedImageRepository;
+    private final int maxDistance;
+    private final Duration window;
+    private final Timer lookupTimer;
+
+    private volatile ConcurrentMap<Long, BkTree> trees = new ConcurrentHashMap<>();
+    private final Object loadLock = new Object();
+    private long lastLoadedId;
+
+    public PerceptualHashIndex(ProcessedImageRepository processedImageRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${image.dedup.max-distance:6}") int maxDistance,
+                               @Value("${image.dedup.window:30d}") Duration window) {
+        this.processedImageRepository = processedImageRepository;
+        this.maxDistance = maxDistance;
+        this.window = window;
+        this.lookupTimer = Timer.builder("image.dedup.lookup")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("image.dedup.hashes", this, index -> index.trees.values().stream()
+                .mapToLong(PerceptualHashIndex::sizeOf)
+                .sum());
+    }
+
+    /**
+     * Looks the hash up among the scheme's recent photos and then adds it, atomically per scheme, so two
+     * copies of one photo processed concurrently still match each other.
+     *
+     * @return the closest recent photo within the configured distance, if any
+     */
+    Optional<BkTree.Match> matchAndAdd(long schemeId, long readingId, long hash, LocalDateTime processedAt) {
+        BkTree tree = trees.computeIfAbsent(schemeId, id -> new BkTree());
+        long minEpochDay = LocalDate.now().minusDays(window.toDays()).toEpochDay();
+
+        long start = System.nanoTime();
+        BkTree.Match match;
+        synchronized (tree) {
+            match = tree.nearest(hash, maxDistance, minEpochDay, readingId);
+            tree.add(hash, readingId, processedAt.toLocalDate().toEpochDay());
+        }
+        lookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Optional.ofNullable(match);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            fixedDelayString = "${image.dedup.rebuild-interval:PT24H}",
+            initialDelayString = "${image.dedup.rebuild-interval:PT24H}"
+    )
+    public void rebuild() {
+        synchronized (loadLock) {
+            long start = System.nanoTime();
+            ConcurrentMap<Long, BkTree> rebuilt = new ConcurrentHashMap<>();
+            long loadedUpTo = load(rebuilt, 0L);
+
+            // hashes added by matchAndAdd during the load are re-read by the next refresh
+            trees = rebuilt;
+            lastLoadedId = loadedUpTo;
+            log.info("Rebuilt perceptual hash index: {} hashes in {} schemes in {} ms",
+                    rebuilt.values().stream().mapToLong(PerceptualHashIndex::sizeOf).sum(),
+                    rebuilt.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${image.dedup.refresh-interval:PT30S}",
+            initialDelayString = "${image.dedup.refresh-interval:PT30S}"
+    )
+    public void refresh() {
+        synchronized (loadLock) {
+            lastLoadedId = load(trees, lastLoadedId);
+        }
+    }
+
+    private long load(ConcurrentMap<Long, BkTree> target, long afterId) {
+        LocalDateTime since = LocalDateTime.now().minus(window);
+        long lastId = afterId;
+
+        while (true) {
+            List<HashEntry> page = processedImageRepository
+                    .findByIdGreaterThanAndPerceptualHashIsNotNullAndSchemeIdIsNotNullAndProcessedAtGreaterThanEqualOrderByIdAsc(
+                            lastId, since, PageRequest.of(0, PAGE_SIZE));
+
+            for (HashEntry entry : page) {
+                BkTree tree = target.computeIfAbsent(entry.getSchemeId(), id -> new BkTree());
+                long readingId = entry.getReadingId() != null ? entry.getReadingId() : -entry.getId();
+                synchronized (tree) {
+                    tree.add(entry.getPerceptualHash(), readingId, entry.getProcessedAt().toLocalDate().toEpochDay());
+                }
+                lastId = entry.getId();
+            }
+
+            if (page.size() < PAGE_SIZE) {
+                return lastId;
+            }
+        }
+    }
+
+    private static long sizeOf(BkTree tree) {
+        synchronized (tree) {
+            return tree.size();
+        }
+    }
+}
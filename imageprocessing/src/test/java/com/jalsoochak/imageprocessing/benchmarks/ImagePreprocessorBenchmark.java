@@ -0,0 +1,192 @@
+package com.jalsoochak.imageprocessing.benchmarks;
+
+import com.jalsoochak.imageprocessing.services.ImagePreprocessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of {@link ImagePreprocessor} over a corpus of meter photos, on one thread and on one thread per
+ * core, plus the bytes saved on the corpus.
+ * <p>
+ * The corpus is every {@code .jpg}/{@code .jpeg}/{@code .png} file in the directory given by
+ * {@code -Dcorpus.dir}. Without it, a synthetic corpus of phone-sized meter faces with sensor noise (12, 8 and
+ * 3 MP) is generated, which is good for comparing changes but not for absolute numbers. Run with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.jalsoochak.imageprocessing.benchmarks.ImagePreprocessorBenchmark -Dcorpus.dir=...}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ImagePreprocessorBenchmark {
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(1280, 0.82f);
+    private final AtomicInteger next = new AtomicInteger();
+    private List<byte[]> corpus;
+
+    @Setup
+    public void setUp() throws IOException {
+        corpus = loadCorpus();
+    }
+
+    @Benchmark
+    public ImagePreprocessor.Result process() throws IOException {
+        byte[] photo = corpus.get(Math.floorMod(next.getAndIncrement(), corpus.size()));
+        return preprocessor.process(photo);
+    }
+
+    static List<byte[]> loadCorpus() throws IOException {
+        String dir = System.getProperty("corpus.dir");
+        if (dir == null || dir.isBlank()) {
+            return syntheticCorpus();
+        }
+
+        List<byte[]> photos = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Path.of(dir))) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+                if (name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png")) {
+                    photos.add(Files.readAllBytes(file));
+                }
+            }
+        }
+        if (photos.isEmpty()) {
+            throw new IOException("No photos in " + dir);
+        }
+        return photos;
+    }
+
+    private static List<byte[]> syntheticCorpus() throws IOException {
+        Random random = new Random(42);
+        List<byte[]> photos = new ArrayList<>();
+        int[][] sizes = {{4000, 3000}, {3264, 2448}, {2048, 1536}};
+        for (int[] size : sizes) {
+            for (int i = 0; i < 4; i++) {
+                photos.add(jpeg(meterFace(size[0], size[1], random), 0.92f));
+            }
+        }
+        return photos;
+    }
+
+    private static BufferedImage meterFace(int width, int height, Random random) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setPaint(new Color(70 + random.nextInt(40), 80 + random.nextInt(40), 90 + random.nextInt(40)));
+        g.fillRect(0, 0, width, height);
+
+        int dial = Math.min(width, height) * 3 / 4;
+        int x = (width - dial) / 2;
+        int y = (height - dial) / 2;
+        g.setPaint(new Color(230, 230, 220));
+        g.fillOval(x, y, dial, dial);
+        g.setPaint(Color.DARK_GRAY);
+        g.setStroke(new BasicStroke(dial / 100f));
+        g.drawOval(x, y, dial, dial);
+
+        g.setPaint(Color.BLACK);
+        g.fillRect(x + dial / 5, y + dial * 2 / 5, dial * 3 / 5, dial / 6);
+        g.setPaint(Color.WHITE);
+        g.setFont(new Font(Font.MONOSPACED, Font.BOLD, dial / 8));
+        g.drawString(String.format("%08d", random.nextInt(100_000_000)), x + dial / 5 + dial / 40, y + dial / 2 + dial / 40);
+        g.dispose();
+
+        // sensor noise, which is what makes camera JPEGs large
+        for (int py = 0; py < height; py++) {
+            for (int px = 0; px < width; px++) {
+                int rgb = image.getRGB(px, py);
+                int n = random.nextInt(25) - 12;
+                int r = clamp(((rgb >> 16) & 0xFF) + n);
+                int gr = clamp(((rgb >> 8) & 0xFF) + n);
+                int b = clamp((rgb & 0xFF) + n);
+                image.setRGB(px, py, (r << 16) | (gr << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static byte[] jpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<byte[]> corpus = loadCorpus();
+        ImagePreprocessor preprocessor = new ImagePreprocessor(1280, 0.82f);
+        long before = 0;
+        long after = 0;
+        for (byte[] photo : corpus) {
+            before += photo.length;
+            after += preprocessor.process(photo).jpeg().length;
+        }
+        System.out.printf("Corpus: %d photos, %,d -> %,d bytes (%.1f%% saved)%n",
+                corpus.size(), before, after, 100.0 * (before - after) / before);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : new int[]{1, cores}) {
+            Collection<RunResult> results = new Runner(new OptionsBuilder()
+                    .include(ImagePreprocessorBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .jvmArgsAppend(System.getProperty("corpus.dir") != null
+                            ? "-Dcorpus.dir=" + System.getProperty("corpus.dir")
+                            : "-Dcorpus.dir=")
+                    .build()).run();
+            for (RunResult result : results) {
+                double imagesPerSecond = result.getPrimaryResult().getScore();
+                System.out.printf("%d thread(s): %.1f images/s, %.1f images/s per core%n",
+                        threads, imagesPerSecond, imagesPerSecond / threads);
+            }
+        }
+    }
+}
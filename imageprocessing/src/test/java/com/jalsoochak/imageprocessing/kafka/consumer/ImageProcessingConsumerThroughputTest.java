@@ -0,0 +1,121 @@
+package com.jalsoochak.imageprocessing.kafka.consumer;
+
+import com.jalsoochak.imageprocessing.configs.KafkaConsumerConfig;
+import com.jalsoochak.imageprocessing.handlers.ImageProcessingService;
+import com.jalsoochak.imageprocessing.kafka.events.ImageProcessingMessage;
+import com.jalsoochak.imageprocessing.models.entities.ProcessedImage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the image-processing pipeline against an embedded broker with the real listener containers and a
+ * stubbed processing step: measures end-to-end throughput, checks per-scheme ordering and that a failed
+ * record reaches the retry topic and is processed from there.
+ */
+@SpringBootTest(
+        classes = {KafkaConsumerConfig.class, ImageProcessingConsumer.class,
+                ImageProcessingConsumerThroughputTest.TestConfig.class},
+        properties = {
+                "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+                "spring.kafka.consumer.auto-offset-reset=earliest",
+                "image.processing.retry.initial-interval=100ms"
+        }
+)
+@EmbeddedKafka(
+        partitions = 6,
+        topics = {"image-processing-topic", "image-processing-topic-retry", "image-processing-topic-dlt"}
+)
+class ImageProcessingConsumerThroughputTest {
+
+    private static final int MESSAGES = 5_000;
+    private static final int SCHEMES = 100;
+
+    @TestConfiguration
+    @ImportAutoConfiguration(KafkaAutoConfiguration.class)
+    static class TestConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockBean
+    private ImageProcessingService imageProcessingService;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Test
+    void processesMessagesInSchemeOrder() throws Exception {
+        CountDownLatch done = new CountDownLatch(MESSAGES);
+        Map<String, List<Integer>> seenByScheme = new ConcurrentHashMap<>();
+        when(imageProcessingService.processImageAsync(any())).thenAnswer(invocation -> {
+            ImageProcessingMessage message = invocation.getArgument(0);
+            if (message.getReadingUrl().startsWith("http://minio/t/")) {
+                String[] parts = message.getReadingUrl().substring("http://minio/t/".length()).split("/");
+                seenByScheme.computeIfAbsent(parts[0], k -> new CopyOnWriteArrayList<>()).add(Integer.parseInt(parts[1]));
+                done.countDown();
+            }
+            return CompletableFuture.completedFuture(new ProcessedImage());
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            String scheme = String.valueOf(i % SCHEMES);
+            ImageProcessingMessage message = new ImageProcessingMessage("http://minio/t/" + scheme + "/" + i);
+            message.setSchemeId((long) (i % SCHEMES));
+            kafkaTemplate.send("image-processing-topic", scheme, message);
+        }
+        kafkaTemplate.flush();
+
+        assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Processed %d image messages in %.2f s (%.0f msg/s)%n", MESSAGES, seconds, MESSAGES / seconds);
+
+        assertThat(seenByScheme).hasSize(SCHEMES);
+        seenByScheme.values().forEach(sequence -> assertThat(sequence).isSorted());
+    }
+
+    @Test
+    void failedRecordIsProcessedFromRetryTopic() throws Exception {
+        AtomicBoolean failedOnce = new AtomicBoolean();
+        CountDownLatch retried = new CountDownLatch(1);
+        when(imageProcessingService.processImageAsync(any())).thenAnswer(invocation -> {
+            ImageProcessingMessage message = invocation.getArgument(0);
+            if ("http://minio/flaky.jpg".equals(message.getReadingUrl())) {
+                if (failedOnce.compareAndSet(false, true)) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("MinIO unavailable"));
+                }
+                retried.countDown();
+            }
+            return CompletableFuture.completedFuture(new ProcessedImage());
+        });
+
+        kafkaTemplate.send("image-processing-topic", "7", new ImageProcessingMessage("http://minio/flaky.jpg"));
+
+        assertThat(retried.await(30, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,117 @@
+package com.jalsoochak.imageprocessing.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BkTreeTest {
+
+    private static final long HASH = 0x5A5A_F0F0_1234_ABCDL;
+
+    @Test
+    void addsEachReadingOnce() {
+        BkTree tree = new BkTree();
+
+        tree.add(HASH, 1, 100);
+        tree.add(HASH, 1, 100);
+        tree.add(HASH, 2, 100);
+        tree.add(flip(HASH, 3), 3, 100);
+
+        assertThat(tree.size()).isEqualTo(3);
+    }
+
+    @Test
+    void findsAnExactCopyAtDistanceZero() {
+        BkTree tree = new BkTree();
+        tree.add(flip(HASH, 2), 1, 100);
+        tree.add(HASH, 2, 100);
+
+        BkTree.Match match = tree.nearest(HASH, 4, 0, -1);
+
+        assertThat(match.readingId()).isEqualTo(2);
+        assertThat(match.distance()).isZero();
+    }
+
+    @Test
+    void includesAHashAtTheRadiusAndNothingBeyondIt() {
+        BkTree tree = new BkTree();
+        tree.add(flip(HASH, 5), 1, 100);
+        tree.add(flip(HASH, 9), 2, 100);
+
+        assertThat(tree.nearest(HASH, 5, 0, -1).distance()).isEqualTo(5);
+        assertThat(tree.nearest(HASH, 4, 0, -1)).isNull();
+    }
+
+    @Test
+    void skipsTheExcludedReadingAndHashesOlderThanTheWindow() {
+        BkTree tree = new BkTree();
+        tree.add(HASH, 1, 100);
+        tree.add(flip(HASH, 1), 2, 90);
+        tree.add(flip(HASH, 3), 3, 100);
+
+        BkTree.Match match = tree.nearest(HASH, 4, 95, 1);
+
+        assertThat(match.readingId()).isEqualTo(3);
+        assertThat(match.distance()).isEqualTo(3);
+        assertThat(tree.nearest(HASH, 2, 95, 1)).isNull();
+    }
+
+    @Test
+    void answersLikeABruteForceScan() {
+        Random random = new Random(42);
+        long[] centres = random.longs(20).toArray();
+        List<long[]> entries = new ArrayList<>();
+        BkTree tree = new BkTree();
+        for (long readingId = 1; readingId <= 2_000; readingId++) {
+            // clustered around a few centres, so that most queries have several hashes in range
+            long hash = flip(centres[random.nextInt(centres.length)], random.nextInt(12), random);
+            long epochDay = random.nextInt(30);
+            entries.add(new long[]{hash, readingId, epochDay});
+            tree.add(hash, readingId, epochDay);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            long query = flip(centres[random.nextInt(centres.length)], random.nextInt(12), random);
+            int maxDistance = random.nextInt(11);
+            long minEpochDay = random.nextInt(30);
+            long excludeReadingId = random.nextInt(2_000) + 1;
+
+            Integer expected = null;
+            for (long[] entry : entries) {
+                int distance = Long.bitCount(entry[0] ^ query);
+                if (distance <= maxDistance && entry[2] >= minEpochDay && entry[1] != excludeReadingId
+                        && (expected == null || distance < expected)) {
+                    expected = distance;
+                }
+            }
+
+            BkTree.Match match = tree.nearest(query, maxDistance, minEpochDay, excludeReadingId);
+            if (expected == null) {
+                assertThat(match).isNull();
+            } else {
+                // ties may resolve to another reading; the distance and the filters must hold
+                assertThat(match.distance()).isEqualTo(expected);
+                assertThat(Long.bitCount(match.hash() ^ query)).isEqualTo(expected);
+                assertThat(match.epochDay()).isGreaterThanOrEqualTo(minEpochDay);
+                assertThat(match.readingId()).isNotEqualTo(excludeReadingId);
+            }
+        }
+    }
+
+    /** Flips the lowest {@code bits} bits. */
+    private static long flip(long hash, int bits) {
+        return hash ^ ((1L << bits) - 1);
+    }
+
+    private static long flip(long hash, int bits, Random random) {
+        long flipped = hash;
+        while (Long.bitCount(flipped ^ hash) < bits) {
+            flipped ^= 1L << random.nextInt(64);
+        }
+        return flipped;
+    }
+}
@@ -0,0 +1,27 @@
+package com.jalsoochak.messaging_orchestrator_service.controllers;
+
+import com.jalsoochak.messaging_orchestrator_service.models.entities.JobShard;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class JobShardController {
+    private final ShardedJobRunner shardedJobRunner;
+
+    /**
+     * Per-shard progress of a sharded job: run key, status, owning replica and items processed so far.
+     */
+    @GetMapping("/{jobName}/shards")
+    public ResponseEntity<List<JobShard>> shards(@PathVariable String jobName) {
+        return ResponseEntity.ok(shardedJobRunner.shards(jobName));
+    }
+}
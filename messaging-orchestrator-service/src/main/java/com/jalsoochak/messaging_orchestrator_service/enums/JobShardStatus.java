@@ -0,0 +1,7 @@
+package com.jalsoochak.messaging_orchestrator_service.enums;
+
+public enum JobShardStatus {
+    RUNNING,
+    DONE,
+    FAILED
+}
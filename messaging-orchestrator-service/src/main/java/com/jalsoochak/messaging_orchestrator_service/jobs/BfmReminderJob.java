@@ -3,91 +3,171 @@ package com.jalsoochak.messaging_orchestrator_service.jobs;
 import com.jalsoochak.messaging_orchestrator_service.enums.MessageStatus;
 import com.jalsoochak.messaging_orchestrator_service.enums.MessageType;
 import com.jalsoochak.messaging_orchestrator_service.models.entities.Message;
-import com.jalsoochak.messaging_orchestrator_service.models.entities.PersonMaster;
 import com.jalsoochak.messaging_orchestrator_service.repositories.MessageRepository;
+import com.jalsoochak.messaging_orchestrator_service.repositories.MessageRepository.ReminderCandidate;
 import com.jalsoochak.messaging_orchestrator_service.repositories.PersonRepository;
 import com.jalsoochak.messaging_orchestrator_service.services.GlificService;
-import lombok.RequiredArgsConstructor;
+import com.jalsoochak.messaging_orchestrator_service.services.HsmDispatcher;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner.IncompleteShardException;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner.Shard;
 import lombok.extern.slf4j.Slf4j;
-import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
 
+/**
+ * Sends the daily BFM reminder HSM to every pump operator not reminded yet today.
+ * <p>
+ * The operators are split into {@code bfm-reminder.shards} hash shards on person id, run through
+ * {@link ShardedJobRunner}, so every replica sends a share of the reminders. The later firings (06:00, 07:00)
+ * only pick up shards that are not DONE for today, e.g. ones a replica died on. A shard with failed sends is
+ * left FAILED rather than DONE, so those firings retry them: operators whose reminder failed are candidates
+ * again, as only a SENT reminder counts.
+ * <p>
+ * Within a shard, candidates come a page at a time from {@link MessageRepository#findReminderCandidates}, which
+ * does the "already reminded today" check and the receiver id lookup for the whole page in one query. A page's
+ * messages are saved as PENDING together and then handed to the {@link HsmDispatcher}, which sends them
+ * concurrently within Glific's rate limit; each outcome is written back by
+ * {@link MessageRepository#updateStatus} in its own short transaction, so a failure part way through keeps what
+ * was sent.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class BfmReminderJob {
+
+    static final String JOB_NAME = "BfmReminderJob_sendDailyReminder";
+    static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+    private static final String PUMP_OPERATOR = "pump_operator";
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final Duration SHARD_LOCK_AT_MOST_FOR = Duration.ofMinutes(50);
+
     private final PersonRepository personRepository;
     private final MessageRepository messageRepository;
     private final GlificService glificService;
+    private final HsmDispatcher hsmDispatcher;
+    private final ShardedJobRunner shardedJobRunner;
+    private final int pageSize;
+    private final int shardCount;
+
+    public BfmReminderJob(PersonRepository personRepository,
+                          MessageRepository messageRepository,
+                          GlificService glificService,
+                          HsmDispatcher hsmDispatcher,
+                          ShardedJobRunner shardedJobRunner,
+                          @Value("${bfm-reminder.page-size:500}") int pageSize,
+                          @Value("${bfm-reminder.shards:8}") int shardCount) {
+        this.personRepository = personRepository;
+        this.messageRepository = messageRepository;
+        this.glificService = glificService;
+        this.hsmDispatcher = hsmDispatcher;
+        this.shardedJobRunner = shardedJobRunner;
+        this.pageSize = pageSize;
+        this.shardCount = shardCount;
+    }
 
     @Scheduled(
-            cron = "0 0 5 * * ?",
+            cron = "0 0 5-7 * * ?",
             zone = "Asia/Kolkata"
     )
-    @SchedulerLock(
-            name = "BfmReminderJob_sendDailyReminder",
-            lockAtMostFor = "10m",
-            lockAtLeastFor = "1m"
-    )
-//@Scheduled(
-//        fixedRate = 60000
-//)
-//@SchedulerLock(
-//        name = "BfmReminderJob_sendDailyReminder",
-//        lockAtMostFor = "10m",
-//        lockAtLeastFor = "1m"
-//)
-@Transactional
     public void sendDailyBfmReminder() {
-        log.info("BFM reminder job started");
-        List<PersonMaster> pumpOperators =
-                personRepository.findByDeletedAtIsNullAndPersonType_cName("pump_operator");
+        LocalDate today = LocalDate.now(ZONE);
+        Instant dayStart = today.atStartOfDay(ZONE).toInstant();
+        Instant dayEnd = today.plusDays(1).atStartOfDay(ZONE).toInstant();
 
-        for (PersonMaster person : pumpOperators) {
-            boolean sentToday =
-                    messageRepository.existsBfmReminderSentToday(person.getId());
-
-            if (sentToday) {
-                continue;
-            }
-
-            Long receiverId =
-                    messageRepository.findLatestReceiverId(person.getId());
+        int ran = shardedJobRunner.run(JOB_NAME, today.toString(), shardCount,
+                SHARD_LOCK_AT_MOST_FOR, Duration.ZERO,
+                (shard, progress) -> remindShard(shard, dayStart, dayEnd, progress));
+        log.info("BFM reminder job: this replica ran {} of {} shards for {}", ran, shardCount, today);
+    }
 
-            log.info("receiverid for job: {}", receiverId);
+    private long remindShard(Shard shard, Instant dayStart, Instant dayEnd, LongConsumer progress) {
+        long start = System.nanoTime();
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        long afterId = 0;
+        int skipped = 0;
+        while (true) {
+            List<ReminderCandidate> page = messageRepository.findReminderCandidates(
+                    PUMP_OPERATOR, dayStart, dayEnd, shard.index(), shard.count(), afterId, pageSize);
 
-            if (receiverId == null) {
-                log.warn("Skipping personId={} (no receiverId)", person.getId());
-                continue;
+            List<Message> pending = new ArrayList<>(page.size());
+            for (ReminderCandidate candidate : page) {
+                if (candidate.getReceiverId() == null) {
+                    log.warn("Skipping personId={} (no receiverId)", candidate.getPersonId());
+                    skipped++;
+                    continue;
+                }
+                pending.add(pendingMessage(candidate));
             }
 
-            Message message = Message.builder()
-                    .person(person)
-                    .phoneNumber(person.getPhoneNumber())
-                    .receiverId(receiverId)
-                    .type(MessageType.BFM_REMINDER)
-                    .status(MessageStatus.PENDING)
-                    .createdAt(Instant.now())
-                    .build();
-
-            messageRepository.save(message);
-
+            // the next page is only read once this one is queued, and submit blocks while max-in-flight are busy
             try {
+                for (Message message : messageRepository.saveAll(pending)) {
+                    sends.add(hsmDispatcher.submit(() -> glificService.sendBfmReminderHsm(message.getReceiverId()))
+                            .handle((ignored, error) -> {
+                                recordOutcome(message, error, error == null ? sent : failed);
+                                return null;
+                            }));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted; unsent messages of this page stay PENDING", e);
+            }
+            progress.accept(sent.get() + failed.get());
 
-                glificService.sendBfmReminderHsm(receiverId);
+            if (page.size() < pageSize) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getPersonId();
+        }
+
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        log.info("BFM reminder shard {}/{} completed in {} s: {} sent ({} /s), {} failed, {} without receiverId",
+                shard.index(), shard.count(), String.format("%.1f", seconds), sent.get(),
+                String.format("%.1f", sent.get() / seconds), failed.get(), skipped);
+        if (failed.get() > 0) {
+            throw new IncompleteShardException(sent.get() + failed.get(),
+                    failed.get() + " reminders failed, retried on the next firing");
+        }
+        return sent.get() + failed.get();
+    }
+    private Message pendingMessage(ReminderCandidate candidate) {
+        return Message.builder()
+                .person(personRepository.getReferenceById(candidate.getPersonId()))
+                .phoneNumber(candidate.getPhoneNumber())
+                .receiverId(candidate.getReceiverId())
+                .type(MessageType.BFM_REMINDER)
+                .status(MessageStatus.PENDING)
+                .createdAt(Instant.now())
+                .build();
+    }
 
-                message.setStatus(MessageStatus.SENT);
-                message.setSentAt(Instant.now());
-            } catch (Exception e) {
-                message.setStatus(MessageStatus.FAILED);
-                message.setErrorMessage(e.getMessage());
+    private void recordOutcome(Message message, Throwable error, AtomicInteger counter) {
+        counter.incrementAndGet();
+        try {
+            if (error == null) {
+                messageRepository.updateStatus(message.getId(), MessageStatus.SENT, Instant.now(), null);
+            } else {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                String reason = String.valueOf(cause.getMessage());
+                messageRepository.updateStatus(message.getId(), MessageStatus.FAILED, null,
+                        reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason);
             }
+        } catch (Exception e) {
+            log.error("Failed to record status of messageId={}: {}", message.getId(), e.getMessage());
         }
-        log.info("BFM reminder job completed");
     }
 }
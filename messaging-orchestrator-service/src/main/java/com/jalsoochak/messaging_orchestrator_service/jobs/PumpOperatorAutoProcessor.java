@@ -1,67 +1,127 @@
 package com.jalsoochak.messaging_orchestrator_service.jobs;
 
-import com.jalsoochak.messaging_orchestrator_service.enums.MessageStatus;
 import com.jalsoochak.messaging_orchestrator_service.enums.MessageType;
 import com.jalsoochak.messaging_orchestrator_service.kafka.producers.EventProducerService;
+import com.jalsoochak.messaging_orchestrator_service.models.entities.JobWatermark;
 import com.jalsoochak.messaging_orchestrator_service.models.entities.PersonMaster;
-import com.jalsoochak.messaging_orchestrator_service.repositories.MessageRepository;
+import com.jalsoochak.messaging_orchestrator_service.repositories.JobWatermarkRepository;
 import com.jalsoochak.messaging_orchestrator_service.repositories.PersonRepository;
-import lombok.RequiredArgsConstructor;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner.Shard;
 import lombok.extern.slf4j.Slf4j;
 import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
+/**
+ * Publishes a pump-operator-created event for every new pump operator without a welcome message.
+ * <p>
+ * The operators are split into {@code pump-operator-processor.shards} hash shards on person id, run through
+ * {@link ShardedJobRunner}. Each shard keeps a person id high-water mark in {@code job_watermark} and only looks
+ * at ids above it, with one anti-join against {@code message}; when nobody was onboarded a run costs a
+ * {@code MAX(id)} and a watermark read per shard. The scan starts {@code pump-operator-processor.id-overlap} ids
+ * below the mark, so persons committed slightly out of id order are still seen. Persons the mark moved past
+ * otherwise (a late commit, a type change, an undelete) are picked up after the daily rewind.
+ * <p>
+ * Besides the {@code pump-operator-processor.interval} poll, ManagementService's operator-mapping-changed
+ * event triggers a run right after onboarding.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PumpOperatorAutoProcessor {
+
+    static final String JOB_NAME = "PumpOperatorAutoProcessor_processNewPumpOperators";
+    private static final String PUMP_OPERATOR = "pump_operator";
+    private static final Duration SHARD_LOCK_AT_MOST_FOR = Duration.ofMinutes(5);
+
     private final PersonRepository personRepository;
+    private final JobWatermarkRepository jobWatermarkRepository;
     private final EventProducerService eventProducerService;
-    private final MessageRepository messageRepository;
+    private final ShardedJobRunner shardedJobRunner;
+    private final TransactionTemplate transactionTemplate;
+    private final int shardCount;
+    private final int pageSize;
+    private final long idOverlap;
+
+    public PumpOperatorAutoProcessor(PersonRepository personRepository,
+                                     JobWatermarkRepository jobWatermarkRepository,
+                                     EventProducerService eventProducerService,
+                                     ShardedJobRunner shardedJobRunner,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${pump-operator-processor.shards:4}") int shardCount,
+                                     @Value("${pump-operator-processor.page-size:500}") int pageSize,
+                                     @Value("${pump-operator-processor.id-overlap:100}") long idOverlap) {
+        this.personRepository = personRepository;
+        this.jobWatermarkRepository = jobWatermarkRepository;
+        this.eventProducerService = eventProducerService;
+        this.shardedJobRunner = shardedJobRunner;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardCount = shardCount;
+        this.pageSize = pageSize;
+        this.idOverlap = idOverlap;
+    }
+
+    @Scheduled(fixedDelayString = "${pump-operator-processor.interval:PT60S}")
+    public void processNewPumpOperators() {
+        int ran = shardedJobRunner.run(JOB_NAME, null, shardCount, SHARD_LOCK_AT_MOST_FOR, Duration.ZERO,
+                (shard, progress) -> transactionTemplate.execute(status -> processShard(shard)));
+        log.debug("Auto-processing: this replica ran {} of {} shards", ran, shardCount);
+    }
 
-    @Scheduled(fixedDelay = 60000)
+    /**
+     * Moves every shard's high-water mark back to the start, so the next runs re-check all operators once.
+     */
+    @Scheduled(cron = "${pump-operator-processor.rewind-cron:0 30 4 * * ?}", zone = "Asia/Kolkata")
     @SchedulerLock(
-            name = "WelcomeMessageJob_sendWelcomeMessages",
+            name = "PumpOperatorAutoProcessor_rewind",
             lockAtMostFor = "5m",
             lockAtLeastFor = "1m"
     )
-    @Transactional
-    public void processNewPumpOperators() {
-        log.info("Auto-processing pump operators started");
-
-        List<PersonMaster> pumpOperators =
-                personRepository.findByDeletedAtIsNullAndPersonType_cName("pump_operator");
+    public void rewind() {
+        int rewound = jobWatermarkRepository.rewind(JOB_NAME + "_shard_", Instant.now());
+        log.info("Rewound {} pump operator watermarks", rewound);
+    }
 
-        int processed = 0;
-        int skipped = 0;
+    private long processShard(Shard shard) {
+        String watermarkName = JOB_NAME + "_shard_" + shard.index();
+        JobWatermark watermark = jobWatermarkRepository.findById(watermarkName)
+                .orElseGet(() -> JobWatermark.builder().jobName(watermarkName).lastId(0L).build());
 
-        for (PersonMaster person : pumpOperators) {
+        Long maxId = personRepository.findMaxId();
+        if (maxId == null || maxId <= watermark.getLastId()) {
+            return 0;
+        }
 
-            boolean alreadyProcessed =
-                    messageRepository.existsByPersonAndTypeAndStatusIn(
-                            person,
-                            MessageType.WELCOME,
-                            List.of(
-                                    MessageStatus.PENDING,
-                                    MessageStatus.SENT,
-                                    MessageStatus.FAILED
-                            )
-                    );
+        long afterId = Math.max(0, watermark.getLastId() - idOverlap);
+        long queued = 0;
+        while (true) {
+            List<PersonMaster> page = personRepository.findWithoutMessageInShard(
+                    PUMP_OPERATOR, MessageType.WELCOME, afterId, maxId, shard.index(), shard.count(),
+                    PageRequest.of(0, pageSize));
+            queued += eventProducerService.queuePumpOperatorsCreated(page);
 
-            if (alreadyProcessed) {
-                skipped++;
-                continue;
+            if (page.size() < pageSize) {
+                break;
             }
-
-            eventProducerService.publishPumpOperatorCreated(person);
-            processed++;
+            afterId = page.get(page.size() - 1).getId();
         }
 
-        log.info("Auto-processing completed. processed={}, skipped={}",
-                processed, skipped);
+        watermark.setLastId(maxId);
+        watermark.setUpdatedAt(Instant.now());
+        jobWatermarkRepository.save(watermark);
+
+        if (queued > 0) {
+            log.info("Auto-processing shard {}/{}: queued {} new pump operators up to id {}",
+                    shard.index(), shard.count(), queued, maxId);
+        }
+        return queued;
     }
 }
@@ -0,0 +1,34 @@
+package com.jalsoochak.messaging_orchestrator_service.kafka.consumers;
+
+import com.jalsoochak.messaging_orchestrator_service.jobs.PumpOperatorAutoProcessor;
+import com.jalsoochak.messaging_orchestrator_service.kafka.events.OperatorMappingChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs new-operator detection as soon as ManagementService reports onboarded or remapped operators (sent after
+ * its transaction commits), instead of waiting for the next poll. The event only triggers the run; the
+ * watermark scan finds the new persons.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OperatorOnboardedConsumer {
+    private final PumpOperatorAutoProcessor pumpOperatorAutoProcessor;
+
+    @KafkaListener(
+            topics = "${kafka.topics.operator-mapping-changed:operator-mapping-changed}",
+            groupId = "messaging-orchestrator-new-operators",
+            properties = {
+                    "spring.json.use.type.headers=false",
+                    "spring.json.value.default.type=com.jalsoochak.messaging_orchestrator_service.kafka.events.OperatorMappingChangedEvent"
+            }
+    )
+    public void onOperatorsChanged(OperatorMappingChangedEvent event) {
+        log.info("Operator mappings changed for tenant {}, checking for new pump operators",
+                event != null ? event.getTenantId() : null);
+        pumpOperatorAutoProcessor.processNewPumpOperators();
+    }
+}
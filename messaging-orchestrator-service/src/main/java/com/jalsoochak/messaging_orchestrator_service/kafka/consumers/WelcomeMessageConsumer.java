@@ -22,10 +22,30 @@ public class WelcomeMessageConsumer {
     private final GlificService glificService;
     private final MessageRepository messageRepository;
 
-    @KafkaListener(topics = "pump-operator-created", groupId = "welcome-message-group")
+    @KafkaListener(
+            topics = "pump-operator-created",
+            groupId = "welcome-message-group",
+            properties = {
+                    "spring.json.use.type.headers=false",
+                    "spring.json.value.default.type=com.jalsoochak.messaging_orchestrator_service.kafka.events.PumpOperatorCreatedEvent"
+            }
+    )
     @Transactional
     public void handlePumpOperatorCreated(PumpOperatorCreatedEvent event) {
         log.info("Processing welcome message for pump operator: {}", event.getPhoneNumber());
+
+        // events come from the outbox at least once; only a PENDING welcome message still needs sending
+        List<Message> pendingMessages = messageRepository.findByPersonIdAndTypeAndStatus(
+                event.getPersonId(),
+                MessageType.WELCOME,
+                MessageStatus.PENDING
+        );
+        if (pendingMessages.isEmpty()) {
+            log.info("No pending welcome message for person {}, skipping redelivered event", event.getPersonId());
+            return;
+        }
+        Message message = pendingMessages.get(0);
+
         try {
             Long receiverId = glificService.createContact(event.getFullName(), event.getPhoneNumber());
             log.info("Created contact with receiverId: {}", receiverId);
@@ -36,35 +56,17 @@ public class WelcomeMessageConsumer {
             glificService.sendWelcomeHsm(receiverId);
             log.info("Welcome HSM sent to receiverId: {}", receiverId);
 
-            List<Message> pendingMessages = messageRepository.findByPersonIdAndTypeAndStatus(
-                    event.getPersonId(),
-                    MessageType.WELCOME,
-                    MessageStatus.PENDING
-            );
-
-            if (!pendingMessages.isEmpty()) {
-                Message message = pendingMessages.get(0);
-                message.setReceiverId(receiverId);
-                message.setStatus(MessageStatus.SENT);
-                message.setSentAt(Instant.now());
-                messageRepository.save(message);
-            }
+            message.setReceiverId(receiverId);
+            message.setStatus(MessageStatus.SENT);
+            message.setSentAt(Instant.now());
+            messageRepository.save(message);
         } catch (Exception e) {
             log.error("Failed to send welcome message for {}: {}",
                     event.getPhoneNumber(), e.getMessage(), e);
 
-            List<Message> pendingMessages = messageRepository.findByPersonIdAndTypeAndStatus(
-                    event.getPersonId(),
-                    MessageType.WELCOME,
-                    MessageStatus.PENDING
-            );
-
-            if (!pendingMessages.isEmpty()) {
-                Message message = pendingMessages.get(0);
-                message.setStatus(MessageStatus.FAILED);
-                message.setErrorMessage(e.getMessage());
-                messageRepository.save(message);
-            }
+            message.setStatus(MessageStatus.FAILED);
+            message.setErrorMessage(e.getMessage());
+            messageRepository.save(message);
         }
     }
 }
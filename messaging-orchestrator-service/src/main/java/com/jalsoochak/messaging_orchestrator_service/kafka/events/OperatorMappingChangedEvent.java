@@ -0,0 +1,15 @@
+package com.jalsoochak.messaging_orchestrator_service.kafka.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperatorMappingChangedEvent {
+    private String tenantId;
+    private List<String> phoneNumbers;
+}
@@ -1,67 +1,153 @@
 package com.jalsoochak.messaging_orchestrator_service.kafka.producers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jalsoochak.messaging_orchestrator_service.enums.MessageStatus;
 import com.jalsoochak.messaging_orchestrator_service.enums.MessageType;
 import com.jalsoochak.messaging_orchestrator_service.kafka.events.PumpOperatorCreatedEvent;
-import com.jalsoochak.messaging_orchestrator_service.models.entities.Message;
 import com.jalsoochak.messaging_orchestrator_service.models.entities.PersonMaster;
 import com.jalsoochak.messaging_orchestrator_service.repositories.MessageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Announces new pump operators through the transactional outbox: the PENDING welcome messages and their
+ * {@code outbox_event} rows are inserted in the caller's transaction and {@link OutboxRelay} publishes them to
+ * Kafka after commit. A rolled back transaction therefore never leaves an event behind, and a committed one is
+ * never lost.
+ * <p>
+ * {@code uk_message_welcome_person} allows one PENDING or SENT welcome per person. The welcomes are one JDBC
+ * batch of {@code INSERT ... ON DUPLICATE KEY UPDATE id = id}, sent as multi-row INSERTs, and only the persons
+ * whose row was actually inserted get an event, so two replicas queueing the same operator concurrently announce
+ * them once. A rewritten batch does not report which rows were skipped, so the inserted ones are read back by
+ * their {@code created_at}, which is the same for the whole call. The events are one JDBC batch as well.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EventProducerService {
-    private final KafkaTemplate<String, PumpOperatorCreatedEvent> kafkaTemplate;
+    static final String PUMP_OPERATOR_CREATED_TOPIC = "pump-operator-created";
+    private static final int LOOKUP_CHUNK = 1000;
+
     private final MessageRepository messageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
 
-    public void publishPumpOperatorCreated(PersonMaster person) {
-        try {
-            boolean hasWelcomeMessage = messageRepository.existsByPersonAndTypeAndStatusIn(
-                    person,
-                    MessageType.WELCOME,
-                    java.util.List.of(MessageStatus.PENDING, MessageStatus.SENT)
-            );
-            if (hasWelcomeMessage) {
-                log.info("Welcome message already exists for person: {}", person.getPhoneNumber());
-                return;
+    /**
+     * Queues a pump-operator-created event and a PENDING welcome message for each person that has no PENDING or
+     * SENT welcome message yet.
+     *
+     * @return the number of events queued
+     */
+    @Transactional
+    public int publishPumpOperatorsCreated(List<PersonMaster> persons) {
+        if (persons.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, PersonMaster> byId = new LinkedHashMap<>();
+        persons.forEach(person -> byId.putIfAbsent(person.getId(), person));
+        Set<Long> welcomed = lookUp(byId.keySet(), chunk -> messageRepository.findPersonIdsWithMessage(
+                chunk,
+                MessageType.WELCOME,
+                List.of(MessageStatus.PENDING, MessageStatus.SENT)
+        ));
+        byId.keySet().removeAll(welcomed);
+        log.info("Skipping {} already welcomed pump operators", welcomed.size());
+        return queuePumpOperatorsCreated(new ArrayList<>(byId.values()));
+    }
+
+    /**
+     * Queues a pump-operator-created event and a PENDING welcome message for each person that gets its welcome
+     * inserted here, for callers that already filtered out persons with a welcome message.
+     *
+     * @return the number of events queued
+     */
+    @Transactional
+    public int queuePumpOperatorsCreated(List<PersonMaster> persons) {
+        if (persons.isEmpty()) {
+            return 0;
+        }
+
+        // the column keeps microseconds; truncating here lets the read-back match created_at exactly
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Timestamp createdAt = Timestamp.from(now);
+        List<Object[]> welcomes = new ArrayList<>(persons.size());
+        for (PersonMaster person : persons) {
+            welcomes.add(new Object[]{
+                    person.getId(), person.getPhoneNumber(), MessageType.WELCOME.name(),
+                    MessageStatus.PENDING.name(), createdAt
+            });
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO message (person_id, phone_number, type, status, created_at, version) "
+                        + "VALUES (?, ?, ?, ?, ?, 0) ON DUPLICATE KEY UPDATE id = id",
+                welcomes
+        );
+
+        Set<Long> inserted = lookUp(
+                persons.stream().map(PersonMaster::getId).collect(Collectors.toCollection(LinkedHashSet::new)),
+                chunk -> messageRepository.findPersonIdsWithMessageCreatedAt(chunk, MessageType.WELCOME, now)
+        );
+        List<Object[]> events = new ArrayList<>(inserted.size());
+        for (PersonMaster person : persons) {
+            if (inserted.remove(person.getId())) {
+                events.add(new Object[]{
+                        PUMP_OPERATOR_CREATED_TOPIC, person.getPhoneNumber(), toJson(person, now), createdAt
+                });
             }
-            Message message = Message.builder()
-                    .phoneNumber(person.getPhoneNumber())
-                    .person(person)
-                    .type(MessageType.WELCOME)
-                    .status(MessageStatus.PENDING)
-                    .createdAt(Instant.now())
-                    .build();
-            messageRepository.save(message);
+        }
+
+        if (events.isEmpty()) {
+            log.info("All {} pump operators already had a welcome message", persons.size());
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO outbox_event (topic, message_key, payload, created_at, attempts) "
+                        + "VALUES (?, ?, ?, ?, 0)",
+                events
+        );
+        log.info("Queued {} pump operator created events, {} already welcomed",
+                events.size(), persons.size() - events.size());
+        return events.size();
+    }
 
-            PumpOperatorCreatedEvent event = new PumpOperatorCreatedEvent(
+    private static Set<Long> lookUp(Collection<Long> personIds, Function<List<Long>, Set<Long>> query) {
+        List<Long> ids = new ArrayList<>(personIds);
+        Set<Long> found = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK) {
+            found.addAll(query.apply(ids.subList(from, Math.min(ids.size(), from + LOOKUP_CHUNK))));
+        }
+        return found;
+    }
+
+    private String toJson(PersonMaster person, Instant createdAt) {
+        try {
+            return objectMapper.writeValueAsString(new PumpOperatorCreatedEvent(
                     person.getId(),
                     person.getFullName(),
                     person.getPhoneNumber(),
-                    Instant.now()
-            );
-            kafkaTemplate.send("pump-operator-created", person.getPhoneNumber(), event)
-                    .whenComplete((result, ex) -> {
-                        if (ex != null) {
-                            log.error("Failed to publish event for person {}: {}",
-                                    person.getId(), ex.getMessage());
-                            message.setStatus(MessageStatus.FAILED);
-                            message.setErrorMessage("Failed to publish event: " + ex.getMessage());
-                            messageRepository.save(message);
-                        } else {
-                            log.info("Published pump operator created event for {}",
-                                    person.getPhoneNumber());
-                        }
-                    });
-        } catch (Exception e){
-            log.error("Error publishing event for person {}: {}",
-                    person.getId(), e.getMessage(), e);
+                    createdAt
+            ));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize event for person " + person.getId(), e);
         }
     }
 }
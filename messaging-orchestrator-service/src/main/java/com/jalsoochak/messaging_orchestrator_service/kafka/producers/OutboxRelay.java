@@ -0,0 +1,165 @@
+package com.jalsoochak.messaging_orchestrator_service.kafka.producers;
+
+import com.jalsoochak.messaging_orchestrator_service.models.entities.OutboxEvent;
+import com.jalsoochak.messaging_orchestrator_service.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes {@code outbox_event} rows to Kafka in id order, {@code outbox.relay.batch-size} at a time: a batch is
+ * sent without waiting between records, flushed, and the records Kafka acknowledged are marked published with one
+ * update. Delivery is at least once (a crash between the send and the update resends the batch), so consumers
+ * have to tolerate duplicates.
+ * <p>
+ * One replica relays at a time (ShedLock), which keeps records for the same key in order. A batch stops at its
+ * first failed record; that record and everything after it are retried after a backoff that doubles with the
+ * record's attempts, up to {@code outbox.relay.max-backoff}. A record that fails {@code outbox.relay.max-attempts}
+ * times is parked instead and the relay carries on with the records behind it, so one poison record cannot
+ * hold back the whole outbox. Later records with the parked record's key then overtake it; parked rows stay in
+ * the table (with their last error) until someone resets {@code parked_at}.
+ */
+@Slf4j
+@Service
+public class OutboxRelay {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> outboxKafkaTemplate;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration retention;
+    private final int maxAttempts;
+    private final Duration maxBackoff;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Counter parkedCounter;
+    private volatile Instant retryAt = Instant.MIN;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       @Qualifier("outboxKafkaTemplate") KafkaTemplate<String, String> outboxKafkaTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.relay.send-timeout:30s}") Duration sendTimeout,
+                       @Value("${outbox.retention:7d}") Duration retention,
+                       @Value("${outbox.relay.max-attempts:20}") int maxAttempts,
+                       @Value("${outbox.relay.max-backoff:5m}") Duration maxBackoff) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxKafkaTemplate = outboxKafkaTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.retention = retention;
+        this.maxAttempts = maxAttempts;
+        this.maxBackoff = maxBackoff;
+        this.publishedCounter = meterRegistry.counter("outbox.relay.records", "outcome", "published");
+        this.failedCounter = meterRegistry.counter("outbox.relay.records", "outcome", "failed");
+        this.parkedCounter = meterRegistry.counter("outbox.relay.records", "outcome", "parked");
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval:PT1S}")
+    @SchedulerLock(
+            name = "OutboxRelay_relay",
+            lockAtMostFor = "5m"
+    )
+    public void relay() {
+        if (Instant.now().isBefore(retryAt)) {
+            return;
+        }
+        while (true) {
+            List<OutboxEvent> batch = outboxEventRepository.findByPublishedAtIsNullAndParkedAtIsNullOrderByIdAsc(
+                    PageRequest.of(0, batchSize));
+            if (batch.isEmpty() || !publish(batch) || batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return whether the whole batch was published or parked
+     */
+    private boolean publish(List<OutboxEvent> batch) {
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            sends.add(outboxKafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload()));
+        }
+        outboxKafkaTemplate.flush();
+
+        List<Long> published = new ArrayList<>(batch.size());
+        boolean complete = true;
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            try {
+                sends.get(i).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                published.add(event.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                complete = false;
+                break;
+            } catch (Exception e) {
+                if (!recordFailure(event, e)) {
+                    // later records may have been written too, but marking them would let them overtake this one
+                    complete = false;
+                    break;
+                }
+            }
+        }
+
+        if (!published.isEmpty()) {
+            outboxEventRepository.markPublished(published, Instant.now());
+            publishedCounter.increment(published.size());
+        }
+        return complete;
+    }
+
+    /**
+     * Counts the failed attempt, and parks the record once it has used up its attempts.
+     *
+     * @return whether the record was parked, so the relay can move past it
+     */
+    private boolean recordFailure(OutboxEvent event, Exception e) {
+        String reason = String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        outboxEventRepository.recordFailure(List.of(event.getId()),
+                reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason);
+        failedCounter.increment();
+
+        int attempts = event.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            outboxEventRepository.park(List.of(event.getId()), Instant.now());
+            parkedCounter.increment();
+            log.error("Parked outbox event {} to {} after {} failed attempts: {}",
+                    event.getId(), event.getTopic(), attempts, reason);
+            return true;
+        }
+
+        Duration backoff = Duration.ofSeconds(1L << Math.min(attempts - 1, 20));
+        retryAt = Instant.now().plus(backoff.compareTo(maxBackoff) < 0 ? backoff : maxBackoff);
+        log.warn("Failed to publish outbox event {} to {} (attempt {} of {}), retrying at {}: {}",
+                event.getId(), event.getTopic(), attempts, maxAttempts, retryAt, reason);
+        return false;
+    }
+
+    @Scheduled(cron = "0 15 3 * * ?", zone = "Asia/Kolkata")
+    @SchedulerLock(
+            name = "OutboxRelay_purgePublished",
+            lockAtMostFor = "30m"
+    )
+    public void purgePublished() {
+        int deleted = outboxEventRepository.deletePublishedBefore(Instant.now().minus(retention));
+        log.info("Purged {} published outbox events", deleted);
+    }
+}
@@ -0,0 +1,67 @@
+package com.jalsoochak.messaging_orchestrator_service.models.entities;
+
+import com.jalsoochak.messaging_orchestrator_service.enums.JobShardStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Progress of one shard of a sharded job: which run it last worked on, who ran it and how far it got.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "job_shard",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_job_shard_job_shard", columnNames = {"job_name", "shard_index"})
+        }
+)
+public class JobShard {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 64)
+    private String jobName;
+
+    @Column(name = "shard_index", nullable = false)
+    private int shardIndex;
+
+    @Column(name = "shard_count", nullable = false)
+    private int shardCount;
+
+    @Column(name = "run_key", length = 64)
+    private String runKey;
+
+    @Enumerated(EnumType.STRING)
+    private JobShardStatus status;
+
+    @Column(name = "owner", length = 255)
+    private String owner;
+
+    private long processed;
+
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Instant updatedAt;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+}
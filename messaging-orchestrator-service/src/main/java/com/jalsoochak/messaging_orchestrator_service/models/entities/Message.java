@@ -10,6 +10,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -22,13 +23,22 @@ import lombok.Setter;
 
 import java.time.Instant;
 
+/**
+ * An outgoing Glific message. The table also has a generated {@code welcome_person_id} column with the unique
+ * key {@code uk_message_welcome_person}, created by {@code db/message-welcome-person.sql}; it is not mapped here.
+ */
 @Getter
 @Setter
 @Entity
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "message")
+@Table(
+        name = "message",
+        indexes = {
+                @Index(name = "idx_message_person_status_sent", columnList = "person_id, status, sent_at")
+        }
+)
 public class Message {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,63 @@
+package com.jalsoochak.messaging_orchestrator_service.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A Kafka record written in the same transaction as the business change it announces, and published later by
+ * {@link com.jalsoochak.messaging_orchestrator_service.kafka.producers.OutboxRelay}. A record that failed
+ * {@code outbox.relay.max-attempts} times is parked ({@code parked_at} set) and no longer relayed.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "outbox_event",
+        indexes = {
+                @Index(name = "idx_outbox_event_pending_id", columnList = "published_at, parked_at, id")
+        }
+)
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 255)
+    private String topic;
+
+    @Column(name = "message_key", length = 255)
+    private String messageKey;
+
+    /** JSON value of the record. */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "published_at")
+    private Instant publishedAt;
+
+    @Column(name = "parked_at")
+    private Instant parkedAt;
+
+    private int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
@@ -0,0 +1,35 @@
+package com.jalsoochak.messaging_orchestrator_service.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A token bucket shared by every replica: the permits left as of {@code refilledAt}.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "rate_limit_bucket")
+public class RateLimitBucket {
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "tokens", nullable = false)
+    private double tokens;
+
+    @Column(name = "refilled_at", nullable = false)
+    private Instant refilledAt;
+}
@@ -0,0 +1,29 @@
+package com.jalsoochak.messaging_orchestrator_service.repositories;
+
+import com.jalsoochak.messaging_orchestrator_service.models.entities.JobShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface JobShardRepository extends JpaRepository<JobShard, Long> {
+    Optional<JobShard> findByJobNameAndShardIndex(String jobName, int shardIndex);
+
+    List<JobShard> findByJobNameOrderByShardIndexAsc(String jobName);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobShard s SET s.processed = :processed, s.updatedAt = :updatedAt WHERE s.id = :id")
+    int updateProgress(
+            @Param("id") Long id,
+            @Param("processed") long processed,
+            @Param("updatedAt") Instant updatedAt
+    );
+}
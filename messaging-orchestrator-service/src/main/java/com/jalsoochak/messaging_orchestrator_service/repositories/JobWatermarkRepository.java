@@ -0,0 +1,17 @@
+package com.jalsoochak.messaging_orchestrator_service.repositories;
+
+import com.jalsoochak.messaging_orchestrator_service.models.entities.JobWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, String> {
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobWatermark w SET w.lastId = 0, w.updatedAt = :updatedAt WHERE w.jobName LIKE :prefix%")
+    int rewind(@Param("prefix") String prefix, @Param("updatedAt") Instant updatedAt);
+}
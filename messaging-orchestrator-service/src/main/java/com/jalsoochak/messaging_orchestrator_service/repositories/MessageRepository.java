@@ -5,18 +5,21 @@ import com.jalsoochak.messaging_orchestrator_service.enums.MessageType;
 import com.jalsoochak.messaging_orchestrator_service.models.entities.Message;
 import com.jalsoochak.messaging_orchestrator_service.models.entities.PersonMaster;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByPersonAndType(PersonMaster person, MessageType type);
 
-    boolean existsByPersonAndTypeAndStatusIn(PersonMaster person, MessageType type, List<MessageStatus> statuses);
-
     @Query("SELECT m FROM Message m WHERE m.person.id = :personId AND m.type = :type AND m.status = :status")
     List<Message> findByPersonIdAndTypeAndStatus(
             @Param("personId") Long personId,
@@ -25,23 +28,106 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     );
 
     @Query("""
-        SELECT CASE WHEN COUNT(m) > 0 THEN true ELSE false END
-        FROM Message m
-        WHERE m.person.id = :personId
-          AND m.type = 'BFM_REMINDER'
-          AND m.status = 'SENT'
-          AND DATE(m.sentAt) = CURRENT_DATE
+        SELECT DISTINCT m.person.id FROM Message m
+        WHERE m.person.id IN :personIds AND m.type = :type AND m.status IN :statuses
     """)
-    boolean existsBfmReminderSentToday(@Param("personId") Long personId);
+    Set<Long> findPersonIdsWithMessage(
+            @Param("personIds") Collection<Long> personIds,
+            @Param("type") MessageType type,
+            @Param("statuses") Collection<MessageStatus> statuses
+    );
+
+    @Query("""
+        SELECT m.person.id FROM Message m
+        WHERE m.person.id IN :personIds AND m.type = :type AND m.createdAt = :createdAt
+    """)
+    Set<Long> findPersonIdsWithMessageCreatedAt(
+            @Param("personIds") Collection<Long> personIds,
+            @Param("type") MessageType type,
+            @Param("createdAt") Instant createdAt
+    );
 
+    /**
+     * Records the outcome of a send as a single-row update in its own short transaction, without loading the
+     * message first.
+     */
+    @Transactional
+    @Modifying
     @Query("""
-        SELECT m.receiverId
-        FROM Message m
-        WHERE m.person.id = :personId
-          AND m.receiverId IS NOT NULL
-          AND m.status = 'SENT'
-        ORDER BY m.sentAt DESC
-        LIMIT 1
+        UPDATE Message m
+        SET m.status = :status,
+            m.sentAt = :sentAt,
+            m.errorMessage = :errorMessage,
+            m.version = COALESCE(m.version, 0) + 1
+        WHERE m.id = :id
     """)
-    Long findLatestReceiverId(@Param("personId") Long personId);
+    int updateStatus(
+            @Param("id") Long id,
+            @Param("status") MessageStatus status,
+            @Param("sentAt") Instant sentAt,
+            @Param("errorMessage") String errorMessage
+    );
+
+    interface ReminderCandidate {
+        Long getPersonId();
+
+        String getPhoneNumber();
+
+        /** Glific contact id from the person's latest sent message; null if none was ever sent. */
+        Long getReceiverId();
+    }
+
+    /**
+     * One page (by person id) of active persons of the given type, within one hash shard of the id space
+     * ({@code MOD(id, shardCount) = shardIndex}), with no BFM reminder sent in
+     * [{@code dayStart}, {@code dayEnd}), each with the receiver id of their latest sent message.
+     * <p>
+     * The anti-join and the latest-receiver window both run on {@code idx_message_person_status_sent}, and the
+     * window only ranks the messages of the page's persons, so a page costs the same however many operators the
+     * state has.
+     */
+    @Query(value = """
+        WITH candidates AS (
+            SELECT p.id, p.phone_number
+            FROM person_master p
+            JOIN person_type_master t ON t.id = p.person_type_id
+            WHERE p.deleted_at IS NULL
+              AND t.c_name = :personType
+              AND p.id > :afterId
+              AND MOD(p.id, :shardCount) = :shardIndex
+              AND NOT EXISTS (
+                  SELECT 1
+                  FROM message r
+                  WHERE r.person_id = p.id
+                    AND r.status = 'SENT'
+                    AND r.sent_at >= :dayStart
+                    AND r.sent_at < :dayEnd
+                    AND r.type = 'BFM_REMINDER'
+              )
+            ORDER BY p.id
+            LIMIT :pageSize
+        ),
+        latest AS (
+            SELECT m.person_id,
+                   m.receiver_id,
+                   ROW_NUMBER() OVER (PARTITION BY m.person_id ORDER BY m.sent_at DESC, m.id DESC) AS rn
+            FROM message m
+            JOIN candidates c ON c.id = m.person_id
+            WHERE m.status = 'SENT'
+              AND m.receiver_id IS NOT NULL
+        )
+        SELECT c.id AS personId, c.phone_number AS phoneNumber, l.receiver_id AS receiverId
+        FROM candidates c
+        LEFT JOIN latest l ON l.person_id = c.id AND l.rn = 1
+        ORDER BY c.id
+    """, nativeQuery = true)
+    List<ReminderCandidate> findReminderCandidates(
+            @Param("personType") String personType,
+            @Param("dayStart") Instant dayStart,
+            @Param("dayEnd") Instant dayEnd,
+            @Param("shardIndex") int shardIndex,
+            @Param("shardCount") int shardCount,
+            @Param("afterId") long afterId,
+            @Param("pageSize") int pageSize
+    );
 }
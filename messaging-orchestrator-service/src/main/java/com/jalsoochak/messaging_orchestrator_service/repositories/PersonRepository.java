@@ -1,10 +1,45 @@
 package com.jalsoochak.messaging_orchestrator_service.repositories;
 
+import com.jalsoochak.messaging_orchestrator_service.enums.MessageType;
 import com.jalsoochak.messaging_orchestrator_service.models.entities.PersonMaster;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface PersonRepository extends JpaRepository<PersonMaster, Long> {
     List<PersonMaster> findByDeletedAtIsNullAndPersonType_cName(String cName);
+
+    @Query("SELECT MAX(p.id) FROM PersonMaster p")
+    Long findMaxId();
+
+    /**
+     * Active persons of the given type with ids in ({@code afterId}, {@code maxId}] and in one hash shard of the
+     * id space, that have no message of the given type at all: one anti-join on
+     * {@code idx_message_person_status_sent}.
+     */
+    @Query("""
+        SELECT p FROM PersonMaster p
+        WHERE p.deletedAt IS NULL
+          AND p.personType.cName = :cName
+          AND p.id > :afterId
+          AND p.id <= :maxId
+          AND MOD(p.id, :shardCount) = :shardIndex
+          AND NOT EXISTS (
+              SELECT 1 FROM Message m
+              WHERE m.person = p AND m.type = :type
+          )
+        ORDER BY p.id
+    """)
+    List<PersonMaster> findWithoutMessageInShard(
+            @Param("cName") String cName,
+            @Param("type") MessageType type,
+            @Param("afterId") long afterId,
+            @Param("maxId") long maxId,
+            @Param("shardIndex") int shardIndex,
+            @Param("shardCount") int shardCount,
+            Pageable pageable
+    );
 }
@@ -0,0 +1,16 @@
+package com.jalsoochak.messaging_orchestrator_service.repositories;
+
+import com.jalsoochak.messaging_orchestrator_service.models.entities.RateLimitBucket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface RateLimitBucketRepository extends JpaRepository<RateLimitBucket, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM RateLimitBucket b WHERE b.name = :name")
+    Optional<RateLimitBucket> findForUpdate(@Param("name") String name);
+}
@@ -9,6 +9,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 
 import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 @Service
@@ -18,8 +19,14 @@ public class GlificAuthService {
     private final String username;
     private final String password;
     private final String baseUrl;
-    private String accessToken;
-    private Instant expiryTime;
+    private final ReentrantLock loginLock = new ReentrantLock();
+    private volatile Token token;
+
+    private record Token(String value, Instant expiresAt) {
+        boolean isValid() {
+            return Instant.now().isBefore(expiresAt);
+        }
+    }
 
     public GlificAuthService(
             WebClient.Builder builder,
@@ -34,14 +41,27 @@ public class GlificAuthService {
     }
 
 
-    public synchronized String getAccessToken() {
-        log.info("Glific base URL: {}", baseUrl);
-        log.info("Glific username: {}", username);
+    /**
+     * Lock-free while the token is valid, so concurrent HSM sends do not queue behind each other; only an
+     * expired token takes the lock, and the first caller through it logs in for the rest.
+     */
+    public String getAccessToken() {
+        Token current = token;
+        if (current != null && current.isValid()) {
+            return current.value();
+        }
 
-        if (accessToken == null || Instant.now().isAfter(expiryTime)){
-            login();
+        loginLock.lock();
+        try {
+            current = token;
+            if (current == null || !current.isValid()) {
+                login();
+                current = token;
+            }
+            return current.value();
+        } finally {
+            loginLock.unlock();
         }
-        return accessToken;
     }
 
     public void login(){
@@ -63,9 +83,13 @@ public class GlificAuthService {
             log.debug("Login response: {}", response);
 
             JsonNode data = response.get("data");
-            this.accessToken = data.get("access_token").asText();
-            this.expiryTime = Instant.parse(data.get("token_expiry_time").asText());
-            log.info("Successfully obtained access token, expires at {}", expiryTime);
+            Token obtained = new Token(
+                    data.get("access_token").asText(),
+                    Instant.parse(data.get("token_expiry_time").asText())
+            );
+            this.token = obtained;
+            log.info("Successfully obtained access token from {} for {}, expires at {}",
+                    baseUrl, username, obtained.expiresAt());
         } catch (Exception e) {
             log.error("Failed to login to Glific: {}", e.getMessage(), e);
             throw new RuntimeException("Glific login failed", e);
@@ -0,0 +1,153 @@
+package com.jalsoochak.messaging_orchestrator_service.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends Glific HSMs concurrently, each on its own virtual thread, within the organisation's rate limit
+ * ({@code glific.dispatch.rate-per-second}, {@code glific.dispatch.burst}).
+ * <p>
+ * The limit is shared by all replicas through {@link SharedRateBudget}: a send needs a permit leased from it,
+ * taken {@code glific.dispatch.lease-size} at a time, and only one thread per replica asks for a new lease while
+ * the others wait for it. A local {@link TokenBucket} at the same rate spreads a replica's sends evenly instead
+ * of firing each lease at once.
+ * <p>
+ * {@link #submit} blocks the caller once {@code glific.dispatch.max-in-flight} sends are queued or running, so a
+ * job feeding it page by page never gets more than that far ahead of Glific.
+ * <p>
+ * Metrics: {@code glific.hsm.sends} (by outcome; its rate is sends/sec), {@code glific.hsm.in_flight},
+ * {@code glific.hsm.limiter.wait} and {@code glific.hsm.latency}.
+ */
+@Slf4j
+@Service
+public class HsmDispatcher {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final TokenBucket limiter;
+    private final SharedRateBudget budget;
+    private final int leaseSize;
+    private final Semaphore leased = new Semaphore(0);
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Timer limiterWaitTimer;
+    private final Timer latencyTimer;
+
+    public HsmDispatcher(MeterRegistry meterRegistry,
+                         SharedRateBudget budget,
+                         @Value("${glific.dispatch.rate-per-second:50}") double ratePerSecond,
+                         @Value("${glific.dispatch.burst:50}") int burst,
+                         @Value("${glific.dispatch.max-in-flight:64}") int maxInFlight,
+                         @Value("${glific.dispatch.lease-size:5}") int leaseSize) {
+        this.limiter = new TokenBucket(ratePerSecond, burst);
+        this.budget = budget;
+        this.leaseSize = Math.max(1, leaseSize);
+        this.permits = new Semaphore(maxInFlight);
+        this.sentCounter = Counter.builder("glific.hsm.sends").tag("outcome", "sent").register(meterRegistry);
+        this.failedCounter = Counter.builder("glific.hsm.sends").tag("outcome", "failed").register(meterRegistry);
+        this.limiterWaitTimer = Timer.builder("glific.hsm.limiter.wait")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.latencyTimer = Timer.builder("glific.hsm.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("glific.hsm.in_flight", inFlight);
+    }
+
+    /**
+     * Queues one send. The returned future completes when Glific accepted the message, or exceptionally with
+     * the failure.
+     */
+    public CompletableFuture<Void> submit(Runnable send) throws InterruptedException {
+        permits.acquire();
+        inFlight.incrementAndGet();
+        try {
+            return CompletableFuture.runAsync(() -> run(send), executor);
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void run(Runnable send) {
+        try {
+            long waitStart = System.nanoTime();
+            limiter.acquire();
+            acquireSharedPermit();
+            limiterWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+
+            long start = System.nanoTime();
+            try {
+                send.run();
+                sentCounter.increment();
+            } catch (RuntimeException e) {
+                failedCounter.increment();
+                throw e;
+            } finally {
+                latencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private void acquireSharedPermit() throws InterruptedException {
+        while (!leased.tryAcquire()) {
+            leaseLock.lockInterruptibly();
+            try {
+                // another thread may have leased while this one waited for the lock
+                if (leased.tryAcquire()) {
+                    return;
+                }
+
+                SharedRateBudget.Lease lease = takeLease();
+                if (lease.granted() > 0) {
+                    leased.release(lease.granted() - 1);
+                    return;
+                }
+                TimeUnit.NANOSECONDS.sleep(lease.retryAfterNanos());
+            } finally {
+                leaseLock.unlock();
+            }
+        }
+    }
+
+    private SharedRateBudget.Lease takeLease() {
+        try {
+            return budget.take(leaseSize);
+        } catch (DataIntegrityViolationException e) {
+            // two replicas created the budget row at the same time; the other one's row is there now
+            return budget.take(leaseSize);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("HSM sends still running at shutdown: {}", inFlight.get());
+        }
+    }
+}
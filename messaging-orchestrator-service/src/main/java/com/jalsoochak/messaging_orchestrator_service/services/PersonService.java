@@ -26,10 +26,8 @@ public class PersonService {
 
         log.info("Found {} active pump operators", pumpOperators.size());
 
-        for (PersonMaster operator : pumpOperators) {
-            eventProducerService.publishPumpOperatorCreated(operator);
-        }
+        int queued = eventProducerService.publishPumpOperatorsCreated(pumpOperators);
 
-        log.info("Finished processing {} pump operators", pumpOperators.size());
+        log.info("Finished processing {} pump operators, {} queued", pumpOperators.size(), queued);
     }
     }
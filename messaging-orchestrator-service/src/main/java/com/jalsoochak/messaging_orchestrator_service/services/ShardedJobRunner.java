@@ -0,0 +1,157 @@
+package com.jalsoochak.messaging_orchestrator_service.services;
+
+import com.jalsoochak.messaging_orchestrator_service.enums.JobShardStatus;
+import com.jalsoochak.messaging_orchestrator_service.models.entities.JobShard;
+import com.jalsoochak.messaging_orchestrator_service.repositories.JobShardRepository;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.core.LockConfiguration;
+import net.javacrumbs.shedlock.core.LockProvider;
+import net.javacrumbs.shedlock.core.SimpleLock;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs a job as {@code shardCount} hash partitions of the person id space ({@code MOD(person_id, count) = index}),
+ * so every replica takes part instead of one replica holding a single job-wide lock.
+ * <p>
+ * Each shard has its own ShedLock row ({@code <job>_shard_<index>}). A replica walks all shards, starting at an
+ * offset derived from its own identity so replicas fan out rather than queue on shard 0, and runs every shard
+ * it can lock. Progress is kept in {@code job_shard}: a shard already DONE for the current run key is skipped,
+ * so a daily job can be triggered again to pick up shards a crashed replica left behind. A task that got
+ * through its shard but left items to retry throws {@link IncompleteShardException}; the shard is then FAILED
+ * rather than DONE, so the next trigger runs it again. Periodic jobs pass no run key and rely on
+ * {@code lockAtLeastFor} to run each shard once per interval.
+ */
+@Slf4j
+@Service
+public class ShardedJobRunner {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    public record Shard(int index, int count) {
+    }
+
+    /**
+     * Thrown by a task that processed its shard but has items that should be tried again on the next run.
+     */
+    public static class IncompleteShardException extends RuntimeException {
+        private final long processed;
+
+        public IncompleteShardException(long processed, String message) {
+            super(message);
+            this.processed = processed;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+    }
+
+    @FunctionalInterface
+    public interface ShardTask {
+        /**
+         * @param progress receives the running count of processed items, to be published while the shard runs
+         * @return the number of items processed
+         */
+        long run(Shard shard, LongConsumer progress);
+    }
+
+    private final LockProvider lockProvider;
+    private final JobShardRepository jobShardRepository;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    public ShardedJobRunner(LockProvider lockProvider, JobShardRepository jobShardRepository) {
+        this.lockProvider = lockProvider;
+        this.jobShardRepository = jobShardRepository;
+    }
+
+    /**
+     * @return the number of shards this replica ran
+     */
+    public int run(String jobName, String runKey, int shardCount,
+                   Duration lockAtMostFor, Duration lockAtLeastFor, ShardTask task) {
+        int offset = Math.floorMod(owner.hashCode(), shardCount);
+        int ran = 0;
+
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard((offset + i) % shardCount, shardCount);
+            Optional<SimpleLock> lock = lockProvider.lock(new LockConfiguration(
+                    Instant.now(), jobName + "_shard_" + shard.index(), lockAtMostFor, lockAtLeastFor));
+            if (lock.isEmpty()) {
+                continue;
+            }
+
+            try {
+                if (runShard(jobName, runKey, shard, task)) {
+                    ran++;
+                }
+            } finally {
+                lock.get().unlock();
+            }
+        }
+        return ran;
+    }
+
+    public List<JobShard> shards(String jobName) {
+        return jobShardRepository.findByJobNameOrderByShardIndexAsc(jobName);
+    }
+
+    private boolean runShard(String jobName, String runKey, Shard shard, ShardTask task) {
+        JobShard row = jobShardRepository.findByJobNameAndShardIndex(jobName, shard.index())
+                .orElseGet(() -> JobShard.builder().jobName(jobName).shardIndex(shard.index()).build());
+        if (runKey != null
+                && runKey.equals(row.getRunKey())
+                && row.getShardCount() == shard.count()
+                && row.getStatus() == JobShardStatus.DONE) {
+            return false;
+        }
+
+        Instant now = Instant.now();
+        row.setShardCount(shard.count());
+        row.setRunKey(runKey);
+        row.setStatus(JobShardStatus.RUNNING);
+        row.setOwner(owner);
+        row.setProcessed(0);
+        row.setStartedAt(now);
+        row.setFinishedAt(null);
+        row.setUpdatedAt(now);
+        row.setErrorMessage(null);
+        JobShard saved = jobShardRepository.save(row);
+
+        try {
+            long processed = task.run(shard,
+                    progress -> jobShardRepository.updateProgress(saved.getId(), progress, Instant.now()));
+            finish(saved, JobShardStatus.DONE, processed, null);
+            log.info("{} shard {}/{} done: {} processed", jobName, shard.index(), shard.count(), processed);
+        } catch (IncompleteShardException e) {
+            finish(saved, JobShardStatus.FAILED, e.getProcessed(), truncate(e.getMessage()));
+            log.warn("{} shard {}/{} left items to retry: {}", jobName, shard.index(), shard.count(), e.getMessage());
+        } catch (RuntimeException e) {
+            finish(saved, JobShardStatus.FAILED, saved.getProcessed(), truncate(e.getMessage()));
+            log.error("{} shard {}/{} failed: {}", jobName, shard.index(), shard.count(), e.getMessage(), e);
+        }
+        return true;
+    }
+
+    private static String truncate(String message) {
+        String reason = String.valueOf(message);
+        return reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason;
+    }
+
+    private void finish(JobShard row, JobShardStatus status, long processed, String errorMessage) {
+        JobShard current = jobShardRepository.findById(row.getId()).orElse(row);
+        Instant now = Instant.now();
+        current.setStatus(status);
+        current.setProcessed(Math.max(processed, current.getProcessed()));
+        current.setFinishedAt(now);
+        current.setUpdatedAt(now);
+        current.setErrorMessage(errorMessage);
+        jobShardRepository.save(current);
+    }
+}
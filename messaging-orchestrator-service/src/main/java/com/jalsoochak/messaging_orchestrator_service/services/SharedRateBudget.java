@@ -0,0 +1,78 @@
+package com.jalsoochak.messaging_orchestrator_service.services;
+
+import com.jalsoochak.messaging_orchestrator_service.models.entities.RateLimitBucket;
+import com.jalsoochak.messaging_orchestrator_service.repositories.RateLimitBucketRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The organisation's Glific send budget, kept as one {@code rate_limit_bucket} row so that all replicas together
+ * stay within {@code glific.dispatch.rate-per-second} and {@code glific.dispatch.burst}, however many of them
+ * are sending.
+ * <p>
+ * Replicas take permits in small leases rather than one at a time, so the row is locked a few times a second
+ * instead of once per message.
+ */
+@Service
+public class SharedRateBudget {
+
+    static final String GLIFIC_HSM = "glific_hsm";
+
+    /**
+     * @param granted         permits taken from the budget, possibly fewer than asked for
+     * @param retryAfterNanos when nothing was granted, how long until the next permit is due
+     */
+    public record Lease(int granted, long retryAfterNanos) {
+    }
+
+    private final RateLimitBucketRepository rateLimitBucketRepository;
+    private final double permitsPerSecond;
+    private final int burst;
+
+    public SharedRateBudget(RateLimitBucketRepository rateLimitBucketRepository,
+                            @Value("${glific.dispatch.rate-per-second:50}") double permitsPerSecond,
+                            @Value("${glific.dispatch.burst:50}") int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be > 0 and burst >= 1");
+        }
+        this.rateLimitBucketRepository = rateLimitBucketRepository;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    @Transactional
+    public Lease take(int wanted) {
+        Instant now = Instant.now();
+        RateLimitBucket bucket = rateLimitBucketRepository.findForUpdate(GLIFIC_HSM)
+                .orElseGet(() -> RateLimitBucket.builder().name(GLIFIC_HSM).tokens(burst).refilledAt(now).build());
+
+        Lease lease = take(bucket, wanted, now, permitsPerSecond, burst);
+        rateLimitBucketRepository.save(bucket);
+        return lease;
+    }
+
+    /**
+     * Refills {@code bucket} up to {@code now} and takes up to {@code wanted} whole permits from it. A clock
+     * behind the last refill adds nothing, so replicas with skewed clocks cannot create permits.
+     */
+    static Lease take(RateLimitBucket bucket, int wanted, Instant now, double permitsPerSecond, int burst) {
+        if (now.isAfter(bucket.getRefilledAt())) {
+            double elapsedSeconds = Duration.between(bucket.getRefilledAt(), now).toNanos() / 1e9;
+            bucket.setTokens(Math.min(burst, bucket.getTokens() + elapsedSeconds * permitsPerSecond));
+            bucket.setRefilledAt(now);
+        }
+
+        int granted = (int) Math.min(wanted, Math.floor(bucket.getTokens()));
+        if (granted > 0) {
+            bucket.setTokens(bucket.getTokens() - granted);
+            return new Lease(granted, 0);
+        }
+        double missing = 1.0 - bucket.getTokens();
+        return new Lease(0, Math.max(1, (long) (missing / permitsPerSecond * TimeUnit.SECONDS.toNanos(1))));
+    }
+}
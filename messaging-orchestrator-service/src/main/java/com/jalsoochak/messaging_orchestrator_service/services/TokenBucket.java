@@ -0,0 +1,59 @@
+package com.jalsoochak.messaging_orchestrator_service.services;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter: {@code permitsPerSecond} on average, with up to {@code burst} permits saved up while
+ * idle.
+ * <p>
+ * A caller reserves its slot under the lock and sleeps outside it, so waiting callers never hold the monitor
+ * (and a waiting virtual thread never pins its carrier).
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final double burst;
+    private double stored;
+    private long nextFreeNanos;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be > 0 and burst >= 1");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burst = burst;
+        this.stored = burst;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes one permit, waiting for it if necessary.
+     *
+     * @return nanoseconds spent waiting
+     */
+    long acquire() throws InterruptedException {
+        long waitNanos = reserve(System.nanoTime());
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Reserves the next permit as of {@code now}.
+     *
+     * @return nanoseconds until the permit may be used
+     */
+    synchronized long reserve(long now) {
+        if (now > nextFreeNanos) {
+            stored = Math.min(burst, stored + (double) (now - nextFreeNanos) / intervalNanos);
+            nextFreeNanos = now;
+        }
+
+        long waitUntil = nextFreeNanos;
+        double fromStored = Math.min(1.0, stored);
+        stored -= fromStored;
+        nextFreeNanos += (long) ((1.0 - fromStored) * intervalNanos);
+        return Math.max(0, waitUntil - now);
+    }
+}
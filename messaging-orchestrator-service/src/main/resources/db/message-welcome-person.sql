@@ -0,0 +1,23 @@
+-- One live welcome per person: welcome_person_id is person_id while the message is a PENDING or SENT welcome and
+-- NULL otherwise, and its unique key rejects a second one. ddl-auto=update cannot manage a generated column, so
+-- this runs after Hibernate's schema update (spring.sql.init) and only adds what is missing; MySQL 8 has no
+-- ADD COLUMN/INDEX IF NOT EXISTS, hence the information_schema checks.
+SET @ddl = IF(
+    (SELECT COUNT(*) FROM information_schema.columns
+     WHERE table_schema = DATABASE() AND table_name = 'message' AND column_name = 'welcome_person_id') = 0,
+    'ALTER TABLE message ADD COLUMN welcome_person_id BIGINT GENERATED ALWAYS AS (CASE WHEN type = ''WELCOME'' AND status IN (''PENDING'', ''SENT'') THEN person_id END) STORED',
+    'DO 0'
+);
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+SET @ddl = IF(
+    (SELECT COUNT(*) FROM information_schema.statistics
+     WHERE table_schema = DATABASE() AND table_name = 'message' AND index_name = 'uk_message_welcome_person') = 0,
+    'ALTER TABLE message ADD CONSTRAINT uk_message_welcome_person UNIQUE (welcome_person_id)',
+    'DO 0'
+);
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
@@ -0,0 +1,124 @@
+package com.jalsoochak.messaging_orchestrator_service.jobs;
+
+import com.jalsoochak.messaging_orchestrator_service.enums.MessageType;
+import com.jalsoochak.messaging_orchestrator_service.kafka.producers.EventProducerService;
+import com.jalsoochak.messaging_orchestrator_service.models.entities.JobWatermark;
+import com.jalsoochak.messaging_orchestrator_service.models.entities.PersonMaster;
+import com.jalsoochak.messaging_orchestrator_service.repositories.JobWatermarkRepository;
+import com.jalsoochak.messaging_orchestrator_service.repositories.PersonRepository;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner.Shard;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner.ShardTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PumpOperatorAutoProcessorTest {
+
+    private static final String WATERMARK = PumpOperatorAutoProcessor.JOB_NAME + "_shard_0";
+
+    private final PersonRepository personRepository = mock(PersonRepository.class);
+    private final JobWatermarkRepository jobWatermarkRepository = mock(JobWatermarkRepository.class);
+    private final EventProducerService eventProducerService = mock(EventProducerService.class);
+    private final ShardedJobRunner shardedJobRunner = mock(ShardedJobRunner.class);
+    private final PumpOperatorAutoProcessor processor = new PumpOperatorAutoProcessor(
+            personRepository, jobWatermarkRepository, eventProducerService, shardedJobRunner,
+            mock(PlatformTransactionManager.class), 1, 2, 100);
+
+    @BeforeEach
+    void runsTheOnlyShard() {
+        when(shardedJobRunner.run(eq(PumpOperatorAutoProcessor.JOB_NAME), isNull(), eq(1), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    ShardTask task = invocation.getArgument(5);
+                    task.run(new Shard(0, 1), progress -> { });
+                    return 1;
+                });
+    }
+
+    @Test
+    void idleRunStopsAtTheWatermark() {
+        when(jobWatermarkRepository.findById(WATERMARK)).thenReturn(Optional.of(watermark(1500)));
+        when(personRepository.findMaxId()).thenReturn(1500L);
+
+        processor.processNewPumpOperators();
+
+        verify(personRepository, never()).findWithoutMessageInShard(
+                anyString(), any(), anyLong(), anyLong(), anyInt(), anyInt(), any(Pageable.class));
+        verify(eventProducerService, never()).queuePumpOperatorsCreated(anyList());
+        verify(jobWatermarkRepository, never()).save(any());
+    }
+
+    @Test
+    void pagesFromBelowTheWatermarkAndAdvancesIt() {
+        when(jobWatermarkRepository.findById(WATERMARK)).thenReturn(Optional.of(watermark(1000)));
+        when(personRepository.findMaxId()).thenReturn(1500L);
+        List<PersonMaster> firstPage = List.of(person(950), person(1200));
+        List<PersonMaster> lastPage = List.of(person(1450));
+        when(personRepository.findWithoutMessageInShard(
+                eq("pump_operator"), eq(MessageType.WELCOME), eq(900L), eq(1500L), eq(0), eq(1), any(Pageable.class)))
+                .thenReturn(firstPage);
+        when(personRepository.findWithoutMessageInShard(
+                eq("pump_operator"), eq(MessageType.WELCOME), eq(1200L), eq(1500L), eq(0), eq(1), any(Pageable.class)))
+                .thenReturn(lastPage);
+
+        processor.processNewPumpOperators();
+
+        verify(eventProducerService).queuePumpOperatorsCreated(firstPage);
+        verify(eventProducerService).queuePumpOperatorsCreated(lastPage);
+        ArgumentCaptor<JobWatermark> saved = ArgumentCaptor.forClass(JobWatermark.class);
+        verify(jobWatermarkRepository).save(saved.capture());
+        assertThat(saved.getValue().getLastId()).isEqualTo(1500L);
+    }
+
+    @Test
+    void firstRunOfAShardStartsFromTheBeginning() {
+        when(jobWatermarkRepository.findById(WATERMARK)).thenReturn(Optional.empty());
+        when(personRepository.findMaxId()).thenReturn(40L);
+        when(personRepository.findWithoutMessageInShard(
+                anyString(), any(), anyLong(), anyLong(), anyInt(), anyInt(), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        processor.processNewPumpOperators();
+
+        verify(personRepository).findWithoutMessageInShard(
+                eq("pump_operator"), eq(MessageType.WELCOME), eq(0L), eq(40L), eq(0), eq(1), any(Pageable.class));
+        ArgumentCaptor<JobWatermark> saved = ArgumentCaptor.forClass(JobWatermark.class);
+        verify(jobWatermarkRepository).save(saved.capture());
+        assertThat(saved.getValue().getJobName()).isEqualTo(WATERMARK);
+        assertThat(saved.getValue().getLastId()).isEqualTo(40L);
+    }
+
+    @Test
+    void rewindResetsEveryShardWatermark() {
+        processor.rewind();
+
+        verify(jobWatermarkRepository).rewind(eq(PumpOperatorAutoProcessor.JOB_NAME + "_shard_"), any(Instant.class));
+    }
+
+    private static JobWatermark watermark(long lastId) {
+        return JobWatermark.builder().jobName(WATERMARK).lastId(lastId).build();
+    }
+
+    private static PersonMaster person(long id) {
+        return PersonMaster.builder().id(id).phoneNumber("91" + id).build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.jalsoochak.messaging_orchestrator_service.kafka.producers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalsoochak.messaging_orchestrator_service.enums.MessageType;
+import com.jalsoochak.messaging_orchestrator_service.models.entities.PersonMaster;
+import com.jalsoochak.messaging_orchestrator_service.repositories.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+class EventProducerServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final EventProducerService service = new EventProducerService(
+            messageRepository, jdbcTemplate, new ObjectMapper().findAndRegisterModules());
+
+    @Test
+    void insertsWelcomesAsOneBatchAndQueuesEventsOnlyForTheInsertedOnes() {
+        // person 2 got a welcome from a concurrent run between the lookup and the insert
+        when(messageRepository.findPersonIdsWithMessageCreatedAt(anyCollection(), eq(MessageType.WELCOME), any()))
+                .thenReturn(Set.of(1L));
+
+        int queued = service.publishPumpOperatorsCreated(List.of(person(1), person(2)));
+
+        assertThat(queued).isEqualTo(1);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(sql.capture(), rows.capture());
+        assertThat(sql.getAllValues().get(0)).startsWith("INSERT INTO message").endsWith("ON DUPLICATE KEY UPDATE id = id");
+        assertThat(rows.getAllValues().get(0)).extracting(row -> row[0]).containsExactly(1L, 2L);
+        assertThat(sql.getAllValues().get(1)).startsWith("INSERT INTO outbox_event");
+        List<Object[]> events = rows.getAllValues().get(1);
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0)[1]).isEqualTo("9100000001");
+    }
+
+    @Test
+    void queuesNothingWhenEveryPersonWasAlreadyWelcomed() {
+        when(messageRepository.findPersonIdsWithMessageCreatedAt(anyCollection(), any(), any())).thenReturn(Set.of());
+
+        assertThat(service.publishPumpOperatorsCreated(List.of(person(1)))).isZero();
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("INSERT INTO outbox_event"), anyList());
+    }
+
+    private static PersonMaster person(long id) {
+        return PersonMaster.builder()
+                .id(id)
+                .fullName("Operator " + id)
+                .phoneNumber("910000000" + id)
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.jalsoochak.messaging_orchestrator_service.kafka.producers;
+
+import com.jalsoochak.messaging_orchestrator_service.models.entities.OutboxEvent;
+import com.jalsoochak.messaging_orchestrator_service.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+class OutboxRelayTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final OutboxEventRepository repository = mock(OutboxEventRepository.class);
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+    private final OutboxRelay relay = new OutboxRelay(repository, kafkaTemplate, new SimpleMeterRegistry(),
+            10, Duration.ofSeconds(1), Duration.ofDays(7), MAX_ATTEMPTS, Duration.ofMinutes(5));
+
+    @Test
+    void stopsAtAFailedRecordAndBacksOffBeforeRetrying() {
+        when(repository.findByPublishedAtIsNullAndParkedAtIsNullOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(List.of(event(1, 0), event(2, 0), event(3, 0)));
+        when(kafkaTemplate.send(anyString(), anyString(), eq("2"))).thenReturn(failed());
+        when(kafkaTemplate.send(anyString(), anyString(), eq("1"))).thenReturn(acked());
+        when(kafkaTemplate.send(anyString(), anyString(), eq("3"))).thenReturn(acked());
+
+        relay.relay();
+
+        verify(repository).markPublished(eq(List.of(1L)), any(Instant.class));
+        verify(repository).recordFailure(eq(List.of(2L)), anyString());
+        verify(repository, never()).park(anyCollection(), any(Instant.class));
+
+        relay.relay();
+
+        verify(repository, times(1)).findByPublishedAtIsNullAndParkedAtIsNullOrderByIdAsc(any(Pageable.class));
+    }
+
+    @Test
+    void parksARecordThatUsedUpItsAttemptsAndRelaysTheRest() {
+        when(repository.findByPublishedAtIsNullAndParkedAtIsNullOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(List.of(event(1, 0), event(2, MAX_ATTEMPTS - 1), event(3, 0)));
+        when(kafkaTemplate.send(anyString(), anyString(), eq("2"))).thenReturn(failed());
+        when(kafkaTemplate.send(anyString(), anyString(), eq("1"))).thenReturn(acked());
+        when(kafkaTemplate.send(anyString(), anyString(), eq("3"))).thenReturn(acked());
+
+        relay.relay();
+
+        verify(repository).recordFailure(eq(List.of(2L)), anyString());
+        verify(repository).park(eq(List.of(2L)), any(Instant.class));
+        verify(repository).markPublished(eq(List.of(1L, 3L)), any(Instant.class));
+    }
+
+    private static OutboxEvent event(long id, int attempts) {
+        return OutboxEvent.builder()
+                .id(id)
+                .topic(EventProducerService.PUMP_OPERATOR_CREATED_TOPIC)
+                .messageKey("91000000" + id)
+                .payload(String.valueOf(id))
+                .createdAt(Instant.now())
+                .attempts(attempts)
+                .build();
+    }
+
+    private static CompletableFuture<SendResult<String, String>> acked() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static CompletableFuture<SendResult<String, String>> failed() {
+        return CompletableFuture.failedFuture(new IllegalStateException("RecordTooLargeException"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.jalsoochak.messaging_orchestrator_service.services;
+
+import com.jalsoochak.messaging_orchestrator_service.services.SharedRateBudget.Lease;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HsmDispatcherTest {
+
+    private final SharedRateBudget budget = mock(SharedRateBudget.class);
+    private HsmDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void pacesSendsToTheLocalRate() throws Exception {
+        when(budget.take(anyInt())).thenReturn(new Lease(5, 0));
+        dispatcher = dispatcher(20, 1, 5);
+
+        long start = System.nanoTime();
+        AtomicInteger sent = sendAll(11);
+
+        // two permits are free, the other nine come 50 ms apart
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(400);
+        assertThat(sent).hasValue(11);
+    }
+
+    @Test
+    void waitsUntilTheSharedBudgetGrantsAPermit() throws Exception {
+        when(budget.take(anyInt()))
+                .thenReturn(new Lease(0, TimeUnit.MILLISECONDS.toNanos(200)))
+                .thenReturn(new Lease(5, 0));
+        dispatcher = dispatcher(1000, 10, 5);
+
+        long start = System.nanoTime();
+        AtomicInteger sent = sendAll(1);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200);
+        assertThat(sent).hasValue(1);
+        verify(budget, times(2)).take(5);
+    }
+
+    @Test
+    void leasesPermitsFromTheSharedBudgetInBatches() throws Exception {
+        when(budget.take(anyInt())).thenReturn(new Lease(5, 0));
+        dispatcher = dispatcher(1000, 10, 5);
+
+        AtomicInteger sent = sendAll(10);
+
+        assertThat(sent).hasValue(10);
+        verify(budget, times(2)).take(5);
+    }
+
+    private HsmDispatcher dispatcher(double ratePerSecond, int burst, int leaseSize) {
+        return new HsmDispatcher(new SimpleMeterRegistry(), budget, ratePerSecond, burst, 64, leaseSize);
+    }
+
+    private AtomicInteger sendAll(int count) throws InterruptedException {
+        AtomicInteger sent = new AtomicInteger();
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sends.add(dispatcher.submit(sent::incrementAndGet));
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        return sent;
+    }
+}
@@ -0,0 +1,174 @@
+package com.jalsoochak.messaging_orchestrator_service.services;
+
+import com.jalsoochak.messaging_orchestrator_service.enums.JobShardStatus;
+import com.jalsoochak.messaging_orchestrator_service.models.entities.JobShard;
+import com.jalsoochak.messaging_orchestrator_service.repositories.JobShardRepository;
+import com.jalsoochak.messaging_orchestrator_service.services.ShardedJobRunner.IncompleteShardException;
+import net.javacrumbs.shedlock.core.LockConfiguration;
+import net.javacrumbs.shedlock.core.LockProvider;
+import net.javacrumbs.shedlock.core.SimpleLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardedJobRunnerTest {
+
+    private static final String JOB = "TestJob";
+    private static final String TODAY = "2026-10-17";
+
+    private final LockProvider lockProvider = mock(LockProvider.class);
+    private final JobShardRepository jobShardRepository = mock(JobShardRepository.class);
+    private final ShardedJobRunner runner = new ShardedJobRunner(lockProvider, jobShardRepository);
+
+    /** Shard rows by index, standing in for {@code job_shard}. */
+    private final Map<Integer, JobShard> rows = new HashMap<>();
+    private final Set<String> heldLocks = new HashSet<>();
+    private final List<String> unlocked = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        when(lockProvider.lock(any(LockConfiguration.class))).thenAnswer(invocation -> {
+            String name = invocation.<LockConfiguration>getArgument(0).getName();
+            if (heldLocks.contains(name)) {
+                return Optional.empty();
+            }
+            return Optional.of((SimpleLock) () -> unlocked.add(name));
+        });
+        when(jobShardRepository.findByJobNameAndShardIndex(anyString(), anyInt()))
+                .thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<Integer>getArgument(1))));
+        when(jobShardRepository.save(any(JobShard.class))).thenAnswer(invocation -> {
+            JobShard row = invocation.getArgument(0);
+            if (row.getId() == null) {
+                row.setId(ids.incrementAndGet());
+            }
+            rows.put(row.getShardIndex(), row);
+            return row;
+        });
+        when(jobShardRepository.findById(anyLong())).thenAnswer(invocation -> rows.values().stream()
+                .filter(row -> row.getId().equals(invocation.getArgument(0)))
+                .findFirst());
+    }
+
+    @Test
+    void runsEveryShardItCanLock() {
+        heldLocks.add(JOB + "_shard_1");
+        List<Integer> ran = new ArrayList<>();
+
+        int count = runner.run(JOB, TODAY, 3, Duration.ofMinutes(5), Duration.ZERO, (shard, progress) -> {
+            ran.add(shard.index());
+            return 10;
+        });
+
+        assertThat(count).isEqualTo(2);
+        assertThat(ran).containsExactlyInAnyOrder(0, 2);
+        assertThat(unlocked).containsExactlyInAnyOrder(JOB + "_shard_0", JOB + "_shard_2");
+        assertThat(rows.get(0).getStatus()).isEqualTo(JobShardStatus.DONE);
+        assertThat(rows.get(0).getProcessed()).isEqualTo(10);
+        assertThat(rows.get(0).getRunKey()).isEqualTo(TODAY);
+        assertThat(rows).doesNotContainKey(1);
+    }
+
+    @Test
+    void skipsAShardAlreadyDoneForTheRunKey() {
+        rows.put(0, row(0, 2, TODAY, JobShardStatus.DONE));
+        List<Integer> ran = new ArrayList<>();
+
+        int count = runner.run(JOB, TODAY, 2, Duration.ofMinutes(5), Duration.ZERO, (shard, progress) -> {
+            ran.add(shard.index());
+            return 1;
+        });
+
+        assertThat(count).isEqualTo(1);
+        assertThat(ran).containsExactly(1);
+        // the lock is still given back
+        assertThat(unlocked).contains(JOB + "_shard_0");
+    }
+
+    @Test
+    void rerunsAShardDoneForAnotherRunKeyOrShardCount() {
+        rows.put(0, row(0, 2, "2026-10-16", JobShardStatus.DONE));
+        rows.put(1, row(1, 4, TODAY, JobShardStatus.DONE));
+        List<Integer> ran = new ArrayList<>();
+
+        runner.run(JOB, TODAY, 2, Duration.ofMinutes(5), Duration.ZERO, (shard, progress) -> {
+            ran.add(shard.index());
+            return 1;
+        });
+
+        assertThat(ran).containsExactlyInAnyOrder(0, 1);
+    }
+
+    @Test
+    void rerunsAFailedShard() {
+        rows.put(0, row(0, 1, TODAY, JobShardStatus.FAILED));
+        List<Integer> ran = new ArrayList<>();
+
+        runner.run(JOB, TODAY, 1, Duration.ofMinutes(5), Duration.ZERO, (shard, progress) -> {
+            ran.add(shard.index());
+            return 1;
+        });
+
+        assertThat(ran).containsExactly(0);
+        assertThat(rows.get(0).getStatus()).isEqualTo(JobShardStatus.DONE);
+    }
+
+    @Test
+    void leavesAShardWithItemsToRetryFailed() {
+        runner.run(JOB, TODAY, 1, Duration.ofMinutes(5), Duration.ZERO, (shard, progress) -> {
+            throw new IncompleteShardException(7, "2 reminders failed");
+        });
+
+        JobShard row = rows.get(0);
+        assertThat(row.getStatus()).isEqualTo(JobShardStatus.FAILED);
+        assertThat(row.getProcessed()).isEqualTo(7);
+        assertThat(row.getErrorMessage()).isEqualTo("2 reminders failed");
+
+        List<Integer> ran = new ArrayList<>();
+        runner.run(JOB, TODAY, 1, Duration.ofMinutes(5), Duration.ZERO, (shard, progress) -> {
+            ran.add(shard.index());
+            return 2;
+        });
+        assertThat(ran).containsExactly(0);
+    }
+
+    @Test
+    void publishesProgressWhileTheShardRuns() {
+        runner.run(JOB, TODAY, 1, Duration.ofMinutes(5), Duration.ZERO, (shard, progress) -> {
+            progress.accept(3);
+            return 3;
+        });
+
+        verify(jobShardRepository).updateProgress(eq(rows.get(0).getId()), eq(3L), any());
+    }
+
+    private static JobShard row(int index, int count, String runKey, JobShardStatus status) {
+        return JobShard.builder()
+                .id(100L + index)
+                .jobName(JOB)
+                .shardIndex(index)
+                .shardCount(count)
+                .runKey(runKey)
+                .status(status)
+                .build();
+    }
+}
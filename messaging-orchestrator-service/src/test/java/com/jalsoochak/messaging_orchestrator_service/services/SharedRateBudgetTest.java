@@ -0,0 +1,66 @@
+package com.jalsoochak.messaging_orchestrator_service.services;
+
+import com.jalsoochak.messaging_orchestrator_service.models.entities.RateLimitBucket;
+import com.jalsoochak.messaging_orchestrator_service.services.SharedRateBudget.Lease;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedRateBudgetTest {
+
+    private static final double RATE = 10;
+    private static final int BURST = 5;
+    private static final Instant T0 = Instant.parse("2026-01-01T00:30:00Z");
+
+    @Test
+    void grantsWholePermitsUpToTheStoredAmount() {
+        RateLimitBucket bucket = bucket(BURST, T0);
+
+        assertThat(SharedRateBudget.take(bucket, 3, T0, RATE, BURST).granted()).isEqualTo(3);
+        assertThat(SharedRateBudget.take(bucket, 3, T0, RATE, BURST).granted()).isEqualTo(2);
+
+        Lease empty = SharedRateBudget.take(bucket, 3, T0, RATE, BURST);
+        assertThat(empty.granted()).isZero();
+        assertThat(empty.retryAfterNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void refillsAtTheRate() {
+        RateLimitBucket bucket = bucket(0, T0);
+
+        assertThat(SharedRateBudget.take(bucket, 5, T0.plusMillis(250), RATE, BURST).granted()).isEqualTo(2);
+
+        Lease empty = SharedRateBudget.take(bucket, 5, T0.plusMillis(250), RATE, BURST);
+        assertThat(empty.granted()).isZero();
+        assertThat(empty.retryAfterNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void storesNoMoreThanTheBurst() {
+        RateLimitBucket bucket = bucket(0, T0);
+
+        assertThat(SharedRateBudget.take(bucket, 100, T0.plus(Duration.ofHours(1)), RATE, BURST).granted())
+                .isEqualTo(BURST);
+    }
+
+    @Test
+    void aClockBehindTheLastRefillAddsNothing() {
+        RateLimitBucket bucket = bucket(0.5, T0);
+
+        assertThat(SharedRateBudget.take(bucket, 1, T0.minusSeconds(10), RATE, BURST).granted()).isZero();
+        assertThat(bucket.getRefilledAt()).isEqualTo(T0);
+        assertThat(bucket.getTokens()).isEqualTo(0.5);
+    }
+
+    private static RateLimitBucket bucket(double tokens, Instant refilledAt) {
+        return RateLimitBucket.builder()
+                .name(SharedRateBudget.GLIFIC_HSM)
+                .tokens(tokens)
+                .refilledAt(refilledAt)
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.jalsoochak.messaging_orchestrator_service.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private TokenBucket bucket;
+    private long base;
+
+    @BeforeEach
+    void setUp() {
+        bucket = new TokenBucket(10, 3);
+        base = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    }
+
+    @Test
+    void spendsTheBurstAtOnceThenPacesAtTheRate() {
+        drain(base);
+
+        assertThat(bucket.reserve(base)).isEqualTo(INTERVAL);
+        assertThat(bucket.reserve(base)).isEqualTo(2 * INTERVAL);
+    }
+
+    @Test
+    void refillsAtTheRateWhileIdle() {
+        drain(base);
+
+        // the next permit was due at base + 100 ms, so two more have been saved up by base + 300 ms
+        long later = base + 3 * INTERVAL;
+        assertThat(bucket.reserve(later)).isZero();
+        assertThat(bucket.reserve(later)).isZero();
+        assertThat(bucket.reserve(later)).isZero();
+        assertThat(bucket.reserve(later)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void savesNoMoreThanTheBurst() {
+        drain(base);
+
+        long muchLater = base + TimeUnit.MINUTES.toNanos(10);
+        drain(muchLater);
+        assertThat(bucket.reserve(muchLater)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void rejectsANonPositiveRate() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * The burst plus the permit that is due now are free; anything after that waits.
+     */
+    private void drain(long now) {
+        for (int i = 0; i < 4; i++) {
+            assertThat(bucket.reserve(now)).isZero();
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.jalsoochak.water_supply_calculation_service;
 
+import net.javacrumbs.shedlock.spring.annotation.EnableSchedulerLock;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@EnableSchedulerLock(defaultLockAtMostFor = "10m")
 public class WaterSupplyCalculationServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,74 @@
+package com.jalsoochak.water_supply_calculation_service.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Limits applied around FlowVision OCR calls: a circuit breaker, a semaphore bulkhead and an adaptive (AIMD)
+ * concurrency limit below the bulkhead size.
+ */
+@Data
+@ConfigurationProperties(prefix = "flowvision.resilience")
+public class FlowVisionResilienceProperties {
+
+    private boolean enabled = true;
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Bulkhead bulkhead = new Bulkhead();
+
+    private Limit limit = new Limit();
+
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * Number of recent calls the failure rate is computed over.
+         */
+        private int windowSize = 50;
+
+        private int minimumCalls = 20;
+
+        /**
+         * Share of failed or slow calls in the window (0-1) that opens the circuit.
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * Calls slower than this count as failures.
+         */
+        private Duration slowCallThreshold = Duration.ofSeconds(5);
+
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * Probe calls allowed while half-open; all must succeed to close the circuit.
+         */
+        private int halfOpenCalls = 3;
+    }
+
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 32;
+
+        /**
+         * How long a call may wait for a bulkhead slot before the reading is stored as OCR pending.
+         */
+        private Duration maxWait = Duration.ofMillis(100);
+    }
+
+    @Data
+    public static class Limit {
+        private int initial = 8;
+
+        private int min = 2;
+
+        /**
+         * Calls slower than this shrink the limit; faster ones let it grow up to the bulkhead size.
+         */
+        private Duration latencyThreshold = Duration.ofSeconds(2);
+
+        private double backoffRatio = 0.9;
+    }
+}
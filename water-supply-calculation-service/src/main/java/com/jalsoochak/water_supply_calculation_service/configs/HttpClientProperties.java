@@ -0,0 +1,52 @@
+package com.jalsoochak.water_supply_calculation_service.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Outbound HTTP client settings shared by the FlowVision, Glific media and Glific API calls.
+ */
+@Data
+@ConfigurationProperties(prefix = "http.client")
+public class HttpClientProperties {
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    private Duration readTimeout = Duration.ofSeconds(10);
+
+    /**
+     * How long a request may wait for a pooled connection before failing.
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+
+    private int maxTotal = 200;
+
+    private int maxPerRoute = 50;
+
+    /**
+     * Per-host overrides of {@link #maxPerRoute}, keyed by host name (applies to both http and https).
+     */
+    private Map<String, Integer> maxPerHost = new HashMap<>();
+
+    /**
+     * Upper bound for keeping an idle connection alive when the server does not send a shorter Keep-Alive.
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+
+    /**
+     * Pooled connections idle for longer than this are closed by the eviction thread.
+     */
+    private Duration idleEviction = Duration.ofSeconds(60);
+
+    private Duration connectionTimeToLive = Duration.ofMinutes(5);
+
+    /**
+     * Use the JDK HttpClient with HTTP/2 instead of the pooled Apache client. The JDK client manages its own
+     * connection pool, so the pool size settings above do not apply.
+     */
+    private boolean http2Enabled = false;
+}
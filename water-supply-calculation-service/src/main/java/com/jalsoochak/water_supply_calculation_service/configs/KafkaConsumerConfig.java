@@ -0,0 +1,72 @@
+package com.jalsoochak.water_supply_calculation_service.configs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Error handling for every listener of this service (the auto-configured container factory picks up the
+ * {@link CommonErrorHandler} bean).
+ * <p>
+ * Values are read through {@code ErrorHandlingDeserializer}, so a record that is not valid JSON for its event
+ * type goes straight to {@code <topic>-dlt} with its original bytes instead of failing every poll of its
+ * partition. A record whose listener keeps throwing is retried a few times and then sent there as well.
+ */
+@Slf4j
+@Configuration
+public class KafkaConsumerConfig {
+
+    @Value("${kafka.topics.image-fingerprint:image-fingerprint}")
+    private String imageFingerprintTopic;
+
+    @Value("${kafka.topics.operator-mapping-changed:operator-mapping-changed}")
+    private String operatorMappingChangedTopic;
+
+    @Value("${kafka.topics.dlt-suffix:-dlt}")
+    private String dltSuffix;
+
+    @Bean
+    public NewTopic imageFingerprintDltTopic() {
+        return TopicBuilder.name(imageFingerprintTopic + dltSuffix).build();
+    }
+
+    @Bean
+    public NewTopic operatorMappingChangedDltTopic() {
+        return TopicBuilder.name(operatorMappingChangedTopic + dltSuffix).build();
+    }
+
+    @Bean
+    public CommonErrorHandler kafkaErrorHandler(KafkaTemplate<String, Object> kafkaTemplate,
+                                                ProducerFactory<String, Object> producerFactory,
+                                                @Value("${kafka.listener.retry.attempts:2}") long attempts,
+                                                @Value("${kafka.listener.retry.interval-ms:1000}") long intervalMs) {
+        // records that failed deserialization are published with their raw bytes, everything else as JSON
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, new KafkaTemplate<>(producerFactory,
+                Map.of(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class)));
+        templates.put(Object.class, kafkaTemplate);
+
+        // a negative partition lets the producer pick one from the record key
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(templates, (record, ex) -> {
+            log.error("Sending record {} of {} to {}{}", record.key(), record.topic(), record.topic(), dltSuffix, ex);
+            return new TopicPartition(record.topic() + dltSuffix, -1);
+        });
+        return new DefaultErrorHandler(recoverer, new FixedBackOff(intervalMs, attempts));
+    }
+}
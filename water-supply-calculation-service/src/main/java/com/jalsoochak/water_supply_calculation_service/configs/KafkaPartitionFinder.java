@@ -0,0 +1,47 @@
+package com.jalsoochak.water_supply_calculation_service.configs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Lists a topic's partitions for listeners that assign all of them to themselves instead of joining a consumer
+ * group. It is asked when such a listener is started, not while the application context starts, so an
+ * unreachable broker only delays the listener.
+ */
+@Slf4j
+@Component
+public class KafkaPartitionFinder {
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+
+    public KafkaPartitionFinder(ConsumerFactory<?, ?> consumerFactory) {
+        this.consumerFactory = consumerFactory;
+    }
+
+    /**
+     * @return the topic's partition numbers, or an empty list when the broker could not be asked within
+     *         {@code timeout} or does not know the topic yet
+     */
+    public List<Integer> partitions(String topic, Duration timeout) {
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer()) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(topic, timeout);
+            if (partitions == null) {
+                return List.of();
+            }
+            return partitions.stream()
+                    .map(PartitionInfo::partition)
+                    .sorted()
+                    .toList();
+        } catch (KafkaException e) {
+            log.warn("Could not list the partitions of {}: {}", topic, e.getMessage());
+            return List.of();
+        }
+    }
+}
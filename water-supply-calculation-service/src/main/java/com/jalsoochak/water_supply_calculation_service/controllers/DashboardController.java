@@ -0,0 +1,49 @@
+package com.jalsoochak.water_supply_calculation_service.controllers;
+
+import com.jalsoochak.water_supply_calculation_service.exceptions.ApiException;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.GeoSummaryResponse;
+import com.jalsoochak.water_supply_calculation_service.models.enums.GeoLevel;
+import com.jalsoochak.water_supply_calculation_service.services.GeoSummaryCube;
+import com.jalsoochak.water_supply_calculation_service.tenant.TenantContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/tenants/{tenantId}/dashboard")
+public class DashboardController {
+
+    private final GeoSummaryCube geoSummaryCube;
+
+    /**
+     * Map and summary-card data for every location at {@code level} under {@code parentId} (any LGD ancestor),
+     * for {@code date} (today if omitted). Only the tenant of the {@code X-Tenant-Id} header can be read.
+     */
+    @GetMapping(value = "/geo-summary", produces = "application/json")
+    public ResponseEntity<GeoSummaryResponse> geoSummary(
+            @PathVariable String tenantId,
+            @RequestParam String level,
+            @RequestParam(required = false) Long parentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (!TenantContext.isCurrent(tenantId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        GeoLevel geoLevel = GeoLevel.fromParam(level)
+                .orElseThrow(() -> new ApiException("Unknown level: " + level, HttpStatus.BAD_REQUEST));
+        return ResponseEntity.ok(geoSummaryCube.summary(
+                tenantId,
+                geoLevel,
+                parentId,
+                date != null ? date : LocalDate.now()
+        ));
+    }
+}
@@ -1,5 +1,6 @@
 package com.jalsoochak.water_supply_calculation_service.controllers;
 
+import com.jalsoochak.water_supply_calculation_service.exceptions.IngestionBusyException;
 import com.jalsoochak.water_supply_calculation_service.models.app.requests.ClosingRequest;
 import com.jalsoochak.water_supply_calculation_service.models.app.requests.GlificWebhookRequest;
 import com.jalsoochak.water_supply_calculation_service.models.app.requests.IntroRequest;
@@ -8,9 +9,14 @@ import com.jalsoochak.water_supply_calculation_service.models.app.responses.Crea
 import com.jalsoochak.water_supply_calculation_service.models.app.responses.ImageAnalysisResponse;
 import com.jalsoochak.water_supply_calculation_service.models.app.responses.IntroResponse;
 import com.jalsoochak.water_supply_calculation_service.services.GlificWebhookService;
+import com.jalsoochak.water_supply_calculation_service.services.ReadingIngestionPipeline;
+import com.jalsoochak.water_supply_calculation_service.services.WebhookIdempotencyService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,9 +26,18 @@ public class GlificWebhookController {
 
     private static final Logger log = LoggerFactory.getLogger(GlificWebhookController.class);
     private final GlificWebhookService glificWebhookService;
+    private final ReadingIngestionPipeline readingIngestionPipeline;
+    private final WebhookIdempotencyService webhookIdempotencyService;
+    private final boolean asyncIngestion;
 
-    public GlificWebhookController(GlificWebhookService glificWebhookService) {
+    public GlificWebhookController(GlificWebhookService glificWebhookService,
+                                   ReadingIngestionPipeline readingIngestionPipeline,
+                                   WebhookIdempotencyService webhookIdempotencyService,
+                                   @Value("${webhook.ingestion.mode:sync}") String ingestionMode) {
         this.glificWebhookService = glificWebhookService;
+        this.readingIngestionPipeline = readingIngestionPipeline;
+        this.webhookIdempotencyService = webhookIdempotencyService;
+        this.asyncIngestion = "async".equalsIgnoreCase(ingestionMode);
     }
 
     @PostMapping(
@@ -32,8 +47,21 @@ public class GlificWebhookController {
     )
     public ResponseEntity<CreateReadingResponse> receive(@RequestBody GlificWebhookRequest glificWebhookRequest) {
         try {
-            CreateReadingResponse response = glificWebhookService.processImage(glificWebhookRequest);
+            CreateReadingResponse response = webhookIdempotencyService.execute(
+                    glificWebhookRequest,
+                    () -> asyncIngestion
+                            ? readingIngestionPipeline.submit(glificWebhookRequest)
+                            : glificWebhookService.processImage(glificWebhookRequest)
+            );
             return ResponseEntity.ok(response);
+        } catch (IngestionBusyException e) {
+            log.warn("Refusing webhook for contactId {}: {}", glificWebhookRequest.getContactId(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(CreateReadingResponse.builder()
+                            .correlationId(glificWebhookRequest.getContactId())
+                            .qualityStatus("BUSY")
+                            .build());
         } catch (Exception e) {
             log.error("Error processing webhook for contactId {}: {}",
                     glificWebhookRequest.getContactId(), e.getMessage(), e);
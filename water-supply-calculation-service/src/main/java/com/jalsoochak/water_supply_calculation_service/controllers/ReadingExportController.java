@@ -0,0 +1,104 @@
+package com.jalsoochak.water_supply_calculation_service.controllers;
+
+import com.jalsoochak.water_supply_calculation_service.services.ReadingExportService;
+import com.jalsoochak.water_supply_calculation_service.tenant.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Callable;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/tenants/{tenantId}/exports")
+public class ReadingExportController {
+
+    private static final String PERMIT_INTERCEPTOR_KEY = ReadingExportController.class.getName() + ".permit";
+
+    private final ReadingExportService readingExportService;
+    private final Duration maxRange;
+
+    public ReadingExportController(ReadingExportService readingExportService,
+                                   @Value("${export.readings.max-range:366d}") Duration maxRange) {
+        this.readingExportService = readingExportService;
+        this.maxRange = maxRange;
+    }
+
+    /**
+     * Streams the tenant's readings taken from {@code from} through {@code to} as CSV ({@code .csv.gz} with
+     * {@code gzip=true}) or, with {@code format=parquet}, as one Parquet file. The response is sent chunked as
+     * rows are read, so it has no Content-Length. Only the tenant of the {@code X-Tenant-Id} header can be exported.
+     */
+    @GetMapping("/readings")
+    public ResponseEntity<StreamingResponseBody> exportReadings(
+            @PathVariable String tenantId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            NativeWebRequest webRequest) {
+        if (!TenantContext.isCurrent(tenantId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        boolean parquet = "parquet".equalsIgnoreCase(format);
+        if (!parquet && !"csv".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (to.isBefore(from) || from.plusDays(maxRange.toDays()).isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        ReadingExportService.Permit permit = readingExportService.tryAcquire().orElse(null);
+        if (permit == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+
+        // the body may never run (async timeout, client gone before dispatch), so the request's completion
+        // releases the slot too; releasing twice is a no-op
+        WebAsyncUtils.getAsyncManager(webRequest).registerCallableInterceptor(PERMIT_INTERCEPTOR_KEY,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                        permit.close();
+                    }
+                });
+
+        StreamingResponseBody body = out -> {
+            try (permit) {
+                if (parquet) {
+                    readingExportService.exportParquet(tenantId, from, to, out);
+                } else {
+                    readingExportService.export(tenantId, from, to, gzip, out);
+                }
+            } catch (Exception e) {
+                log.warn("Reading export for tenant {} ({} to {}) stopped: {}", tenantId, from, to, e.getMessage());
+                throw e;
+            }
+        };
+
+        String extension = parquet ? ".parquet" : gzip ? ".csv.gz" : ".csv";
+        MediaType contentType = parquet
+                ? MediaType.APPLICATION_OCTET_STREAM
+                : gzip ? MediaType.parseMediaType("application/gzip") : MediaType.parseMediaType("text/csv");
+        String filename = "readings-" + tenantId + "-" + from + "-" + to + extension;
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
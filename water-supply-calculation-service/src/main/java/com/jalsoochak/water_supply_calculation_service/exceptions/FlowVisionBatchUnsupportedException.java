@@ -0,0 +1,11 @@
+package com.jalsoochak.water_supply_calculation_service.exceptions;
+
+/**
+ * Thrown when the FlowVision batch endpoint answers 404, 405 or 501, i.e. the deployed FlowVision has no batch
+ * support. Images are then sent one per request.
+ */
+public class FlowVisionBatchUnsupportedException extends RuntimeException {
+    public FlowVisionBatchUnsupportedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.jalsoochak.water_supply_calculation_service.exceptions;
+
+/**
+ * Thrown when the ingestion pipeline cannot take another submission because its fetch queue is full.
+ * Nothing was stored; the caller should retry the delivery later.
+ */
+public class IngestionBusyException extends RuntimeException {
+    public IngestionBusyException(String message) {
+        super(message);
+    }
+}
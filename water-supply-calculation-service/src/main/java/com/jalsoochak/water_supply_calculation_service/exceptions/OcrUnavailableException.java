@@ -0,0 +1,16 @@
+package com.jalsoochak.water_supply_calculation_service.exceptions;
+
+/**
+ * Thrown when an OCR call is not attempted because FlowVision is considered unhealthy (circuit open) or the
+ * concurrency limit is reached, or when the call failed in a way worth retrying (I/O error, timeout, 5xx, 429).
+ * The image is fine; the reading should be kept and processed later.
+ */
+public class OcrUnavailableException extends RuntimeException {
+    public OcrUnavailableException(String message) {
+        super(message);
+    }
+
+    public OcrUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
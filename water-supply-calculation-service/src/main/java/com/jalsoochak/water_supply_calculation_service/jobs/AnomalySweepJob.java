@@ -0,0 +1,58 @@
+package com.jalsoochak.water_supply_calculation_service.jobs;
+
+import com.jalsoochak.water_supply_calculation_service.services.AnomalyDetector;
+import com.jalsoochak.water_supply_calculation_service.services.AnomalySweepService;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Sweeps every closed day not swept yet, up to {@code anomaly.sweep.max-catch-up-days} back. Runs after midnight
+ * with enough delay ({@code anomaly.sweep.cron}) for every instance to have snapshotted its last submissions.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "anomaly.sweep.enabled", havingValue = "true", matchIfMissing = true)
+public class AnomalySweepJob {
+
+    private final AnomalySweepService anomalySweepService;
+    private final AnomalyDetector anomalyDetector;
+    private final int maxCatchUpDays;
+
+    public AnomalySweepJob(AnomalySweepService anomalySweepService,
+                           AnomalyDetector anomalyDetector,
+                           @Value("${anomaly.sweep.max-catch-up-days:7}") int maxCatchUpDays) {
+        this.anomalySweepService = anomalySweepService;
+        this.anomalyDetector = anomalyDetector;
+        this.maxCatchUpDays = maxCatchUpDays;
+    }
+
+    @Scheduled(cron = "${anomaly.sweep.cron:0 30 0 * * *}")
+    @SchedulerLock(
+            name = "AnomalySweepJob_sweep",
+            lockAtMostFor = "1h",
+            lockAtLeastFor = "1m"
+    )
+    public void sweep() {
+        anomalyDetector.snapshot();
+
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate earliest = yesterday.minusDays(maxCatchUpDays - 1L);
+        LocalDate day = anomalySweepService.lastSweptDay()
+                .map(last -> last.plusDays(1))
+                .orElse(yesterday);
+        if (day.isBefore(earliest)) {
+            log.warn("Anomaly sweep skipping {} to {}: older than {} days", day, earliest.minusDays(1), maxCatchUpDays);
+            day = earliest;
+        }
+
+        for (; !day.isAfter(yesterday); day = day.plusDays(1)) {
+            anomalySweepService.sweep(day);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.jalsoochak.water_supply_calculation_service.jobs;
+
+import com.jalsoochak.water_supply_calculation_service.services.BfmReadingPartitionManager;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps partitions of {@code bfm_reading} for the coming months created ahead of time, on startup and nightly.
+ * The table itself is converted by the {@code V8} migration, never at runtime.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bfm-reading.partitioning.enabled", havingValue = "true", matchIfMissing = true)
+public class BfmReadingPartitionJob {
+
+    private final BfmReadingPartitionManager partitionManager;
+
+    public BfmReadingPartitionJob(BfmReadingPartitionManager partitionManager) {
+        this.partitionManager = partitionManager;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (partitionManager.isSupported() && !partitionManager.isPartitioned()) {
+            log.warn("bfm_reading is not partitioned; the V8 migration has not run against this database");
+            return;
+        }
+        ensureFuturePartitions();
+    }
+
+    @Scheduled(cron = "${bfm-reading.partitioning.cron:0 30 2 * * *}")
+    @SchedulerLock(
+            name = "BfmReadingPartitionJob_ensureFuturePartitions",
+            lockAtMostFor = "10m",
+            lockAtLeastFor = "1m"
+    )
+    public void ensureFuturePartitions() {
+        if (partitionManager.isSupported() && partitionManager.isPartitioned()) {
+            partitionManager.ensureFuturePartitions();
+        }
+    }
+}
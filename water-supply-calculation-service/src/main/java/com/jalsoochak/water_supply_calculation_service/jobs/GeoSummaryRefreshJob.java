@@ -0,0 +1,64 @@
+package com.jalsoochak.water_supply_calculation_service.jobs;
+
+import com.jalsoochak.water_supply_calculation_service.services.GeoSummaryAggregator;
+import com.jalsoochak.water_supply_calculation_service.services.LgdHierarchySync;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the geo-summary cube current: days touched by new readings or supply changes are recomputed every
+ * {@code dashboard.geo-summary.refresh.interval}, and the last {@code dashboard.geo-summary.cache.days} days of
+ * every tenant are rebuilt nightly against a reloaded LGD hierarchy, after the LGD parents are synced
+ * ({@link LgdHierarchySync}). ShedLock makes sure only one instance writes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "dashboard.geo-summary.refresh.enabled", havingValue = "true", matchIfMissing = true)
+public class GeoSummaryRefreshJob {
+
+    private final GeoSummaryAggregator aggregator;
+    private final LgdHierarchySync lgdHierarchySync;
+    private final int rebuildDays;
+
+    public GeoSummaryRefreshJob(GeoSummaryAggregator aggregator,
+                                LgdHierarchySync lgdHierarchySync,
+                                @Value("${dashboard.geo-summary.cache.days:7}") int rebuildDays) {
+        this.aggregator = aggregator;
+        this.lgdHierarchySync = lgdHierarchySync;
+        this.rebuildDays = rebuildDays;
+    }
+
+    @Scheduled(
+            fixedDelayString = "${dashboard.geo-summary.refresh.interval:PT15S}",
+            initialDelayString = "${dashboard.geo-summary.refresh.interval:PT15S}"
+    )
+    @SchedulerLock(
+            name = "GeoSummaryRefreshJob_refresh",
+            lockAtMostFor = "10m",
+            lockAtLeastFor = "5s"
+    )
+    public void refresh() {
+        int days = aggregator.refreshChanged();
+        if (days > 0) {
+            log.debug("Recomputed geo summary for {} tenant-days", days);
+        }
+    }
+
+    // shares the refresh lock, so a rebuild and a refresh never write the same cells at once
+    @Scheduled(cron = "${dashboard.geo-summary.refresh.rebuild-cron:0 0 3 * * *}")
+    @SchedulerLock(
+            name = "GeoSummaryRefreshJob_refresh",
+            lockAtMostFor = "1h",
+            lockAtLeastFor = "1m"
+    )
+    public void rebuild() {
+        long start = System.nanoTime();
+        lgdHierarchySync.syncParents();
+        aggregator.rebuild(rebuildDays);
+        log.info("Rebuilt geo summary for the last {} days in {} ms", rebuildDays, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,51 @@
+package com.jalsoochak.water_supply_calculation_service.jobs;
+
+import com.jalsoochak.water_supply_calculation_service.services.ReadingIngestionPipeline;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Re-runs async submissions whose queued or running work was lost (restart, crash, shutdown drain).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ingestion.recovery.enabled", havingValue = "true", matchIfMissing = true)
+public class IngestionRecoveryJob {
+
+    private final ReadingIngestionPipeline readingIngestionPipeline;
+    private final Duration staleAfter;
+    private final int maxAttempts;
+    private final int batchSize;
+
+    public IngestionRecoveryJob(ReadingIngestionPipeline readingIngestionPipeline,
+                                @Value("${ingestion.recovery.stale-after:10m}") Duration staleAfter,
+                                @Value("${ingestion.recovery.max-attempts:3}") int maxAttempts,
+                                @Value("${ingestion.recovery.batch-size:100}") int batchSize) {
+        this.readingIngestionPipeline = readingIngestionPipeline;
+        this.staleAfter = staleAfter;
+        this.maxAttempts = maxAttempts;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(
+            fixedDelayString = "${ingestion.recovery.interval:PT1M}",
+            initialDelayString = "${ingestion.recovery.interval:PT1M}"
+    )
+    @SchedulerLock(
+            name = "IngestionRecoveryJob_recoverStale",
+            lockAtMostFor = "5m",
+            lockAtLeastFor = "30s"
+    )
+    public void recoverStale() {
+        int resumed = readingIngestionPipeline.recoverStale(staleAfter, maxAttempts, batchSize);
+        if (resumed > 0) {
+            log.info("Resumed {} stale reading submissions", resumed);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.jalsoochak.water_supply_calculation_service.jobs;
+
+import com.jalsoochak.water_supply_calculation_service.exceptions.OcrUnavailableException;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResult;
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import com.jalsoochak.water_supply_calculation_service.services.FlowVisionService;
+import com.jalsoochak.water_supply_calculation_service.services.OcrReconciliationService;
+import com.jalsoochak.water_supply_calculation_service.services.OcrReconciliationService.ReconciledReading;
+import com.jalsoochak.water_supply_calculation_service.services.OcrResultCache;
+import com.jalsoochak.water_supply_calculation_service.services.ReconciledReadingNotifier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-runs OCR for readings that were stored without an extracted value (FlowVision could not read the meter,
+ * or the call was deferred while the circuit was open).
+ * <p>
+ * Readings are walked in id order from a persisted watermark, a batch at a time, with at most
+ * {@code ocr.reconciliation.parallelism} OCR calls in flight. Every FlowVision answer without a value counts as
+ * an attempt; a reading stays pending until it has had {@code ocr.reconciliation.max-attempts} of them. The
+ * persisted watermark stays just below the lowest reading that is still pending, so later runs retry it. When
+ * OCR is unavailable the run stops without counting an attempt. Once a batch is written, operators are told the
+ * outcome of readings that got a value or were given up ({@link ReconciledReadingNotifier}). ShedLock makes
+ * sure only one instance runs at a time.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ocr.reconciliation.enabled", havingValue = "true", matchIfMissing = true)
+public class OcrReconciliationJob {
+
+    private final OcrReconciliationService reconciliationService;
+    private final FlowVisionService flowVisionService;
+    private final OcrResultCache ocrResultCache;
+    private final ReconciledReadingNotifier reconciledReadingNotifier;
+    private final ExecutorService ocrExecutor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long maxRunNanos;
+    private final Counter completedCounter;
+    private final Counter failedCounter;
+
+    public OcrReconciliationJob(OcrReconciliationService reconciliationService,
+                                FlowVisionService flowVisionService,
+                                OcrResultCache ocrResultCache,
+                                ReconciledReadingNotifier reconciledReadingNotifier,
+                                MeterRegistry meterRegistry,
+                                @Value("${ocr.reconciliation.batch-size:200}") int batchSize,
+                                @Value("${ocr.reconciliation.parallelism:4}") int parallelism,
+                                @Value("${ocr.reconciliation.max-attempts:5}") int maxAttempts,
+                                @Value("${ocr.reconciliation.max-run-time:5m}") Duration maxRunTime) {
+        this.reconciliationService = reconciliationService;
+        this.flowVisionService = flowVisionService;
+        this.ocrResultCache = ocrResultCache;
+        this.reconciledReadingNotifier = reconciledReadingNotifier;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.maxRunNanos = maxRunTime.toNanos();
+        this.ocrExecutor = Executors.newFixedThreadPool(
+                parallelism,
+                Thread.ofPlatform().name("ocr-reconcile-", 0).factory()
+        );
+        this.completedCounter = Counter.builder("ocr.reconciliation.readings")
+                .tag("outcome", "completed")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("ocr.reconciliation.readings")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${ocr.reconciliation.interval:PT1M}",
+            initialDelayString = "${ocr.reconciliation.initial-delay:PT1M}"
+    )
+    @SchedulerLock(
+            name = "OcrReconciliationJob_reconcile",
+            lockAtMostFor = "10m",
+            lockAtLeastFor = "10s"
+    )
+    public void reconcile() {
+        long deadline = System.nanoTime() + maxRunNanos;
+        long cursor = reconciliationService.loadWatermark();
+        Long lowestPending = null;
+        int reconciled = 0;
+
+        while (System.nanoTime() < deadline) {
+            List<BfmReading> batch = reconciliationService.nextBatch(cursor, maxAttempts, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            BatchOutcome outcome = runOcr(batch);
+            if (lowestPending == null) {
+                lowestPending = outcome.lowestPending();
+            }
+            cursor = batch.get(batch.size() - 1).getId();
+
+            reconciliationService.apply(
+                    outcome.results(),
+                    lowestPending != null ? lowestPending - 1 : cursor,
+                    maxAttempts
+            );
+            reconciledReadingNotifier.notifyOperators(outcome.results(), maxAttempts);
+            reconciled += outcome.results().size();
+
+            if (outcome.ocrUnavailable() || batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (reconciled > 0) {
+            log.info("OCR reconciliation processed {} readings, lowest pending reading {}", reconciled, lowestPending);
+        }
+    }
+
+    /**
+     * @param lowestPending id of the first reading in the batch that still needs OCR afterwards, or
+     *                      {@code null} when every reading was resolved
+     */
+    private record BatchOutcome(List<ReconciledReading> results, Long lowestPending, boolean ocrUnavailable) {
+    }
+
+    private BatchOutcome runOcr(List<BfmReading> batch) {
+        List<Future<FlowVisionResult>> futures = new ArrayList<>(batch.size());
+        for (BfmReading reading : batch) {
+            futures.add(ocrExecutor.submit(() -> extract(reading)));
+        }
+
+        List<ReconciledReading> results = new ArrayList<>(batch.size());
+        Long lowestPending = null;
+        boolean unavailable = false;
+
+        for (int i = 0; i < batch.size(); i++) {
+            BfmReading reading = batch.get(i);
+            ReconciledReading result;
+            try {
+                FlowVisionResult ocr = futures.get(i).get();
+                result = new ReconciledReading(
+                        reading,
+                        ocr != null ? ocr.getAdjustedReading() : null,
+                        ocr != null ? ocr.getQualityConfidence() : null
+                );
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof OcrUnavailableException) {
+                    unavailable = true;
+                    if (lowestPending == null) {
+                        lowestPending = reading.getId();
+                    }
+                    continue;
+                }
+                log.error("OCR reconciliation failed for reading {}", reading.getId(), e.getCause());
+                result = new ReconciledReading(reading, null, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                return new BatchOutcome(results, lowestPending != null ? lowestPending : reading.getId(), true);
+            }
+
+            results.add(result);
+            (result.extractedReading() != null ? completedCounter : failedCounter).increment();
+            if (lowestPending == null && result.remainsPending(maxAttempts)) {
+                lowestPending = reading.getId();
+            }
+        }
+
+        if (unavailable) {
+            log.warn("FlowVision unavailable during OCR reconciliation; resuming from reading {} next run", lowestPending);
+        }
+        return new BatchOutcome(results, lowestPending, unavailable);
+    }
+
+    private FlowVisionResult extract(BfmReading reading) {
+        Optional<FlowVisionResult> cached = ocrResultCache.find(reading.getImageHash());
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        FlowVisionResult result = flowVisionService.extractReading(reading.getReadingUrl());
+        ocrResultCache.put(reading.getImageHash(), result);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ocrExecutor.shutdown();
+        ocrExecutor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
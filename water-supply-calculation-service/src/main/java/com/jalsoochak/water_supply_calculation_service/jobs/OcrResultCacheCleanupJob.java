@@ -0,0 +1,44 @@
+package com.jalsoochak.water_supply_calculation_service.jobs;
+
+import com.jalsoochak.water_supply_calculation_service.repositories.OcrResultCacheRepository;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Deletes {@code ocr_result_cache} rows older than {@code ocr.cache.retention}; a photo resent after that goes to
+ * FlowVision again.
+ */
+@Slf4j
+@Component
+public class OcrResultCacheCleanupJob {
+    private final OcrResultCacheRepository ocrResultCacheRepository;
+    private final Duration retention;
+
+    public OcrResultCacheCleanupJob(OcrResultCacheRepository ocrResultCacheRepository,
+                                    @Value("${ocr.cache.retention:30d}") Duration retention) {
+        this.ocrResultCacheRepository = ocrResultCacheRepository;
+        this.retention = retention;
+    }
+
+    @Scheduled(
+            fixedDelayString = "${ocr.cache.cleanup-interval:PT1H}",
+            initialDelayString = "${ocr.cache.cleanup-interval:PT1H}"
+    )
+    @SchedulerLock(
+            name = "OcrResultCacheCleanupJob_deleteExpired",
+            lockAtMostFor = "10m",
+            lockAtLeastFor = "1m"
+    )
+    public void deleteExpired() {
+        int deleted = ocrResultCacheRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Deleted {} expired OCR result cache entries", deleted);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.jalsoochak.water_supply_calculation_service.jobs;
+
+import com.jalsoochak.water_supply_calculation_service.repositories.WebhookIdempotencyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WebhookIdempotencyCleanupJob {
+    private final WebhookIdempotencyRepository webhookIdempotencyRepository;
+
+    @Scheduled(
+            fixedDelayString = "${webhook.idempotency.cleanup-interval:PT10M}",
+            initialDelayString = "${webhook.idempotency.cleanup-interval:PT10M}"
+    )
+    @SchedulerLock(
+            name = "WebhookIdempotencyCleanupJob_deleteExpired",
+            lockAtMostFor = "5m",
+            lockAtLeastFor = "1m"
+    )
+    public void deleteExpired() {
+        int deleted = webhookIdempotencyRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Deleted {} expired webhook idempotency records", deleted);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.jalsoochak.water_supply_calculation_service.kafka.consumers;
+
+import com.jalsoochak.water_supply_calculation_service.kafka.events.ImageFingerprintEvent;
+import com.jalsoochak.water_supply_calculation_service.repositories.BfmReadingRepository;
+import com.jalsoochak.water_supply_calculation_service.services.AnomalyDetector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores the perceptual hash and near-duplicate flag imageprocessing computed for a reading's photo.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageFingerprintConsumer {
+
+    private final BfmReadingRepository bfmReadingRepository;
+    private final AnomalyDetector anomalyDetector;
+
+    @KafkaListener(
+            topics = "${kafka.topics.image-fingerprint:image-fingerprint}",
+            groupId = "${spring.application.name}-image-fingerprint",
+            properties = "spring.json.value.default.type=com.jalsoochak.water_supply_calculation_service.kafka.events.ImageFingerprintEvent"
+    )
+    public void onFingerprint(ImageFingerprintEvent event) {
+        if (event == null || event.getReadingId() == null || event.getReadingDateTime() == null) {
+            return;
+        }
+
+        bfmReadingRepository.updateFingerprint(
+                event.getReadingId(),
+                event.getReadingDateTime(),
+                event.getPerceptualHash(),
+                event.isNearDuplicate(),
+                event.getNearDuplicateOf()
+        );
+        if (event.isNearDuplicate()) {
+            log.info("Reading {} photo nearly duplicates reading {} (distance {})",
+                    event.getReadingId(), event.getNearDuplicateOf(), event.getHashDistance());
+            anomalyDetector.onNearDuplicate(
+                    event.getSchemeId(),
+                    event.getTenantId(),
+                    event.getReadingId(),
+                    event.getReadingDateTime(),
+                    event.getNearDuplicateOf(),
+                    event.getHashDistance()
+            );
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.jalsoochak.water_supply_calculation_service.kafka.consumers;
+
+import com.jalsoochak.water_supply_calculation_service.configs.KafkaPartitionFinder;
+import com.jalsoochak.water_supply_calculation_service.kafka.events.OperatorMappingChangedEvent;
+import com.jalsoochak.water_supply_calculation_service.services.OperatorContextResolver;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.TopicPartitionOffset;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Evicts cached operator context when ManagementService changes person/scheme mappings.
+ * <p>
+ * Every instance keeps its own cache and must see every event, so instead of joining a consumer group the
+ * listener assigns itself all partitions, starts at the end (the cache is empty at startup) and commits no
+ * offsets. Nothing is left behind on the broker when an instance goes away.
+ * <p>
+ * The partitions are looked up once the application runs, and again every
+ * {@code kafka.operator-mapping.assign-retry-interval} until the broker answers, so a broker that is down at
+ * startup does not keep the service from starting.
+ */
+@Slf4j
+@Component
+public class OperatorMappingConsumer {
+
+    private final OperatorContextResolver operatorContextResolver;
+    private final KafkaPartitionFinder kafkaPartitionFinder;
+    private final ConcurrentKafkaListenerContainerFactory<Object, Object> containerFactory;
+    private final String topic;
+    private final Duration lookupTimeout;
+    private final boolean autoStartup;
+
+    private ConcurrentMessageListenerContainer<Object, Object> container;
+
+    public OperatorMappingConsumer(OperatorContextResolver operatorContextResolver,
+                                   KafkaPartitionFinder kafkaPartitionFinder,
+                                   ConcurrentKafkaListenerContainerFactory<Object, Object> kafkaListenerContainerFactory,
+                                   @Value("${kafka.topics.operator-mapping-changed:operator-mapping-changed}") String topic,
+                                   @Value("${kafka.operator-mapping.partition-lookup-timeout:3s}") Duration lookupTimeout,
+                                   @Value("${spring.kafka.listener.auto-startup:true}") boolean autoStartup) {
+        this.operatorContextResolver = operatorContextResolver;
+        this.kafkaPartitionFinder = kafkaPartitionFinder;
+        this.containerFactory = kafkaListenerContainerFactory;
+        this.topic = topic;
+        this.lookupTimeout = lookupTimeout;
+        this.autoStartup = autoStartup;
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.operator-mapping.assign-retry-interval:PT30S}")
+    public synchronized void startWhenPartitionsAreKnown() {
+        if (container != null || !autoStartup) {
+            return;
+        }
+
+        List<Integer> partitions = kafkaPartitionFinder.partitions(topic, lookupTimeout);
+        if (partitions.isEmpty()) {
+            log.warn("Partitions of {} not known yet, operator cache evictions are not received", topic);
+            return;
+        }
+
+        ConcurrentMessageListenerContainer<Object, Object> created = containerFactory.createContainer(
+                partitions.stream()
+                        .map(partition -> new TopicPartitionOffset(topic, partition, TopicPartitionOffset.SeekPosition.END))
+                        .toArray(TopicPartitionOffset[]::new)
+        );
+        Properties consumerProperties = new Properties();
+        consumerProperties.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        consumerProperties.setProperty(JsonDeserializer.VALUE_DEFAULT_TYPE, OperatorMappingChangedEvent.class.getName());
+        created.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        created.setBeanName("operator-mapping-changed");
+        created.setupMessageListener((MessageListener<Object, Object>) record ->
+                onMappingChanged((OperatorMappingChangedEvent) record.value()));
+        created.start();
+
+        container = created;
+        log.info("Listening to {} partitions of {}", partitions.size(), topic);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    void onMappingChanged(OperatorMappingChangedEvent event) {
+        if (event == null) {
+            return;
+        }
+
+        log.info("Operator mappings changed for tenant {}: {} phone numbers",
+                event.getTenantId(), event.getPhoneNumbers() != null ? event.getPhoneNumbers().size() : "all");
+        operatorContextResolver.invalidate(event.getPhoneNumbers());
+    }
+}
@@ -0,0 +1,25 @@
+package com.jalsoochak.water_supply_calculation_service.kafka.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Perceptual hash of a reading's photo from imageprocessing, and the recent reading of the same scheme it
+ * nearly duplicates, if any.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageFingerprintEvent {
+    private Long readingId;
+    private LocalDateTime readingDateTime;
+    private Long schemeId;
+    private String tenantId;
+    private Long perceptualHash;
+    private boolean nearDuplicate;
+    private Long nearDuplicateOf;
+    private Integer hashDistance;
+}
@@ -0,0 +1,21 @@
+package com.jalsoochak.water_supply_calculation_service.kafka.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Asks imageprocessing to normalize and fingerprint a reading's photo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageProcessingMessage {
+    private String readingUrl;
+    private Long readingId;
+    private LocalDateTime readingDateTime;
+    private Long schemeId;
+    private String tenantId;
+}
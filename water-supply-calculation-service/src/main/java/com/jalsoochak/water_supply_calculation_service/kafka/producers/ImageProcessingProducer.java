@@ -0,0 +1,62 @@
+package com.jalsoochak.water_supply_calculation_service.kafka.producers;
+
+import com.jalsoochak.water_supply_calculation_service.kafka.events.ImageProcessingMessage;
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands a stored reading's photo to imageprocessing for normalization and near-duplicate detection.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageProcessingProducer {
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${kafka.topics.image-processing:image-processing-topic}")
+    private String imageProcessingTopic;
+
+    /**
+     * Sends once the reading's transaction commits, so imageprocessing never reports on a reading id that
+     * was rolled back.
+     */
+    public void sendAfterCommit(BfmReading reading) {
+        if (reading.getReadingUrl() == null || reading.getReadingUrl().isBlank()) {
+            return;
+        }
+
+        ImageProcessingMessage message = new ImageProcessingMessage(
+                reading.getReadingUrl(),
+                reading.getId(),
+                reading.getReadingDateTime(),
+                reading.getScheme().getId(),
+                reading.getTenantId()
+        );
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(message);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send(message);
+            }
+        });
+    }
+
+    private void send(ImageProcessingMessage message) {
+        kafkaTemplate.send(imageProcessingTopic, String.valueOf(message.getSchemeId()), message)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to send reading {} for image processing", message.getReadingId(), ex);
+                    }
+                });
+    }
+}
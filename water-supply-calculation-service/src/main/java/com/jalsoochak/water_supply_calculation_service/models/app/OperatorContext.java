@@ -0,0 +1,20 @@
+package com.jalsoochak.water_supply_calculation_service.models.app;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Everything a WhatsApp submission needs to know about the operator behind a phone number, resolved in a
+ * single query: the person, their tenant, the scheme they are mapped to and their message language.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class OperatorContext {
+    private final Long personId;
+    private final String phoneNumber;
+    private final String tenantId;
+    private final Long schemeId;
+    private final String languageCode;
+}
@@ -26,6 +26,8 @@ public class CreateReadingRequest {
 
     private String readingUrl;
 
+    private String imageHash;
+
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime readingTime;
 }
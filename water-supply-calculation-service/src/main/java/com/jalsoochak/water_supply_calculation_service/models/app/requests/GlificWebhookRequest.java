@@ -28,4 +28,6 @@ public class GlificWebhookRequest {
     private String confirmedReading;
 
     private String correlationId;
+
+    private String flowId;
 }
@@ -1,12 +1,16 @@
 package com.jalsoochak.water_supply_calculation_service.models.app.responses;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class CreateReadingResponse {
     private String correlationId;
     private BigDecimal meterReading;
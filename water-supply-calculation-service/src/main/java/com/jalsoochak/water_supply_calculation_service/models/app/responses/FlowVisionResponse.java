@@ -0,0 +1,48 @@
+package com.jalsoochak.water_supply_calculation_service.models.app.responses;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Wire format of the FlowVision extract-reading endpoints. Numbers are bound straight to {@link BigDecimal}
+ * by the JSON parser.
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FlowVisionResponse {
+
+    private Result result;
+
+    @Data
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Result {
+        private String status;
+        private String correlationId;
+        private ReadingData data;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ReadingData {
+        private BigDecimal meterReading;
+        private String qualityStatus;
+        private BigDecimal qualityConfidence;
+    }
+
+    /**
+     * Batch endpoint response: one {@link Result} per submitted image, in request order.
+     */
+    @Data
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Batch {
+        private List<Result> results;
+    }
+}
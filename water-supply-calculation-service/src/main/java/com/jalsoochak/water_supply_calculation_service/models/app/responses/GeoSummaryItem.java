@@ -0,0 +1,22 @@
+package com.jalsoochak.water_supply_calculation_service.models.app.responses;
+
+import com.jalsoochak.water_supply_calculation_service.models.enums.GeoSummaryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeoSummaryItem {
+    private Long id;
+    private String name;
+    private GeoSummaryStatus status;
+    private double dailySubmissionPercent;
+    /** Schemes under the location that reported no supply on the date. */
+    private int noWaterDays;
+    private int activeOperators;
+    private int inactiveOperators;
+}
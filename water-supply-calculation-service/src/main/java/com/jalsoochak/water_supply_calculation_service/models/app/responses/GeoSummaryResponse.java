@@ -0,0 +1,19 @@
+package com.jalsoochak.water_supply_calculation_service.models.app.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeoSummaryResponse {
+    private String level;
+    private LocalDate date;
+    private List<GeoSummaryItem> items;
+}
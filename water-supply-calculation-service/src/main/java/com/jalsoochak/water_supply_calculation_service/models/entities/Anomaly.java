@@ -0,0 +1,78 @@
+package com.jalsoochak.water_supply_calculation_service.models.entities;
+
+import com.jalsoochak.water_supply_calculation_service.models.enums.AnomalyStatus;
+import com.jalsoochak.water_supply_calculation_service.models.enums.AnomalyType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A rule violation for a scheme on one day; at most one per (scheme, type, day), and for REPEATED_IMAGE one per
+ * reading (partial unique indexes in {@code V11__anomalies.sql}). Raised by
+ * {@link com.jalsoochak.water_supply_calculation_service.services.AnomalyDetector} and the nightly
+ * {@link com.jalsoochak.water_supply_calculation_service.services.AnomalySweepService}.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "anomalies",
+        indexes = {
+                @Index(name = "idx_anomalies_tenant_date", columnList = "tenant_id, anomaly_date")
+        }
+)
+public class Anomaly {
+    @Id
+    @Column(name = "anomaly_id")
+    private UUID id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "scheme_id", nullable = false)
+    private Long schemeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 20)
+    private AnomalyType type;
+
+    @Column(name = "anomaly_date", nullable = false)
+    private LocalDate anomalyDate;
+
+    /** Reading that raised the anomaly; null for NO_SUBMISSION. */
+    @Column(name = "reading_id")
+    private Long readingId;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "details")
+    private Map<String, Object> details;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private AnomalyStatus status;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -1,11 +1,15 @@
 package com.jalsoochak.water_supply_calculation_service.models.entities;
 
+import com.jalsoochak.water_supply_calculation_service.models.enums.OcrStatus;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -25,7 +29,15 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "bfm_reading")
+@Table(
+        name = "bfm_reading",
+        indexes = {
+                @Index(name = "idx_bfm_reading_image_hash", columnList = "image_hash"),
+                @Index(name = "idx_bfm_reading_scheme_tenant_time", columnList = "scheme_id, tenant_id, reading_date_time DESC"),
+                @Index(name = "idx_bfm_reading_person_time", columnList = "person_id, reading_date_time"),
+                @Index(name = "idx_bfm_reading_correlation_id", columnList = "correlation_id")
+        }
+)
 public class BfmReading {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -65,6 +77,32 @@ public class BfmReading {
     @Column(name = "correlation_id", length = 36)
     private String correlationId;
 
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    @Column(name = "repeated_image")
+    private Boolean repeatedImage;
+
+    /** 64-bit dHash of the normalized photo, reported by imageprocessing. */
+    @Column(name = "perceptual_hash")
+    private Long perceptualHash;
+
+    /** Photo looks like one submitted for the same scheme recently (see {@code nearDuplicateOf}). */
+    @Column(name = "near_duplicate")
+    private Boolean nearDuplicate;
+
+    @Column(name = "near_duplicate_of")
+    private Long nearDuplicateOf;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "ocr_status", length = 20)
+    private OcrStatus ocrStatus;
+
+    /** FlowVision answers received for this reading; reconciliation gives up at {@code ocr.reconciliation.max-attempts}. */
+    @Builder.Default
+    @Column(name = "ocr_attempts", nullable = false, columnDefinition = "integer not null default 0")
+    private int ocrAttempts = 0;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "scheme_id")
     private SchemeMaster scheme;
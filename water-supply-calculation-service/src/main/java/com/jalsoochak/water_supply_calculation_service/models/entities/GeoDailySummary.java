@@ -0,0 +1,92 @@
+package com.jalsoochak.water_supply_calculation_service.models.entities;
+
+import com.jalsoochak.water_supply_calculation_service.models.enums.GeoLevel;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One cell of the geo-summary cube: submissions, supply and operator activity of every scheme under an LGD
+ * location (or village) on one day. Maintained by
+ * {@link com.jalsoochak.water_supply_calculation_service.services.GeoSummaryAggregator}.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "geo_daily_summary",
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        name = "uk_geo_daily_summary_cell",
+                        columnNames = {"tenant_id", "summary_date", "level", "location_id"}
+                )
+        },
+        indexes = {
+                @Index(name = "idx_geo_daily_summary_updated_at", columnList = "updated_at")
+        }
+)
+public class GeoDailySummary {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "summary_date", nullable = false)
+    private LocalDate summaryDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "level", nullable = false, length = 16)
+    private GeoLevel level;
+
+    /** {@code village_master.id} for villages, {@code lgd_location_master.id} for every other level. */
+    @Column(name = "location_id", nullable = false)
+    private Long locationId;
+
+    @Column(name = "parent_id")
+    private Long parentId;
+
+    @Column(name = "scheme_count")
+    private Integer schemeCount;
+
+    /** Schemes with at least one submitted reading on the day. */
+    @Column(name = "schemes_reported")
+    private Integer schemesReported;
+
+    /** Schemes whose valid readings show no supply on the day. */
+    @Column(name = "no_water_schemes")
+    private Integer noWaterSchemes;
+
+    @Column(name = "quantity_litre", precision = 16, scale = 1)
+    private BigDecimal quantityLitre;
+
+    @Column(name = "operator_count")
+    private Integer operatorCount;
+
+    /** Mapped operators who submitted a reading for one of the location's schemes on the day. */
+    @Column(name = "active_operators")
+    private Integer activeOperators;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
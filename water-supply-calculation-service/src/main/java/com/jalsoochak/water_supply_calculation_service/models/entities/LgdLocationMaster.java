@@ -2,6 +2,7 @@ package com.jalsoochak.water_supply_calculation_service.models.entities;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -47,4 +48,9 @@ public class LgdLocationMaster {
     @ManyToOne
     @JoinColumn(name = "lgd_location_type_id", referencedColumnName = "id")
     private LgdLocationTypeMaster lgdLocationType;
+
+    /** Enclosing LGD unit (GP for a village's parent, block for a GP, and so on); null for a state. */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_lgd_location_id")
+    private LgdLocationMaster parentLgdLocation;
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.jalsoochak.water_supply_calculation_service.models.entities;
 
 import jakarta.persistence.Column;
+import com.jalsoochak.water_supply_calculation_service.services.MessageTemplateCacheListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -20,6 +22,7 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(MessageTemplateCacheListener.class)
 @Table(name = "message_template")
 public class MessageTemplate {
     @Id
@@ -0,0 +1,39 @@
+package com.jalsoochak.water_supply_calculation_service.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "ocr_result_cache")
+public class OcrResultCacheEntry {
+    @Id
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    @Column(name = "adjusted_reading", precision = 10, scale = 1)
+    private BigDecimal adjustedReading;
+
+    @Column(name = "quality_status", length = 50)
+    private String qualityStatus;
+
+    @Column(name = "quality_confidence", precision = 3, scale = 2)
+    private BigDecimal qualityConfidence;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
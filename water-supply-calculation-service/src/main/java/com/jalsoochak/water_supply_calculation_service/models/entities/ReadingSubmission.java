@@ -0,0 +1,82 @@
+package com.jalsoochak.water_supply_calculation_service.models.entities;
+
+import com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "reading_submission",
+        indexes = {
+                @Index(name = "idx_submission_contact_id", columnList = "contact_id"),
+                @Index(name = "idx_submission_status_updated_at", columnList = "status, updated_at"),
+                @Index(name = "idx_submission_idempotency_key", columnList = "idempotency_key"),
+                @Index(name = "idx_submission_correlation_id", columnList = "correlation_id")
+        }
+)
+public class ReadingSubmission {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "contact_id", length = 20)
+    private String contactId;
+
+    @Column(name = "media_id")
+    private String mediaId;
+
+    @Column(name = "media_url", length = 2048)
+    private String mediaUrl;
+
+    @Column(name = "flow_id", length = 64)
+    private String flowId;
+
+    /** Webhook idempotency key of the delivery that created the submission, see {@code WebhookIdempotencyService}. */
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
+
+    @Column(name = "reading_url", length = 2048)
+    private String readingUrl;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private SubmissionStatus status;
+
+    @Column(name = "correlation_id", length = 36)
+    private String correlationId;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    /**
+     * Times the submission was picked up again by recovery after being left unfinished.
+     */
+    @Builder.Default
+    @Column(name = "attempts", nullable = false, columnDefinition = "integer not null default 0")
+    private int attempts = 0;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
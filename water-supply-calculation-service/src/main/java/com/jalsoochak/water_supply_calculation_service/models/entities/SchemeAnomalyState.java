@@ -0,0 +1,54 @@
+package com.jalsoochak.water_supply_calculation_service.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of the per-scheme state the anomaly rules evaluate against. The detector keeps it in memory and
+ * writes it back periodically; the nightly sweep folds each day's supply into the average.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "scheme_anomaly_state",
+        indexes = {
+                @Index(name = "idx_scheme_anomaly_state_updated_at", columnList = "updated_at")
+        }
+)
+public class SchemeAnomalyState {
+    @Id
+    @Column(name = "scheme_id")
+    private Long schemeId;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    /** Exponentially weighted average of the scheme's daily supply. */
+    @Column(name = "avg_daily_litre", precision = 16, scale = 2)
+    private BigDecimal avgDailyLitre;
+
+    /** Days folded into the average so far. */
+    @Column(name = "avg_days")
+    private Integer avgDays;
+
+    @Column(name = "last_submission_at")
+    private LocalDateTime lastSubmissionAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,72 @@
+package com.jalsoochak.water_supply_calculation_service.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Water supplied by a scheme on one day, derived from the deltas between consecutive valid meter readings.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "scheme_daily_supply",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_scheme_daily_supply_scheme_date", columnNames = {"scheme_id", "supply_date"})
+        },
+        indexes = {
+                @Index(name = "idx_scheme_daily_supply_tenant_date", columnList = "tenant_id, supply_date")
+        }
+)
+public class SchemeDailySupply {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "scheme_id", nullable = false)
+    private Long schemeId;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "supply_date", nullable = false)
+    private LocalDate supplyDate;
+
+    @Column(name = "quantity_litre", precision = 14, scale = 1)
+    private BigDecimal quantityLitre;
+
+    /** {@code quantityLitre} divided by the scheme's households (or FHTCs); null when neither is known. */
+    @Column(name = "litre_per_household", precision = 12, scale = 2)
+    private BigDecimal litrePerHousehold;
+
+    @Column(name = "reading_count")
+    private Integer readingCount;
+
+    /** Reading the day's first delta was taken from (usually the previous day's last reading). */
+    @Column(name = "start_reading_id")
+    private Long startReadingId;
+
+    @Column(name = "end_reading_id")
+    private Long endReadingId;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,42 @@
+package com.jalsoochak.water_supply_calculation_service.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "scheme_latest_reading")
+public class SchemeLatestReading {
+    @Id
+    @Column(name = "scheme_id")
+    private Long schemeId;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "reading_id")
+    private Long readingId;
+
+    @Column(name = "confirmed_reading", precision = 10, scale = 1)
+    private BigDecimal confirmedReading;
+
+    @Column(name = "reading_date_time")
+    private LocalDateTime readingDateTime;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
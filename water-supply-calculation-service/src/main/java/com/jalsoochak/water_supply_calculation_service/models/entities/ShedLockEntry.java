@@ -0,0 +1,35 @@
+package com.jalsoochak.water_supply_calculation_service.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Maps the table ShedLock's JDBC provider expects. It is created by a Flyway migration; the mapping lets
+ * schema generation create it in tests. Rows are written by ShedLock only.
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@Table(name = "shedlock")
+public class ShedLockEntry {
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "lock_until", nullable = false)
+    private LocalDateTime lockUntil;
+
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+}
@@ -1,6 +1,8 @@
 package com.jalsoochak.water_supply_calculation_service.models.entities;
 
+import com.jalsoochak.water_supply_calculation_service.services.MessageTemplateCacheListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -17,6 +19,7 @@ import lombok.Setter;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(MessageTemplateCacheListener.class)
 @Table(name = "state_admin_config")
 public class StateAdminConfig {
     @Id
@@ -0,0 +1,57 @@
+package com.jalsoochak.water_supply_calculation_service.models.entities;
+
+import com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A webhook delivery that is being processed ({@code PROCESSING}), was handed to the asynchronous pipeline
+ * ({@code RECEIVED}, its state is the {@code reading_submission} with the same key) or was answered
+ * successfully ({@code COMPLETED}), keyed by the SHA-256 of (contactId, mediaId or mediaUrl). Rows are only
+ * meaningful until {@code expiresAt}.
+ */
+@Getter
+@Setter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "webhook_idempotency",
+        indexes = {
+                @Index(name = "idx_webhook_idempotency_expires_at", columnList = "expires_at")
+        }
+)
+public class WebhookIdempotencyRecord {
+    @Id
+    @Column(name = "key_hash", length = 64)
+    private String keyHash;
+
+    @Column(name = "contact_id")
+    private String contactId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private SubmissionStatus status;
+
+    @Column(name = "response_json", columnDefinition = "TEXT")
+    private String responseJson;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,6 @@
+package com.jalsoochak.water_supply_calculation_service.models.enums;
+
+public enum AnomalyStatus {
+    OPEN,
+    RESOLVED
+}
@@ -0,0 +1,8 @@
+package com.jalsoochak.water_supply_calculation_service.models.enums;
+
+public enum AnomalyType {
+    LOW_QUANTITY,
+    NO_SUBMISSION,
+    REPEATED_IMAGE,
+    OTHER
+}
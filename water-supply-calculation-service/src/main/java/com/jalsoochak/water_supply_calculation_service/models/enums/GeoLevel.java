@@ -0,0 +1,58 @@
+package com.jalsoochak.water_supply_calculation_service.models.enums;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * LGD levels the dashboard drills through, from the state down to villages.
+ */
+public enum GeoLevel {
+    STATE,
+    DISTRICT,
+    BLOCK,
+    GP,
+    VILLAGE;
+
+    /**
+     * Parses the {@code level} request parameter ({@code state}, {@code district}, {@code block}, {@code gp},
+     * {@code village}).
+     */
+    public static Optional<GeoLevel> fromParam(String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(valueOf(value.trim().toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Maps an {@code lgd_location_type_master.c_name} to a level. States name their sub-district unit
+     * differently (block, taluk, tehsil, mandal), so the match is by keyword.
+     */
+    public static Optional<GeoLevel> fromLgdType(String cName) {
+        if (cName == null) {
+            return Optional.empty();
+        }
+
+        String name = cName.toUpperCase(Locale.ROOT).replaceAll("[^A-Z]", "");
+        if (name.startsWith("STATE")) {
+            return Optional.of(STATE);
+        }
+        if (name.contains("DISTRICT")) {
+            return Optional.of(DISTRICT);
+        }
+        if (name.contains("BLOCK") || name.contains("TALUK") || name.contains("TEHSIL") || name.contains("MANDAL")) {
+            return Optional.of(BLOCK);
+        }
+        if (name.equals("GP") || name.contains("PANCHAYAT")) {
+            return Optional.of(GP);
+        }
+        if (name.contains("VILLAGE")) {
+            return Optional.of(VILLAGE);
+        }
+        return Optional.empty();
+    }
+}
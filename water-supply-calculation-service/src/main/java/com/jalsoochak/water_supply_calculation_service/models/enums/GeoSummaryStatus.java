@@ -0,0 +1,12 @@
+package com.jalsoochak.water_supply_calculation_service.models.enums;
+
+/**
+ * Map colour of a location on the geo-summary dashboard, from its daily submission percentage.
+ */
+public enum GeoSummaryStatus {
+    GREEN,
+    LIGHT_GREEN,
+    ORANGE,
+    RED,
+    DARK_RED
+}
@@ -0,0 +1,7 @@
+package com.jalsoochak.water_supply_calculation_service.models.enums;
+
+public enum OcrStatus {
+    PENDING,
+    COMPLETED,
+    FAILED
+}
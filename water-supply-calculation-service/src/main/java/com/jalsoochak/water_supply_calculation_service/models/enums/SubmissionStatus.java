@@ -0,0 +1,8 @@
+package com.jalsoochak.water_supply_calculation_service.models.enums;
+
+public enum SubmissionStatus {
+    RECEIVED,
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,82 @@
+package com.jalsoochak.water_supply_calculation_service.repositories;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.Anomaly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface AnomalyRepository extends JpaRepository<Anomaly, UUID> {
+
+    List<Anomaly> findByTenantIdAndAnomalyDateBetweenOrderByAnomalyDateDesc(String tenantId, LocalDate from, LocalDate to);
+
+    /**
+     * Opens (or re-opens) the anomaly of this type for the scheme and day, keeping the latest details. Not for
+     * REPEATED_IMAGE, see {@link #openRepeatedImage}.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO anomalies (anomaly_id, tenant_id, scheme_id, type, anomaly_date, reading_id, details, status,
+                               created_at, updated_at)
+        VALUES (:id, :tenantId, :schemeId, :type, :anomalyDate, :readingId, CAST(:details AS jsonb), 'OPEN',
+                now(), now())
+        ON CONFLICT (scheme_id, type, anomaly_date) WHERE type <> 'REPEATED_IMAGE' DO UPDATE SET
+            reading_id = EXCLUDED.reading_id,
+            details = EXCLUDED.details,
+            status = 'OPEN',
+            updated_at = now()
+    """, nativeQuery = true)
+    int open(
+            @Param("id") UUID id,
+            @Param("tenantId") String tenantId,
+            @Param("schemeId") Long schemeId,
+            @Param("type") String type,
+            @Param("anomalyDate") LocalDate anomalyDate,
+            @Param("readingId") Long readingId,
+            @Param("details") String details
+    );
+
+    /**
+     * Opens (or re-opens) the REPEATED_IMAGE anomaly of one reading, so every repeated photo of a day is kept
+     * with its own details.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO anomalies (anomaly_id, tenant_id, scheme_id, type, anomaly_date, reading_id, details, status,
+                               created_at, updated_at)
+        VALUES (:id, :tenantId, :schemeId, 'REPEATED_IMAGE', :anomalyDate, :readingId, CAST(:details AS jsonb),
+                'OPEN', now(), now())
+        ON CONFLICT (scheme_id, anomaly_date, reading_id) WHERE type = 'REPEATED_IMAGE' DO UPDATE SET
+            details = EXCLUDED.details,
+            status = 'OPEN',
+            updated_at = now()
+    """, nativeQuery = true)
+    int openRepeatedImage(
+            @Param("id") UUID id,
+            @Param("tenantId") String tenantId,
+            @Param("schemeId") Long schemeId,
+            @Param("anomalyDate") LocalDate anomalyDate,
+            @Param("readingId") Long readingId,
+            @Param("details") String details
+    );
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE anomalies
+        SET status = 'RESOLVED', updated_at = now()
+        WHERE scheme_id = :schemeId AND type = :type AND anomaly_date = :anomalyDate AND status = 'OPEN'
+    """, nativeQuery = true)
+    int resolve(
+            @Param("schemeId") Long schemeId,
+            @Param("type") String type,
+            @Param("anomalyDate") LocalDate anomalyDate
+    );
+}
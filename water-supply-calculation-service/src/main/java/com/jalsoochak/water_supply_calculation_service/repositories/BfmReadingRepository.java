@@ -3,30 +3,109 @@ package com.jalsoochak.water_supply_calculation_service.repositories;
 import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * {@code bfm_reading} is partitioned by month on {@code reading_date_time} (see
+ * {@code BfmReadingPartitionManager}). Every query here is bounded on {@code reading_date_time} so the planner
+ * only visits the partitions that can match.
+ */
 public interface BfmReadingRepository extends JpaRepository<BfmReading, Long> {
-    Optional<BfmReading> findTopByScheme_IdAndTenantIdOrderByReadingDateTimeDesc(Long schemeId, String tenantId);
-    Optional<BfmReading> findByCorrelationIdAndTenantId(
+    Optional<BfmReading> findByCorrelationIdAndTenantIdAndReadingDateTimeGreaterThanEqual(
             String correlationId,
-            String tenantId
-    );
-    Optional<BfmReading> findTopByScheme_IdAndTenantIdAndIdNotOrderByReadingDateTimeDesc(
-            Long schemeId,
             String tenantId,
-            Long excludedId
+            LocalDateTime since
     );
 
-    Optional<BfmReading> findTopByScheme_IdAndTenantIdAndIdNotAndConfirmedReadingGreaterThanAndQualityConfidenceGreaterThanEqualOrderByReadingDateTimeDesc(
+    Optional<BfmReading> findTopByScheme_IdAndTenantIdAndConfirmedReadingGreaterThanAndQualityConfidenceGreaterThanEqualAndReadingDateTimeGreaterThanEqualOrderByReadingDateTimeDesc(
             Long schemeId,
             String tenantId,
-            Long excludedId,
             BigDecimal confirmedReading,
-            Double qualityConfidence
+            BigDecimal qualityConfidence,
+            LocalDateTime since
     );
 
+    /**
+     * Keyset page of readings since {@code since} that have an image but no OCR value yet and fewer than
+     * {@code maxAttempts} OCR attempts, in id order after {@code afterId}.
+     */
+    List<BfmReading> findByIdGreaterThanAndReadingDateTimeGreaterThanEqualAndReadingUrlIsNotNullAndExtractedReadingIsNullAndOcrAttemptsLessThanOrderByIdAsc(
+            Long afterId,
+            LocalDateTime since,
+            int maxAttempts,
+            Pageable pageable
+    );
+
+    /**
+     * Valid readings (positive confirmed value, confidence at least {@code minConfidence}) of a scheme in
+     * {@code [from, to)}, oldest first.
+     */
+    @Query("""
+            SELECT r FROM BfmReading r
+            WHERE r.scheme.id = :schemeId
+              AND r.tenantId = :tenantId
+              AND r.readingDateTime >= :from
+              AND r.readingDateTime < :to
+              AND r.confirmedReading > 0
+              AND r.qualityConfidence >= :minConfidence
+              AND r.deletedAt IS NULL
+            ORDER BY r.readingDateTime ASC, r.id ASC
+            """)
+    List<BfmReading> findValidReadingsAsc(
+            @Param("schemeId") Long schemeId,
+            @Param("tenantId") String tenantId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("minConfidence") BigDecimal minConfidence,
+            Pageable pageable
+    );
+
+    /**
+     * Same as {@link #findValidReadingsAsc}, newest first.
+     */
+    @Query("""
+            SELECT r FROM BfmReading r
+            WHERE r.scheme.id = :schemeId
+              AND r.tenantId = :tenantId
+              AND r.readingDateTime >= :from
+              AND r.readingDateTime < :to
+              AND r.confirmedReading > 0
+              AND r.qualityConfidence >= :minConfidence
+              AND r.deletedAt IS NULL
+            ORDER BY r.readingDateTime DESC, r.id DESC
+            """)
+    List<BfmReading> findValidReadingsDesc(
+            @Param("schemeId") Long schemeId,
+            @Param("tenantId") String tenantId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("minConfidence") BigDecimal minConfidence,
+            Pageable pageable
+    );
+
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE BfmReading r
+            SET r.perceptualHash = :perceptualHash,
+                r.nearDuplicate = :nearDuplicate,
+                r.nearDuplicateOf = :nearDuplicateOf
+            WHERE r.id = :id
+              AND r.readingDateTime = :readingDateTime
+            """)
+    int updateFingerprint(
+            @Param("id") Long id,
+            @Param("readingDateTime") LocalDateTime readingDateTime,
+            @Param("perceptualHash") Long perceptualHash,
+            @Param("nearDuplicate") Boolean nearDuplicate,
+            @Param("nearDuplicateOf") Long nearDuplicateOf
+    );
 }
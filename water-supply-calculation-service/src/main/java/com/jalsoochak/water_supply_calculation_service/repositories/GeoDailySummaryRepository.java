@@ -0,0 +1,17 @@
+package com.jalsoochak.water_supply_calculation_service.repositories;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.GeoDailySummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface GeoDailySummaryRepository extends JpaRepository<GeoDailySummary, Long> {
+
+    List<GeoDailySummary> findByTenantIdAndSummaryDate(String tenantId, LocalDate summaryDate);
+
+    List<GeoDailySummary> findBySummaryDateGreaterThanEqual(LocalDate from);
+
+    List<GeoDailySummary> findByUpdatedAtGreaterThan(LocalDateTime since);
+}
@@ -0,0 +1,7 @@
+package com.jalsoochak.water_supply_calculation_service.repositories;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.JobWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, String> {
+}
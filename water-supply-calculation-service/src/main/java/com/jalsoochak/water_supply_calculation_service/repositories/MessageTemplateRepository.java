@@ -6,7 +6,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.Optional;
 
 public interface MessageTemplateRepository extends JpaRepository<MessageTemplate, Long> {
-    Optional<MessageTemplate> findByFlowNameAndLanguageCode(
+    Optional<MessageTemplate> findByTenantIdAndFlowNameAndLanguageCode(
+            String tenantId,
             String flowName,
             String languageCode
     );
@@ -0,0 +1,33 @@
+package com.jalsoochak.water_supply_calculation_service.repositories;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.OcrResultCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface OcrResultCacheRepository extends JpaRepository<OcrResultCacheEntry, String> {
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO ocr_result_cache (image_hash, adjusted_reading, quality_status, quality_confidence, created_at)
+        VALUES (:imageHash, :adjustedReading, :qualityStatus, :qualityConfidence, now())
+        ON CONFLICT (image_hash) DO NOTHING
+    """, nativeQuery = true)
+    void insertIfAbsent(
+            @Param("imageHash") String imageHash,
+            @Param("adjustedReading") BigDecimal adjustedReading,
+            @Param("qualityStatus") String qualityStatus,
+            @Param("qualityConfidence") BigDecimal qualityConfidence
+    );
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OcrResultCacheEntry e WHERE e.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,12 +1,28 @@
 package com.jalsoochak.water_supply_calculation_service.repositories;
 
+import com.jalsoochak.water_supply_calculation_service.models.app.OperatorContext;
 import com.jalsoochak.water_supply_calculation_service.models.entities.PersonSchemeMapping;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface PersonSchemeRepository extends JpaRepository<PersonSchemeMapping, Long> {
     Optional<PersonSchemeMapping> findByPerson_IdAndScheme_Id(Long personId, Long schemeId);
     Optional<PersonSchemeMapping> findFirstByPerson_Id(Long personId);
-}
 
+    @Query("""
+            SELECT new com.jalsoochak.water_supply_calculation_service.models.app.OperatorContext(
+                p.id, p.phoneNumber, p.tenantId, s.id, c.languageCode)
+            FROM PersonSchemeMapping m
+            JOIN m.person p
+            JOIN m.scheme s
+            LEFT JOIN StateAdminConfig c ON c.phoneNumber = p.phoneNumber
+            WHERE p.phoneNumber = :phoneNumber
+              AND s.tenantId = p.tenantId
+            ORDER BY m.id
+            LIMIT 1
+            """)
+    Optional<OperatorContext> findOperatorContext(@Param("phoneNumber") String phoneNumber);
+}
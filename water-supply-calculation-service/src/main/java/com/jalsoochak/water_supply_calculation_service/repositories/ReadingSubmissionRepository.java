@@ -0,0 +1,46 @@
+package com.jalsoochak.water_supply_calculation_service.repositories;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.ReadingSubmission;
+import com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReadingSubmissionRepository extends JpaRepository<ReadingSubmission, Long> {
+
+    Optional<ReadingSubmission> findFirstByIdempotencyKeyOrderByIdDesc(String idempotencyKey);
+
+    Optional<ReadingSubmission> findFirstByCorrelationIdOrderByIdDesc(String correlationId);
+
+    List<ReadingSubmission> findByStatusInAndUpdatedAtBeforeOrderByIdAsc(
+            Collection<SubmissionStatus> statuses,
+            LocalDateTime updatedBefore,
+            Pageable pageable
+    );
+
+    /**
+     * Takes a stale submission over for another attempt, unless it moved on since it was read.
+     *
+     * @return 1 when this caller now owns the retry, 0 when the submission was updated meanwhile
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE ReadingSubmission s
+        SET s.attempts = s.attempts + 1, s.updatedAt = :now
+        WHERE s.id = :id AND s.updatedAt = :seenUpdatedAt
+    """)
+    int claimForRetry(
+            @Param("id") Long id,
+            @Param("seenUpdatedAt") LocalDateTime seenUpdatedAt,
+            @Param("now") LocalDateTime now
+    );
+}
@@ -0,0 +1,12 @@
+package com.jalsoochak.water_supply_calculation_service.repositories;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.SchemeAnomalyState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SchemeAnomalyStateRepository extends JpaRepository<SchemeAnomalyState, Long> {
+
+    List<SchemeAnomalyState> findByUpdatedAtGreaterThan(LocalDateTime since);
+}
@@ -0,0 +1,57 @@
+package com.jalsoochak.water_supply_calculation_service.repositories;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.SchemeDailySupply;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SchemeDailySupplyRepository extends JpaRepository<SchemeDailySupply, Long> {
+
+    List<SchemeDailySupply> findBySchemeIdAndSupplyDateBetweenOrderBySupplyDateAsc(
+            Long schemeId,
+            LocalDate from,
+            LocalDate to
+    );
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO scheme_daily_supply (scheme_id, tenant_id, supply_date, quantity_litre, litre_per_household,
+                                         reading_count, start_reading_id, end_reading_id, updated_at)
+        VALUES (:schemeId, :tenantId, :supplyDate, :quantityLitre, :litrePerHousehold,
+                :readingCount, :startReadingId, :endReadingId, now())
+        ON CONFLICT (scheme_id, supply_date) DO UPDATE SET
+            tenant_id = EXCLUDED.tenant_id,
+            quantity_litre = EXCLUDED.quantity_litre,
+            litre_per_household = EXCLUDED.litre_per_household,
+            reading_count = EXCLUDED.reading_count,
+            start_reading_id = EXCLUDED.start_reading_id,
+            end_reading_id = EXCLUDED.end_reading_id,
+            updated_at = now()
+    """, nativeQuery = true)
+    int upsert(
+            @Param("schemeId") Long schemeId,
+            @Param("tenantId") String tenantId,
+            @Param("supplyDate") LocalDate supplyDate,
+            @Param("quantityLitre") BigDecimal quantityLitre,
+            @Param("litrePerHousehold") BigDecimal litrePerHousehold,
+            @Param("readingCount") int readingCount,
+            @Param("startReadingId") Long startReadingId,
+            @Param("endReadingId") Long endReadingId
+    );
+
+    /**
+     * Serializes rollup updates per scheme until the surrounding transaction ends, so two readings of one scheme
+     * committed at the same time cannot each recompute a day without the other.
+     */
+    @Query(value = """
+        SELECT COUNT(*) FROM (
+            SELECT pg_advisory_xact_lock(hashtext('scheme_daily_supply'), CAST(:schemeId AS integer))
+        ) l
+    """, nativeQuery = true)
+    long lockScheme(@Param("schemeId") Long schemeId);
+}
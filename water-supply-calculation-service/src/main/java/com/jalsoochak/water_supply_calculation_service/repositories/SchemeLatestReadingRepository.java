@@ -0,0 +1,41 @@
+package com.jalsoochak.water_supply_calculation_service.repositories;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.SchemeLatestReading;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface SchemeLatestReadingRepository extends JpaRepository<SchemeLatestReading, Long> {
+
+    /**
+     * Makes the given reading the scheme's latest unless a newer one is already recorded, so concurrent
+     * submissions for the same scheme cannot move the projection backwards.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO scheme_latest_reading (scheme_id, tenant_id, reading_id, confirmed_reading, reading_date_time, updated_at)
+        VALUES (:schemeId, :tenantId, :readingId, :confirmedReading, :readingDateTime, now())
+        ON CONFLICT (scheme_id) DO UPDATE SET
+            tenant_id = EXCLUDED.tenant_id,
+            reading_id = EXCLUDED.reading_id,
+            confirmed_reading = EXCLUDED.confirmed_reading,
+            reading_date_time = EXCLUDED.reading_date_time,
+            updated_at = now()
+        WHERE scheme_latest_reading.reading_date_time <= EXCLUDED.reading_date_time
+    """, nativeQuery = true)
+    int upsertIfNewer(
+            @Param("schemeId") Long schemeId,
+            @Param("tenantId") String tenantId,
+            @Param("readingId") Long readingId,
+            @Param("confirmedReading") BigDecimal confirmedReading,
+            @Param("readingDateTime") LocalDateTime readingDateTime
+    );
+
+    @Modifying
+    @Query("DELETE FROM SchemeLatestReading l WHERE l.schemeId = :schemeId AND l.readingId = :readingId")
+    int deleteBySchemeIdAndReadingId(@Param("schemeId") Long schemeId, @Param("readingId") Long readingId);
+}
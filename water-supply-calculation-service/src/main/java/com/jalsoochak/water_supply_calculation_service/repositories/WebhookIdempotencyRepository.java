@@ -0,0 +1,79 @@
+package com.jalsoochak.water_supply_calculation_service.repositories;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.WebhookIdempotencyRecord;
+import com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface WebhookIdempotencyRepository extends JpaRepository<WebhookIdempotencyRecord, String> {
+
+    /**
+     * Claims the key for processing, taking over a row whose previous claim or stored response has expired.
+     *
+     * @return 1 when this caller now owns the key, 0 when someone else does
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO webhook_idempotency (key_hash, contact_id, status, response_json, created_at, expires_at)
+        VALUES (:keyHash, :contactId, 'PROCESSING', NULL, :now, :expiresAt)
+        ON CONFLICT (key_hash) DO UPDATE SET
+            contact_id = EXCLUDED.contact_id,
+            status = 'PROCESSING',
+            response_json = NULL,
+            created_at = EXCLUDED.created_at,
+            expires_at = EXCLUDED.expires_at
+        WHERE webhook_idempotency.expires_at < :now
+    """, nativeQuery = true)
+    int claim(
+            @Param("keyHash") String keyHash,
+            @Param("contactId") String contactId,
+            @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt
+    );
+
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE WebhookIdempotencyRecord r
+        SET r.status = com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus.COMPLETED,
+            r.responseJson = :responseJson,
+            r.expiresAt = :expiresAt
+        WHERE r.keyHash = :keyHash
+    """)
+    int complete(
+            @Param("keyHash") String keyHash,
+            @Param("responseJson") String responseJson,
+            @Param("expiresAt") LocalDateTime expiresAt
+    );
+
+    /**
+     * Records that the delivery was accepted by the asynchronous pipeline; duplicates are answered from the
+     * submission's state instead of a stored response.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE WebhookIdempotencyRecord r
+        SET r.status = com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus.RECEIVED,
+            r.responseJson = NULL,
+            r.expiresAt = :expiresAt
+        WHERE r.keyHash = :keyHash
+    """)
+    int accept(@Param("keyHash") String keyHash, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WebhookIdempotencyRecord r WHERE r.keyHash = :keyHash AND r.status = :status")
+    int deleteByKeyHashAndStatus(@Param("keyHash") String keyHash, @Param("status") SubmissionStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WebhookIdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
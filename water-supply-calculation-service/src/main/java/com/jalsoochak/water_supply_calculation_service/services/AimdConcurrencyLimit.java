@@ -0,0 +1,57 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+/**
+ * Additive-increase / multiplicative-decrease limit on concurrent calls. Every call that finishes within
+ * {@code latencyThreshold} grows the limit by roughly one per limit's worth of calls; a slow or failed call
+ * multiplies it by {@code backoffRatio}. The limit stays within [{@code minLimit}, {@code maxLimit}], where
+ * {@code maxLimit} acts as the hard bulkhead.
+ */
+class AimdConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private double limit;
+    private int inFlight;
+
+    AimdConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThresholdMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000L;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases a slot and adjusts the limit from the call's outcome.
+     *
+     * @param dropped whether the call failed; failures back off just like slow calls
+     */
+    synchronized void release(long latencyNanos, boolean dropped) {
+        inFlight--;
+        if (dropped || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight + 1 >= (int) limit / 2) {
+            // only grow while the current limit is actually being used
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+}
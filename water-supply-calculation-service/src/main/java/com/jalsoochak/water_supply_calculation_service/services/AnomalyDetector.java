@@ -0,0 +1,275 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import com.jalsoochak.water_supply_calculation_service.models.entities.SchemeAnomalyState;
+import com.jalsoochak.water_supply_calculation_service.models.enums.AnomalyType;
+import com.jalsoochak.water_supply_calculation_service.repositories.AnomalyRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.SchemeAnomalyStateRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates the anomaly rules incrementally, against per-scheme state held in memory:
+ * <ul>
+ *     <li>REPEATED_IMAGE when a reading's photo repeats an earlier one exactly (same SHA-256) or nearly (perceptual
+ *     hash match reported by imageprocessing);</li>
+ *     <li>LOW_QUANTITY when a day's supply falls below {@code anomaly.low-quantity.ratio} of the scheme's average
+ *     daily supply, resolved again if later readings bring the day back above it.</li>
+ * </ul>
+ * Rules run in the transaction that stores or corrects the reading. A day that is not low resolves any open
+ * LOW_QUANTITY anomaly for it in {@code anomalies} (an indexed no-op when there is none), so the outcome does not
+ * depend on which instance opened it or whether it restarted since. NO_SUBMISSION needs the whole day and is
+ * raised by {@link AnomalySweepService}.
+ * <p>
+ * The state (average daily supply, last submission) is loaded from {@code scheme_anomaly_state} on startup;
+ * every {@code anomaly.state.snapshot-interval} changed last-submission times are written back (merged with
+ * {@code GREATEST}, so instances never move each other's value backwards) and rows changed by other instances
+ * or by the nightly average fold are read in.
+ */
+@Slf4j
+@Service
+public class AnomalyDetector {
+
+    private static final String SNAPSHOT_SQL = """
+            INSERT INTO scheme_anomaly_state (scheme_id, tenant_id, last_submission_at, updated_at)
+            VALUES (?, ?, ?, now())
+            ON CONFLICT (scheme_id) DO UPDATE SET
+                tenant_id = EXCLUDED.tenant_id,
+                last_submission_at = GREATEST(scheme_anomaly_state.last_submission_at, EXCLUDED.last_submission_at),
+                updated_at = now()
+            """;
+
+    /**
+     * Mutable per-scheme state; guarded by its own monitor.
+     */
+    private static final class SchemeState {
+        String tenantId;
+        double avgDailyLitre = Double.NaN;
+        int avgDays;
+        LocalDateTime lastSubmissionAt;
+        boolean dirty;
+    }
+
+    private final AnomalyRepository anomalyRepository;
+    private final SchemeAnomalyStateRepository schemeAnomalyStateRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Timer evaluationTimer;
+    private final double lowQuantityRatio;
+    private final int lowQuantityMinDays;
+    private final Duration reloadOverlap;
+
+    private final ConcurrentMap<Long, SchemeState> states = new ConcurrentHashMap<>();
+    private final Object snapshotLock = new Object();
+    private LocalDateTime lastReloadedAt;
+
+    public AnomalyDetector(AnomalyRepository anomalyRepository,
+                           SchemeAnomalyStateRepository schemeAnomalyStateRepository,
+                           JdbcTemplate jdbcTemplate,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${anomaly.low-quantity.ratio:0.5}") double lowQuantityRatio,
+                           @Value("${anomaly.low-quantity.min-days:7}") int lowQuantityMinDays,
+                           @Value("${anomaly.state.reload-overlap:1m}") Duration reloadOverlap) {
+        this.anomalyRepository = anomalyRepository;
+        this.schemeAnomalyStateRepository = schemeAnomalyStateRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.lowQuantityRatio = lowQuantityRatio;
+        this.lowQuantityMinDays = lowQuantityMinDays;
+        this.reloadOverlap = reloadOverlap;
+        this.evaluationTimer = Timer.builder("anomaly.evaluation")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("anomaly.state.schemes", states, Map::size);
+    }
+
+    /**
+     * Called when a reading was stored or its confirmed value changed, in the same transaction.
+     */
+    public void onReading(BfmReading reading) {
+        if (reading.getScheme() == null || reading.getReadingDateTime() == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Long schemeId = reading.getScheme().getId();
+        SchemeState state = stateOf(schemeId, reading.getTenantId());
+        synchronized (state) {
+            if (state.lastSubmissionAt == null || reading.getReadingDateTime().isAfter(state.lastSubmissionAt)) {
+                state.lastSubmissionAt = reading.getReadingDateTime();
+                state.dirty = true;
+            }
+        }
+
+        if (Boolean.TRUE.equals(reading.getRepeatedImage())) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("rule", "EXACT_IMAGE_MATCH");
+            details.put("imageHash", reading.getImageHash());
+            open(AnomalyType.REPEATED_IMAGE, schemeId, reading.getTenantId(),
+                    reading.getReadingDateTime().toLocalDate(), reading.getId(), details);
+        }
+        evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Called when imageprocessing found the reading's photo to be a near copy of a recent one.
+     */
+    public void onNearDuplicate(Long schemeId, String tenantId, Long readingId, LocalDateTime readingDateTime,
+                                Long nearDuplicateOf, Integer hashDistance) {
+        if (schemeId == null || tenantId == null || readingId == null || readingDateTime == null) {
+            return;
+        }
+
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("rule", "PERCEPTUAL_HASH_MATCH");
+        details.put("nearDuplicateOf", nearDuplicateOf);
+        details.put("hashDistance", hashDistance);
+        open(AnomalyType.REPEATED_IMAGE, schemeId, tenantId, readingDateTime.toLocalDate(), readingId, details);
+    }
+
+    /**
+     * Called by {@link DailySupplyRollup} after it recomputed a day with at least one valid reading.
+     */
+    public void onDailySupply(Long schemeId, String tenantId, LocalDate day, BigDecimal quantityLitre, Long readingId) {
+        long start = System.nanoTime();
+        SchemeState state = stateOf(schemeId, tenantId);
+
+        boolean low;
+        double average;
+        synchronized (state) {
+            average = state.avgDailyLitre;
+            low = state.avgDays >= lowQuantityMinDays
+                    && average > 0
+                    && quantityLitre.doubleValue() < lowQuantityRatio * average;
+        }
+
+        if (low) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("quantityLitre", quantityLitre);
+            details.put("averageLitre", BigDecimal.valueOf(average).setScale(1, RoundingMode.HALF_UP));
+            details.put("ratio", lowQuantityRatio);
+            open(AnomalyType.LOW_QUANTITY, schemeId, tenantId, day, readingId, details);
+        } else {
+            anomalyRepository.resolve(schemeId, AnomalyType.LOW_QUANTITY.name(), day);
+        }
+        evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        synchronized (snapshotLock) {
+            try {
+                lastReloadedAt = apply(schemeAnomalyStateRepository.findAll(), null);
+                log.info("Loaded anomaly state for {} schemes in {} ms",
+                        states.size(), (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.error("Could not load anomaly state; averages fill in as snapshots are read", e);
+            }
+            if (lastReloadedAt == null) {
+                lastReloadedAt = LocalDateTime.now();
+            }
+        }
+    }
+
+    /**
+     * Writes changed state back and reads in what other instances and the nightly fold changed.
+     */
+    @Scheduled(
+            fixedDelayString = "${anomaly.state.snapshot-interval:PT5M}",
+            initialDelayString = "${anomaly.state.snapshot-interval:PT5M}"
+    )
+    public void snapshot() {
+        synchronized (snapshotLock) {
+            List<Object[]> rows = new ArrayList<>();
+            states.forEach((schemeId, state) -> {
+                synchronized (state) {
+                    if (state.dirty && state.tenantId != null) {
+                        rows.add(new Object[]{schemeId, state.tenantId, Timestamp.valueOf(state.lastSubmissionAt)});
+                        state.dirty = false;
+                    }
+                }
+            });
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(SNAPSHOT_SQL, rows);
+                log.debug("Snapshotted anomaly state for {} schemes", rows.size());
+            }
+
+            if (lastReloadedAt != null) {
+                lastReloadedAt = apply(
+                        schemeAnomalyStateRepository.findByUpdatedAtGreaterThan(lastReloadedAt.minus(reloadOverlap)),
+                        lastReloadedAt
+                );
+            }
+        }
+    }
+
+    private LocalDateTime apply(List<SchemeAnomalyState> rows, LocalDateTime newest) {
+        for (SchemeAnomalyState row : rows) {
+            SchemeState state = stateOf(row.getSchemeId(), row.getTenantId());
+            synchronized (state) {
+                if (row.getAvgDailyLitre() != null) {
+                    state.avgDailyLitre = row.getAvgDailyLitre().doubleValue();
+                    state.avgDays = row.getAvgDays() != null ? row.getAvgDays() : 0;
+                }
+                if (row.getLastSubmissionAt() != null
+                        && (state.lastSubmissionAt == null || row.getLastSubmissionAt().isAfter(state.lastSubmissionAt))) {
+                    state.lastSubmissionAt = row.getLastSubmissionAt();
+                }
+            }
+            if (row.getUpdatedAt() != null && (newest == null || row.getUpdatedAt().isAfter(newest))) {
+                newest = row.getUpdatedAt();
+            }
+        }
+        return newest;
+    }
+
+    private SchemeState stateOf(Long schemeId, String tenantId) {
+        SchemeState state = states.computeIfAbsent(schemeId, id -> new SchemeState());
+        synchronized (state) {
+            if (state.tenantId == null) {
+                state.tenantId = tenantId;
+            }
+        }
+        return state;
+    }
+
+    private void open(AnomalyType type, Long schemeId, String tenantId, LocalDate day, Long readingId,
+                      Map<String, Object> details) {
+        try {
+            String json = objectMapper.writeValueAsString(details);
+            if (type == AnomalyType.REPEATED_IMAGE) {
+                anomalyRepository.openRepeatedImage(UUID.randomUUID(), tenantId, schemeId, day, readingId, json);
+            } else {
+                anomalyRepository.open(UUID.randomUUID(), tenantId, schemeId, type.name(), day, readingId, json);
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize {} anomaly details for scheme {}", type, schemeId, e);
+        }
+    }
+}
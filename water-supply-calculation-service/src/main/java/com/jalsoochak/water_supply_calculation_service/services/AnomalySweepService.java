@@ -0,0 +1,144 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalsoochak.water_supply_calculation_service.models.entities.JobWatermark;
+import com.jalsoochak.water_supply_calculation_service.models.enums.AnomalyType;
+import com.jalsoochak.water_supply_calculation_service.repositories.JobWatermarkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * End-of-day anomaly work, one closed day at a time:
+ * <ul>
+ *     <li>folds the day's supply into each scheme's exponentially weighted average
+ *     ({@code anomaly.low-quantity.window-days} sets the smoothing), touching only that day's
+ *     {@code scheme_daily_supply} rows;</li>
+ *     <li>raises NO_SUBMISSION for the schemes with no reading in {@code bfm_reading} on the day, checked per
+ *     scheme by index and bounded to the day. {@code scheme_anomaly_state.last_submission_at} is snapshotted
+ *     periodically and may lag, so it only goes into the details.</li>
+ * </ul>
+ * The last swept day is kept in {@code job_watermark}, so a day is folded exactly once and missed days are
+ * caught up.
+ */
+@Slf4j
+@Service
+public class AnomalySweepService {
+
+    static final String WATERMARK = "anomaly-sweep";
+
+    private static final String FOLD_AVERAGE_SQL = """
+            INSERT INTO scheme_anomaly_state (scheme_id, tenant_id, avg_daily_litre, avg_days, updated_at)
+            SELECT d.scheme_id, d.tenant_id, d.quantity_litre, 1, now()
+            FROM scheme_daily_supply d
+            WHERE d.supply_date = ? AND d.reading_count > 0 AND d.quantity_litre IS NOT NULL
+            ON CONFLICT (scheme_id) DO UPDATE SET
+                avg_daily_litre = CASE
+                    WHEN scheme_anomaly_state.avg_daily_litre IS NULL THEN EXCLUDED.avg_daily_litre
+                    ELSE scheme_anomaly_state.avg_daily_litre
+                         + ? * (EXCLUDED.avg_daily_litre - scheme_anomaly_state.avg_daily_litre)
+                END,
+                avg_days = COALESCE(scheme_anomaly_state.avg_days, 0) + 1,
+                updated_at = now()
+            """;
+
+    private static final String NOT_REPORTED_SQL = """
+            SELECT s.id, s.tenant_id, a.last_submission_at
+            FROM scheme_master s
+            LEFT JOIN scheme_anomaly_state a ON a.scheme_id = s.id
+            WHERE s.deleted_at IS NULL
+              AND s.tenant_id IS NOT NULL
+              AND NOT EXISTS (
+                    SELECT 1
+                    FROM bfm_reading r
+                    WHERE r.scheme_id = s.id
+                      AND r.tenant_id = s.tenant_id
+                      AND r.reading_date_time >= ?
+                      AND r.reading_date_time < ?
+                      AND r.deleted_at IS NULL
+              )
+            """;
+
+    private static final String NO_SUBMISSION_SQL = """
+            INSERT INTO anomalies (anomaly_id, tenant_id, scheme_id, type, anomaly_date, details, status,
+                                   created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), 'OPEN', now(), now())
+            ON CONFLICT (scheme_id, type, anomaly_date) WHERE type <> 'REPEATED_IMAGE' DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JobWatermarkRepository jobWatermarkRepository;
+    private final ObjectMapper objectMapper;
+    private final double alpha;
+
+    public AnomalySweepService(JdbcTemplate jdbcTemplate,
+                               JobWatermarkRepository jobWatermarkRepository,
+                               ObjectMapper objectMapper,
+                               @Value("${anomaly.low-quantity.window-days:14}") int windowDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobWatermarkRepository = jobWatermarkRepository;
+        this.objectMapper = objectMapper;
+        this.alpha = 2.0 / (windowDays + 1);
+    }
+
+    /**
+     * @return the last day swept, if any
+     */
+    public Optional<LocalDate> lastSweptDay() {
+        return jobWatermarkRepository.findById(WATERMARK)
+                .map(watermark -> LocalDate.ofEpochDay(watermark.getLastId()));
+    }
+
+    @Transactional
+    public void sweep(LocalDate day) {
+        long start = System.nanoTime();
+        Timestamp dayStart = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp dayEnd = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+
+        int folded = jdbcTemplate.update(FOLD_AVERAGE_SQL, day, alpha);
+
+        List<Object[]> anomalies = new ArrayList<>();
+        jdbcTemplate.query(NOT_REPORTED_SQL, rs -> {
+            Timestamp lastSubmission = rs.getTimestamp(3);
+            anomalies.add(new Object[]{
+                    UUID.randomUUID(),
+                    rs.getString(2),
+                    rs.getLong(1),
+                    AnomalyType.NO_SUBMISSION.name(),
+                    day,
+                    details(lastSubmission != null ? lastSubmission.toLocalDateTime().toString() : null)
+            });
+        }, dayStart, dayEnd);
+        if (!anomalies.isEmpty()) {
+            jdbcTemplate.batchUpdate(NO_SUBMISSION_SQL, anomalies);
+        }
+
+        jobWatermarkRepository.save(JobWatermark.builder()
+                .jobName(WATERMARK)
+                .lastId(day.toEpochDay())
+                .updatedAt(LocalDateTime.now())
+                .build());
+        log.info("Anomaly sweep for {}: {} averages updated, {} schemes without a submission, in {} ms",
+                day, folded, anomalies.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private String details(String lastSubmissionAt) {
+        try {
+            return objectMapper.writeValueAsString(Collections.singletonMap("lastSubmissionAt", lastSubmissionAt));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Keeps monthly partitions of {@code bfm_reading} (partitioned by {@code V8__bfm_reading_partitioning}) created
+ * ahead of the readings that will land in them.
+ * <p>
+ * A month normally gets its partition {@code months-ahead} months before it starts. Rows that reached the
+ * DEFAULT partition first (a run was missed, or a reading is dated far in the future) would make a plain
+ * {@code CREATE TABLE ... PARTITION OF} fail, so for such a month the partition is created detached, the rows
+ * are moved into it from DEFAULT and it is then attached.
+ * <p>
+ * Indexes and the BRIN index on {@code reading_date_time} are declared on the parent, so every partition
+ * gets them.
+ */
+@Slf4j
+@Service
+public class BfmReadingPartitionManager {
+
+    static final String TABLE = "bfm_reading";
+    static final String DEFAULT_PARTITION = "bfm_reading_default";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+
+    public BfmReadingPartitionManager(JdbcTemplate jdbcTemplate,
+                                      @Value("${bfm-reading.partitioning.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    /**
+     * Partitioning needs Postgres; other databases (H2 in tests) keep the plain table.
+     */
+    public boolean isSupported() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    public boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class,
+                TABLE
+        );
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    /**
+     * Creates the monthly partitions from the current month up to {@code months-ahead} months out.
+     */
+    @Transactional
+    public void ensureFuturePartitions() {
+        ensurePartitions(YearMonth.now());
+    }
+
+    private void ensurePartitions(YearMonth from) {
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        for (YearMonth month = from; !month.isAfter(last); month = month.plusMonths(1)) {
+            String partition = TABLE + "_p" + month.format(PARTITION_SUFFIX);
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+            if (Boolean.TRUE.equals(exists)) {
+                continue;
+            }
+
+            String bounds = "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+            String range = "reading_date_time >= '" + month.atDay(1) + "' AND reading_date_time < '"
+                    + month.plusMonths(1).atDay(1) + "'";
+            Boolean inDefault = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE " + range + ")", Boolean.class);
+            if (!Boolean.TRUE.equals(inDefault)) {
+                jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + TABLE + " " + bounds);
+                log.info("Created partition {}", partition);
+                continue;
+            }
+
+            jdbcTemplate.execute("CREATE TABLE " + partition
+                    + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + range
+                    + " RETURNING *) INSERT INTO " + partition + " SELECT * FROM moved");
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + partition + " " + bounds);
+            log.warn("Created partition {} and moved {} rows into it from {}", partition, moved, DEFAULT_PARTITION);
+        }
+    }
+}
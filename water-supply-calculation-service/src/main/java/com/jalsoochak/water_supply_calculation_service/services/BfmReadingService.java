@@ -1,78 +1,75 @@
 package com.jalsoochak.water_supply_calculation_service.services;
 
 import com.jalsoochak.water_supply_calculation_service.exceptions.ApiException;
+import com.jalsoochak.water_supply_calculation_service.exceptions.OcrUnavailableException;
+import com.jalsoochak.water_supply_calculation_service.kafka.producers.ImageProcessingProducer;
+import com.jalsoochak.water_supply_calculation_service.models.app.OperatorContext;
 import com.jalsoochak.water_supply_calculation_service.models.app.requests.CreateReadingRequest;
 import com.jalsoochak.water_supply_calculation_service.models.app.responses.CreateReadingResponse;
 import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResult;
 import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
-import com.jalsoochak.water_supply_calculation_service.models.entities.MessageTemplate;
-import com.jalsoochak.water_supply_calculation_service.models.entities.PersonMaster;
-import com.jalsoochak.water_supply_calculation_service.models.entities.SchemeMaster;
-import com.jalsoochak.water_supply_calculation_service.models.entities.StateAdminConfig;
+import com.jalsoochak.water_supply_calculation_service.models.enums.OcrStatus;
 import com.jalsoochak.water_supply_calculation_service.repositories.BfmReadingRepository;
-import com.jalsoochak.water_supply_calculation_service.repositories.MessageTemplateRepository;
 import com.jalsoochak.water_supply_calculation_service.repositories.PersonRepository;
-import com.jalsoochak.water_supply_calculation_service.repositories.PersonSchemeRepository;
 import com.jalsoochak.water_supply_calculation_service.repositories.SchemeRepository;
-import com.jalsoochak.water_supply_calculation_service.repositories.StateAdminConfigRepository;
 import com.jalsoochak.water_supply_calculation_service.tenant.TenantContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Transactional
 public class BfmReadingService {
 
     private final SchemeRepository schemeRepository;
     private final PersonRepository personRepository;
-    private final PersonSchemeRepository personSchemeRepository;
     private final BfmReadingRepository bfmReadingRepository;
     private final FlowVisionService flowVisionService;
-    private final StateAdminConfigRepository stateAdminConfigRepository;
-    private final MessageTemplateRepository messageTemplateRepository;
-
-    public CreateReadingResponse createReading(CreateReadingRequest request, PersonMaster person, String contactId) {
-
-        String tenantId = person.getTenantId();
-
-        SchemeMaster scheme = schemeRepository
-                .findByIdAndTenantId(request.getSchemeId(), tenantId)
-                .orElseThrow(() ->
-                        new ResponseStatusException(HttpStatus.NOT_FOUND, "State scheme not found")
-                );
-
-        PersonMaster operator = personRepository
-                .findByIdAndTenantId(request.getOperatorId(), tenantId)
-                .orElseThrow(() ->
-                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Operator not found")
-                );
-
-        boolean belongsToScheme = personSchemeRepository
-                .findByPerson_IdAndScheme_Id(request.getOperatorId(), request.getSchemeId())
-                .isPresent();
-
-        if (!belongsToScheme) {
-            throw new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST,
-                    "Operator does not belong to the specified scheme"
-            );
-        }
+    private final OcrResultCache ocrResultCache;
+    private final MessageTemplateEngine messageTemplateEngine;
+    private final SchemeLatestReadingIndex schemeLatestReadingIndex;
+    private final ImageProcessingProducer imageProcessingProducer;
+    private final DailySupplyRollup dailySupplyRollup;
+    private final AnomalyDetector anomalyDetector;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Only readings this recent can be corrected; bounds the lookup to the latest partitions. */
+    @Value("${bfm-reading.correction-window:90d}")
+    private Duration correctionWindow;
+
+    private static final String OCR_PENDING_DEFAULT_MESSAGE =
+            "We have received your meter photo. The reading will be processed shortly.";
+
+    /**
+     * Records a reading for an operator whose context was already resolved by {@link OperatorContextResolver}, so
+     * the scheme and person are attached by reference without being loaded again.
+     * <p>
+     * FlowVision is called before the transaction starts, so a pooled connection is only held for the writes and
+     * not for the length of the OCR call.
+     */
+    public CreateReadingResponse createReading(CreateReadingRequest request, OperatorContext operator) {
+
+        String tenantId = operator.getTenantId();
 
         FlowVisionResult ocrResult = null;
         BigDecimal finalReading = request.getReadingValue();
         String message = "Reading created successfully";
         BigDecimal confidenceLevel = null;
+        boolean repeatedImage = false;
+        OcrStatus ocrStatus = null;
 
         if (finalReading == null) {
 
@@ -84,19 +81,33 @@ public class BfmReadingService {
             }
 
             try {
-                ocrResult = flowVisionService.extractReading(request.getReadingUrl());
+                Optional<FlowVisionResult> cachedResult = ocrResultCache.find(request.getImageHash());
+                if (cachedResult.isPresent()) {
+                    ocrResult = cachedResult.get();
+                    repeatedImage = true;
+                } else {
+                    ocrResult = flowVisionService.extractReading(request.getReadingUrl());
+                    ocrResultCache.put(request.getImageHash(), ocrResult);
+                }
                 log.info("ocr result: {}", ocrResult);
                 if (ocrResult == null || ocrResult.getAdjustedReading() == null) {
-                    message = getLocalizedMessage(person, "OCRNoReadingMessage");
+                    ocrStatus = OcrStatus.FAILED;
+                    message = getLocalizedMessage(operator, "OCRNoReadingMessage");
                 } else {
+                    ocrStatus = OcrStatus.COMPLETED;
                     finalReading = ocrResult.getAdjustedReading();
                     confidenceLevel = ocrResult.getQualityConfidence();
                 }
 
+            } catch (OcrUnavailableException ex) {
+                log.warn("OCR deferred for URL {}: {}", request.getReadingUrl(), ex.getMessage());
+                ocrStatus = OcrStatus.PENDING;
+
             } catch (Exception ex) {
+                // not retryable: FlowVision rejected the request or sent a response that could not be read
                 log.error("FlowVision OCR failed for URL: {}", request.getReadingUrl(), ex);
 
-                message = getLocalizedMessage(person, "OCRFailedMessage");
+                message = getLocalizedMessage(operator, "OCRFailedMessage");
 
                 return CreateReadingResponse.builder()
                         .success(false)
@@ -109,11 +120,9 @@ public class BfmReadingService {
 
         boolean isValid = finalReading != null
                 && finalReading.compareTo(BigDecimal.ZERO) > 0
-                && (confidenceLevel == null || confidenceLevel.compareTo(BigDecimal.valueOf(0.7)) >= 0);
+                && (confidenceLevel == null || confidenceLevel.compareTo(SchemeLatestReadingIndex.MIN_CONFIDENCE) >= 0);
 
         BfmReading reading = BfmReading.builder()
-                .scheme(scheme)
-                .person(operator)
                 .readingUrl(request.getReadingUrl())
                 .extractedReading(
                         ocrResult != null ? ocrResult.getAdjustedReading() : null
@@ -134,28 +143,38 @@ public class BfmReadingService {
                                 .orElse(UUID.randomUUID().toString())
                 )
                 .tenantId(tenantId)
+                .imageHash(request.getImageHash())
+                .repeatedImage(repeatedImage)
+                // an unreadable photo is retried by OcrReconciliationJob, so it is stored as pending, not failed
+                .ocrStatus(ocrStatus == OcrStatus.FAILED ? OcrStatus.PENDING : ocrStatus)
+                .ocrAttempts(ocrStatus == OcrStatus.COMPLETED || ocrStatus == OcrStatus.FAILED ? 1 : 0)
                 .build();
 
-        bfmReadingRepository.save(reading);
+        BigDecimal lastConfirmedReading = transactionTemplate.execute(status -> {
+            reading.setScheme(schemeRepository.getReferenceById(operator.getSchemeId()));
+            reading.setPerson(personRepository.getReferenceById(operator.getPersonId()));
 
-        BigDecimal lastConfirmedReading = bfmReadingRepository
-                .findTopByScheme_IdAndTenantIdAndIdNotAndConfirmedReadingGreaterThanAndQualityConfidenceGreaterThanEqualOrderByReadingDateTimeDesc(
-                        scheme.getId(),
-                        tenantId,
-                        reading.getId(),
-                        BigDecimal.ZERO,
-                        0.7
-                )
-                .map(BfmReading::getConfirmedReading)
-                .orElse(null);
+            BigDecimal previousConfirmedReading = schemeLatestReadingIndex
+                    .findConfirmedReading(operator.getSchemeId(), tenantId)
+                    .orElse(null);
+
+            bfmReadingRepository.save(reading);
+            schemeLatestReadingIndex.record(reading);
+            dailySupplyRollup.onReadingChanged(reading);
+            anomalyDetector.onReading(reading);
+            imageProcessingProducer.sendAfterCommit(reading);
+            return previousConfirmedReading;
+        });
 
         String finalMessage;
-        if(isValid){
-            finalMessage = getReadingResultMessage(contactId,  finalReading, lastConfirmedReading);
+        if (ocrStatus == OcrStatus.PENDING) {
+            finalMessage = getOcrPendingMessage(operator);
+        } else if(isValid){
+            finalMessage = getReadingResultMessage(operator, finalReading, lastConfirmedReading);
         } else if (finalReading == null || finalReading.compareTo(BigDecimal.ZERO) <= 0){
-            finalMessage = getLocalizedMessage(person, "InvalidReadingMessage");
+            finalMessage = getLocalizedMessage(operator, "InvalidReadingMessage");
         } else {
-            finalMessage = getLocalizedMessage(person, "LowConfidenceMessage");
+            finalMessage = getLocalizedMessage(operator, "LowConfidenceMessage");
         }
         return CreateReadingResponse.builder()
                 .success(isValid)
@@ -163,65 +182,41 @@ public class BfmReadingService {
                 .correlationId(reading.getCorrelationId())
                 .meterReading(finalReading)
                 .qualityConfidence(confidenceLevel)
-                .qualityStatus(ocrResult != null ? ocrResult.getQualityStatus() : null)
+                .qualityStatus(ocrStatus == OcrStatus.PENDING
+                        ? "OCR_PENDING"
+                        : ocrResult != null ? ocrResult.getQualityStatus() : null)
                 .lastConfirmedReading(lastConfirmedReading)
                 .build();
     }
 
-    private String getLocalizedMessage(PersonMaster person, String flowName) {
-
-        StateAdminConfig config = stateAdminConfigRepository
-                .findByPhoneNumber(person.getPhoneNumber())
-                .orElseThrow(() -> new ApiException(
-                        "config not found for user with phone number: " + person.getPhoneNumber(),
-                        HttpStatus.NOT_FOUND
-                ));
-
-        MessageTemplate template = messageTemplateRepository
-                .findByFlowNameAndLanguageCode(flowName, config.getLanguageCode())
-                .orElseThrow(() -> new ApiException(
-                        "Message template not found for flow " + flowName +
-                                " and language " + config.getLanguageCode(),
-                        HttpStatus.NOT_FOUND
-                ));
-
-        return formatTemplates(template.getTemplateText());
+    private String getLocalizedMessage(OperatorContext operator, String flowName) {
+        return messageTemplateEngine.render(operator, flowName, Map.of());
     }
 
-    private String formatTemplates(String templateText) {
-        if (templateText == null || templateText.isBlank()) {
-            return "";
+    /**
+     * The reading is already stored at this point, so a missing template must not fail the request.
+     */
+    private String getOcrPendingMessage(OperatorContext operator) {
+        try {
+            return getLocalizedMessage(operator, "OCRPendingMessage");
+        } catch (ApiException ex) {
+            log.warn("No OCRPendingMessage template for operator {}: {}", operator.getPhoneNumber(), ex.getMessage());
+            return OCR_PENDING_DEFAULT_MESSAGE;
         }
-        return templateText
-                .trim()
-                .replace("\\n", "\n")
-                .replaceAll("\n{3,}", "\n\n");
     }
 
-
     private String getReadingResultMessage(
-            String contactId,
+            OperatorContext operator,
             BigDecimal currentReading,
             BigDecimal lastConfirmedReading
     ) {
-        StateAdminConfig config = stateAdminConfigRepository.findByPhoneNumber(contactId)
-                .orElseThrow(() -> new ApiException( "config not found for user with phone number: " + contactId,
-                        HttpStatus.NOT_FOUND));
-
-        MessageTemplate template = messageTemplateRepository
-                .findByFlowNameAndLanguageCode(
-                        "ReadingResultMessage",
-                        config.getLanguageCode()
+        return messageTemplateEngine.render(
+                operator,
+                "ReadingResultMessage",
+                Map.of(
+                        "current_reading", currentReading != null ? currentReading.toPlainString() : "-",
+                        "last_reading", lastConfirmedReading != null ? lastConfirmedReading.toPlainString() : "N/A"
                 )
-                .orElseThrow(() -> new ApiException(
-                        "Reading result message template not found",
-                        HttpStatus.NOT_FOUND
-                ));
-
-        return formatTemplate(
-                template.getTemplateText(),
-                currentReading,
-                lastConfirmedReading
         );
     }
 
@@ -247,7 +242,11 @@ public class BfmReadingService {
         }
 
         BfmReading reading = bfmReadingRepository
-                .findByCorrelationIdAndTenantId(correlationId, tenantId)
+                .findByCorrelationIdAndTenantIdAndReadingDateTimeGreaterThanEqual(
+                        correlationId,
+                        tenantId,
+                        LocalDateTime.now().minus(correctionWindow)
+                )
                 .orElseThrow(() ->
                         new ResponseStatusException(
                                 HttpStatus.NOT_FOUND,
@@ -257,6 +256,9 @@ public class BfmReadingService {
 
         reading.setConfirmedReading(confirmedReading);
         bfmReadingRepository.save(reading);
+        schemeLatestReadingIndex.onConfirmedReadingChanged(reading);
+        dailySupplyRollup.onReadingChanged(reading);
+        anomalyDetector.onReading(reading);
 
         return CreateReadingResponse.builder()
                 .success(true)
@@ -266,16 +268,4 @@ public class BfmReadingService {
                 .qualityStatus("CONFIRMED")
                 .build();
     }
-
-    private String formatTemplate(
-            String template,
-            BigDecimal currentReading,
-            BigDecimal lastReading
-    ) {
-        return template
-                .replace("{current_reading}",
-                        currentReading != null ? currentReading.toPlainString() : "-")
-                .replace("{last_reading}",
-                        lastReading != null ? lastReading.toPlainString() : "N/A");
-    }
 }
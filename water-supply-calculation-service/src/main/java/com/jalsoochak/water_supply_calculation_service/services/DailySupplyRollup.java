@@ -0,0 +1,169 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import com.jalsoochak.water_supply_calculation_service.models.entities.SchemeMaster;
+import com.jalsoochak.water_supply_calculation_service.repositories.BfmReadingRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.SchemeDailySupplyRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.SchemeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maintains {@code scheme_daily_supply}: the water a scheme supplied each day, computed from the deltas
+ * between consecutive valid readings (see {@link SchemeLatestReadingIndex#MIN_CONFIDENCE}). A delta counts
+ * towards the day of its later reading.
+ * <p>
+ * A reading only changes its own delta and the delta of the next valid reading, so recording or correcting
+ * one recomputes at most two days, each from that day's readings plus the one before them. Deltas across a
+ * gap longer than {@code water-supply.rollup.max-gap} are not counted, which also bounds every lookup in time.
+ * Negative deltas (meter replaced or reset, misread digits) are skipped. Days whose readings all stopped
+ * qualifying keep a row with {@code reading_count = 0}.
+ */
+@Slf4j
+@Service
+@Transactional
+public class DailySupplyRollup {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final BfmReadingRepository bfmReadingRepository;
+    private final SchemeDailySupplyRepository schemeDailySupplyRepository;
+    private final SchemeRepository schemeRepository;
+    private final AnomalyDetector anomalyDetector;
+    private final BigDecimal litresPerUnit;
+    private final Duration maxGap;
+
+    public DailySupplyRollup(BfmReadingRepository bfmReadingRepository,
+                             SchemeDailySupplyRepository schemeDailySupplyRepository,
+                             SchemeRepository schemeRepository,
+                             AnomalyDetector anomalyDetector,
+                             @Value("${water-supply.rollup.litres-per-meter-unit:1000}") BigDecimal litresPerUnit,
+                             @Value("${water-supply.rollup.max-gap:7d}") Duration maxGap) {
+        this.bfmReadingRepository = bfmReadingRepository;
+        this.schemeDailySupplyRepository = schemeDailySupplyRepository;
+        this.schemeRepository = schemeRepository;
+        this.anomalyDetector = anomalyDetector;
+        this.litresPerUnit = litresPerUnit;
+        this.maxGap = maxGap;
+    }
+
+    /**
+     * Called after a reading was stored or its confirmed value or confidence changed, in the same transaction.
+     */
+    public void onReadingChanged(BfmReading reading) {
+        if (reading.getScheme() == null) {
+            return;
+        }
+        onReadingChanged(reading.getScheme().getId(), reading.getTenantId(), reading.getId(), reading.getReadingDateTime());
+    }
+
+    public void onReadingChanged(Long schemeId, String tenantId, Long readingId, LocalDateTime time) {
+        if (schemeId == null || time == null) {
+            return;
+        }
+
+        schemeDailySupplyRepository.lockScheme(schemeId);
+        SchemeMaster scheme = schemeRepository.getReferenceById(schemeId);
+
+        Set<LocalDate> days = new TreeSet<>();
+        days.add(time.toLocalDate());
+        bfmReadingRepository.findValidReadingsAsc(
+                        schemeId, tenantId, time, time.plus(maxGap), SchemeLatestReadingIndex.MIN_CONFIDENCE,
+                        PageRequest.of(0, 2))
+                .stream()
+                .filter(next -> !next.getId().equals(readingId))
+                .findFirst()
+                .ifPresent(next -> days.add(next.getReadingDateTime().toLocalDate()));
+
+        for (LocalDate day : days) {
+            recomputeDay(scheme, tenantId, day);
+        }
+    }
+
+    private void recomputeDay(SchemeMaster scheme, String tenantId, LocalDate day) {
+        Long schemeId = scheme.getId();
+        LocalDateTime dayStart = day.atStartOfDay();
+
+        BfmReading previous = bfmReadingRepository.findValidReadingsDesc(
+                        schemeId, tenantId, dayStart.minus(maxGap), dayStart, SchemeLatestReadingIndex.MIN_CONFIDENCE,
+                        PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .orElse(null);
+        Long startReadingId = previous != null ? previous.getId() : null;
+        Long endReadingId = null;
+        int readingCount = 0;
+        BigDecimal units = BigDecimal.ZERO;
+
+        // paged so a scheme reporting unusually often still has all its readings counted; the scheme lock keeps
+        // the pages stable
+        List<BfmReading> page;
+        int pageNumber = 0;
+        do {
+            page = bfmReadingRepository.findValidReadingsAsc(
+                    schemeId, tenantId, dayStart, dayStart.plusDays(1), SchemeLatestReadingIndex.MIN_CONFIDENCE,
+                    PageRequest.of(pageNumber++, PAGE_SIZE));
+            for (BfmReading current : page) {
+                if (previous != null
+                        && Duration.between(previous.getReadingDateTime(), current.getReadingDateTime()).compareTo(maxGap) <= 0) {
+                    BigDecimal delta = current.getConfirmedReading().subtract(previous.getConfirmedReading());
+                    if (delta.signum() >= 0) {
+                        units = units.add(delta);
+                    } else {
+                        log.debug("Skipping negative delta {} for scheme {} at reading {}", delta, schemeId, current.getId());
+                    }
+                }
+                if (startReadingId == null) {
+                    startReadingId = current.getId();
+                }
+                endReadingId = current.getId();
+                readingCount++;
+                previous = current;
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        if (readingCount == 0) {
+            // kept as an empty row rather than deleted, so consumers that follow updated_at see the change
+            schemeDailySupplyRepository.upsert(schemeId, tenantId, day, BigDecimal.ZERO, null, 0, null, null);
+            return;
+        }
+        if (readingCount > PAGE_SIZE) {
+            log.warn("Scheme {} has {} valid readings on {}", schemeId, readingCount, day);
+        }
+
+        BigDecimal litres = units.multiply(litresPerUnit).setScale(1, RoundingMode.HALF_UP);
+        schemeDailySupplyRepository.upsert(
+                schemeId,
+                tenantId,
+                day,
+                litres,
+                perHousehold(litres, scheme),
+                readingCount,
+                startReadingId,
+                endReadingId
+        );
+        anomalyDetector.onDailySupply(schemeId, tenantId, day, litres, endReadingId);
+    }
+
+    private static BigDecimal perHousehold(BigDecimal litres, SchemeMaster scheme) {
+        Integer households = scheme.getHouseHoldCount() != null && scheme.getHouseHoldCount() > 0
+                ? scheme.getHouseHoldCount()
+                : scheme.getFhtcCount();
+        if (households == null || households <= 0) {
+            return null;
+        }
+        return litres.divide(BigDecimal.valueOf(households), 2, RoundingMode.HALF_UP);
+    }
+}
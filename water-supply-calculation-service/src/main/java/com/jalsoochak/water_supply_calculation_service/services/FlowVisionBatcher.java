@@ -0,0 +1,203 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.exceptions.FlowVisionBatchUnsupportedException;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects concurrent OCR requests for up to {@code linger} (or until {@code maxBatchSize} images are waiting)
+ * and sends them to FlowVision as one batch, completing each caller's future with its own result.
+ * <p>
+ * The batch call signals a missing batch endpoint by throwing {@link FlowVisionBatchUnsupportedException}; from
+ * then on every request is sent on its own. Sends run on at most {@code maxConcurrentBatches} threads with a
+ * queue of {@code queueCapacity} tasks; requests that cannot be queued fail with
+ * {@link RejectedExecutionException} instead of piling up.
+ */
+@Slf4j
+class FlowVisionBatcher {
+
+    private record Pending(String readingUrl, long enqueuedAt, CompletableFuture<FlowVisionResult> future) {
+    }
+
+    /**
+     * One image's entry in a batch response: a result ({@code null} when the meter could not be read), or the
+     * error that fails only this image's request.
+     */
+    record Answer(FlowVisionResult result, RuntimeException error) {
+        static Answer of(FlowVisionResult result) {
+            return new Answer(result, null);
+        }
+
+        static Answer failed(RuntimeException error) {
+            return new Answer(null, error);
+        }
+    }
+
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Function<List<String>, List<Answer>> batchCall;
+    private final Function<String, FlowVisionResult> singleCall;
+    private final ThreadPoolExecutor senders;
+    private final Thread collector;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer batchWaitTimer;
+
+    private volatile boolean batchSupported = true;
+    private volatile boolean running = true;
+
+    FlowVisionBatcher(int maxBatchSize,
+                      long lingerMillis,
+                      int queueCapacity,
+                      int maxConcurrentBatches,
+                      Function<List<String>, List<Answer>> batchCall,
+                      Function<String, FlowVisionResult> singleCall,
+                      MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.batchCall = batchCall;
+        this.singleCall = singleCall;
+        this.senders = new ThreadPoolExecutor(
+                maxConcurrentBatches,
+                maxConcurrentBatches,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("flowvision-batch-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        this.batchSizeSummary = DistributionSummary.builder("flowvision.batch.size")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchWaitTimer = Timer.builder("flowvision.batch.wait")
+                .description("Time a request waited in the batcher before being sent")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        this.collector = Thread.ofPlatform().name("flowvision-batch-collector").daemon().start(this::collect);
+    }
+
+    CompletableFuture<FlowVisionResult> submit(String readingUrl) {
+        Pending pending = new Pending(readingUrl, System.nanoTime(), new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            pending.future().completeExceptionally(new RejectedExecutionException("FlowVision batch queue is full"));
+        }
+        return pending.future();
+    }
+
+    private void collect() {
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<Pending> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                try {
+                    senders.execute(() -> send(batch));
+                } catch (RejectedExecutionException e) {
+                    batch.forEach(pending -> pending.future().completeExceptionally(e));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("FlowVision batch collector error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        long sentAt = System.nanoTime();
+        for (Pending pending : batch) {
+            batchWaitTimer.record(sentAt - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+        batchSizeSummary.record(batch.size());
+
+        if (batch.size() == 1 || !batchSupported) {
+            sendIndividually(batch);
+            return;
+        }
+
+        try {
+            List<Answer> answers = batchCall.apply(batch.stream().map(Pending::readingUrl).toList());
+            int answered = answers != null ? answers.size() : 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Answer answer = i < answered ? answers.get(i) : null;
+                if (answer != null && answer.error() != null) {
+                    batch.get(i).future().completeExceptionally(answer.error());
+                } else if (answer != null) {
+                    batch.get(i).future().complete(answer.result());
+                } else {
+                    batch.get(i).future().completeExceptionally(new IllegalStateException(
+                            "FlowVision batch returned " + answered + " results for " + batch.size() + " images"));
+                }
+            }
+        } catch (FlowVisionBatchUnsupportedException e) {
+            log.warn("FlowVision batch endpoint not supported, falling back to single requests: {}", e.getMessage());
+            batchSupported = false;
+            sendIndividually(batch);
+        } catch (Exception e) {
+            log.error("FlowVision batch of {} failed: {}", batch.size(), e.getMessage(), e);
+            batch.forEach(pending -> pending.future().completeExceptionally(e));
+        }
+    }
+
+    private void sendIndividually(List<Pending> batch) {
+        for (int i = 1; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            try {
+                senders.execute(() -> completeSingle(pending));
+            } catch (RejectedExecutionException e) {
+                pending.future().completeExceptionally(e);
+            }
+        }
+        completeSingle(batch.get(0));
+    }
+
+    private void completeSingle(Pending pending) {
+        try {
+            pending.future().complete(singleCall.apply(pending.readingUrl()));
+        } catch (Exception e) {
+            pending.future().completeExceptionally(e);
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        collector.interrupt();
+        senders.shutdown();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future().completeExceptionally(new RejectedExecutionException("FlowVision batcher is shutting down"));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.configs.FlowVisionResilienceProperties;
+import com.jalsoochak.water_supply_calculation_service.exceptions.OcrUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs FlowVision calls through a circuit breaker, a semaphore bulkhead and an {@link AimdConcurrencyLimit}.
+ * A call that is not allowed through fails fast with {@link OcrUnavailableException} instead of tying up the
+ * caller's thread for the full read timeout.
+ */
+@Slf4j
+class FlowVisionGuard {
+
+    private final FlowVisionCircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final long bulkheadMaxWaitNanos;
+    private final AimdConcurrencyLimit limit;
+    private final long slowCallNanos;
+
+    private final Counter rejectedByCircuit;
+    private final Counter rejectedByBulkhead;
+    private final Counter rejectedByLimit;
+    private final Timer successTimer;
+    private final Timer failureTimer;
+
+    FlowVisionGuard(FlowVisionResilienceProperties properties, MeterRegistry meterRegistry) {
+        FlowVisionResilienceProperties.CircuitBreaker cb = properties.getCircuitBreaker();
+        FlowVisionResilienceProperties.Bulkhead bh = properties.getBulkhead();
+        FlowVisionResilienceProperties.Limit lim = properties.getLimit();
+
+        this.circuitBreaker = new FlowVisionCircuitBreaker(
+                cb.getWindowSize(),
+                cb.getMinimumCalls(),
+                cb.getFailureRateThreshold(),
+                cb.getOpenDuration().toMillis(),
+                cb.getHalfOpenCalls());
+        this.slowCallNanos = cb.getSlowCallThreshold().toNanos();
+        this.bulkhead = new Semaphore(bh.getMaxConcurrentCalls());
+        this.bulkheadMaxWaitNanos = bh.getMaxWait().toNanos();
+        this.limit = new AimdConcurrencyLimit(
+                lim.getInitial(),
+                lim.getMin(),
+                bh.getMaxConcurrentCalls(),
+                lim.getBackoffRatio(),
+                lim.getLatencyThreshold().toMillis());
+
+        Gauge.builder("flowvision.circuit.state", circuitBreaker, b -> b.state().ordinal())
+                .description("FlowVision circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        Gauge.builder("flowvision.concurrency.limit", limit, AimdConcurrencyLimit::limit)
+                .description("Current adaptive limit on concurrent FlowVision calls")
+                .register(meterRegistry);
+        Gauge.builder("flowvision.concurrency.in_flight", limit, AimdConcurrencyLimit::inFlight)
+                .register(meterRegistry);
+        Gauge.builder("flowvision.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .register(meterRegistry);
+
+        this.rejectedByCircuit = rejectedCounter(meterRegistry, "circuit_open");
+        this.rejectedByBulkhead = rejectedCounter(meterRegistry, "bulkhead_full");
+        this.rejectedByLimit = rejectedCounter(meterRegistry, "limit_reached");
+        this.successTimer = Timer.builder("flowvision.calls").tag("outcome", "success").register(meterRegistry);
+        this.failureTimer = Timer.builder("flowvision.calls").tag("outcome", "failure").register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("flowvision.calls.rejected")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws OcrUnavailableException when the circuit is open or no concurrency slot is free
+     * @throws Exception whatever the call itself throws, after it has been recorded as a failure
+     */
+    <T> T call(Callable<T> call) throws Exception {
+        if (!circuitBreaker.tryAcquire()) {
+            rejectedByCircuit.increment();
+            throw new OcrUnavailableException("FlowVision circuit is open");
+        }
+
+        boolean bulkheadAcquired;
+        try {
+            bulkheadAcquired = bulkhead.tryAcquire(bulkheadMaxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            bulkheadAcquired = false;
+        }
+        if (!bulkheadAcquired) {
+            circuitBreaker.release();
+            rejectedByBulkhead.increment();
+            throw new OcrUnavailableException("FlowVision bulkhead is full");
+        }
+
+        try {
+            if (!limit.tryAcquire()) {
+                circuitBreaker.release();
+                rejectedByLimit.increment();
+                throw new OcrUnavailableException("FlowVision concurrency limit of " + limit.limit() + " reached");
+            }
+
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                T result = call.call();
+                failed = false;
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                limit.release(elapsed, failed);
+                if (failed || elapsed > slowCallNanos) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                (failed ? failureTimer : successTimer).record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+}
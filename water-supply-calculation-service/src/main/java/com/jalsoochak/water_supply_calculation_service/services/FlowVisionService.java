@@ -1,113 +1,274 @@
 package com.jalsoochak.water_supply_calculation_service.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jalsoochak.water_supply_calculation_service.configs.FlowVisionResilienceProperties;
+import com.jalsoochak.water_supply_calculation_service.exceptions.FlowVisionBatchUnsupportedException;
+import com.jalsoochak.water_supply_calculation_service.exceptions.OcrUnavailableException;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResponse;
 import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
 public class FlowVisionService {
 
-    private static final String FLOWVISION_URL =
-            "https://jalsoochak.beehyv.com/flowvision/v1/extract-reading";
-
     private final RestTemplate restTemplate;
+    private final String flowVisionUrl;
+    private final String flowVisionBatchUrl;
+    private final long batchAwaitTimeoutMillis;
+    private final FlowVisionBatcher batcher;
+    private final FlowVisionGuard guard;
+    private final ObjectReader singleReader;
+    private final ObjectReader batchReader;
+    private final ObjectWriter requestWriter;
+    private final AtomicLong responseCounter = new AtomicLong();
+    private final long logSampleEvery;
+    private final int logMaxLength;
 
-    public FlowVisionService(RestTemplate restTemplate) {
+    public FlowVisionService(RestTemplate restTemplate,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             FlowVisionResilienceProperties resilienceProperties,
+                             @Value("${flowvision.url}") String flowVisionUrl,
+                             @Value("${flowvision.batch.url:}") String flowVisionBatchUrl,
+                             @Value("${flowvision.batch.enabled:false}") boolean batchEnabled,
+                             @Value("${flowvision.batch.max-size:16}") int maxBatchSize,
+                             @Value("${flowvision.batch.linger-ms:20}") long lingerMillis,
+                             @Value("${flowvision.batch.queue-capacity:1000}") int queueCapacity,
+                             @Value("${flowvision.batch.max-concurrent-batches:8}") int maxConcurrentBatches,
+                             @Value("${flowvision.batch.await-timeout-ms:15000}") long batchAwaitTimeoutMillis,
+                             @Value("${flowvision.log.sample-every:100}") long logSampleEvery,
+                             @Value("${flowvision.log.max-length:512}") int logMaxLength) {
         this.restTemplate = restTemplate;
+        this.singleReader = objectMapper.readerFor(FlowVisionResponse.class);
+        this.batchReader = objectMapper.readerFor(FlowVisionResponse.Batch.class);
+        this.requestWriter = objectMapper.writer();
+        this.logSampleEvery = logSampleEvery;
+        this.logMaxLength = logMaxLength;
+        this.flowVisionUrl = flowVisionUrl;
+        this.flowVisionBatchUrl = flowVisionBatchUrl;
+        this.batchAwaitTimeoutMillis = batchAwaitTimeoutMillis;
+        if (batchEnabled && (flowVisionBatchUrl == null || flowVisionBatchUrl.isBlank())) {
+            throw new IllegalStateException("flowvision.batch.enabled is set but flowvision.batch.url is not configured");
+        }
+        this.batcher = batchEnabled
+                ? new FlowVisionBatcher(
+                        maxBatchSize,
+                        lingerMillis,
+                        queueCapacity,
+                        maxConcurrentBatches,
+                        this::extractReadings,
+                        this::extractSingleReading,
+                        meterRegistry)
+                : null;
+        this.guard = resilienceProperties.isEnabled()
+                ? new FlowVisionGuard(resilienceProperties, meterRegistry)
+                : null;
     }
 
+    /**
+     * Runs OCR on the image, through the resilience guard when enabled.
+     *
+     * @return the extracted reading, or {@code null} when FlowVision answered but could not read the meter
+     * @throws OcrUnavailableException when the call was not attempted because FlowVision is unhealthy or
+     *                                 saturated, or failed in a retryable way; the caller should keep the
+     *                                 image for later processing
+     * @throws RuntimeException        any other failure (e.g. FlowVision rejected the request or sent an
+     *                                 unreadable response), as thrown by the call
+     */
     public FlowVisionResult extractReading(String readingUrl) {
-
         try {
+            return guard != null
+                    ? guard.call(() -> callFlowVision(readingUrl))
+                    : callFlowVision(readingUrl);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new OcrUnavailableException("Interrupted waiting for FlowVision OCR", ex);
+        } catch (ExecutionException ex) {
+            throw translate(ex.getCause() != null ? ex.getCause() : ex, readingUrl);
+        } catch (Exception ex) {
+            throw translate(ex, readingUrl);
+        }
+    }
 
-            Map<String, String> payload = new HashMap<>();
-            payload.put("imageURL", readingUrl);
+    private static RuntimeException translate(Throwable failure, String readingUrl) {
+        if (failure instanceof OcrUnavailableException unavailable) {
+            return unavailable;
+        }
+        if (isRetryable(failure)) {
+            log.warn("FlowVision OCR call for image {} failed, will be retried: {}", readingUrl, failure.toString());
+            return new OcrUnavailableException("FlowVision OCR call failed: " + failure.getMessage(), failure);
+        }
+        log.error("FlowVision OCR call failed for image {}", readingUrl, failure);
+        return failure instanceof RuntimeException runtime
+                ? runtime
+                : new IllegalStateException("FlowVision OCR call failed", failure);
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
+    /**
+     * Transport failures, timeouts, a full batch queue, server errors and rate limiting say nothing about the
+     * image, so the reading is worth another attempt later.
+     */
+    static boolean isRetryable(Throwable failure) {
+        return failure instanceof ResourceAccessException
+                || failure instanceof TimeoutException
+                || failure instanceof RejectedExecutionException
+                || failure instanceof HttpServerErrorException
+                || failure instanceof HttpClientErrorException.TooManyRequests;
+    }
 
-            HttpEntity<Map<String, String>> requestEntity =
-                    new HttpEntity<>(payload, headers);
+    private FlowVisionResult callFlowVision(String readingUrl) throws Exception {
+        if (batcher == null) {
+            return extractSingleReading(readingUrl);
+        }
+        return batcher.submit(readingUrl).get(batchAwaitTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
 
-            ResponseEntity<Map> responseEntity = restTemplate.exchange(
-                    FLOWVISION_URL,
-                    HttpMethod.POST,
-                    requestEntity,
-                    Map.class
-            );
+    private FlowVisionResult extractSingleReading(String readingUrl) {
+        Map<String, String> payload = new HashMap<>();
+        payload.put("imageURL", readingUrl);
 
+        FlowVisionResponse response = restTemplate.execute(
+                flowVisionUrl,
+                HttpMethod.POST,
+                jsonBody(payload),
+                httpResponse -> singleReader.readValue(httpResponse.getBody())
+        );
 
-            if (!responseEntity.getStatusCode().is2xxSuccessful()) {
-                log.error("FlowVision HTTP error: {}", responseEntity.getStatusCode());
-                return null;
-            }
+        logSampled(response);
 
-            Map<String, Object> responseBody = responseEntity.getBody();
-            log.info("Raw FlowVision response: {}", responseBody);
+        if (response == null || response.getResult() == null) {
+            log.error("FlowVision response missing 'result'");
+            return null;
+        }
 
-            if (responseBody == null || !responseBody.containsKey("result")) {
-                log.error("FlowVision response missing 'result'");
-                return null;
-            }
+        return toResult(response.getResult());
+    }
 
-            Map<String, Object> resultMap =
-                    (Map<String, Object>) responseBody.get("result");
+    /**
+     * Sends several images in one request to the batch endpoint, which answers with one {@code result} object
+     * per image, in request order: {@code {"results": [ {...}, ... ]}}.
+     *
+     * @throws FlowVisionBatchUnsupportedException when the batch endpoint does not exist
+     */
+    private List<FlowVisionBatcher.Answer> extractReadings(List<String> readingUrls) {
+        List<Map<String, String>> images = new ArrayList<>(readingUrls.size());
+        for (String readingUrl : readingUrls) {
+            images.add(Map.of("imageURL", readingUrl));
+        }
 
-            if (resultMap == null || !"SUCCESS".equals(resultMap.get("status"))) {
-                log.warn("FlowVision OCR not successful: {}", resultMap);
-                return null;
+        FlowVisionResponse.Batch response;
+        try {
+            response = restTemplate.execute(
+                    flowVisionBatchUrl,
+                    HttpMethod.POST,
+                    jsonBody(Map.of("images", images)),
+                    httpResponse -> batchReader.readValue(httpResponse.getBody())
+            );
+        } catch (HttpStatusCodeException ex) {
+            HttpStatusCode status = ex.getStatusCode();
+            if (status.value() == HttpStatus.NOT_FOUND.value()
+                    || status.value() == HttpStatus.METHOD_NOT_ALLOWED.value()
+                    || status.value() == HttpStatus.NOT_IMPLEMENTED.value()) {
+                throw new FlowVisionBatchUnsupportedException("FlowVision batch endpoint returned " + status);
             }
+            throw ex;
+        }
 
-            if (!resultMap.containsKey("data")) {
-                log.error("FlowVision result missing 'data'");
-                return null;
-            }
+        if (response == null || response.getResults() == null) {
+            throw new IllegalStateException("FlowVision batch response missing 'results'");
+        }
 
-            Map<String, Object> dataMap =
-                    (Map<String, Object>) resultMap.get("data");
+        List<FlowVisionBatcher.Answer> extracted = new ArrayList<>(response.getResults().size());
+        for (FlowVisionResponse.Result result : response.getResults()) {
+            extracted.add(result != null
+                    ? FlowVisionBatcher.Answer.of(toResult(result))
+                    : FlowVisionBatcher.Answer.failed(new IllegalStateException("FlowVision batch result is null")));
+        }
+        return extracted;
+    }
 
-            BigDecimal adjustedReading = null;
-            Object meterReadingObj = dataMap.get("meterReading");
+    private RequestCallback jsonBody(Object payload) {
+        return request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            requestWriter.writeValue(request.getBody(), payload);
+        };
+    }
 
-            if (meterReadingObj != null) {
-                adjustedReading = new BigDecimal(meterReadingObj.toString());
-            }
+    private FlowVisionResult toResult(FlowVisionResponse.Result result) {
 
-            String qualityStatus =
-                    dataMap.getOrDefault("qualityStatus", "unknown").toString();
+        if (!"SUCCESS".equals(result.getStatus())) {
+            log.warn("FlowVision OCR not successful: status={}, correlationId={}",
+                    result.getStatus(), result.getCorrelationId());
+            return null;
+        }
 
-            BigDecimal qualityConfidence = null;
-            Object confidenceObj = dataMap.get("qualityConfidence");
+        FlowVisionResponse.ReadingData data = result.getData();
+        if (data == null) {
+            log.error("FlowVision result missing 'data'");
+            return null;
+        }
 
-            if (confidenceObj != null) {
-                qualityConfidence = new BigDecimal(confidenceObj.toString());
-            }
+        return FlowVisionResult.builder()
+                .adjustedReading(data.getMeterReading())
+                .qualityStatus(data.getQualityStatus() != null ? data.getQualityStatus() : "unknown")
+                .qualityConfidence(data.getQualityConfidence())
+                .correlationId(result.getCorrelationId() != null
+                        ? result.getCorrelationId()
+                        : UUID.randomUUID().toString())
+                .build();
+    }
 
-            String correlationId =
-                    resultMap.getOrDefault(
-                            "correlationId",
-                            UUID.randomUUID().toString()
-                    ).toString();
+    /**
+     * Logs every response at DEBUG, and one in {@code flowvision.log.sample-every} at INFO, truncated to
+     * {@code flowvision.log.max-length} characters.
+     */
+    private void logSampled(FlowVisionResponse response) {
+        boolean sampled = logSampleEvery > 0 && responseCounter.incrementAndGet() % logSampleEvery == 0;
+        if (!sampled && !log.isDebugEnabled()) {
+            return;
+        }
 
-            return FlowVisionResult.builder()
-                    .adjustedReading(adjustedReading)
-                    .qualityStatus(qualityStatus)
-                    .qualityConfidence(qualityConfidence)
-                    .correlationId(correlationId)
-                    .build();
+        String body = String.valueOf(response);
+        if (body.length() > logMaxLength) {
+            body = body.substring(0, logMaxLength) + "...";
+        }
 
-        } catch (Exception ex) {
-            log.error("FlowVision OCR call failed for image {}", readingUrl, ex);
-            return null;
+        if (sampled) {
+            log.info("Sampled FlowVision response: {}", body);
+        } else {
+            log.debug("FlowVision response: {}", body);
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
 }
@@ -0,0 +1,203 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.models.enums.GeoLevel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of one tenant's LGD tree as far as its schemes reach: every village with a scheme and
+ * every LGD location above it, each with the schemes and mapped operators underneath.
+ * <p>
+ * Locations are indexed by every ancestor, so "districts of this state" or "villages of this block" are both a
+ * single map lookup. Levels a state does not use are skipped: a village directly under a block simply has no
+ * GP ancestor. Each scheme's chain (its village up to the top) is kept too, so a change to one scheme touches
+ * only the locations in {@link #chain(long)}.
+ */
+public final class GeoHierarchy {
+
+    /** Upper bound on the parent walk, which also stops a cycle in {@code parent_lgd_location_id}. */
+    private static final int MAX_DEPTH = 16;
+
+    /**
+     * @param parentId    nearest ancestor with a known level; null at the top
+     * @param schemeIds   sorted ids of all schemes under the location
+     * @param operatorIds sorted ids of the persons mapped to those schemes
+     */
+    public record Node(GeoLevel level, long id, String name, Long parentId, long[] schemeIds, long[] operatorIds) {
+
+        public boolean hasOperator(long personId) {
+            return Arrays.binarySearch(operatorIds, personId) >= 0;
+        }
+    }
+
+    private record NodeKey(GeoLevel level, long id) {
+    }
+
+    private final Map<GeoLevel, Map<Long, Node>> nodes;
+    private final Map<GeoLevel, Map<Long, List<Node>>> byAncestor;
+    private final Map<Long, List<Node>> chains;
+
+    private GeoHierarchy(Map<GeoLevel, Map<Long, Node>> nodes, Map<GeoLevel, Map<Long, List<Node>>> byAncestor,
+                         Map<Long, List<Node>> chains) {
+        this.nodes = nodes;
+        this.byAncestor = byAncestor;
+        this.chains = chains;
+    }
+
+    /**
+     * @param ancestorId LGD location the result must lie under, or null for every location at the level
+     * @return the locations at {@code level}, ordered by name
+     */
+    public List<Node> nodes(GeoLevel level, Long ancestorId) {
+        if (ancestorId == null) {
+            return sorted(nodes.getOrDefault(level, Map.of()).values());
+        }
+        return byAncestor.getOrDefault(level, Map.of()).getOrDefault(ancestorId, List.of());
+    }
+
+    /**
+     * @return the scheme's village and every location above it, bottom up; empty for a scheme not in the snapshot
+     */
+    public List<Node> chain(long schemeId) {
+        return chains.getOrDefault(schemeId, List.of());
+    }
+
+    public Collection<Node> allNodes() {
+        List<Node> all = new ArrayList<>();
+        nodes.values().forEach(level -> all.addAll(level.values()));
+        return all;
+    }
+
+    private static List<Node> sorted(Collection<Node> nodes) {
+        List<Node> list = new ArrayList<>(nodes);
+        list.sort(Comparator.comparing(Node::name, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return list;
+    }
+
+    static final class Builder {
+
+        private record Lgd(String title, Long parentId, GeoLevel level) {
+        }
+
+        private record Village(long id, String title, Long parentLgdId) {
+        }
+
+        private static final class NodeBuilder {
+            final GeoLevel level;
+            final long id;
+            final String name;
+            Long parentId;
+            final Set<Long> schemeIds = new LinkedHashSet<>();
+            final Set<Long> operatorIds = new LinkedHashSet<>();
+            final Set<Long> ancestorIds = new LinkedHashSet<>();
+
+            NodeBuilder(GeoLevel level, long id, String name) {
+                this.level = level;
+                this.id = id;
+                this.name = name;
+            }
+        }
+
+        private final Map<Long, Lgd> lgdLocations = new HashMap<>();
+        private final Map<Long, Village> schemeVillages = new HashMap<>();
+        private final Map<Long, List<Long>> schemeOperators = new HashMap<>();
+
+        Builder lgdLocation(long id, String title, Long parentId, String typeName) {
+            lgdLocations.put(id, new Lgd(title, parentId, GeoLevel.fromLgdType(typeName).orElse(null)));
+            return this;
+        }
+
+        Builder scheme(long schemeId, long villageId, String villageTitle, Long parentLgdId) {
+            schemeVillages.put(schemeId, new Village(villageId, villageTitle, parentLgdId));
+            return this;
+        }
+
+        Builder operator(long schemeId, long personId) {
+            schemeOperators.computeIfAbsent(schemeId, id -> new ArrayList<>()).add(personId);
+            return this;
+        }
+
+        GeoHierarchy build() {
+            Map<NodeKey, NodeBuilder> builders = new HashMap<>();
+            Map<Long, List<NodeKey>> chainKeys = new HashMap<>();
+
+            schemeVillages.forEach((schemeId, village) -> {
+                List<NodeBuilder> chain = new ArrayList<>();
+                chain.add(builders.computeIfAbsent(new NodeKey(GeoLevel.VILLAGE, village.id()),
+                        key -> new NodeBuilder(GeoLevel.VILLAGE, village.id(), village.title())));
+
+                Long lgdId = village.parentLgdId();
+                for (int depth = 0; lgdId != null && depth < MAX_DEPTH; depth++) {
+                    Lgd lgd = lgdLocations.get(lgdId);
+                    if (lgd == null) {
+                        break;
+                    }
+                    if (lgd.level() != null && lgd.level() != GeoLevel.VILLAGE) {
+                        long id = lgdId;
+                        chain.add(builders.computeIfAbsent(new NodeKey(lgd.level(), id),
+                                key -> new NodeBuilder(lgd.level(), id, lgd.title())));
+                    }
+                    lgdId = lgd.parentId();
+                }
+
+                List<Long> operators = schemeOperators.getOrDefault(schemeId, List.of());
+                List<NodeKey> keys = new ArrayList<>(chain.size());
+                for (int i = 0; i < chain.size(); i++) {
+                    NodeBuilder node = chain.get(i);
+                    keys.add(new NodeKey(node.level, node.id));
+                    node.schemeIds.add(schemeId);
+                    node.operatorIds.addAll(operators);
+                    if (i + 1 < chain.size()) {
+                        node.parentId = chain.get(i + 1).id;
+                    }
+                    for (int j = i + 1; j < chain.size(); j++) {
+                        node.ancestorIds.add(chain.get(j).id);
+                    }
+                }
+                chainKeys.put(schemeId, keys);
+            });
+
+            Map<GeoLevel, Map<Long, Node>> nodes = new EnumMap<>(GeoLevel.class);
+            Map<GeoLevel, Map<Long, List<Node>>> byAncestor = new EnumMap<>(GeoLevel.class);
+            for (NodeBuilder builder : builders.values()) {
+                Node node = new Node(
+                        builder.level,
+                        builder.id,
+                        builder.name,
+                        builder.parentId,
+                        toSortedArray(builder.schemeIds),
+                        toSortedArray(builder.operatorIds)
+                );
+                nodes.computeIfAbsent(node.level(), level -> new HashMap<>()).put(node.id(), node);
+                for (Long ancestorId : builder.ancestorIds) {
+                    byAncestor.computeIfAbsent(node.level(), level -> new HashMap<>())
+                            .computeIfAbsent(ancestorId, id -> new ArrayList<>())
+                            .add(node);
+                }
+            }
+            byAncestor.values().forEach(index -> index.replaceAll((ancestorId, list) -> List.copyOf(sorted(list))));
+
+            Map<Long, List<Node>> chains = new HashMap<>();
+            chainKeys.forEach((schemeId, keys) -> chains.put(schemeId, keys.stream()
+                    .map(key -> nodes.get(key.level()).get(key.id()))
+                    .toList()));
+
+            return new GeoHierarchy(nodes, byAncestor, chains);
+        }
+
+        private static long[] toSortedArray(Set<Long> ids) {
+            long[] array = ids.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(array);
+            return array;
+        }
+    }
+}
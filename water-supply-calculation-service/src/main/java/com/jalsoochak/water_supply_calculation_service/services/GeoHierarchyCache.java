@@ -0,0 +1,109 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Per-tenant {@link GeoHierarchy}, loaded with three queries (schemes with their villages, the LGD ancestors of
+ * those villages, operator mappings) and refreshed in the background every
+ * {@code dashboard.geo-summary.hierarchy-refresh}; readers keep the old snapshot until the new one is ready.
+ */
+@Slf4j
+@Service
+public class GeoHierarchyCache {
+
+    private static final String SCHEMES_SQL = """
+            SELECT s.id, v.id, v.title, v.parent_lgd_location_id
+            FROM scheme_master s
+            JOIN village_master v ON v.id = s.village_id
+            WHERE s.tenant_id = ? AND s.deleted_at IS NULL AND v.deleted_at IS NULL
+            """;
+
+    private static final String LGD_SQL = """
+            WITH RECURSIVE ancestors (id, title, parent_lgd_location_id, lgd_location_type_id) AS (
+                SELECT l.id, l.title, l.parent_lgd_location_id, l.lgd_location_type_id
+                FROM lgd_location_master l
+                WHERE l.id IN (
+                    SELECT v.parent_lgd_location_id
+                    FROM village_master v
+                    JOIN scheme_master s ON s.village_id = v.id
+                    WHERE s.tenant_id = ? AND s.deleted_at IS NULL
+                )
+                UNION
+                SELECT p.id, p.title, p.parent_lgd_location_id, p.lgd_location_type_id
+                FROM lgd_location_master p
+                JOIN ancestors a ON p.id = a.parent_lgd_location_id
+            )
+            SELECT a.id, a.title, a.parent_lgd_location_id, t.c_name
+            FROM ancestors a
+            LEFT JOIN lgd_location_type_master t ON t.id = a.lgd_location_type_id
+            """;
+
+    private static final String OPERATORS_SQL = """
+            SELECT psm.scheme_id, psm.person_id
+            FROM person_scheme_mapping psm
+            JOIN scheme_master s ON s.id = psm.scheme_id
+            WHERE s.tenant_id = ? AND s.deleted_at IS NULL AND psm.deleted_at IS NULL
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadingCache<String, GeoHierarchy> hierarchies;
+
+    public GeoHierarchyCache(JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${dashboard.geo-summary.hierarchy-refresh:10m}") Duration refresh) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hierarchies = Caffeine.newBuilder()
+                .refreshAfterWrite(refresh)
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, hierarchies, "geoHierarchy");
+    }
+
+    public GeoHierarchy get(String tenantId) {
+        return hierarchies.get(tenantId);
+    }
+
+    public List<String> tenantIds() {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT tenant_id FROM scheme_master WHERE tenant_id IS NOT NULL AND deleted_at IS NULL",
+                String.class
+        );
+    }
+
+    /**
+     * Drops every snapshot, so the next lookup sees villages, schemes or mappings added since.
+     */
+    public void invalidateAll() {
+        hierarchies.invalidateAll();
+    }
+
+    private GeoHierarchy load(String tenantId) {
+        long start = System.nanoTime();
+        GeoHierarchy.Builder builder = new GeoHierarchy.Builder();
+
+        jdbcTemplate.query(LGD_SQL, rs -> {
+            builder.lgdLocation(rs.getLong(1), rs.getString(2), rs.getObject(3, Long.class), rs.getString(4));
+        }, tenantId);
+        jdbcTemplate.query(SCHEMES_SQL, rs -> {
+            builder.scheme(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getObject(4, Long.class));
+        }, tenantId);
+        jdbcTemplate.query(OPERATORS_SQL, rs -> {
+            builder.operator(rs.getLong(1), rs.getLong(2));
+        }, tenantId);
+
+        GeoHierarchy hierarchy = builder.build();
+        log.info("Loaded LGD hierarchy for tenant {}: {} locations in {} ms",
+                tenantId, hierarchy.allNodes().size(), (System.nanoTime() - start) / 1_000_000);
+        return hierarchy;
+    }
+}
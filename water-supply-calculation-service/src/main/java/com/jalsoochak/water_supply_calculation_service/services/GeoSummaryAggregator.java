@@ -0,0 +1,325 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.GeoDailySummary;
+import com.jalsoochak.water_supply_calculation_service.models.entities.JobWatermark;
+import com.jalsoochak.water_supply_calculation_service.models.enums.GeoLevel;
+import com.jalsoochak.water_supply_calculation_service.repositories.GeoDailySummaryRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.JobWatermarkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Maintains the {@code geo_daily_summary} cube behind the geo-summary dashboard.
+ * <p>
+ * Cells are recomputed from scratch per (tenant, day): the day's submissions and the schemes' daily supply
+ * are read once and rolled up over the tenant's {@link GeoHierarchy} in memory, so distinct operator counts
+ * stay exact at every level. Only cells whose values changed are written.
+ * <p>
+ * {@link #refreshChanged()} finds the schemes and days to recompute from two watermarks: new {@code bfm_reading}
+ * ids (submissions, valid or not) and {@code scheme_daily_supply.updated_at} (supply, including corrections and
+ * OCR results that arrive later). Only the cells on the changed schemes' chains are recomputed, from their
+ * village up to the state. Both watermarks are re-read with an overlap: reading ids are taken from a sequence
+ * before their transaction commits, so a reading can become visible after higher ids did, and
+ * {@code updated_at} is the writing transaction's start time, so a long transaction can commit behind it.
+ */
+@Slf4j
+@Service
+public class GeoSummaryAggregator {
+
+    static final String READINGS_WATERMARK = "geo-summary-readings";
+    /** {@code lastTimestamp} holds the {@code scheme_daily_supply.updated_at} reached. */
+    static final String SUPPLY_WATERMARK = "geo-summary-supply";
+
+    private static final int PAGE_SIZE = 5000;
+
+    private static final String NEW_READINGS_SQL = """
+            SELECT id, tenant_id, reading_date_time, scheme_id
+            FROM bfm_reading
+            WHERE id > ? AND reading_date_time >= ? AND tenant_id IS NOT NULL
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String CHANGED_SUPPLY_SQL = """
+            SELECT tenant_id, supply_date, scheme_id, updated_at
+            FROM scheme_daily_supply
+            WHERE updated_at > ? AND tenant_id IS NOT NULL
+            """;
+
+    private static final String SUBMISSIONS_SQL = """
+            SELECT scheme_id, person_id
+            FROM bfm_reading
+            WHERE tenant_id = ? AND reading_date_time >= ? AND reading_date_time < ? AND deleted_at IS NULL
+            """;
+
+    private static final String SUPPLY_SQL = """
+            SELECT scheme_id, quantity_litre, reading_count
+            FROM scheme_daily_supply
+            WHERE tenant_id = ? AND supply_date = ?
+            """;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO geo_daily_summary (tenant_id, summary_date, level, location_id, parent_id, scheme_count,
+                                           schemes_reported, no_water_schemes, quantity_litre, operator_count,
+                                           active_operators, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now())
+            ON CONFLICT (tenant_id, summary_date, level, location_id) DO UPDATE SET
+                parent_id = EXCLUDED.parent_id,
+                scheme_count = EXCLUDED.scheme_count,
+                schemes_reported = EXCLUDED.schemes_reported,
+                no_water_schemes = EXCLUDED.no_water_schemes,
+                quantity_litre = EXCLUDED.quantity_litre,
+                operator_count = EXCLUDED.operator_count,
+                active_operators = EXCLUDED.active_operators,
+                updated_at = now()
+            """;
+
+    public record TenantDay(String tenantId, LocalDate date) {
+    }
+
+    private record Supply(BigDecimal quantityLitre, int readingCount) {
+    }
+
+    private record CellKey(GeoLevel level, long locationId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GeoHierarchyCache hierarchyCache;
+    private final GeoDailySummaryRepository geoDailySummaryRepository;
+    private final JobWatermarkRepository jobWatermarkRepository;
+    private final Duration lookback;
+    private final Duration supplyOverlap;
+    private final long readingIdOverlap;
+
+    public GeoSummaryAggregator(JdbcTemplate jdbcTemplate,
+                                GeoHierarchyCache hierarchyCache,
+                                GeoDailySummaryRepository geoDailySummaryRepository,
+                                JobWatermarkRepository jobWatermarkRepository,
+                                @Value("${dashboard.geo-summary.refresh.lookback:7d}") Duration lookback,
+                                @Value("${dashboard.geo-summary.refresh.overlap:1m}") Duration supplyOverlap,
+                                @Value("${dashboard.geo-summary.refresh.id-overlap:200}") long readingIdOverlap) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hierarchyCache = hierarchyCache;
+        this.geoDailySummaryRepository = geoDailySummaryRepository;
+        this.jobWatermarkRepository = jobWatermarkRepository;
+        this.lookback = lookback;
+        this.supplyOverlap = supplyOverlap;
+        this.readingIdOverlap = readingIdOverlap;
+    }
+
+    /**
+     * Recomputes the cells above every scheme that got a reading or a supply change since the last run.
+     *
+     * @return the number of (tenant, day) pairs touched
+     */
+    public int refreshChanged() {
+        Map<TenantDay, Set<Long>> changed = new LinkedHashMap<>();
+        LocalDateTime since = LocalDateTime.now().minus(lookback);
+
+        long readingsReached = watermark(READINGS_WATERMARK).map(JobWatermark::getLastId).orElse(0L);
+        long readingId = Math.max(0, readingsReached - readingIdOverlap);
+        while (true) {
+            List<Long> ids = new ArrayList<>();
+            jdbcTemplate.query(NEW_READINGS_SQL, rs -> {
+                ids.add(rs.getLong(1));
+                long schemeId = rs.getLong(4);
+                if (!rs.wasNull()) {
+                    changed.computeIfAbsent(
+                            new TenantDay(rs.getString(2), rs.getTimestamp(3).toLocalDateTime().toLocalDate()),
+                            key -> new HashSet<>()
+                    ).add(schemeId);
+                }
+            }, readingId, Timestamp.valueOf(since), PAGE_SIZE);
+
+            if (!ids.isEmpty()) {
+                readingId = ids.get(ids.size() - 1);
+            }
+            if (ids.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+
+        LocalDateTime supplyReached = watermark(SUPPLY_WATERMARK)
+                .map(JobWatermark::getLastTimestamp)
+                .orElse(since);
+        LocalDateTime[] reached = {supplyReached};
+        jdbcTemplate.query(CHANGED_SUPPLY_SQL, rs -> {
+            changed.computeIfAbsent(new TenantDay(rs.getString(1), rs.getDate(2).toLocalDate()), key -> new HashSet<>())
+                    .add(rs.getLong(3));
+            LocalDateTime updatedAt = rs.getTimestamp(4).toLocalDateTime();
+            if (updatedAt.isAfter(reached[0])) {
+                reached[0] = updatedAt;
+            }
+        }, Timestamp.valueOf(supplyReached.minus(supplyOverlap)));
+
+        changed.forEach((tenantDay, schemeIds) -> recompute(tenantDay.tenantId(), tenantDay.date(), schemeIds));
+
+        jobWatermarkRepository.save(JobWatermark.builder()
+                .jobName(READINGS_WATERMARK)
+                .lastId(Math.max(readingsReached, readingId))
+                .updatedAt(LocalDateTime.now())
+                .build());
+        jobWatermarkRepository.save(JobWatermark.builder()
+                .jobName(SUPPLY_WATERMARK)
+                .lastId(0L)
+                .lastTimestamp(reached[0])
+                .updatedAt(LocalDateTime.now())
+                .build());
+        return changed.size();
+    }
+
+    /**
+     * Recomputes the last {@code days} days of every tenant against a freshly loaded hierarchy, which also
+     * picks up villages, schemes and operator mappings added since the cells were written.
+     */
+    public void rebuild(int days) {
+        hierarchyCache.invalidateAll();
+        LocalDate today = LocalDate.now();
+        for (String tenantId : hierarchyCache.tenantIds()) {
+            for (int i = 0; i < days; i++) {
+                recompute(tenantId, today.minusDays(i));
+            }
+        }
+    }
+
+    public void recompute(String tenantId, LocalDate date) {
+        recomputeNodes(tenantId, date, hierarchyCache.get(tenantId).allNodes());
+    }
+
+    /**
+     * Recomputes the village of each scheme and every location above it. A scheme missing from the cached
+     * hierarchy (added since it was loaded) is picked up by the nightly rebuild.
+     */
+    void recompute(String tenantId, LocalDate date, Set<Long> schemeIds) {
+        GeoHierarchy hierarchy = hierarchyCache.get(tenantId);
+        Set<GeoHierarchy.Node> nodes = new LinkedHashSet<>();
+        for (Long schemeId : schemeIds) {
+            nodes.addAll(hierarchy.chain(schemeId));
+        }
+        if (!nodes.isEmpty()) {
+            recomputeNodes(tenantId, date, nodes);
+        }
+    }
+
+    private void recomputeNodes(String tenantId, LocalDate date, Collection<GeoHierarchy.Node> nodes) {
+        Map<Long, Set<Long>> submitters = new HashMap<>();
+        jdbcTemplate.query(SUBMISSIONS_SQL, rs -> {
+            Set<Long> persons = submitters.computeIfAbsent(rs.getLong(1), id -> new HashSet<>());
+            long personId = rs.getLong(2);
+            if (!rs.wasNull()) {
+                persons.add(personId);
+            }
+        }, tenantId, Timestamp.valueOf(date.atStartOfDay()), Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+
+        Map<Long, Supply> supplies = new HashMap<>();
+        jdbcTemplate.query(SUPPLY_SQL, rs -> {
+            supplies.put(rs.getLong(1), new Supply(rs.getBigDecimal(2), rs.getInt(3)));
+        }, tenantId, date);
+
+        Map<CellKey, GeoDailySummary> existing = new HashMap<>();
+        for (GeoDailySummary cell : geoDailySummaryRepository.findByTenantIdAndSummaryDate(tenantId, date)) {
+            existing.put(new CellKey(cell.getLevel(), cell.getLocationId()), cell);
+        }
+
+        List<GeoDailySummary> changed = new ArrayList<>();
+        for (GeoHierarchy.Node node : nodes) {
+            GeoDailySummary cell = aggregate(tenantId, date, node, submitters, supplies);
+            GeoDailySummary previous = existing.get(new CellKey(node.level(), node.id()));
+            if (previous == null || !sameValues(previous, cell)) {
+                changed.add(cell);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, changed, changed.size(), (ps, cell) -> {
+                ps.setString(1, cell.getTenantId());
+                ps.setObject(2, cell.getSummaryDate());
+                ps.setString(3, cell.getLevel().name());
+                ps.setLong(4, cell.getLocationId());
+                ps.setObject(5, cell.getParentId());
+                ps.setInt(6, cell.getSchemeCount());
+                ps.setInt(7, cell.getSchemesReported());
+                ps.setInt(8, cell.getNoWaterSchemes());
+                ps.setBigDecimal(9, cell.getQuantityLitre());
+                ps.setInt(10, cell.getOperatorCount());
+                ps.setInt(11, cell.getActiveOperators());
+            });
+            log.debug("Updated {} geo summary cells for tenant {} on {}", changed.size(), tenantId, date);
+        }
+    }
+
+    private static GeoDailySummary aggregate(String tenantId, LocalDate date, GeoHierarchy.Node node,
+                                             Map<Long, Set<Long>> submitters, Map<Long, Supply> supplies) {
+        int reported = 0;
+        int noWater = 0;
+        BigDecimal quantity = BigDecimal.ZERO;
+        Set<Long> active = new HashSet<>();
+
+        for (long schemeId : node.schemeIds()) {
+            Set<Long> persons = submitters.get(schemeId);
+            if (persons != null) {
+                reported++;
+                for (Long personId : persons) {
+                    if (node.hasOperator(personId)) {
+                        active.add(personId);
+                    }
+                }
+            }
+
+            Supply supply = supplies.get(schemeId);
+            if (supply != null && supply.readingCount() > 0 && supply.quantityLitre() != null) {
+                quantity = quantity.add(supply.quantityLitre());
+                if (supply.quantityLitre().signum() == 0) {
+                    noWater++;
+                }
+            }
+        }
+
+        return GeoDailySummary.builder()
+                .tenantId(tenantId)
+                .summaryDate(date)
+                .level(node.level())
+                .locationId(node.id())
+                .parentId(node.parentId())
+                .schemeCount(node.schemeIds().length)
+                .schemesReported(reported)
+                .noWaterSchemes(noWater)
+                .quantityLitre(quantity)
+                .operatorCount(node.operatorIds().length)
+                .activeOperators(active.size())
+                .build();
+    }
+
+    private static boolean sameValues(GeoDailySummary a, GeoDailySummary b) {
+        return Objects.equals(a.getParentId(), b.getParentId())
+                && Objects.equals(a.getSchemeCount(), b.getSchemeCount())
+                && Objects.equals(a.getSchemesReported(), b.getSchemesReported())
+                && Objects.equals(a.getNoWaterSchemes(), b.getNoWaterSchemes())
+                && a.getQuantityLitre() != null && a.getQuantityLitre().compareTo(b.getQuantityLitre()) == 0
+                && Objects.equals(a.getOperatorCount(), b.getOperatorCount())
+                && Objects.equals(a.getActiveOperators(), b.getActiveOperators());
+    }
+
+    private Optional<JobWatermark> watermark(String jobName) {
+        return jobWatermarkRepository.findById(jobName);
+    }
+}
@@ -0,0 +1,215 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.GeoSummaryItem;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.GeoSummaryResponse;
+import com.jalsoochak.water_supply_calculation_service.models.entities.GeoDailySummary;
+import com.jalsoochak.water_supply_calculation_service.models.enums.GeoLevel;
+import com.jalsoochak.water_supply_calculation_service.models.enums.GeoSummaryStatus;
+import com.jalsoochak.water_supply_calculation_service.repositories.GeoDailySummaryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serves the geo-summary dashboard from memory: the {@code geo_daily_summary} cells of each (tenant, day)
+ * are held in a map keyed by (level, location), and the tenant's {@link GeoHierarchy} says which locations
+ * belong to a drill-down. A request is two lookups and a pass over the returned locations.
+ * <p>
+ * The last {@code dashboard.geo-summary.cache.days} days of every tenant are loaded on startup; older days are
+ * loaded on first request. Every {@code dashboard.geo-summary.cache.refresh-interval} each instance applies
+ * the cells written since its last look, so the dashboard trails new readings by that interval plus the
+ * aggregation job's.
+ */
+@Slf4j
+@Service
+public class GeoSummaryCube {
+
+    private record TenantDay(String tenantId, LocalDate date) {
+    }
+
+    private record CellKey(GeoLevel level, long locationId) {
+    }
+
+    private record Cell(int schemeCount, int schemesReported, int noWaterSchemes, int operatorCount,
+                        int activeOperators) {
+
+        static Cell of(GeoDailySummary summary) {
+            return new Cell(
+                    valueOf(summary.getSchemeCount()),
+                    valueOf(summary.getSchemesReported()),
+                    valueOf(summary.getNoWaterSchemes()),
+                    valueOf(summary.getOperatorCount()),
+                    valueOf(summary.getActiveOperators())
+            );
+        }
+
+        private static int valueOf(Integer value) {
+            return value != null ? value : 0;
+        }
+    }
+
+    private final GeoDailySummaryRepository geoDailySummaryRepository;
+    private final GeoHierarchyCache hierarchyCache;
+    private final Cache<TenantDay, ConcurrentMap<CellKey, Cell>> cells;
+    private final int warmDays;
+    private final Duration refreshOverlap;
+    private final int[] statusThresholds;
+
+    private final Object refreshLock = new Object();
+    private LocalDateTime lastUpdatedAt;
+
+    public GeoSummaryCube(GeoDailySummaryRepository geoDailySummaryRepository,
+                          GeoHierarchyCache hierarchyCache,
+                          MeterRegistry meterRegistry,
+                          @Value("${dashboard.geo-summary.cache.days:7}") int warmDays,
+                          @Value("${dashboard.geo-summary.cache.max-tenant-days:2000}") long maxTenantDays,
+                          @Value("${dashboard.geo-summary.cache.refresh-overlap:1m}") Duration refreshOverlap,
+                          @Value("${dashboard.geo-summary.status-thresholds:90,75,50,25}") int[] statusThresholds) {
+        this.geoDailySummaryRepository = geoDailySummaryRepository;
+        this.hierarchyCache = hierarchyCache;
+        this.warmDays = warmDays;
+        this.refreshOverlap = refreshOverlap;
+        this.statusThresholds = statusThresholds;
+        this.cells = Caffeine.newBuilder()
+                .maximumSize(maxTenantDays)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cells, "geoSummaryCube");
+    }
+
+    /**
+     * @param ancestorId LGD location to drill into; null for every location at the level
+     */
+    public GeoSummaryResponse summary(String tenantId, GeoLevel level, Long ancestorId, LocalDate date) {
+        List<GeoHierarchy.Node> nodes = hierarchyCache.get(tenantId).nodes(level, ancestorId);
+        Map<CellKey, Cell> dayCells = cells.get(new TenantDay(tenantId, date), this::loadDay);
+
+        List<GeoSummaryItem> items = new ArrayList<>(nodes.size());
+        for (GeoHierarchy.Node node : nodes) {
+            Cell cell = dayCells.get(new CellKey(node.level(), node.id()));
+            if (cell == null) {
+                // nothing written for the location that day: no scheme under it submitted
+                cell = new Cell(node.schemeIds().length, 0, 0, node.operatorIds().length, 0);
+            }
+
+            double percent = cell.schemeCount() == 0
+                    ? 0.0
+                    : Math.round(cell.schemesReported() * 1000.0 / cell.schemeCount()) / 10.0;
+            items.add(GeoSummaryItem.builder()
+                    .id(node.id())
+                    .name(node.name())
+                    .status(statusOf(percent))
+                    .dailySubmissionPercent(percent)
+                    .noWaterDays(cell.noWaterSchemes())
+                    .activeOperators(cell.activeOperators())
+                    .inactiveOperators(Math.max(0, cell.operatorCount() - cell.activeOperators()))
+                    .build());
+        }
+
+        return GeoSummaryResponse.builder()
+                .level(level.name().toLowerCase(Locale.ROOT))
+                .date(date)
+                .items(items)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.nanoTime();
+        try {
+            Map<TenantDay, ConcurrentMap<CellKey, Cell>> loaded = new HashMap<>();
+            LocalDateTime newest = null;
+            for (GeoDailySummary summary : geoDailySummaryRepository
+                    .findBySummaryDateGreaterThanEqual(LocalDate.now().minusDays(warmDays - 1L))) {
+                loaded.computeIfAbsent(new TenantDay(summary.getTenantId(), summary.getSummaryDate()),
+                                key -> new ConcurrentHashMap<>())
+                        .put(new CellKey(summary.getLevel(), summary.getLocationId()), Cell.of(summary));
+                newest = max(newest, summary.getUpdatedAt());
+            }
+            cells.putAll(loaded);
+
+            for (String tenantId : hierarchyCache.tenantIds()) {
+                hierarchyCache.get(tenantId);
+            }
+
+            synchronized (refreshLock) {
+                lastUpdatedAt = newest != null ? newest : LocalDateTime.now();
+            }
+            log.info("Warmed geo summary cube: {} tenant-days in {} ms",
+                    loaded.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Could not warm geo summary cube; days will load on first request", e);
+            synchronized (refreshLock) {
+                lastUpdatedAt = LocalDateTime.now();
+            }
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${dashboard.geo-summary.cache.refresh-interval:PT15S}",
+            initialDelayString = "${dashboard.geo-summary.cache.refresh-interval:PT15S}"
+    )
+    public void refresh() {
+        synchronized (refreshLock) {
+            if (lastUpdatedAt == null) {
+                return;
+            }
+
+            LocalDateTime newest = lastUpdatedAt;
+            for (GeoDailySummary summary : geoDailySummaryRepository
+                    .findByUpdatedAtGreaterThan(lastUpdatedAt.minus(refreshOverlap))) {
+                // days not held yet are read whole from the table on first request
+                ConcurrentMap<CellKey, Cell> dayCells =
+                        cells.getIfPresent(new TenantDay(summary.getTenantId(), summary.getSummaryDate()));
+                if (dayCells != null) {
+                    dayCells.put(new CellKey(summary.getLevel(), summary.getLocationId()), Cell.of(summary));
+                }
+                newest = max(newest, summary.getUpdatedAt());
+            }
+            lastUpdatedAt = newest;
+        }
+    }
+
+    private ConcurrentMap<CellKey, Cell> loadDay(TenantDay key) {
+        ConcurrentMap<CellKey, Cell> dayCells = new ConcurrentHashMap<>();
+        for (GeoDailySummary summary : geoDailySummaryRepository.findByTenantIdAndSummaryDate(key.tenantId(), key.date())) {
+            dayCells.put(new CellKey(summary.getLevel(), summary.getLocationId()), Cell.of(summary));
+        }
+        return dayCells;
+    }
+
+    private GeoSummaryStatus statusOf(double percent) {
+        GeoSummaryStatus[] statuses = GeoSummaryStatus.values();
+        for (int i = 0; i < statusThresholds.length && i < statuses.length - 1; i++) {
+            if (percent >= statusThresholds[i]) {
+                return statuses[i];
+            }
+        }
+        return GeoSummaryStatus.DARK_RED;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.isAfter(a) ? b : a;
+    }
+}
@@ -0,0 +1,97 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Glific API session, obtained with the organisation's login the same way messaging-orchestrator does.
+ * The access token is cached until its expiry; {@link #invalidate()} forces a fresh login after a 401.
+ */
+@Slf4j
+@Service
+public class GlificAuthService {
+
+    private final RestTemplate restTemplate;
+    private final String sessionUrl;
+    private final String username;
+    private final String password;
+    private final ReentrantLock loginLock = new ReentrantLock();
+    private volatile Token token;
+
+    private record Token(String value, Instant expiresAt) {
+        boolean isValid() {
+            return Instant.now().isBefore(expiresAt);
+        }
+    }
+
+    public GlificAuthService(RestTemplate restTemplate,
+                             @Value("${glific.base-url}") String baseUrl,
+                             @Value("${glific.username:}") String username,
+                             @Value("${glific.password:}") String password) {
+        this.restTemplate = restTemplate;
+        this.sessionUrl = (baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl)
+                + "/api/v1/session";
+        this.username = username;
+        this.password = password;
+    }
+
+    public boolean isConfigured() {
+        return username != null && !username.isBlank() && password != null && !password.isBlank();
+    }
+
+    public String getAccessToken() {
+        Token current = token;
+        if (current != null && current.isValid()) {
+            return current.value();
+        }
+
+        loginLock.lock();
+        try {
+            current = token;
+            if (current == null || !current.isValid()) {
+                current = login();
+                token = current;
+            }
+            return current.value();
+        } finally {
+            loginLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the cached token, e.g. after Glific rejected it before its advertised expiry.
+     */
+    public void invalidate() {
+        token = null;
+    }
+
+    private Token login() {
+        Map<String, Object> payload = Map.of(
+                "user", Map.of(
+                        "phone", username,
+                        "password", password
+                )
+        );
+
+        try {
+            JsonNode response = restTemplate.postForObject(sessionUrl, payload, JsonNode.class);
+            JsonNode data = response.get("data");
+            Token obtained = new Token(
+                    data.get("access_token").asText(),
+                    Instant.parse(data.get("token_expiry_time").asText())
+            );
+            log.info("Obtained Glific access token for {}, expires at {}", username, obtained.expiresAt());
+            return obtained;
+        } catch (Exception e) {
+            log.error("Failed to login to Glific: {}", e.getMessage(), e);
+            throw new IllegalStateException("Glific login failed", e);
+        }
+    }
+}
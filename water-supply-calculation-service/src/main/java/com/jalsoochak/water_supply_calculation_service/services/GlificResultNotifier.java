@@ -0,0 +1,83 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalsoochak.water_supply_calculation_service.models.app.requests.GlificWebhookRequest;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.CreateReadingResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+
+/**
+ * Pushes the outcome of an asynchronously processed submission back to the operator by resuming
+ * the Glific flow that posted the webhook. Calls are authenticated through {@link GlificAuthService}; a 401 drops
+ * the cached session and the call is retried once with a fresh one.
+ */
+@Slf4j
+@Service
+public class GlificResultNotifier {
+
+    private static final String RESUME_FLOW_MUTATION = """
+            mutation resumeContactFlow($flowId: ID!, $contactId: ID!, $result: Json!) {
+              resumeContactFlow(flowId: $flowId, contactId: $contactId, result: $result) {
+                success
+                errors { key message }
+              }
+            }
+            """;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final GlificAuthService glificAuthService;
+    private final String graphqlUrl;
+
+    public GlificResultNotifier(RestTemplate restTemplate,
+                                ObjectMapper objectMapper,
+                                GlificAuthService glificAuthService,
+                                @Value("${glific.base-url}") String baseUrl) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.glificAuthService = glificAuthService;
+        this.graphqlUrl = (baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl) + "/api";
+    }
+
+    public void notifyResult(GlificWebhookRequest request, CreateReadingResponse response) {
+        if (request.getFlowId() == null || !glificAuthService.isConfigured()) {
+            log.warn("Cannot resume Glific flow for contactId={} (flowId or Glific login missing), result: {}",
+                    request.getContactId(), response);
+            return;
+        }
+
+        try {
+            Map<String, Object> variables = Map.of(
+                    "flowId", request.getFlowId(),
+                    "contactId", request.getContactId(),
+                    "result", objectMapper.writeValueAsString(Map.of("reading", response))
+            );
+            Map<String, Object> body = Map.of("query", RESUME_FLOW_MUTATION, "variables", variables);
+
+            try {
+                post(body);
+            } catch (HttpClientErrorException.Unauthorized e) {
+                glificAuthService.invalidate();
+                post(body);
+            }
+        } catch (Exception e) {
+            log.error("Failed to resume Glific flow for contactId {}: {}", request.getContactId(), e.getMessage(), e);
+        }
+    }
+
+    private void post(Map<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(HttpHeaders.AUTHORIZATION, glificAuthService.getAccessToken());
+
+        restTemplate.postForEntity(graphqlUrl, new HttpEntity<>(body, headers), String.class);
+    }
+}
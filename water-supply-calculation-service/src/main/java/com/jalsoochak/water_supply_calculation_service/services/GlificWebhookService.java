@@ -1,6 +1,7 @@
 package com.jalsoochak.water_supply_calculation_service.services;
 
 import com.jalsoochak.water_supply_calculation_service.exceptions.ApiException;
+import com.jalsoochak.water_supply_calculation_service.models.app.OperatorContext;
 import com.jalsoochak.water_supply_calculation_service.models.app.requests.ClosingRequest;
 import com.jalsoochak.water_supply_calculation_service.models.app.requests.CreateReadingRequest;
 import com.jalsoochak.water_supply_calculation_service.models.app.requests.GlificWebhookRequest;
@@ -8,50 +9,40 @@ import com.jalsoochak.water_supply_calculation_service.models.app.requests.Intro
 import com.jalsoochak.water_supply_calculation_service.models.app.responses.ClosingResponse;
 import com.jalsoochak.water_supply_calculation_service.models.app.responses.CreateReadingResponse;
 import com.jalsoochak.water_supply_calculation_service.models.app.responses.IntroResponse;
-import com.jalsoochak.water_supply_calculation_service.models.entities.MessageTemplate;
-import com.jalsoochak.water_supply_calculation_service.models.entities.PersonMaster;
-import com.jalsoochak.water_supply_calculation_service.models.entities.PersonSchemeMapping;
-import com.jalsoochak.water_supply_calculation_service.models.entities.StateAdminConfig;
-import com.jalsoochak.water_supply_calculation_service.repositories.MessageTemplateRepository;
-import com.jalsoochak.water_supply_calculation_service.repositories.PersonRepository;
-import com.jalsoochak.water_supply_calculation_service.repositories.PersonSchemeRepository;
-import com.jalsoochak.water_supply_calculation_service.repositories.StateAdminConfigRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 @Slf4j
 @Service
 public class GlificWebhookService {
 
     private final MinioService minioService;
-    private final PersonSchemeRepository personSchemeRepository;
     private final RestTemplate restTemplate;
-    private final PersonRepository personRepository;
+    private final OperatorContextResolver operatorContextResolver;
     private final BfmReadingService bfmReadingService;
-    private final StateAdminConfigRepository stateAdminConfigRepository;
-    private final MessageTemplateRepository messageTemplateRepository;
+    private final MessageTemplateEngine messageTemplateEngine;
 
     private static final String GLIFIC_API_TOKEN = "";
 
     public GlificWebhookService(MinioService minioService,
-                                PersonSchemeRepository personSchemeRepository,
-                                RestTemplate restTemplate, PersonRepository personRepository, BfmReadingService bfmReadingService, StateAdminConfigRepository stateAdminConfigRepository, MessageTemplateRepository messageTemplateRepository) {
+                                RestTemplate restTemplate, OperatorContextResolver operatorContextResolver,
+                                BfmReadingService bfmReadingService, MessageTemplateEngine messageTemplateEngine) {
         this.minioService = minioService;
-        this.personSchemeRepository = personSchemeRepository;
         this.restTemplate = restTemplate;
-        this.personRepository = personRepository;
+        this.operatorContextResolver = operatorContextResolver;
         this.bfmReadingService = bfmReadingService;
-        this.stateAdminConfigRepository = stateAdminConfigRepository;
-        this.messageTemplateRepository = messageTemplateRepository;
+        this.messageTemplateEngine = messageTemplateEngine;
     }
 
     public CreateReadingResponse processImage(GlificWebhookRequest glificWebhookRequest) {
@@ -65,108 +56,132 @@ public class GlificWebhookService {
 //                );
 //            }
             log.info("request in: {}", glificWebhookRequest);
-            String contactId = glificWebhookRequest.getContactId();
-            String mediaId = glificWebhookRequest.getMediaId();
-            String mediaUrl = glificWebhookRequest.getMediaUrl();
 
-            boolean hasImage = (mediaId != null && !mediaId.isBlank()) ||
-                    (mediaUrl != null && !mediaUrl.isBlank());
+            if (!hasImage(glificWebhookRequest)) {
+                return nonImageResponse(glificWebhookRequest);
+            }
 
-            if (!hasImage) {
-                log.info("Non-image content received from contactId={}", glificWebhookRequest.getContactId());
+            StoredImage storedImage = fetchAndStoreImage(glificWebhookRequest);
 
-                String message = getLocalizedMessage(
-                        glificWebhookRequest.getContactId(),
-                        "InvalidMediaMessage"
-                );
+            return createReadingFromImage(glificWebhookRequest, storedImage);
 
-                return CreateReadingResponse.builder()
-                        .success(false)
-                        .message(message)
-                        .qualityStatus("REJECTED")
-                        .correlationId(glificWebhookRequest.getContactId())
-                        .build();
-            }
+        } catch (Exception e) {
+            return errorResponse(glificWebhookRequest, e);
+        }
+    }
 
-            byte[] imageBytes;
+    public boolean hasImage(GlificWebhookRequest glificWebhookRequest) {
+        String mediaId = glificWebhookRequest.getMediaId();
+        String mediaUrl = glificWebhookRequest.getMediaUrl();
 
-            if (glificWebhookRequest.getMediaId() != null) {
-                imageBytes = downloadImageFromGlific(glificWebhookRequest.getMediaId());
-            } else if (glificWebhookRequest.getMediaUrl() != null) {
-                imageBytes = downloadImage(glificWebhookRequest.getMediaUrl());
-            } else {
-                throw new IllegalArgumentException("No mediaId or mediaUrl provided in webhook payload");
-            }
+        return (mediaId != null && !mediaId.isBlank()) ||
+                (mediaUrl != null && !mediaUrl.isBlank());
+    }
 
-            log.info("Downloaded image size={} bytes", imageBytes.length);
-            if (imageBytes == null) {
-                throw new IOException("Downloaded image is null");
-            }
+    public CreateReadingResponse nonImageResponse(GlificWebhookRequest glificWebhookRequest) {
+        log.info("Non-image content received from contactId={}", glificWebhookRequest.getContactId());
 
-            String s3Key = "bfm/" + glificWebhookRequest.getContactId() + "/" + System.currentTimeMillis() + ".jpg";
-            log.info("s3key: {}", s3Key);
-            String imageUrl = minioService.upload(imageBytes, s3Key);
-            log.info("imageurl: {}", imageUrl);
-
-            PersonMaster operator = personRepository
-                    .findByPhoneNumber(glificWebhookRequest.getContactId())
-                    .orElseThrow(() ->
-                            new IllegalStateException("No operator found for contactId " + glificWebhookRequest.getContactId())
-                    );
-
-            PersonSchemeMapping mapping = personSchemeRepository
-                    .findFirstByPerson_Id(operator.getId())
-                    .orElseThrow(() ->
-                            new IllegalStateException("Operator is not mapped to any scheme")
-                    );
-
-            Long schemeId = mapping.getScheme().getId();
-
-            CreateReadingRequest createReadingRequest = CreateReadingRequest.builder()
-                    .schemeId(schemeId)
-                    .operatorId(operator.getId())
-                    .readingUrl(imageUrl)
-                    .readingValue(null)
-                    .readingTime(null)
-                    .build();
+        String message = getLocalizedMessage(
+                glificWebhookRequest.getContactId(),
+                "InvalidMediaMessage"
+        );
 
-            return bfmReadingService.createReading(createReadingRequest, operator, contactId);
+        return CreateReadingResponse.builder()
+                .success(false)
+                .message(message)
+                .qualityStatus("REJECTED")
+                .correlationId(glificWebhookRequest.getContactId())
+                .build();
+    }
 
-        } catch (ApiException ae) {
-            log.warn("User error for contactId {}: {}", glificWebhookRequest.getContactId(), ae.getMessage());
-            return CreateReadingResponse.builder()
-                    .success(false)
-                    .message(ae.getMessage())
-                    .qualityStatus("REJECTED")
-                    .correlationId(glificWebhookRequest.getContactId())
-                    .build();
-        } catch (Exception e) {
-            log.error("Unexpected error processing image for contactId {}: {}", glificWebhookRequest.getContactId(), e.getMessage(), e);
-            String fallbackMessage = "Something went wrong. Please try again."; // default fallback
+    /**
+     * An image stored in MinIO together with the SHA-256 of its bytes.
+     */
+    public record StoredImage(String imageUrl, String sha256) {
+    }
+
+    /**
+     * Streams the submitted photo from Glific straight into MinIO without buffering it on the heap,
+     * hashing the bytes on the way through.
+     */
+    public StoredImage fetchAndStoreImage(GlificWebhookRequest glificWebhookRequest) throws IOException {
+        String s3Key = "bfm/" + glificWebhookRequest.getContactId() + "/" + System.currentTimeMillis() + ".jpg";
+        log.info("s3key: {}", s3Key);
+
+        StoredImage storedImage;
+        if (glificWebhookRequest.getMediaId() != null) {
+            storedImage = relayImageFromGlific(glificWebhookRequest.getMediaId(), s3Key);
+        } else if (glificWebhookRequest.getMediaUrl() != null) {
+            storedImage = relayImage(glificWebhookRequest.getMediaUrl(), s3Key);
+        } else {
+            throw new IllegalArgumentException("No mediaId or mediaUrl provided in webhook payload");
+        }
+
+        log.info("imageurl: {}, sha256: {}", storedImage.imageUrl(), storedImage.sha256());
+        return storedImage;
+    }
+
+    /**
+     * Resolves the operator behind the contact and records a reading for an already stored image.
+     */
+    public CreateReadingResponse createReadingFromImage(GlificWebhookRequest glificWebhookRequest, StoredImage storedImage) {
+        String contactId = glificWebhookRequest.getContactId();
+
+        OperatorContext operator = operatorContextResolver
+                .resolve(contactId)
+                .orElseThrow(() ->
+                        new IllegalStateException("No operator mapped to a scheme found for contactId " + contactId)
+                );
+
+        CreateReadingRequest createReadingRequest = CreateReadingRequest.builder()
+                .schemeId(operator.getSchemeId())
+                .operatorId(operator.getPersonId())
+                .readingUrl(storedImage.imageUrl())
+                .imageHash(storedImage.sha256())
+                .readingValue(null)
+                .readingTime(null)
+                .build();
+
+        return bfmReadingService.createReading(createReadingRequest, operator);
+    }
+
+    public CreateReadingResponse errorResponse(GlificWebhookRequest glificWebhookRequest, Exception e) {
+        if (e instanceof ApiException) {
+            log.warn("User error for contactId {}: {}", glificWebhookRequest.getContactId(), e.getMessage());
             return CreateReadingResponse.builder()
                     .success(false)
-                    .message(fallbackMessage)
+                    .message(e.getMessage())
                     .qualityStatus("REJECTED")
                     .correlationId(glificWebhookRequest.getContactId())
                     .build();
         }
+        log.error("Unexpected error processing image for contactId {}: {}", glificWebhookRequest.getContactId(), e.getMessage(), e);
+        String fallbackMessage = "Something went wrong. Please try again."; // default fallback
+        return CreateReadingResponse.builder()
+                .success(false)
+                .message(fallbackMessage)
+                .qualityStatus("REJECTED")
+                .correlationId(glificWebhookRequest.getContactId())
+                .build();
+    }
+
+    /**
+     * Returns the localized acknowledgement sent when a submission is accepted for asynchronous processing,
+     * falling back to a plain English text when the tenant has no template for it.
+     */
+    public String submissionReceivedMessage(String contactId) {
+        try {
+            return getLocalizedMessage(contactId, "SubmissionReceivedMessage");
+        } catch (ApiException e) {
+            return "Your reading has been received and is being processed.";
+        }
     }
 
     public IntroResponse introMessage(IntroRequest introRequest) {
         log.info("intro request received: {}", introRequest.getContactId());
         try {
-            StateAdminConfig config = stateAdminConfigRepository.findByPhoneNumber(introRequest.getContactId())
-                    .orElseThrow(() -> new ApiException(
-                            "Config not found for user with phone number: " + introRequest.getContactId(),
-                            HttpStatus.NOT_FOUND));
-
-            String languageCode = config.getLanguageCode();
-            MessageTemplate messageTemplate = messageTemplateRepository.findByFlowNameAndLanguageCode("IntroMessage", languageCode)
-                    .orElseThrow(() -> new ApiException(
-                            "Message template not found for flow type and language code: " + languageCode,
-                            HttpStatus.NOT_FOUND));
-
-            String formattedMessage = formatTemplate(messageTemplate.getTemplateText());
+            String formattedMessage = messageTemplateEngine.render(
+                    tenantOf(introRequest.getContactId()), introRequest.getContactId(), "IntroMessage");
 
             return IntroResponse.builder()
                     .success(true)
@@ -185,18 +200,8 @@ public class GlificWebhookService {
     public ClosingResponse closingMessage(ClosingRequest closingRequest) {
         log.info("closing request received: {}", closingRequest.getContactId());
         try {
-            StateAdminConfig config = stateAdminConfigRepository.findByPhoneNumber(closingRequest.getContactId())
-                    .orElseThrow(() -> new ApiException(
-                            "Config not found for user with phone number: " + closingRequest.getContactId(),
-                            HttpStatus.NOT_FOUND));
-
-            String languageCode = config.getLanguageCode();
-            MessageTemplate messageTemplate = messageTemplateRepository.findByFlowNameAndLanguageCode("ThankYouMessage", languageCode)
-                    .orElseThrow(() -> new ApiException(
-                            "Message template not found for flow type and language code: " + languageCode,
-                            HttpStatus.NOT_FOUND));
-
-            String formattedMessage = formatTemplate(messageTemplate.getTemplateText());
+            String formattedMessage = messageTemplateEngine.render(
+                    tenantOf(closingRequest.getContactId()), closingRequest.getContactId(), "ThankYouMessage");
 
             return ClosingResponse.builder()
                     .success(true)
@@ -213,83 +218,76 @@ public class GlificWebhookService {
     }
 
 
-    private String formatTemplate(String templateText) {
-        if (templateText == null || templateText.isBlank()) {
-            return "";
-        }
-        return templateText
-                .trim()
-                .replace("\\n", "\n")
-                .replaceAll("\n{3,}", "\n\n");
+    private String getLocalizedMessage(String contactId, String flowName) {
+        return messageTemplateEngine.render(tenantOf(contactId), contactId, flowName);
     }
 
-
-    private String getLocalizedMessage(String contactId, String flowName) {
-        StateAdminConfig config = stateAdminConfigRepository
-                .findByPhoneNumber(contactId)
-                .orElseThrow(() -> new ApiException(
-                        "config not found for user with phone number: " + contactId,
-                        HttpStatus.NOT_FOUND
-                ));
-
-        MessageTemplate template = messageTemplateRepository
-                .findByFlowNameAndLanguageCode(flowName, config.getLanguageCode())
-                .orElseThrow(() -> new ApiException(
-                        "Message template not found for flow " + flowName,
-                        HttpStatus.NOT_FOUND
-                ));
-
-        return formatTemplate(template.getTemplateText());
+    /**
+     * The tenant of the operator behind the contact, or {@code null} for a number that is not mapped yet.
+     */
+    private String tenantOf(String contactId) {
+        return operatorContextResolver.resolve(contactId)
+                .map(OperatorContext::getTenantId)
+                .orElse(null);
     }
 
-    private byte[] downloadImageFromGlific(String mediaId) throws IOException {
+    private static MessageDigest newSha256() {
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(GLIFIC_API_TOKEN);
-            headers.set(HttpHeaders.USER_AGENT, "WaterSupplyBot/1.0");
-
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 
-            ResponseEntity<byte[]> response = restTemplate.exchange(
-                    "https://api.glific.org/v1/media/" + mediaId,
-                    HttpMethod.GET,
-                    entity,
-                    byte[].class
-            );
+    private StoredImage relayImageFromGlific(String mediaId, String objectName) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(GLIFIC_API_TOKEN);
+        headers.set(HttpHeaders.USER_AGENT, "WaterSupplyBot/1.0");
 
-            if (response.getStatusCode() != HttpStatus.OK) {
-                throw new IOException("Failed to download image from Glific, status: " + response.getStatusCode());
-            }
+        return relay("https://api.glific.org/v1/media/" + mediaId, headers, objectName, "from Glific");
+    }
 
-            return response.getBody();
+    private StoredImage relayImage(String url, String objectName) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.USER_AGENT, "WaterSupplyBot/1.0");
 
-        } catch (RestClientException e) {
-            throw new IOException("Failed to download image from Glific: " + e.getMessage(), e);
-        }
+        return relay(url, headers, objectName, "");
     }
 
-    private byte[] downloadImage(String url) throws IOException {
+    /**
+     * Pipes the HTTP response body into MinIO as it arrives; only the MinIO part buffer and the content-type
+     * peek buffer are held in memory, regardless of image size.
+     */
+    private StoredImage relay(String url, HttpHeaders headers, String objectName, String source) throws IOException {
+        String suffix = source.isEmpty() ? "" : " " + source;
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.set(HttpHeaders.USER_AGENT, "WaterSupplyBot/1.0");
-
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<byte[]> response = restTemplate.exchange(
+            return restTemplate.execute(
                     url,
                     HttpMethod.GET,
-                    entity,
-                    byte[].class
+                    request -> request.getHeaders().addAll(headers),
+                    response -> {
+                        if (response.getStatusCode() != HttpStatus.OK) {
+                            throw new IOException("Failed to download image" + suffix + ", status: " + response.getStatusCode());
+                        }
+
+                        long contentLength = response.getHeaders().getContentLength();
+                        if (contentLength == 0) {
+                            throw new IOException("Downloaded image is empty");
+                        }
+                        log.info("Streaming image size={} bytes", contentLength);
+
+                        MessageDigest digest = newSha256();
+                        String imageUrl = minioService.upload(
+                                new DigestInputStream(response.getBody(), digest),
+                                contentLength,
+                                objectName
+                        );
+                        return new StoredImage(imageUrl, HexFormat.of().formatHex(digest.digest()));
+                    }
             );
 
-            if (response.getStatusCode() != HttpStatus.OK) {
-                throw new IOException("Failed to download image, status: " + response.getStatusCode());
-            }
-
-            return response.getBody();
-
         } catch (RestClientException e) {
-            throw new IOException("Failed to download image: " + e.getMessage(), e);
+            throw new IOException("Failed to download image" + suffix + ": " + e.getMessage(), e);
         }
     }
 
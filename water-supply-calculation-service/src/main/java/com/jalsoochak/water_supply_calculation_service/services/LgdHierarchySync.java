@@ -0,0 +1,74 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps {@code lgd_location_master.parent_lgd_location_id} (and a village's missing
+ * {@code parent_lgd_location_id}) in line with {@code scheme_officers_locations_mv}, the only place that records
+ * which GP, block, district and state a village lies in. A level the view leaves empty is skipped, so a GP
+ * directly under a district gets the district as its parent.
+ * <p>
+ * The V10 migration runs the same statements once as the backfill; the geo-summary rebuild runs them nightly
+ * before reloading the hierarchy.
+ */
+@Slf4j
+@Service
+public class LgdHierarchySync {
+
+    static final String VIEW = "scheme_officers_locations_mv";
+
+    static final String LGD_PARENTS_SQL = """
+            UPDATE lgd_location_master l
+            SET parent_lgd_location_id = p.parent_id
+            FROM (
+                SELECT DISTINCT panchayat_id AS id, COALESCE(block_id, district_id, state_id) AS parent_id
+                FROM scheme_officers_locations_mv WHERE panchayat_id IS NOT NULL
+                UNION
+                SELECT DISTINCT block_id, COALESCE(district_id, state_id)
+                FROM scheme_officers_locations_mv WHERE block_id IS NOT NULL
+                UNION
+                SELECT DISTINCT district_id, state_id
+                FROM scheme_officers_locations_mv WHERE district_id IS NOT NULL
+            ) p
+            WHERE l.id = p.id AND p.parent_id IS NOT NULL AND p.parent_id <> p.id
+              AND l.parent_lgd_location_id IS DISTINCT FROM p.parent_id
+            """;
+
+    static final String VILLAGE_PARENTS_SQL = """
+            UPDATE village_master v
+            SET parent_lgd_location_id = p.parent_id
+            FROM (
+                SELECT DISTINCT village_id AS id, COALESCE(panchayat_id, block_id, district_id, state_id) AS parent_id
+                FROM scheme_officers_locations_mv WHERE village_id IS NOT NULL
+            ) p
+            WHERE v.id = p.id AND p.parent_id IS NOT NULL AND v.parent_lgd_location_id IS NULL
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LgdHierarchySync(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return the number of LGD locations and villages whose parent was set or changed
+     */
+    @Transactional
+    public int syncParents() {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, VIEW);
+        if (!Boolean.TRUE.equals(exists)) {
+            log.warn("{} not found; LGD parents are not synced", VIEW);
+            return 0;
+        }
+
+        int locations = jdbcTemplate.update(LGD_PARENTS_SQL);
+        int villages = jdbcTemplate.update(VILLAGE_PARENTS_SQL);
+        if (locations + villages > 0) {
+            log.info("Synced LGD parents: {} locations, {} villages", locations, villages);
+        }
+        return locations + villages;
+    }
+}
@@ -0,0 +1,43 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.MessageTemplate;
+import com.jalsoochak.water_supply_calculation_service.models.entities.StateAdminConfig;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on {@link MessageTemplate} and {@link StateAdminConfig} that drops the affected
+ * {@link MessageTemplateEngine} and {@link OperatorContextResolver} cache entries when either changes.
+ */
+@Component
+public class MessageTemplateCacheListener {
+
+    private final ObjectProvider<MessageTemplateEngine> messageTemplateEngine;
+    private final ObjectProvider<OperatorContextResolver> operatorContextResolver;
+
+    public MessageTemplateCacheListener(ObjectProvider<MessageTemplateEngine> messageTemplateEngine,
+                                        ObjectProvider<OperatorContextResolver> operatorContextResolver) {
+        this.messageTemplateEngine = messageTemplateEngine;
+        this.operatorContextResolver = operatorContextResolver;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        MessageTemplateEngine engine = messageTemplateEngine.getIfAvailable();
+        if (engine == null) {
+            return;
+        }
+
+        if (entity instanceof MessageTemplate) {
+            engine.invalidateTemplates();
+        } else if (entity instanceof StateAdminConfig config) {
+            engine.invalidateLanguage(config.getPhoneNumber());
+            operatorContextResolver.ifAvailable(resolver -> resolver.invalidate(config.getPhoneNumber()));
+        }
+    }
+}
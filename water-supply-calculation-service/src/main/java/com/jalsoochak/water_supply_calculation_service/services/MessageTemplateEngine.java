@@ -0,0 +1,251 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jalsoochak.water_supply_calculation_service.exceptions.ApiException;
+import com.jalsoochak.water_supply_calculation_service.models.app.OperatorContext;
+import com.jalsoochak.water_supply_calculation_service.models.entities.MessageTemplate;
+import com.jalsoochak.water_supply_calculation_service.models.entities.StateAdminConfig;
+import com.jalsoochak.water_supply_calculation_service.repositories.MessageTemplateRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.StateAdminConfigRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Renders WhatsApp reply templates from an in-memory cache of pre-parsed templates, keyed by
+ * (tenant, flowName, languageCode), plus a cache of the contact's language. In steady state a reply costs no
+ * database reads and placeholder substitution is a single pass over the pre-split segments.
+ * <p>
+ * Entries expire after {@code message-template.cache.ttl} so edits made directly in the database are picked
+ * up; changes made through JPA invalidate the caches immediately (see {@link MessageTemplateCacheListener}).
+ * Misses are cached too, as empty entries, so an unknown contact or a flow without a template does not hit the
+ * database on every message.
+ * <p>
+ * Templates are looked up for the operator's tenant. The only fallback is the global default set, stored under
+ * {@code message-template.default-tenant-id} ({@value #GLOBAL_TENANT_ID} when not configured); a template
+ * belonging to another tenant is never used. Contacts not mapped to a tenant always get the global set.
+ */
+@Slf4j
+@Service
+public class MessageTemplateEngine {
+
+    static final String GLOBAL_TENANT_ID = "GLOBAL";
+
+    private record TemplateKey(String tenantId, String flowName, String languageCode) {
+    }
+
+    /**
+     * A template split into literal text and {@code {placeholder}} segments. Segments at odd indexes are
+     * placeholder names.
+     */
+    static final class CompiledTemplate {
+        private final String[] segments;
+        private final int literalLength;
+
+        private CompiledTemplate(List<String> segments) {
+            this.segments = segments.toArray(new String[0]);
+            int length = 0;
+            for (int i = 0; i < this.segments.length; i += 2) {
+                length += this.segments[i].length();
+            }
+            this.literalLength = length;
+        }
+
+        String render(Map<String, String> values) {
+            if (segments.length == 1) {
+                return segments[0];
+            }
+
+            StringBuilder out = new StringBuilder(literalLength + 16 * (segments.length / 2));
+            for (int i = 0; i < segments.length; i++) {
+                if (i % 2 == 0) {
+                    out.append(segments[i]);
+                } else {
+                    String value = values.get(segments[i]);
+                    out.append(value != null ? value : "{" + segments[i] + "}");
+                }
+            }
+            return out.toString();
+        }
+    }
+
+    private final MessageTemplateRepository messageTemplateRepository;
+    private final StateAdminConfigRepository stateAdminConfigRepository;
+    private final String defaultTenantId;
+    private final Cache<TemplateKey, Optional<CompiledTemplate>> templates;
+    private final Cache<String, Optional<String>> languageCodes;
+
+    public MessageTemplateEngine(MessageTemplateRepository messageTemplateRepository,
+                                 StateAdminConfigRepository stateAdminConfigRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${message-template.cache.max-size:10000}") long maxSize,
+                                 @Value("${message-template.cache.ttl:10m}") Duration ttl,
+                                 @Value("${message-template.default-tenant-id:" + GLOBAL_TENANT_ID + "}") String defaultTenantId) {
+        this.messageTemplateRepository = messageTemplateRepository;
+        this.stateAdminConfigRepository = stateAdminConfigRepository;
+        this.defaultTenantId = defaultTenantId == null || defaultTenantId.isBlank() ? GLOBAL_TENANT_ID : defaultTenantId;
+        this.templates = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.languageCodes = Caffeine.newBuilder()
+                .maximumSize(maxSize * 10)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, templates, "messageTemplate");
+        CaffeineCacheMetrics.monitor(meterRegistry, languageCodes, "contactLanguage");
+    }
+
+    public String render(String tenantId, String contactId, String flowName) {
+        return render(tenantId, contactId, flowName, Collections.emptyMap());
+    }
+
+    /**
+     * Renders the {@code flowName} template in the contact's configured language.
+     *
+     * @param tenantId the operator's tenant, or {@code null} when the contact is not mapped to one; only the
+     *                 global default templates are used then
+     * @throws ApiException when the contact has no language config or no template exists for the flow
+     */
+    public String render(String tenantId, String contactId, String flowName, Map<String, String> values) {
+        String languageCode = languageCodes.get(contactId, this::loadLanguageCode)
+                .orElseThrow(() -> new ApiException(
+                        "config not found for user with phone number: " + contactId,
+                        HttpStatus.NOT_FOUND
+                ));
+
+        return renderInLanguage(tenantId, languageCode, flowName, values);
+    }
+
+    /**
+     * Renders the {@code flowName} template using the language already resolved with the operator's context,
+     * skipping the contact language lookup.
+     */
+    public String render(OperatorContext operator, String flowName, Map<String, String> values) {
+        if (operator.getLanguageCode() == null) {
+            return render(operator.getTenantId(), operator.getPhoneNumber(), flowName, values);
+        }
+        return renderInLanguage(operator.getTenantId(), operator.getLanguageCode(), flowName, values);
+    }
+
+    private String renderInLanguage(String tenantId, String languageCode, String flowName, Map<String, String> values) {
+        CompiledTemplate template = templates.get(new TemplateKey(tenantId, flowName, languageCode), this::loadTemplate)
+                .orElseThrow(() -> new ApiException(
+                        "Message template not found for flow " + flowName + " and language " + languageCode,
+                        HttpStatus.NOT_FOUND
+                ));
+
+        return template.render(values);
+    }
+
+    public void invalidateTemplates() {
+        templates.invalidateAll();
+    }
+
+    public void invalidateLanguage(String phoneNumber) {
+        if (phoneNumber == null) {
+            languageCodes.invalidateAll();
+        } else {
+            languageCodes.invalidate(phoneNumber);
+        }
+    }
+
+    private Optional<String> loadLanguageCode(String contactId) {
+        return stateAdminConfigRepository.findByPhoneNumber(contactId)
+                .map(StateAdminConfig::getLanguageCode);
+    }
+
+    private Optional<CompiledTemplate> loadTemplate(TemplateKey key) {
+        Optional<MessageTemplate> template = key.tenantId() != null
+                ? messageTemplateRepository.findByTenantIdAndFlowNameAndLanguageCode(
+                        key.tenantId(), key.flowName(), key.languageCode())
+                : Optional.empty();
+
+        if (template.isEmpty() && !defaultTenantId.equals(key.tenantId())) {
+            template = messageTemplateRepository.findByTenantIdAndFlowNameAndLanguageCode(
+                    defaultTenantId, key.flowName(), key.languageCode());
+        }
+
+        return template.map(t -> compile(t.getTemplateText()));
+    }
+
+    static CompiledTemplate compile(String templateText) {
+        String text = normalize(templateText);
+        List<String> segments = new ArrayList<>();
+
+        int literalStart = 0;
+        int open = text.indexOf('{');
+        while (open >= 0) {
+            int close = text.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+
+            String name = text.substring(open + 1, close);
+            if (isPlaceholderName(name)) {
+                segments.add(text.substring(literalStart, open));
+                segments.add(name);
+                literalStart = close + 1;
+                open = text.indexOf('{', literalStart);
+            } else {
+                open = text.indexOf('{', open + 1);
+            }
+        }
+        segments.add(text.substring(literalStart));
+
+        return new CompiledTemplate(segments);
+    }
+
+    /**
+     * Trims the text, turns escaped {@code \n} into newlines and collapses runs of three or more newlines
+     * into a blank line.
+     */
+    private static String normalize(String templateText) {
+        if (templateText == null || templateText.isBlank()) {
+            return "";
+        }
+
+        String text = templateText.trim().replace("\\n", "\n");
+        StringBuilder out = new StringBuilder(text.length());
+        int newlines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                newlines++;
+                if (newlines <= 2) {
+                    out.append(c);
+                }
+            } else {
+                newlines = 0;
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isPlaceholderName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
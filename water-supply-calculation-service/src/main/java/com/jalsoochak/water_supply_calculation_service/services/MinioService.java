@@ -5,6 +5,7 @@ import io.minio.PutObjectArgs;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URI;
@@ -14,17 +15,25 @@ import java.net.URLConnection;
 @Service
 public class MinioService {
 
+    /**
+     * Enough to sniff the content type from the magic bytes without reading the image into memory.
+     */
+    private static final int SNIFF_BUFFER_SIZE = 8192;
+
     private final MinioClient minioClient;
     private final String bucket;
     private final String endpoint;
+    private final long partSize;
 
     public MinioService(@Value("${minio.endpoint}") String endpoint,
                         @Value("${minio.access-key}") String accessKey,
                         @Value("${minio.secret-key}") String secretKey,
-                        @Value("${minio.bucket}") String bucket) {
+                        @Value("${minio.bucket}") String bucket,
+                        @Value("${minio.part-size:5242880}") long partSize) {
 
         this.bucket = bucket;
         this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.partSize = partSize;
 
         this.minioClient = MinioClient.builder()
                 .endpoint(this.endpoint)
@@ -33,21 +42,29 @@ public class MinioService {
     }
 
     public String upload(byte[] file, String objectName) {
-        try (InputStream inputStream = new ByteArrayInputStream(file)) {
+        return upload(new ByteArrayInputStream(file), file.length, objectName);
+    }
+
+    /**
+     * Streams an object into MinIO.
+     *
+     * @param stream     the object content; it is consumed and closed
+     * @param objectSize the content length as sent by the upstream server, or {@code -1} when it sent none, in
+     *                   which case a multipart upload with {@code minio.part-size} parts is used
+     */
+    public String upload(InputStream stream, long objectSize, String objectName) {
+        try (InputStream inputStream = new BufferedInputStream(stream, SNIFF_BUFFER_SIZE)) {
 
             String contentType = URLConnection.guessContentTypeFromStream(inputStream);
             if (contentType == null) {
                 contentType = "application/octet-stream";
             }
 
-
-            inputStream.reset();
-
             minioClient.putObject(
                     PutObjectArgs.builder()
                             .bucket(bucket)
                             .object(objectName)
-                            .stream(inputStream, file.length, -1)
+                            .stream(inputStream, objectSize, objectSize < 0 ? partSize : -1)
                             .contentType(contentType)
                             .build()
             );
@@ -0,0 +1,137 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import com.jalsoochak.water_supply_calculation_service.models.entities.JobWatermark;
+import com.jalsoochak.water_supply_calculation_service.models.enums.OcrStatus;
+import com.jalsoochak.water_supply_calculation_service.repositories.BfmReadingRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.JobWatermarkRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Database side of the deferred OCR reconciliation: keyset reads of readings still missing an OCR value,
+ * and a single transaction per batch that writes the results and moves the job's watermark. A reading that gets
+ * a value goes through the same hooks as one read synchronously (latest reading, daily supply, anomalies).
+ * <p>
+ * A reading FlowVision answered for without a value stays {@code PENDING} until it has had
+ * {@code maxAttempts} answers, and only then becomes {@code FAILED}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OcrReconciliationService {
+
+    public static final String JOB_NAME = "ocr-reconciliation";
+
+    /**
+     * Outcome of re-running OCR on one reading. {@code extractedReading} is {@code null} when FlowVision
+     * answered but could not read the meter, or rejected the image.
+     */
+    public record ReconciledReading(BfmReading reading, BigDecimal extractedReading, BigDecimal qualityConfidence) {
+
+        /**
+         * Whether the reading still needs OCR once this outcome is written.
+         */
+        public boolean remainsPending(int maxAttempts) {
+            return extractedReading == null && reading.getOcrAttempts() + 1 < maxAttempts;
+        }
+    }
+
+    private static final String UPDATE_SQL = """
+            UPDATE bfm_reading
+            SET extracted_reading = ?,
+                confirmed_reading = COALESCE(confirmed_reading, ?),
+                quality_confidence = COALESCE(quality_confidence, ?),
+                ocr_status = ?,
+                ocr_attempts = ?
+            WHERE id = ? AND reading_date_time = ? AND extracted_reading IS NULL
+            """;
+
+    private final BfmReadingRepository bfmReadingRepository;
+    private final JobWatermarkRepository jobWatermarkRepository;
+    private final SchemeLatestReadingIndex schemeLatestReadingIndex;
+    private final DailySupplyRollup dailySupplyRollup;
+    private final AnomalyDetector anomalyDetector;
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Readings older than this are left alone, which keeps the scan on the latest partitions. */
+    @Value("${ocr.reconciliation.lookback:30d}")
+    private Duration lookback;
+
+    @Transactional(readOnly = true)
+    public long loadWatermark() {
+        return jobWatermarkRepository.findById(JOB_NAME)
+                .map(JobWatermark::getLastId)
+                .orElse(0L);
+    }
+
+    @Transactional(readOnly = true)
+    public List<BfmReading> nextBatch(long afterId, int maxAttempts, int batchSize) {
+        return bfmReadingRepository.findByIdGreaterThanAndReadingDateTimeGreaterThanEqualAndReadingUrlIsNotNullAndExtractedReadingIsNullAndOcrAttemptsLessThanOrderByIdAsc(
+                afterId,
+                LocalDateTime.now().minus(lookback),
+                maxAttempts,
+                PageRequest.of(0, batchSize)
+        );
+    }
+
+    /**
+     * Writes all results with one JDBC batch and stores the new watermark in the same transaction, so a
+     * crash never skips readings. Rows confirmed manually in the meantime keep their confirmed value.
+     */
+    @Transactional
+    public void apply(List<ReconciledReading> results, long watermark, int maxAttempts) {
+        if (!results.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, results, results.size(), (ps, result) -> {
+                ps.setObject(1, result.extractedReading(), Types.NUMERIC);
+                ps.setObject(2, result.extractedReading(), Types.NUMERIC);
+                ps.setObject(3, result.qualityConfidence(), Types.NUMERIC);
+                ps.setString(4, result.extractedReading() != null
+                        ? OcrStatus.COMPLETED.name()
+                        : result.remainsPending(maxAttempts) ? OcrStatus.PENDING.name() : OcrStatus.FAILED.name());
+                ps.setInt(5, result.reading().getOcrAttempts() + 1);
+                ps.setLong(6, result.reading().getId());
+                ps.setTimestamp(7, Timestamp.valueOf(result.reading().getReadingDateTime()));
+            });
+
+            for (ReconciledReading result : results) {
+                BfmReading reading = result.reading();
+                if (result.extractedReading() != null && reading.getConfirmedReading() == null) {
+                    schemeLatestReadingIndex.record(
+                            reading.getScheme().getId(),
+                            reading.getTenantId(),
+                            reading.getId(),
+                            result.extractedReading(),
+                            result.qualityConfidence(),
+                            reading.getReadingDateTime()
+                    );
+                    dailySupplyRollup.onReadingChanged(
+                            reading.getScheme().getId(),
+                            reading.getTenantId(),
+                            reading.getId(),
+                            reading.getReadingDateTime()
+                    );
+                    anomalyDetector.onReading(reading);
+                }
+            }
+        }
+
+        jobWatermarkRepository.save(JobWatermark.builder()
+                .jobName(JOB_NAME)
+                .lastId(watermark)
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -0,0 +1,87 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResult;
+import com.jalsoochak.water_supply_calculation_service.repositories.OcrResultCacheRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * OCR results keyed by the SHA-256 of the image bytes. A bounded in-memory cache sits in front of the
+ * {@code ocr_result_cache} table, so a resent photo never reaches FlowVision again, even after a restart.
+ * Only successful extractions are cached; failures are retried on the next submission.
+ */
+@Slf4j
+@Service
+public class OcrResultCache {
+
+    private final OcrResultCacheRepository ocrResultCacheRepository;
+    private final Cache<String, FlowVisionResult> cache;
+
+    public OcrResultCache(OcrResultCacheRepository ocrResultCacheRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${ocr.cache.max-size:100000}") long maxSize,
+                          @Value("${ocr.cache.ttl:7d}") Duration ttl) {
+        this.ocrResultCacheRepository = ocrResultCacheRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ocrResult");
+    }
+
+    /**
+     * @return the earlier OCR result for an identical image, with a fresh correlation id
+     */
+    public Optional<FlowVisionResult> find(String imageHash) {
+        if (imageHash == null) {
+            return Optional.empty();
+        }
+
+        FlowVisionResult result = cache.getIfPresent(imageHash);
+        if (result == null) {
+            result = ocrResultCacheRepository.findById(imageHash)
+                    .map(entry -> FlowVisionResult.builder()
+                            .adjustedReading(entry.getAdjustedReading())
+                            .qualityStatus(entry.getQualityStatus())
+                            .qualityConfidence(entry.getQualityConfidence())
+                            .build())
+                    .orElse(null);
+            if (result == null) {
+                return Optional.empty();
+            }
+            cache.put(imageHash, result);
+        }
+
+        log.info("OCR cache hit for image hash {}", imageHash);
+        return Optional.of(FlowVisionResult.builder()
+                .adjustedReading(result.getAdjustedReading())
+                .qualityStatus(result.getQualityStatus())
+                .qualityConfidence(result.getQualityConfidence())
+                .correlationId(UUID.randomUUID().toString())
+                .build());
+    }
+
+    public void put(String imageHash, FlowVisionResult result) {
+        if (imageHash == null || result == null || result.getAdjustedReading() == null) {
+            return;
+        }
+
+        cache.put(imageHash, result);
+        ocrResultCacheRepository.insertIfAbsent(
+                imageHash,
+                result.getAdjustedReading(),
+                result.getQualityStatus(),
+                result.getQualityConfidence()
+        );
+    }
+}
@@ -0,0 +1,70 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jalsoochak.water_supply_calculation_service.models.app.OperatorContext;
+import com.jalsoochak.water_supply_calculation_service.repositories.PersonSchemeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Resolves the {@link OperatorContext} for a WhatsApp contact with one query and keeps it in a bounded cache
+ * keyed by phone number. Unknown numbers are not cached, so an operator onboarded a moment ago is found on
+ * their next message.
+ * <p>
+ * Entries expire after {@code operator-context.cache.ttl}; ManagementService publishes mapping changes so the
+ * affected numbers are evicted straight away (see
+ * {@link com.jalsoochak.water_supply_calculation_service.kafka.consumers.OperatorMappingConsumer}).
+ */
+@Slf4j
+@Service
+public class OperatorContextResolver {
+
+    private final PersonSchemeRepository personSchemeRepository;
+    private final Cache<String, OperatorContext> contexts;
+
+    public OperatorContextResolver(PersonSchemeRepository personSchemeRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${operator-context.cache.max-size:100000}") long maxSize,
+                                   @Value("${operator-context.cache.ttl:10m}") Duration ttl) {
+        this.personSchemeRepository = personSchemeRepository;
+        this.contexts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, contexts, "operatorContext");
+    }
+
+    public Optional<OperatorContext> resolve(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.isBlank()) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(contexts.get(phoneNumber,
+                key -> personSchemeRepository.findOperatorContext(key).orElse(null)));
+    }
+
+    public void invalidate(Collection<String> phoneNumbers) {
+        if (phoneNumbers == null) {
+            contexts.invalidateAll();
+            return;
+        }
+
+        contexts.invalidateAll(phoneNumbers);
+        log.debug("Evicted operator context for {} phone numbers", phoneNumbers.size());
+    }
+
+    public void invalidate(String phoneNumber) {
+        if (phoneNumber != null) {
+            contexts.invalidate(phoneNumber);
+        }
+    }
+}
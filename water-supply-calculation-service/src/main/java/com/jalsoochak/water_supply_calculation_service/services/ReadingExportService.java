@@ -0,0 +1,325 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Types;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BOOLEAN;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+
+/**
+ * Streams a tenant's readings for a date range as CSV (optionally gzipped) or Parquet.
+ * <p>
+ * Rows come from a forward-only cursor ({@code export.readings.fetch-size} rows per round trip, inside a
+ * read-only transaction so the Postgres driver actually uses a cursor) and are written straight to the response,
+ * so memory use does not depend on the size of the range. The query reads {@code bfm_reading} alone, bounded on
+ * {@code reading_date_time}, so only the partitions of the requested months are scanned. Parquet buffers one row
+ * group ({@code PARQUET_ROW_GROUP_BYTES}) before writing it out, and writes the footer last.
+ * <p>
+ * At most {@code export.readings.max-concurrent} exports run at once per instance.
+ */
+@Slf4j
+@Service
+public class ReadingExportService {
+
+    private static final String EXPORT_SQL = """
+            SELECT id, reading_date_time, scheme_id, person_id, extracted_reading, confirmed_reading,
+                   quality_confidence, ocr_status, repeated_image, near_duplicate, near_duplicate_of,
+                   correlation_id, image_hash, reading_url
+            FROM bfm_reading
+            WHERE tenant_id = ? AND reading_date_time >= ? AND reading_date_time < ? AND deleted_at IS NULL
+            ORDER BY reading_date_time, id
+            """;
+
+    private static final String HEADER = "id,reading_date_time,scheme_id,person_id,extracted_reading,"
+            + "confirmed_reading,quality_confidence,ocr_status,repeated_image,near_duplicate,near_duplicate_of,"
+            + "correlation_id,image_hash,reading_url\n";
+
+    /** Same columns as the CSV; decimals keep the precision and scale of {@code bfm_reading}. */
+    static final MessageType PARQUET_SCHEMA = Types.buildMessage()
+            .required(INT64).named("id")
+            .required(INT64).as(LogicalTypeAnnotation.timestampType(false, LogicalTypeAnnotation.TimeUnit.MICROS))
+            .named("reading_date_time")
+            .optional(INT64).named("scheme_id")
+            .optional(INT64).named("person_id")
+            .optional(INT64).as(LogicalTypeAnnotation.decimalType(1, 10)).named("extracted_reading")
+            .optional(INT64).as(LogicalTypeAnnotation.decimalType(1, 10)).named("confirmed_reading")
+            .optional(INT32).as(LogicalTypeAnnotation.decimalType(2, 3)).named("quality_confidence")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("ocr_status")
+            .optional(BOOLEAN).named("repeated_image")
+            .optional(BOOLEAN).named("near_duplicate")
+            .optional(INT64).named("near_duplicate_of")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("correlation_id")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("image_hash")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("reading_url")
+            .named("bfm_reading");
+
+    private static final long PARQUET_ROW_GROUP_BYTES = 32L * 1024 * 1024;
+    private static final int COLUMNS = 14;
+    private static final int FLUSH_EVERY_ROWS = 10_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Semaphore exportPermits;
+    private final Counter rowCounter;
+    private final Timer exportTimer;
+
+    public ReadingExportService(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${export.readings.fetch-size:5000}") int fetchSize,
+                                @Value("${export.readings.max-concurrent:2}") int maxConcurrent) {
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.exportPermits = new Semaphore(maxConcurrent);
+        this.rowCounter = Counter.builder("export.readings.rows").register(meterRegistry);
+        this.exportTimer = Timer.builder("export.readings.duration").register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * An export slot. Closing it more than once is harmless, so it can be closed both when the export ends and
+     * from a request completion callback that runs even if the export never started.
+     */
+    public final class Permit implements AutoCloseable {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                exportPermits.release();
+            }
+        }
+    }
+
+    /**
+     * Reserves an export slot, or returns empty when {@code export.readings.max-concurrent} exports are running.
+     */
+    public Optional<Permit> tryAcquire() {
+        return exportPermits.tryAcquire() ? Optional.of(new Permit()) : Optional.empty();
+    }
+
+    /**
+     * Writes the readings taken on {@code from} through {@code to} (inclusive) to {@code out} as CSV.
+     *
+     * @return the number of rows written
+     */
+    public long export(String tenantId, LocalDate from, LocalDate to, boolean gzip, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(HEADER);
+
+        long rows = stream(tenantId, from, to, rs -> writeRow(writer, rs), writer::flush);
+
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        out.flush();
+
+        logExport("CSV", rows, tenantId, from, to, start);
+        return rows;
+    }
+
+    /**
+     * Writes the readings taken on {@code from} through {@code to} (inclusive) to {@code out} as one Parquet
+     * file (Snappy-compressed).
+     *
+     * @return the number of rows written
+     */
+    public long exportParquet(String tenantId, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        SimpleGroupFactory groups = new SimpleGroupFactory(PARQUET_SCHEMA);
+        long rows;
+        try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(new StreamOutputFile(out))
+                .withType(PARQUET_SCHEMA)
+                .withCompressionCodec(CompressionCodecName.SNAPPY)
+                .withRowGroupSize(PARQUET_ROW_GROUP_BYTES)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .build()) {
+            // row groups are flushed by the writer as they fill
+            rows = stream(tenantId, from, to, rs -> writer.write(toGroup(groups, rs)), () -> { });
+        }
+        out.flush();
+
+        logExport("Parquet", rows, tenantId, from, to, start);
+        return rows;
+    }
+
+    private long stream(String tenantId, LocalDate from, LocalDate to, RowWriter rowWriter, IoAction flush)
+            throws IOException {
+        long[] rows = {0};
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> cursorJdbcTemplate.query(EXPORT_SQL, rs -> {
+                try {
+                    rowWriter.write(rs);
+                    if (++rows[0] % FLUSH_EVERY_ROWS == 0) {
+                        flush.run();
+                        rowCounter.increment(FLUSH_EVERY_ROWS);
+                    }
+                } catch (IOException e) {
+                    // client went away; unwinding closes the cursor and ends the transaction
+                    throw new UncheckedIOException(e);
+                }
+            }, tenantId, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay())));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rowCounter.increment(rows[0] % FLUSH_EVERY_ROWS);
+        return rows[0];
+    }
+
+    private void logExport(String format, long rows, String tenantId, LocalDate from, LocalDate to, long start) {
+        long elapsed = System.nanoTime() - start;
+        exportTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Exported {} readings as {} for tenant {} ({} to {}) in {} ms",
+                rows, format, tenantId, from, to, elapsed / 1_000_000);
+    }
+
+    static Group toGroup(SimpleGroupFactory groups, ResultSet rs) throws SQLException {
+        Group group = groups.newGroup();
+        group.append("id", rs.getLong(1));
+        group.append("reading_date_time", epochMicros(rs.getTimestamp(2).toLocalDateTime()));
+        appendLong(group, "scheme_id", rs, 3);
+        appendLong(group, "person_id", rs, 4);
+        appendDecimal(group, "extracted_reading", rs.getBigDecimal(5), 1, false);
+        appendDecimal(group, "confirmed_reading", rs.getBigDecimal(6), 1, false);
+        appendDecimal(group, "quality_confidence", rs.getBigDecimal(7), 2, true);
+        appendString(group, "ocr_status", rs.getString(8));
+        appendBoolean(group, "repeated_image", rs, 9);
+        appendBoolean(group, "near_duplicate", rs, 10);
+        appendLong(group, "near_duplicate_of", rs, 11);
+        appendString(group, "correlation_id", rs.getString(12));
+        appendString(group, "image_hash", rs.getString(13));
+        appendString(group, "reading_url", rs.getString(14));
+        return group;
+    }
+
+    /**
+     * {@code reading_date_time} is a local time, so it is stored as a timestamp not adjusted to UTC.
+     */
+    private static long epochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static void appendLong(Group group, String field, ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        if (!rs.wasNull()) {
+            group.append(field, value);
+        }
+    }
+
+    private static void appendBoolean(Group group, String field, ResultSet rs, int column) throws SQLException {
+        boolean value = rs.getBoolean(column);
+        if (!rs.wasNull()) {
+            group.append(field, value);
+        }
+    }
+
+    private static void appendDecimal(Group group, String field, BigDecimal value, int scale, boolean int32) {
+        if (value == null) {
+            return;
+        }
+        long unscaled = value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        if (int32) {
+            group.append(field, Math.toIntExact(unscaled));
+        } else {
+            group.append(field, unscaled);
+        }
+    }
+
+    private static void appendString(Group group, String field, String value) {
+        if (value != null) {
+            group.append(field, value);
+        }
+    }
+
+    private static void writeRow(Writer writer, ResultSet rs) throws SQLException, IOException {
+        for (int column = 1; column <= COLUMNS; column++) {
+            if (column > 1) {
+                writer.write(',');
+            }
+            Object value = rs.getObject(column);
+            if (value instanceof Timestamp timestamp) {
+                writer.write(timestamp.toLocalDateTime().toString());
+            } else if (value != null) {
+                writeField(writer, value.toString());
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * RFC 4180 quoting: fields with a comma, quote or line break are quoted, quotes doubled.
+     */
+    private static void writeField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
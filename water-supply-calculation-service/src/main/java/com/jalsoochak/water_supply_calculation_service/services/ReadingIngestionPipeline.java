@@ -0,0 +1,289 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.exceptions.IngestionBusyException;
+import com.jalsoochak.water_supply_calculation_service.models.app.requests.GlificWebhookRequest;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.CreateReadingResponse;
+import com.jalsoochak.water_supply_calculation_service.models.entities.ReadingSubmission;
+import com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus;
+import com.jalsoochak.water_supply_calculation_service.repositories.ReadingSubmissionRepository;
+import com.jalsoochak.water_supply_calculation_service.services.GlificWebhookService.StoredImage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous ingestion of Glific meter photos.
+ * <p>
+ * The webhook only records a {@link ReadingSubmission} and returns; the remaining work runs on two bounded
+ * stages: {@code fetch} (download from Glific and upload to MinIO) and {@code reading} (operator lookup, OCR
+ * and reading insert). When the reading queue is full, fetch workers block until it drains, so a slow OCR
+ * backend pushes back on the fetch stage; when the fetch queue is full the webhook is refused with
+ * {@link IngestionBusyException} (503) instead of running the work on the servlet thread.
+ * <p>
+ * Queued work is not kept across a restart. Submissions left {@code RECEIVED} or {@code PROCESSING} are picked
+ * up again by {@link #recoverStale} and re-run from the fetch stage, up to a bounded number of attempts.
+ */
+@Slf4j
+@Service
+public class ReadingIngestionPipeline {
+
+    private static final String STAGE_FETCH = "fetch";
+    private static final String STAGE_READING = "reading";
+    private static final List<SubmissionStatus> UNFINISHED = List.of(SubmissionStatus.RECEIVED, SubmissionStatus.PROCESSING);
+
+    /**
+     * Waits for queue space instead of running the task on the caller, which would be a fetch worker doing OCR.
+     */
+    private static final RejectedExecutionHandler WAIT_FOR_SPACE = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Ingestion stage is shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting for ingestion stage", e);
+        }
+    };
+
+    private final GlificWebhookService glificWebhookService;
+    private final GlificResultNotifier glificResultNotifier;
+    private final ReadingSubmissionRepository readingSubmissionRepository;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor fetchExecutor;
+    private final ThreadPoolExecutor readingExecutor;
+
+    public ReadingIngestionPipeline(GlificWebhookService glificWebhookService,
+                                    GlificResultNotifier glificResultNotifier,
+                                    ReadingSubmissionRepository readingSubmissionRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${ingestion.fetch.workers:8}") int fetchWorkers,
+                                    @Value("${ingestion.fetch.queue-capacity:500}") int fetchQueueCapacity,
+                                    @Value("${ingestion.reading.workers:16}") int readingWorkers,
+                                    @Value("${ingestion.reading.queue-capacity:500}") int readingQueueCapacity) {
+        this.glificWebhookService = glificWebhookService;
+        this.glificResultNotifier = glificResultNotifier;
+        this.readingSubmissionRepository = readingSubmissionRepository;
+        this.meterRegistry = meterRegistry;
+        this.fetchExecutor = newStageExecutor(STAGE_FETCH, fetchWorkers, fetchQueueCapacity,
+                new ThreadPoolExecutor.AbortPolicy());
+        this.readingExecutor = newStageExecutor(STAGE_READING, readingWorkers, readingQueueCapacity, WAIT_FOR_SPACE);
+    }
+
+    /**
+     * Validates and records the submission, then hands it to the fetch stage.
+     *
+     * @return an acknowledgement for Glific; the reading result is pushed back once processing finishes
+     * @throws IngestionBusyException when the fetch queue is full
+     */
+    public CreateReadingResponse submit(GlificWebhookRequest request) {
+        log.info("async request in: {}", request);
+
+        if (!glificWebhookService.hasImage(request)) {
+            return glificWebhookService.nonImageResponse(request);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        ReadingSubmission submission = readingSubmissionRepository.save(
+                ReadingSubmission.builder()
+                        .contactId(request.getContactId())
+                        .mediaId(request.getMediaId())
+                        .mediaUrl(request.getMediaUrl())
+                        .flowId(request.getFlowId())
+                        .idempotencyKey(WebhookIdempotencyService.keyOf(request))
+                        .status(SubmissionStatus.RECEIVED)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build()
+        );
+
+        try {
+            dispatch(fetchExecutor, STAGE_FETCH, () -> fetchStage(submission, request));
+        } catch (RejectedExecutionException e) {
+            readingSubmissionRepository.delete(submission);
+            meterRegistry.counter("ingestion.submissions.rejected").increment();
+            throw new IngestionBusyException("Ingestion queue is full");
+        }
+
+        return CreateReadingResponse.builder()
+                .success(true)
+                .message(glificWebhookService.submissionReceivedMessage(request.getContactId()))
+                .qualityStatus(SubmissionStatus.RECEIVED.name())
+                .correlationId(request.getContactId())
+                .build();
+    }
+
+    private void fetchStage(ReadingSubmission submission, GlificWebhookRequest request) {
+        try {
+            updateStatus(submission, SubmissionStatus.PROCESSING, null);
+
+            StoredImage storedImage = glificWebhookService.fetchAndStoreImage(request);
+            submission.setReadingUrl(storedImage.imageUrl());
+
+            dispatch(readingExecutor, STAGE_READING, () -> readingStage(submission, request, storedImage));
+        } catch (RejectedExecutionException e) {
+            log.warn("Submission {} not handed to the reading stage ({}); left for recovery",
+                    submission.getId(), e.getMessage());
+        } catch (Exception e) {
+            fail(submission, request, e);
+        }
+    }
+
+    private void readingStage(ReadingSubmission submission, GlificWebhookRequest request, StoredImage storedImage) {
+        try {
+            CreateReadingResponse response = glificWebhookService.createReadingFromImage(request, storedImage);
+
+            submission.setCorrelationId(response.getCorrelationId());
+            updateStatus(submission, SubmissionStatus.COMPLETED, null);
+
+            glificResultNotifier.notifyResult(request, response);
+        } catch (Exception e) {
+            fail(submission, request, e);
+        }
+    }
+
+    /**
+     * Re-runs submissions that have been {@code RECEIVED} or {@code PROCESSING} for longer than
+     * {@code staleAfter}, i.e. whose queued or running work was lost. Each is claimed with a conditional update,
+     * so concurrent recoveries (or a late original worker) do not run it twice. After {@code maxAttempts}
+     * recoveries the submission is failed and the operator is told to resend the photo.
+     *
+     * @return number of submissions handed back to the fetch stage
+     */
+    public int recoverStale(Duration staleAfter, int maxAttempts, int batchSize) {
+        List<ReadingSubmission> stale = readingSubmissionRepository.findByStatusInAndUpdatedAtBeforeOrderByIdAsc(
+                UNFINISHED,
+                LocalDateTime.now().minus(staleAfter),
+                PageRequest.of(0, batchSize)
+        );
+
+        int resumed = 0;
+        for (ReadingSubmission submission : stale) {
+            GlificWebhookRequest request = requestOf(submission);
+            LocalDateTime now = LocalDateTime.now();
+            if (readingSubmissionRepository.claimForRetry(submission.getId(), submission.getUpdatedAt(), now) == 0) {
+                continue;
+            }
+            submission.setAttempts(submission.getAttempts() + 1);
+            submission.setUpdatedAt(now);
+
+            if (submission.getAttempts() > maxAttempts) {
+                meterRegistry.counter("ingestion.recovery", "outcome", "abandoned").increment();
+                fail(submission, request, new IllegalStateException(
+                        "Submission not completed after " + maxAttempts + " recovery attempts"));
+                continue;
+            }
+
+            try {
+                dispatch(fetchExecutor, STAGE_FETCH, () -> fetchStage(submission, request));
+            } catch (RejectedExecutionException e) {
+                // Busy or shutting down: the claim only bumped updated_at, so a later run picks it up again
+                log.info("Ingestion busy, stopping recovery after {} submissions", resumed);
+                break;
+            }
+            meterRegistry.counter("ingestion.recovery", "outcome", "resumed").increment();
+            resumed++;
+        }
+        return resumed;
+    }
+
+    private static GlificWebhookRequest requestOf(ReadingSubmission submission) {
+        return GlificWebhookRequest.builder()
+                .contactId(submission.getContactId())
+                .mediaId(submission.getMediaId())
+                .mediaUrl(submission.getMediaUrl())
+                .flowId(submission.getFlowId())
+                .build();
+    }
+
+    private void fail(ReadingSubmission submission, GlificWebhookRequest request, Exception e) {
+        CreateReadingResponse response = glificWebhookService.errorResponse(request, e);
+        try {
+            String error = e.getMessage() != null && e.getMessage().length() > 1000
+                    ? e.getMessage().substring(0, 1000)
+                    : e.getMessage();
+            updateStatus(submission, SubmissionStatus.FAILED, error);
+        } catch (Exception statusError) {
+            log.error("Failed to mark submission {} as failed: {}", submission.getId(), statusError.getMessage());
+        }
+        glificResultNotifier.notifyResult(request, response);
+    }
+
+    private void updateStatus(ReadingSubmission submission, SubmissionStatus status, String errorMessage) {
+        submission.setStatus(status);
+        submission.setErrorMessage(errorMessage);
+        submission.setUpdatedAt(LocalDateTime.now());
+        readingSubmissionRepository.save(submission);
+        meterRegistry.counter("ingestion.submissions", "status", status.name()).increment();
+    }
+
+    private void dispatch(ThreadPoolExecutor executor, String stage, Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        executor.execute(() -> {
+            meterRegistry.timer("ingestion.stage.wait", "stage", stage)
+                    .record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                task.run();
+            } finally {
+                sample.stop(meterRegistry.timer("ingestion.stage.duration", "stage", stage));
+            }
+        });
+    }
+
+    private ThreadPoolExecutor newStageExecutor(String stage, int workers, int queueCapacity,
+                                                RejectedExecutionHandler rejectionHandler) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                workers,
+                workers,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("ingestion-" + stage + "-", 0).factory(),
+                rejectionHandler
+        );
+
+        Gauge.builder("ingestion.stage.queue.depth", executor, e -> e.getQueue().size())
+                .tag("stage", stage)
+                .register(meterRegistry);
+        Gauge.builder("ingestion.stage.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("stage", stage)
+                .register(meterRegistry);
+
+        return executor;
+    }
+
+    /**
+     * Lets running tasks finish and drops queued ones; their submissions stay {@code RECEIVED}/{@code PROCESSING}
+     * and are re-run by recovery on another instance or after the restart.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        List<Runnable> dropped = new ArrayList<>();
+        fetchExecutor.shutdown();
+        fetchExecutor.getQueue().drainTo(dropped);
+        fetchExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        readingExecutor.shutdown();
+        readingExecutor.getQueue().drainTo(dropped);
+        readingExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        if (!dropped.isEmpty()) {
+            log.warn("Dropped {} queued ingestion tasks on shutdown; their submissions will be recovered", dropped.size());
+        }
+    }
+}
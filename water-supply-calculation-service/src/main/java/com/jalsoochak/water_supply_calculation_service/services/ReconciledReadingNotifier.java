@@ -0,0 +1,129 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.models.app.OperatorContext;
+import com.jalsoochak.water_supply_calculation_service.models.app.requests.GlificWebhookRequest;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.CreateReadingResponse;
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import com.jalsoochak.water_supply_calculation_service.models.entities.ReadingSubmission;
+import com.jalsoochak.water_supply_calculation_service.repositories.BfmReadingRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.ReadingSubmissionRepository;
+import com.jalsoochak.water_supply_calculation_service.services.OcrReconciliationService.ReconciledReading;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tells operators the outcome of a reading that was stored as OCR-pending and resolved later by
+ * {@code OcrReconciliationJob}, with the same messages the synchronous path answers with. The Glific flow is
+ * resumed from the submission that created the reading; readings submitted synchronously have no flow to
+ * resume, so for them the outcome is only logged.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReconciledReadingNotifier {
+
+    private final ReadingSubmissionRepository readingSubmissionRepository;
+    private final OperatorContextResolver operatorContextResolver;
+    private final MessageTemplateEngine messageTemplateEngine;
+    private final BfmReadingRepository bfmReadingRepository;
+    private final GlificResultNotifier glificResultNotifier;
+
+    /** How far back the previous valid reading is looked for, as for the latest-reading history seed. */
+    @Value("${latest-reading.history-lookback:365d}")
+    private Duration historyLookback;
+
+    /**
+     * Notifies the operators of readings that got a value, or that were given up after {@code maxAttempts};
+     * readings that stay pending and readings the operator typed a value for are skipped.
+     */
+    public void notifyOperators(List<ReconciledReading> results, int maxAttempts) {
+        for (ReconciledReading result : results) {
+            BfmReading reading = result.reading();
+            if (reading.getConfirmedReading() != null || result.remainsPending(maxAttempts)) {
+                continue;
+            }
+
+            try {
+                notifyOperator(result);
+            } catch (Exception e) {
+                log.error("Failed to notify the operator of reconciled reading {}: {}", reading.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void notifyOperator(ReconciledReading result) {
+        BfmReading reading = result.reading();
+        Optional<ReadingSubmission> submission = readingSubmissionRepository
+                .findFirstByCorrelationIdOrderByIdDesc(reading.getCorrelationId());
+        if (submission.isEmpty() || submission.get().getFlowId() == null) {
+            log.info("Reading {} reconciled (value {}) without a Glific flow to resume",
+                    reading.getId(), result.extractedReading());
+            return;
+        }
+
+        OperatorContext operator = operatorContextResolver.resolve(submission.get().getContactId()).orElse(null);
+        if (operator == null) {
+            log.warn("No operator mapped for contactId {} of reading {}", submission.get().getContactId(), reading.getId());
+            return;
+        }
+
+        BigDecimal value = result.extractedReading();
+        BigDecimal confidence = result.qualityConfidence();
+        boolean valid = value != null
+                && value.compareTo(BigDecimal.ZERO) > 0
+                && (confidence == null || confidence.compareTo(SchemeLatestReadingIndex.MIN_CONFIDENCE) >= 0);
+        BigDecimal lastConfirmedReading = valid ? previousConfirmedReading(reading) : null;
+
+        String message;
+        if (value == null) {
+            message = messageTemplateEngine.render(operator, "OCRNoReadingMessage", Map.of());
+        } else if (valid) {
+            message = messageTemplateEngine.render(operator, "ReadingResultMessage", Map.of(
+                    "current_reading", value.toPlainString(),
+                    "last_reading", lastConfirmedReading != null ? lastConfirmedReading.toPlainString() : "N/A"
+            ));
+        } else if (value.compareTo(BigDecimal.ZERO) <= 0) {
+            message = messageTemplateEngine.render(operator, "InvalidReadingMessage", Map.of());
+        } else {
+            message = messageTemplateEngine.render(operator, "LowConfidenceMessage", Map.of());
+        }
+
+        glificResultNotifier.notifyResult(
+                GlificWebhookRequest.builder()
+                        .contactId(submission.get().getContactId())
+                        .flowId(submission.get().getFlowId())
+                        .build(),
+                CreateReadingResponse.builder()
+                        .success(valid)
+                        .message(message)
+                        .correlationId(reading.getCorrelationId())
+                        .meterReading(value)
+                        .qualityConfidence(confidence)
+                        .lastConfirmedReading(lastConfirmedReading)
+                        .build()
+        );
+    }
+
+    private BigDecimal previousConfirmedReading(BfmReading reading) {
+        return bfmReadingRepository.findValidReadingsDesc(
+                        reading.getScheme().getId(),
+                        reading.getTenantId(),
+                        reading.getReadingDateTime().minus(historyLookback),
+                        reading.getReadingDateTime(),
+                        SchemeLatestReadingIndex.MIN_CONFIDENCE,
+                        PageRequest.of(0, 1)
+                ).stream()
+                .findFirst()
+                .map(BfmReading::getConfirmedReading)
+                .orElse(null);
+    }
+}
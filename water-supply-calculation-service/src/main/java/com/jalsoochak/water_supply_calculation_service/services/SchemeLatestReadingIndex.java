@@ -0,0 +1,181 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import com.jalsoochak.water_supply_calculation_service.repositories.BfmReadingRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.SchemeLatestReadingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Keeps the latest confirmed reading of every scheme in the {@code scheme_latest_reading} table, fronted by
+ * an in-process cache, so "previous reading" lookups are a primary-key read instead of a sort over the
+ * scheme's history.
+ * <p>
+ * The projection is written in the same transaction as the reading. Cache entries are evicted after commit
+ * and otherwise expire after {@code latest-reading.cache.ttl}, which bounds how stale another instance's view
+ * can be. Schemes with no projection row yet are seeded from {@code bfm_reading} on first access.
+ */
+@Slf4j
+@Service
+@Transactional
+public class SchemeLatestReadingIndex {
+
+    /** Readings below this confidence are never used as the scheme's previous reading. */
+    public static final BigDecimal MIN_CONFIDENCE = new BigDecimal("0.7");
+
+    private record SchemeKey(Long schemeId, String tenantId) {
+    }
+
+    public record LatestReading(String tenantId, Long readingId, BigDecimal confirmedReading,
+                                LocalDateTime readingDateTime) {
+    }
+
+    private final SchemeLatestReadingRepository schemeLatestReadingRepository;
+    private final BfmReadingRepository bfmReadingRepository;
+    private final Cache<SchemeKey, Optional<LatestReading>> latest;
+    private final Duration historyLookback;
+
+    public SchemeLatestReadingIndex(SchemeLatestReadingRepository schemeLatestReadingRepository,
+                                    BfmReadingRepository bfmReadingRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${latest-reading.cache.max-size:50000}") long maxSize,
+                                    @Value("${latest-reading.cache.ttl:1m}") Duration ttl,
+                                    @Value("${latest-reading.history-lookback:365d}") Duration historyLookback) {
+        this.schemeLatestReadingRepository = schemeLatestReadingRepository;
+        this.bfmReadingRepository = bfmReadingRepository;
+        this.historyLookback = historyLookback;
+        this.latest = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, latest, "schemeLatestReading");
+    }
+
+    /**
+     * @return the scheme's latest reading that is positive and confident enough, if any
+     */
+    public Optional<LatestReading> find(Long schemeId, String tenantId) {
+        return latest.get(new SchemeKey(schemeId, tenantId), this::load);
+    }
+
+    public Optional<BigDecimal> findConfirmedReading(Long schemeId, String tenantId) {
+        return find(schemeId, tenantId).map(LatestReading::confirmedReading);
+    }
+
+    /**
+     * Moves the scheme's projection to this reading if it qualifies and is not older than the current one.
+     */
+    public void record(BfmReading reading) {
+        record(
+                reading.getScheme().getId(),
+                reading.getTenantId(),
+                reading.getId(),
+                reading.getConfirmedReading(),
+                reading.getQualityConfidence(),
+                reading.getReadingDateTime()
+        );
+    }
+
+    public void record(Long schemeId, String tenantId, Long readingId, BigDecimal confirmedReading,
+                       BigDecimal qualityConfidence, LocalDateTime readingDateTime) {
+        if (!qualifies(confirmedReading, qualityConfidence)) {
+            return;
+        }
+
+        schemeLatestReadingRepository.upsertIfNewer(schemeId, tenantId, readingId, confirmedReading, readingDateTime);
+        evictAfterCommit(schemeId, tenantId);
+    }
+
+    /**
+     * Re-applies a reading whose confirmed value was corrected. If it was the scheme's latest and no longer
+     * qualifies, the projection falls back to the newest qualifying reading in the history.
+     */
+    public void onConfirmedReadingChanged(BfmReading reading) {
+        Long schemeId = reading.getScheme().getId();
+
+        if (qualifies(reading.getConfirmedReading(), reading.getQualityConfidence())) {
+            record(reading);
+            return;
+        }
+
+        if (schemeLatestReadingRepository.deleteBySchemeIdAndReadingId(schemeId, reading.getId()) > 0) {
+            loadFromHistory(schemeId, reading.getTenantId());
+        }
+        evictAfterCommit(schemeId, reading.getTenantId());
+    }
+
+    private Optional<LatestReading> load(SchemeKey key) {
+        return schemeLatestReadingRepository.findById(key.schemeId())
+                .filter(row -> key.tenantId().equals(row.getTenantId()))
+                .map(row -> new LatestReading(
+                        row.getTenantId(),
+                        row.getReadingId(),
+                        row.getConfirmedReading(),
+                        row.getReadingDateTime()))
+                .or(() -> loadFromHistory(key.schemeId(), key.tenantId()));
+    }
+
+    /**
+     * Seeds the projection from {@code bfm_reading}. Used for schemes that have no row yet (for example,
+     * readings recorded before the projection existed) and when the latest reading stops qualifying. Only
+     * the last {@code latest-reading.history-lookback} of history is searched.
+     */
+    private Optional<LatestReading> loadFromHistory(Long schemeId, String tenantId) {
+        Optional<BfmReading> newest = bfmReadingRepository
+                .findTopByScheme_IdAndTenantIdAndConfirmedReadingGreaterThanAndQualityConfidenceGreaterThanEqualAndReadingDateTimeGreaterThanEqualOrderByReadingDateTimeDesc(
+                        schemeId, tenantId, BigDecimal.ZERO, MIN_CONFIDENCE, LocalDateTime.now().minus(historyLookback));
+
+        newest.ifPresent(reading -> {
+            log.debug("Seeding latest reading for scheme {} from history", schemeId);
+            schemeLatestReadingRepository.upsertIfNewer(
+                    schemeId,
+                    reading.getTenantId(),
+                    reading.getId(),
+                    reading.getConfirmedReading(),
+                    reading.getReadingDateTime()
+            );
+        });
+
+        return newest.map(reading -> new LatestReading(
+                reading.getTenantId(),
+                reading.getId(),
+                reading.getConfirmedReading(),
+                reading.getReadingDateTime()));
+    }
+
+    private static boolean qualifies(BigDecimal confirmedReading, BigDecimal qualityConfidence) {
+        return confirmedReading != null
+                && confirmedReading.compareTo(BigDecimal.ZERO) > 0
+                && qualityConfidence != null
+                && qualityConfidence.compareTo(MIN_CONFIDENCE) >= 0;
+    }
+
+    private void evictAfterCommit(Long schemeId, String tenantId) {
+        SchemeKey key = new SchemeKey(schemeId, tenantId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            latest.invalidate(key);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                latest.invalidate(key);
+            }
+        });
+    }
+}
@@ -0,0 +1,268 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalsoochak.water_supply_calculation_service.models.app.requests.GlificWebhookRequest;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.CreateReadingResponse;
+import com.jalsoochak.water_supply_calculation_service.models.entities.ReadingSubmission;
+import com.jalsoochak.water_supply_calculation_service.models.entities.WebhookIdempotencyRecord;
+import com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus;
+import com.jalsoochak.water_supply_calculation_service.repositories.ReadingSubmissionRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.WebhookIdempotencyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Makes the Glific image webhook idempotent on (contactId, mediaId or mediaUrl), so Glific's retries of a slow
+ * delivery do not download, store and record the same photo again.
+ * <p>
+ * Duplicates arriving while the first delivery is still running on this instance wait on its future.
+ * Across instances, the first delivery claims a row in {@code webhook_idempotency}; others poll that row
+ * until it is settled. Only successful synchronous responses are stored and replayed, for
+ * {@code webhook.idempotency.ttl}. A delivery accepted by the asynchronous pipeline is answered from its
+ * {@link ReadingSubmission} instead, so a duplicate sees the submission's current state, and a failed
+ * submission is processed again. Unsuccessful or rejected deliveries release their claim, so a genuine retry
+ * is processed again.
+ */
+@Slf4j
+@Service
+public class WebhookIdempotencyService {
+
+    private static final String REJECTED = "REJECTED";
+    private static final long POLL_INTERVAL_MILLIS = 200;
+
+    private final WebhookIdempotencyRepository webhookIdempotencyRepository;
+    private final ReadingSubmissionRepository readingSubmissionRepository;
+    private final GlificWebhookService glificWebhookService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration processingTimeout;
+    private final Duration waitTimeout;
+
+    /**
+     * Deliveries in progress on this instance. {@link ConcurrentHashMap} locks per bin, so unrelated keys
+     * never contend.
+     */
+    private final ConcurrentMap<String, CompletableFuture<CreateReadingResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public WebhookIdempotencyService(WebhookIdempotencyRepository webhookIdempotencyRepository,
+                                     ReadingSubmissionRepository readingSubmissionRepository,
+                                     GlificWebhookService glificWebhookService,
+                                     ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${webhook.idempotency.ttl:1h}") Duration ttl,
+                                     @Value("${webhook.idempotency.processing-timeout:2m}") Duration processingTimeout,
+                                     @Value("${webhook.idempotency.wait-timeout:25s}") Duration waitTimeout) {
+        this.webhookIdempotencyRepository = webhookIdempotencyRepository;
+        this.readingSubmissionRepository = readingSubmissionRepository;
+        this.glificWebhookService = glificWebhookService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.processingTimeout = processingTimeout;
+        this.waitTimeout = waitTimeout;
+    }
+
+    public CreateReadingResponse execute(GlificWebhookRequest request, Supplier<CreateReadingResponse> action) {
+        if (!glificWebhookService.hasImage(request)) {
+            return action.get();
+        }
+
+        String key = keyOf(request);
+        CompletableFuture<CreateReadingResponse> mine = new CompletableFuture<>();
+        CompletableFuture<CreateReadingResponse> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            count("in_flight");
+            return await(existing, request);
+        }
+
+        try {
+            CreateReadingResponse response = executeOnce(key, request, action);
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private CreateReadingResponse executeOnce(String key, GlificWebhookRequest request,
+                                              Supplier<CreateReadingResponse> action) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            if (webhookIdempotencyRepository.claim(key, request.getContactId(), now, now.plus(processingTimeout)) == 1) {
+                return runClaimed(key, action);
+            }
+
+            Optional<WebhookIdempotencyRecord> record = webhookIdempotencyRepository.findById(key)
+                    .filter(r -> r.getExpiresAt().isAfter(now));
+            if (record.isPresent() && record.get().getStatus() == SubmissionStatus.COMPLETED) {
+                Optional<CreateReadingResponse> stored = readResponse(record.get());
+                if (stored.isPresent()) {
+                    count("replayed");
+                    return stored.get();
+                }
+            } else if (record.isPresent() && record.get().getStatus() == SubmissionStatus.RECEIVED) {
+                Optional<CreateReadingResponse> submitted = replaySubmission(key, request);
+                if (submitted.isPresent()) {
+                    count("replayed_submission");
+                    return submitted.get();
+                }
+                // the submission failed or is gone: let this delivery claim the key and process it again
+                webhookIdempotencyRepository.deleteByKeyHashAndStatus(key, SubmissionStatus.RECEIVED);
+                continue;
+            }
+
+            if (System.nanoTime() > deadline) {
+                count("wait_timeout");
+                return inProgressResponse(request);
+            }
+            sleep();
+        }
+    }
+
+    private CreateReadingResponse runClaimed(String key, Supplier<CreateReadingResponse> action) {
+        CreateReadingResponse response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(key);
+            throw e;
+        }
+
+        if (response != null && SubmissionStatus.RECEIVED.name().equals(response.getQualityStatus())) {
+            webhookIdempotencyRepository.accept(key, LocalDateTime.now().plus(ttl));
+            count("accepted");
+            return response;
+        }
+
+        if (response == null || !response.isSuccess() || REJECTED.equals(response.getQualityStatus())) {
+            release(key);
+            return response;
+        }
+
+        try {
+            webhookIdempotencyRepository.complete(
+                    key,
+                    objectMapper.writeValueAsString(response),
+                    LocalDateTime.now().plus(ttl)
+            );
+        } catch (JsonProcessingException e) {
+            log.error("Could not store webhook response for replay", e);
+            release(key);
+        }
+        count("processed");
+        return response;
+    }
+
+    private CreateReadingResponse await(CompletableFuture<CreateReadingResponse> future, GlificWebhookRequest request) {
+        try {
+            return future.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            count("wait_timeout");
+            return inProgressResponse(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return inProgressResponse(request);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Acknowledges a duplicate of a delivery the asynchronous pipeline accepted, with its submission's current
+     * status. Empty when there is no submission or it failed.
+     */
+    private Optional<CreateReadingResponse> replaySubmission(String key, GlificWebhookRequest request) {
+        return readingSubmissionRepository.findFirstByIdempotencyKeyOrderByIdDesc(key)
+                .filter(submission -> submission.getStatus() != SubmissionStatus.FAILED)
+                .map(submission -> CreateReadingResponse.builder()
+                        .success(true)
+                        .message(glificWebhookService.submissionReceivedMessage(request.getContactId()))
+                        .qualityStatus(submission.getStatus().name())
+                        .correlationId(submission.getCorrelationId() != null
+                                ? submission.getCorrelationId()
+                                : request.getContactId())
+                        .build());
+    }
+
+    private Optional<CreateReadingResponse> readResponse(WebhookIdempotencyRecord record) {
+        try {
+            return Optional.of(objectMapper.readValue(record.getResponseJson(), CreateReadingResponse.class));
+        } catch (Exception e) {
+            log.warn("Unreadable stored webhook response for key {}: {}", record.getKeyHash(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void release(String key) {
+        try {
+            webhookIdempotencyRepository.deleteById(key);
+        } catch (Exception e) {
+            log.warn("Failed to release webhook idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Reply for a duplicate that gave up waiting: the original delivery is still being processed.
+     */
+    private CreateReadingResponse inProgressResponse(GlificWebhookRequest request) {
+        return CreateReadingResponse.builder()
+                .success(false)
+                .message(glificWebhookService.submissionReceivedMessage(request.getContactId()))
+                .qualityStatus("DUPLICATE")
+                .correlationId(request.getContactId())
+                .build();
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("webhook.idempotency", "outcome", outcome).increment();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for duplicate webhook delivery", e);
+        }
+    }
+
+    static String keyOf(GlificWebhookRequest request) {
+        String media = request.getMediaId() != null && !request.getMediaId().isBlank()
+                ? "id:" + request.getMediaId()
+                : "url:" + request.getMediaUrl();
+        String raw = request.getContactId() + "|" + media;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(raw.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
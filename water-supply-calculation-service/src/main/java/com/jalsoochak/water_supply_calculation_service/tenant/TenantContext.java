@@ -15,6 +15,13 @@ public class TenantContext {
         return TENANT_ID.get();
     }
 
+    /**
+     * Whether {@code tenantId} (e.g. from a request path) is the tenant of the {@code X-Tenant-Id} header.
+     */
+    public static boolean isCurrent(String tenantId) {
+        return tenantId != null && tenantId.equals(TENANT_ID.get());
+    }
+
     public static void clear() {
         TENANT_ID.remove();
     }
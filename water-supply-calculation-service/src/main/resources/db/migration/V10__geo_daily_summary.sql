@@ -0,0 +1,57 @@
+-- Geo-summary cube: one cell per (tenant, LGD level, location, day), maintained by GeoSummaryAggregator.
+CREATE TABLE IF NOT EXISTS geo_daily_summary (
+    id               BIGSERIAL PRIMARY KEY,
+    tenant_id        VARCHAR(255) NOT NULL,
+    summary_date     DATE NOT NULL,
+    level            VARCHAR(16) NOT NULL,
+    location_id      BIGINT NOT NULL,
+    parent_id        BIGINT,
+    scheme_count     INTEGER,
+    schemes_reported INTEGER,
+    no_water_schemes INTEGER,
+    quantity_litre   NUMERIC(16, 1),
+    operator_count   INTEGER,
+    active_operators INTEGER,
+    updated_at       TIMESTAMP(6),
+    CONSTRAINT uk_geo_daily_summary_cell UNIQUE (tenant_id, summary_date, level, location_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_geo_daily_summary_updated_at ON geo_daily_summary (updated_at);
+
+-- Timestamp watermarks (geo-summary-supply) next to the id watermarks in last_id.
+ALTER TABLE job_watermark ADD COLUMN IF NOT EXISTS last_timestamp TIMESTAMP(6);
+
+-- LGD tree above the village, so the cube rolls up to block, district and state.
+ALTER TABLE lgd_location_master ADD COLUMN IF NOT EXISTS parent_lgd_location_id BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_lgd_location_master_parent ON lgd_location_master (parent_lgd_location_id);
+
+-- Backfill from the scheme/officer locations view; LgdHierarchySync repeats this nightly.
+DO $$
+BEGIN
+    IF to_regclass('scheme_officers_locations_mv') IS NOT NULL THEN
+        UPDATE lgd_location_master l
+        SET parent_lgd_location_id = p.parent_id
+        FROM (
+            SELECT DISTINCT panchayat_id AS id, COALESCE(block_id, district_id, state_id) AS parent_id
+            FROM scheme_officers_locations_mv WHERE panchayat_id IS NOT NULL
+            UNION
+            SELECT DISTINCT block_id, COALESCE(district_id, state_id)
+            FROM scheme_officers_locations_mv WHERE block_id IS NOT NULL
+            UNION
+            SELECT DISTINCT district_id, state_id
+            FROM scheme_officers_locations_mv WHERE district_id IS NOT NULL
+        ) p
+        WHERE l.id = p.id AND p.parent_id IS NOT NULL AND p.parent_id <> p.id
+          AND l.parent_lgd_location_id IS DISTINCT FROM p.parent_id;
+
+        UPDATE village_master v
+        SET parent_lgd_location_id = p.parent_id
+        FROM (
+            SELECT DISTINCT village_id AS id, COALESCE(panchayat_id, block_id, district_id, state_id) AS parent_id
+            FROM scheme_officers_locations_mv WHERE village_id IS NOT NULL
+        ) p
+        WHERE v.id = p.id AND p.parent_id IS NOT NULL AND v.parent_lgd_location_id IS NULL;
+    END IF;
+END
+$$;
@@ -0,0 +1,44 @@
+-- Anomalies raised by AnomalyDetector and AnomalySweepService: one per (scheme, type, day), except REPEATED_IMAGE,
+-- which is one per reading so that several repeated photos on a day each keep their own details.
+CREATE TABLE IF NOT EXISTS anomalies (
+    anomaly_id   UUID PRIMARY KEY,
+    tenant_id    VARCHAR(255) NOT NULL,
+    scheme_id    BIGINT NOT NULL,
+    type         VARCHAR(20) NOT NULL,
+    anomaly_date DATE NOT NULL,
+    reading_id   BIGINT,
+    details      JSONB,
+    status       VARCHAR(20) NOT NULL,
+    created_at   TIMESTAMP(6),
+    updated_at   TIMESTAMP(6)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_anomalies_scheme_type_date ON anomalies (scheme_id, type, anomaly_date)
+    WHERE type <> 'REPEATED_IMAGE';
+CREATE UNIQUE INDEX IF NOT EXISTS uk_anomalies_repeated_image ON anomalies (scheme_id, anomaly_date, reading_id)
+    WHERE type = 'REPEATED_IMAGE';
+
+CREATE INDEX IF NOT EXISTS idx_anomalies_tenant_date ON anomalies (tenant_id, anomaly_date);
+
+-- Per-scheme average daily supply and last submission, shared between instances.
+CREATE TABLE IF NOT EXISTS scheme_anomaly_state (
+    scheme_id          BIGINT PRIMARY KEY,
+    tenant_id          VARCHAR(255),
+    avg_daily_litre    NUMERIC(16, 2),
+    avg_days           INTEGER,
+    last_submission_at TIMESTAMP(6),
+    updated_at         TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_scheme_anomaly_state_updated_at ON scheme_anomaly_state (updated_at);
+
+-- Indexes this service's queries rely on that are only declared on the entity mappings; Hibernate does not
+-- create them.
+CREATE INDEX IF NOT EXISTS idx_bfm_reading_person_time ON bfm_reading (person_id, reading_date_time);
+CREATE INDEX IF NOT EXISTS idx_bfm_reading_correlation_id ON bfm_reading (correlation_id);
+CREATE INDEX IF NOT EXISTS idx_person_phone_number ON person_master (phone_number);
+CREATE INDEX IF NOT EXISTS idx_person_tenant_id ON person_master (tenant_id);
+CREATE INDEX IF NOT EXISTS idx_psm_person_id ON person_scheme_mapping (person_id);
+CREATE INDEX IF NOT EXISTS idx_psm_scheme_id ON person_scheme_mapping (scheme_id);
+CREATE INDEX IF NOT EXISTS idx_scheme_tenant_id ON scheme_master (tenant_id);
+CREATE INDEX IF NOT EXISTS idx_scheme_state_id ON scheme_master (state_scheme_id);
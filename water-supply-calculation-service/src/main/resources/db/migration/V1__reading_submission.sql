@@ -0,0 +1,31 @@
+-- Async webhook submissions (webhook.ingestion.mode=async) and their recovery state.
+-- IF NOT EXISTS: databases that ran with ddl-auto=update already have the table.
+CREATE TABLE IF NOT EXISTS reading_submission (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    contact_id     VARCHAR(20),
+    media_id       VARCHAR(255),
+    media_url      VARCHAR(2048),
+    flow_id        VARCHAR(64),
+    reading_url    VARCHAR(2048),
+    status         VARCHAR(20),
+    correlation_id VARCHAR(36),
+    error_message  VARCHAR(1000),
+    attempts       INTEGER NOT NULL DEFAULT 0,
+    created_at     TIMESTAMP(6),
+    updated_at     TIMESTAMP(6)
+);
+
+ALTER TABLE reading_submission ADD COLUMN IF NOT EXISTS flow_id VARCHAR(64);
+ALTER TABLE reading_submission ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
+
+DROP INDEX IF EXISTS idx_submission_status;
+CREATE INDEX IF NOT EXISTS idx_submission_contact_id ON reading_submission (contact_id);
+CREATE INDEX IF NOT EXISTS idx_submission_status_updated_at ON reading_submission (status, updated_at);
+
+-- Lock table of ShedLock's JDBC provider, so scheduled jobs run on one instance at a time.
+CREATE TABLE IF NOT EXISTS shedlock (
+    name       VARCHAR(64) PRIMARY KEY,
+    lock_until TIMESTAMP(6) NOT NULL,
+    locked_at  TIMESTAMP(6) NOT NULL,
+    locked_by  VARCHAR(255) NOT NULL
+);
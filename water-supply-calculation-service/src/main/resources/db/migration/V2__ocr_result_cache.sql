@@ -0,0 +1,16 @@
+-- OCR results keyed by image SHA-256, and the hash recorded on each reading.
+CREATE TABLE IF NOT EXISTS ocr_result_cache (
+    image_hash         VARCHAR(64) PRIMARY KEY,
+    adjusted_reading   NUMERIC(10, 1),
+    quality_status     VARCHAR(50),
+    quality_confidence NUMERIC(3, 2),
+    created_at         TIMESTAMP(6)
+);
+
+-- OcrResultCacheCleanupJob deletes by age
+CREATE INDEX IF NOT EXISTS idx_ocr_result_cache_created_at ON ocr_result_cache (created_at);
+
+ALTER TABLE bfm_reading ADD COLUMN IF NOT EXISTS image_hash VARCHAR(64);
+ALTER TABLE bfm_reading ADD COLUMN IF NOT EXISTS repeated_image BOOLEAN;
+
+CREATE INDEX IF NOT EXISTS idx_bfm_reading_image_hash ON bfm_reading (image_hash);
@@ -0,0 +1,12 @@
+-- Latest qualifying reading per scheme; rows are seeded lazily from bfm_reading on first lookup.
+CREATE TABLE IF NOT EXISTS scheme_latest_reading (
+    scheme_id         BIGINT PRIMARY KEY,
+    tenant_id         VARCHAR(255),
+    reading_id        BIGINT,
+    confirmed_reading NUMERIC(10, 1),
+    reading_date_time TIMESTAMP(6),
+    updated_at        TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_bfm_reading_scheme_tenant_time
+    ON bfm_reading (scheme_id, tenant_id, reading_date_time DESC);
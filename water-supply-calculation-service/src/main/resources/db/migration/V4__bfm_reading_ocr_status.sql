@@ -0,0 +1,2 @@
+-- OCR outcome of each reading; PENDING rows are picked up by OcrReconciliationJob.
+ALTER TABLE bfm_reading ADD COLUMN IF NOT EXISTS ocr_status VARCHAR(20);
@@ -0,0 +1,20 @@
+-- Progress of background jobs that walk a table in id order.
+CREATE TABLE IF NOT EXISTS job_watermark (
+    job_name   VARCHAR(64) PRIMARY KEY,
+    last_id    BIGINT NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+-- OCR answers received per reading; reconciliation stops retrying at ocr.reconciliation.max-attempts.
+ALTER TABLE bfm_reading ADD COLUMN IF NOT EXISTS ocr_attempts INTEGER NOT NULL DEFAULT 0;
+
+-- Readings whose OCR already ran once at submission.
+UPDATE bfm_reading SET ocr_attempts = 1 WHERE ocr_status IN ('COMPLETED', 'FAILED') AND ocr_attempts = 0;
+
+-- Unreadable photos used to be marked FAILED after a single answer; recent ones are retried again.
+UPDATE bfm_reading SET ocr_status = 'PENDING'
+WHERE ocr_status = 'FAILED' AND extracted_reading IS NULL AND reading_url IS NOT NULL
+  AND reading_date_time >= now() - INTERVAL '30 days';
+
+-- ReconciledReadingNotifier finds the submission (and its Glific flow) of a reconciled reading.
+CREATE INDEX IF NOT EXISTS idx_submission_correlation_id ON reading_submission (correlation_id);
@@ -0,0 +1,16 @@
+-- Claims and successful responses of Glific image webhook deliveries, keyed by SHA-256 of (contact, media).
+CREATE TABLE IF NOT EXISTS webhook_idempotency (
+    key_hash      VARCHAR(64) PRIMARY KEY,
+    contact_id    VARCHAR(255),
+    status        VARCHAR(20),
+    response_json TEXT,
+    created_at    TIMESTAMP(6),
+    expires_at    TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_webhook_idempotency_expires_at ON webhook_idempotency (expires_at);
+
+-- Links an asynchronous submission to the delivery that created it, so duplicates are answered from it.
+ALTER TABLE reading_submission ADD COLUMN IF NOT EXISTS idempotency_key VARCHAR(64);
+
+CREATE INDEX IF NOT EXISTS idx_submission_idempotency_key ON reading_submission (idempotency_key);
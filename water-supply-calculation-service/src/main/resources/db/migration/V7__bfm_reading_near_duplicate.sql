@@ -0,0 +1,4 @@
+-- Perceptual hash of the normalized photo and the near-duplicate verdict reported by imageprocessing.
+ALTER TABLE bfm_reading ADD COLUMN IF NOT EXISTS perceptual_hash BIGINT;
+ALTER TABLE bfm_reading ADD COLUMN IF NOT EXISTS near_duplicate BOOLEAN;
+ALTER TABLE bfm_reading ADD COLUMN IF NOT EXISTS near_duplicate_of BIGINT;
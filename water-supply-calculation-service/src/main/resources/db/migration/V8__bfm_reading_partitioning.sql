@@ -0,0 +1,83 @@
+-- Range-partitions bfm_reading by month on reading_date_time. Every month that holds readings gets its own
+-- partition, as do the next three months; BfmReadingPartitionJob keeps creating months ahead from then on.
+-- The rows are copied through the parent under an exclusive lock, so run this deploy in a maintenance window.
+-- A no-op where the table is already partitioned.
+DO $$
+DECLARE
+    id_sequence  TEXT;
+    is_identity  BOOLEAN;
+    next_id      BIGINT;
+    first_month  DATE;
+    last_month   DATE;
+    part_month   DATE;
+    moved        BIGINT;
+BEGIN
+    IF to_regclass('bfm_reading') IS NULL
+            OR EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('bfm_reading')) THEN
+        RETURN;
+    END IF;
+
+    LOCK TABLE bfm_reading IN ACCESS EXCLUSIVE MODE;
+
+    SELECT COALESCE(MAX(id), 0) + 1,
+           COALESCE(date_trunc('month', MIN(reading_date_time))::DATE, date_trunc('month', now())::DATE),
+           GREATEST(COALESCE(date_trunc('month', MAX(reading_date_time))::DATE, date_trunc('month', now())::DATE),
+                    (date_trunc('month', now()) + INTERVAL '3 months')::DATE)
+    INTO next_id, first_month, last_month
+    FROM bfm_reading;
+
+    id_sequence := pg_get_serial_sequence('bfm_reading', 'id');
+    SELECT attidentity <> '' INTO is_identity
+    FROM pg_attribute
+    WHERE attrelid = to_regclass('bfm_reading') AND attname = 'id';
+
+    ALTER TABLE bfm_reading RENAME TO bfm_reading_unpartitioned;
+    ALTER TABLE bfm_reading_unpartitioned RENAME CONSTRAINT bfm_reading_pkey TO bfm_reading_unpartitioned_pkey;
+    DROP INDEX IF EXISTS idx_bfm_reading_image_hash;
+    DROP INDEX IF EXISTS idx_bfm_reading_scheme_tenant_time;
+    DROP INDEX IF EXISTS idx_bfm_reading_person_time;
+    DROP INDEX IF EXISTS idx_bfm_reading_correlation_id;
+
+    -- ids keep coming from one sequence owned by the parent (identity columns on partitioned tables need PG 17)
+    IF is_identity THEN
+        ALTER TABLE bfm_reading_unpartitioned ALTER COLUMN id DROP IDENTITY;
+    ELSIF id_sequence IS NOT NULL THEN
+        ALTER TABLE bfm_reading_unpartitioned ALTER COLUMN id DROP DEFAULT;
+        EXECUTE format('DROP SEQUENCE %s', id_sequence);
+    END IF;
+
+    CREATE TABLE bfm_reading (LIKE bfm_reading_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+        PARTITION BY RANGE (reading_date_time);
+    EXECUTE format('CREATE SEQUENCE bfm_reading_id_seq START WITH %s OWNED BY bfm_reading.id', next_id);
+    ALTER TABLE bfm_reading ALTER COLUMN id SET DEFAULT nextval('bfm_reading_id_seq');
+    -- the partition key has to be part of the primary key, and rows without a time cannot be routed
+    ALTER TABLE bfm_reading ALTER COLUMN reading_date_time SET NOT NULL;
+    ALTER TABLE bfm_reading ADD CONSTRAINT bfm_reading_pkey PRIMARY KEY (id, reading_date_time);
+
+    part_month := first_month;
+    WHILE part_month <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF bfm_reading FOR VALUES FROM (%L) TO (%L)',
+                       'bfm_reading_p' || to_char(part_month, 'YYYY_MM'),
+                       part_month, (part_month + INTERVAL '1 month')::DATE);
+        part_month := (part_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+    CREATE TABLE bfm_reading_default PARTITION OF bfm_reading DEFAULT;
+
+    INSERT INTO bfm_reading SELECT * FROM bfm_reading_unpartitioned;
+    GET DIAGNOSTICS moved = ROW_COUNT;
+    DROP TABLE bfm_reading_unpartitioned;
+
+    -- created on the parent, so every existing and future partition gets them
+    CREATE INDEX idx_bfm_reading_scheme_tenant_time ON bfm_reading (scheme_id, tenant_id, reading_date_time DESC);
+    CREATE INDEX idx_bfm_reading_image_hash ON bfm_reading (image_hash);
+    CREATE INDEX idx_bfm_reading_person_time ON bfm_reading (person_id, reading_date_time);
+    CREATE INDEX idx_bfm_reading_correlation_id ON bfm_reading (correlation_id);
+    CREATE INDEX brin_bfm_reading_reading_date_time ON bfm_reading
+        USING brin (reading_date_time) WITH (pages_per_range = 32);
+
+    -- LIKE does not copy foreign keys
+    ALTER TABLE bfm_reading ADD CONSTRAINT fk_bfm_reading_scheme FOREIGN KEY (scheme_id) REFERENCES scheme_master (id);
+    ALTER TABLE bfm_reading ADD CONSTRAINT fk_bfm_reading_person FOREIGN KEY (person_id) REFERENCES person_master (id);
+
+    RAISE NOTICE 'Partitioned bfm_reading by month from % to %, % rows copied', first_month, last_month, moved;
+END $$;
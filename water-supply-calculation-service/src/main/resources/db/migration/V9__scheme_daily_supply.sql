@@ -0,0 +1,17 @@
+-- Water supplied per scheme per day, maintained by DailySupplyRollup.
+CREATE TABLE IF NOT EXISTS scheme_daily_supply (
+    id                  BIGSERIAL PRIMARY KEY,
+    scheme_id           BIGINT NOT NULL,
+    tenant_id           VARCHAR(255),
+    supply_date         DATE NOT NULL,
+    quantity_litre      NUMERIC(14, 1),
+    litre_per_household NUMERIC(12, 2),
+    reading_count       INTEGER,
+    start_reading_id    BIGINT,
+    end_reading_id      BIGINT,
+    updated_at          TIMESTAMP(6),
+    CONSTRAINT uk_scheme_daily_supply_scheme_date UNIQUE (scheme_id, supply_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_scheme_daily_supply_tenant_date
+    ON scheme_daily_supply (tenant_id, supply_date);
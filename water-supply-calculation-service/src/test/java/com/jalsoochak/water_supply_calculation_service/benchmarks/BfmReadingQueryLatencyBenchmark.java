@@ -0,0 +1,176 @@
+package com.jalsoochak.water_supply_calculation_service.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the hot time-bounded {@code bfm_reading} queries as history grows, on a plain table against the
+ * monthly layout kept by {@code BfmReadingPartitionManager} (same indexes, BRIN on every partition). With
+ * partitions the scores should stay flat from 1 to 36 months of history; on the plain table they grow with it.
+ * <p>
+ * Needs a Postgres it may write to; everything is created in a scratch schema that is dropped afterwards. Run with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.jalsoochak.water_supply_calculation_service.benchmarks.BfmReadingQueryLatencyBenchmark
+ * -Djdbc.url=jdbc:postgresql://localhost:5432/postgres -Djdbc.user=postgres -Djdbc.password=postgres}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BfmReadingQueryLatencyBenchmark {
+
+    private static final String SCHEMA = "bfm_reading_bench";
+    private static final String TENANT = "bench";
+    private static final int SCHEMES = 500;
+    private static final int READINGS_PER_SCHEME_PER_DAY = 2;
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @Param({"1", "12", "36"})
+    private int historyMonths;
+
+    @Param({"plain", "partitioned"})
+    private String layout;
+
+    private Connection connection;
+    private PreparedStatement latestPerScheme;
+    private PreparedStatement personOnDate;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("jdbc.url", "jdbc:postgresql://localhost:5432/postgres"),
+                System.getProperty("jdbc.user", "postgres"),
+                System.getProperty("jdbc.password", "postgres"));
+        today = LocalDate.now();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            statement.execute("SET search_path TO " + SCHEMA);
+            createTable(statement);
+            seed(statement);
+            statement.execute("ANALYZE bfm_reading");
+        }
+
+        latestPerScheme = connection.prepareStatement(
+                "SELECT DISTINCT ON (scheme_id) scheme_id, confirmed_reading, reading_date_time FROM bfm_reading"
+                        + " WHERE tenant_id = ? AND reading_date_time >= ?"
+                        + " ORDER BY scheme_id, reading_date_time DESC");
+        personOnDate = connection.prepareStatement(
+                "SELECT id, confirmed_reading FROM bfm_reading"
+                        + " WHERE person_id = ? AND reading_date_time >= ? AND reading_date_time < ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public void latestReadingPerSchemeLastWeek(Blackhole blackhole) throws SQLException {
+        latestPerScheme.setString(1, TENANT);
+        latestPerScheme.setTimestamp(2, Timestamp.valueOf(today.minusDays(7).atStartOfDay()));
+        drain(latestPerScheme, blackhole);
+    }
+
+    @Benchmark
+    public void personReadingsOnDate(Blackhole blackhole) throws SQLException {
+        LocalDate date = today.minusDays(ThreadLocalRandom.current().nextInt(28));
+        personOnDate.setLong(1, ThreadLocalRandom.current().nextInt(SCHEMES) + 1);
+        personOnDate.setTimestamp(2, Timestamp.valueOf(date.atStartOfDay()));
+        personOnDate.setTimestamp(3, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+        drain(personOnDate, blackhole);
+    }
+
+    private void createTable(Statement statement) throws SQLException {
+        String columns = "(id bigserial, tenant_id varchar(255), scheme_id bigint, person_id bigint,"
+                + " confirmed_reading numeric(19, 2), reading_date_time timestamp NOT NULL";
+        if ("plain".equals(layout)) {
+            statement.execute("CREATE TABLE bfm_reading " + columns + ", PRIMARY KEY (id))");
+        } else {
+            statement.execute("CREATE TABLE bfm_reading " + columns + ", PRIMARY KEY (id, reading_date_time))"
+                    + " PARTITION BY RANGE (reading_date_time)");
+            YearMonth current = YearMonth.from(today);
+            for (YearMonth month = current.minusMonths(historyMonths - 1L); !month.isAfter(current.plusMonths(1));
+                 month = month.plusMonths(1)) {
+                statement.execute("CREATE TABLE bfm_reading_p" + month.format(PARTITION_SUFFIX)
+                        + " PARTITION OF bfm_reading FOR VALUES FROM ('" + month.atDay(1)
+                        + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            }
+            statement.execute("CREATE TABLE bfm_reading_default PARTITION OF bfm_reading DEFAULT");
+        }
+
+        statement.execute("CREATE INDEX idx_bfm_reading_scheme_tenant_time ON bfm_reading"
+                + " (scheme_id, tenant_id, reading_date_time DESC)");
+        statement.execute("CREATE INDEX idx_bfm_reading_person_time ON bfm_reading (person_id, reading_date_time)");
+        statement.execute("CREATE INDEX brin_bfm_reading_reading_date_time ON bfm_reading"
+                + " USING brin (reading_date_time) WITH (pages_per_range = 32)");
+    }
+
+    /**
+     * Two readings per scheme per day over the whole history, inserted in time order like production traffic;
+     * each scheme has one operator with the same id.
+     */
+    private void seed(Statement statement) throws SQLException {
+        LocalDateTime from = YearMonth.from(today).minusMonths(historyMonths - 1L).atDay(1).atStartOfDay();
+        statement.execute("INSERT INTO bfm_reading (tenant_id, scheme_id, person_id, confirmed_reading, reading_date_time)"
+                + " SELECT '" + TENANT + "', s, s, (random() * 100000)::numeric(19, 2), t + (s || ' seconds')::interval"
+                + " FROM generate_series('" + from + "'::timestamp, '" + today.atStartOfDay() + "'::timestamp,"
+                + " interval '" + (24 / READINGS_PER_SCHEME_PER_DAY) + " hours') AS t,"
+                + " generate_series(1, " + SCHEMES + ") AS s"
+                + " ORDER BY t, s");
+    }
+
+    private static void drain(PreparedStatement query, Blackhole blackhole) throws SQLException {
+        try (ResultSet rows = query.executeQuery()) {
+            while (rows.next()) {
+                blackhole.consume(rows.getLong(1));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(BfmReadingQueryLatencyBenchmark.class.getSimpleName())
+                .jvmArgsAppend(
+                        "-Djdbc.url=" + System.getProperty("jdbc.url", "jdbc:postgresql://localhost:5432/postgres"),
+                        "-Djdbc.user=" + System.getProperty("jdbc.user", "postgres"),
+                        "-Djdbc.password=" + System.getProperty("jdbc.password", "postgres"))
+                .build()).run();
+    }
+}
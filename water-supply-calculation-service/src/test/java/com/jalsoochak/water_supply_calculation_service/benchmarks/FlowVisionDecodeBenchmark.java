@@ -0,0 +1,149 @@
+package com.jalsoochak.water_supply_calculation_service.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResponse;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode cost of FlowVision responses: the former {@code Map.class} walk (with the INFO log of the whole body
+ * and {@code BigDecimal}s built from {@code toString()}) against the typed model read by a pre-built
+ * {@link ObjectReader}. Fixtures are in {@code src/test/resources/flowvision}.
+ * <p>
+ * Run with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.jalsoochak.water_supply_calculation_service.benchmarks.FlowVisionDecodeBenchmark}
+ * and compare both score and {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("unchecked")
+public class FlowVisionDecodeBenchmark {
+
+    @Param({"success", "low-quality", "failed"})
+    private String fixture;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectReader singleReader;
+    private ObjectReader batchReader;
+    private byte[] single;
+    private byte[] batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        singleReader = objectMapper.readerFor(FlowVisionResponse.class);
+        batchReader = objectMapper.readerFor(FlowVisionResponse.Batch.class);
+        single = load(fixture + ".json");
+        batch = load("batch-16.json");
+    }
+
+    @Benchmark
+    public void legacyMapSingle(Blackhole blackhole) throws IOException {
+        Map<String, Object> body = objectMapper.readValue(single, Map.class);
+        blackhole.consume(String.valueOf(body));
+        blackhole.consume(legacyToResult((Map<String, Object>) body.get("result")));
+    }
+
+    @Benchmark
+    public void typedReaderSingle(Blackhole blackhole) throws IOException {
+        FlowVisionResponse response = singleReader.readValue(single);
+        blackhole.consume(toResult(response.getResult()));
+    }
+
+    @Benchmark
+    public void legacyMapBatch(Blackhole blackhole) throws IOException {
+        Map<String, Object> body = objectMapper.readValue(batch, Map.class);
+        for (Object result : (List<?>) body.get("results")) {
+            blackhole.consume(legacyToResult((Map<String, Object>) result));
+        }
+    }
+
+    @Benchmark
+    public void typedReaderBatch(Blackhole blackhole) throws IOException {
+        FlowVisionResponse.Batch response = batchReader.readValue(batch);
+        for (FlowVisionResponse.Result result : response.getResults()) {
+            blackhole.consume(toResult(result));
+        }
+    }
+
+    /**
+     * The pre-typed-model conversion, kept here as the baseline.
+     */
+    private static FlowVisionResult legacyToResult(Map<String, Object> resultMap) {
+        if (resultMap == null || !"SUCCESS".equals(resultMap.get("status"))) {
+            return null;
+        }
+        Map<String, Object> dataMap = (Map<String, Object>) resultMap.get("data");
+        if (dataMap == null) {
+            return null;
+        }
+
+        Object meterReading = dataMap.get("meterReading");
+        Object confidence = dataMap.get("qualityConfidence");
+        return FlowVisionResult.builder()
+                .adjustedReading(meterReading != null ? new BigDecimal(meterReading.toString()) : null)
+                .qualityStatus(dataMap.getOrDefault("qualityStatus", "unknown").toString())
+                .qualityConfidence(confidence != null ? new BigDecimal(confidence.toString()) : null)
+                .correlationId(resultMap.getOrDefault("correlationId", UUID.randomUUID().toString()).toString())
+                .build();
+    }
+
+    /**
+     * Same conversion as {@code FlowVisionService#toResult}.
+     */
+    private static FlowVisionResult toResult(FlowVisionResponse.Result result) {
+        if (result == null || !"SUCCESS".equals(result.getStatus()) || result.getData() == null) {
+            return null;
+        }
+        FlowVisionResponse.ReadingData data = result.getData();
+        return FlowVisionResult.builder()
+                .adjustedReading(data.getMeterReading())
+                .qualityStatus(data.getQualityStatus() != null ? data.getQualityStatus() : "unknown")
+                .qualityConfidence(data.getQualityConfidence())
+                .correlationId(result.getCorrelationId() != null
+                        ? result.getCorrelationId()
+                        : UUID.randomUUID().toString())
+                .build();
+    }
+
+    private static byte[] load(String name) throws IOException {
+        try (InputStream in = FlowVisionDecodeBenchmark.class.getResourceAsStream("/flowvision/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(FlowVisionDecodeBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
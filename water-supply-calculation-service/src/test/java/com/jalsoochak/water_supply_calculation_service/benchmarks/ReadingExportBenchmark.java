@@ -0,0 +1,154 @@
+package com.jalsoochak.water_supply_calculation_service.benchmarks;
+
+import com.jalsoochak.water_supply_calculation_service.services.ReadingExportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full export of a 10M-row range (override with {@code -Drows=}) as CSV, gzipped CSV and Parquet, written to a
+ * stream that only counts bytes. Each run prints rows, output size, throughput and the heap peak, which should
+ * stay flat however many rows are exported (the Parquet writer holds one row group).
+ * <p>
+ * Needs a Postgres it may write to; the rows are generated in a scratch schema that is dropped afterwards. Run
+ * with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.jalsoochak.water_supply_calculation_service.benchmarks.ReadingExportBenchmark
+ * -Djdbc.url=jdbc:postgresql://localhost:5432/postgres -Djdbc.user=postgres -Djdbc.password=postgres}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class ReadingExportBenchmark {
+
+    private static final String SCHEMA = "reading_export_bench";
+    private static final String TENANT = "bench";
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 12, 31);
+
+    @Param({"csv", "csv-gzip", "parquet"})
+    private String format;
+
+    private DriverManagerDataSource dataSource;
+    private ReadingExportService service;
+    private long rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("jdbc.url", "jdbc:postgresql://localhost:5432/postgres");
+        dataSource = new DriverManagerDataSource(
+                url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA,
+                System.getProperty("jdbc.user", "postgres"),
+                System.getProperty("jdbc.password", "postgres"));
+        rows = Long.getLong("rows", 10_000_000L);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("""
+                CREATE TABLE %s.bfm_reading (
+                    id BIGINT PRIMARY KEY, tenant_id VARCHAR(255), reading_date_time TIMESTAMP(6), scheme_id BIGINT,
+                    person_id BIGINT, extracted_reading NUMERIC(10, 1), confirmed_reading NUMERIC(10, 1),
+                    quality_confidence NUMERIC(3, 2), ocr_status VARCHAR(20), repeated_image BOOLEAN,
+                    near_duplicate BOOLEAN, near_duplicate_of BIGINT, correlation_id VARCHAR(36),
+                    image_hash VARCHAR(64), reading_url VARCHAR(2048), deleted_at TIMESTAMP(6))
+                """.formatted(SCHEMA));
+        // spread evenly over the year, with the columns a real reading has
+        jdbcTemplate.execute("""
+                INSERT INTO %s.bfm_reading
+                SELECT g, '%s', TIMESTAMP '%s' + (g * (365 * 86400.0 / %d)) * INTERVAL '1 second',
+                       g %% 5000, g %% 7000, (g %% 100000) / 10.0, (g %% 100000) / 10.0, 0.90,
+                       'COMPLETED', FALSE, FALSE, NULL, md5(g::text)::uuid::text, md5(g::text) || md5(g::text),
+                       'https://minio.example/readings/' || md5(g::text) || '.jpg', NULL
+                FROM generate_series(1, %d) AS g
+                """.formatted(SCHEMA, TENANT, FROM.atStartOfDay(), rows, rows));
+        jdbcTemplate.execute("CREATE INDEX ON " + SCHEMA + ".bfm_reading (tenant_id, reading_date_time)");
+        jdbcTemplate.execute("ANALYZE " + SCHEMA + ".bfm_reading");
+
+        service = new ReadingExportService(dataSource, new DataSourceTransactionManager(dataSource),
+                new SimpleMeterRegistry(), 5000, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new JdbcTemplate(dataSource).execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeaks() {
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        long start = System.nanoTime();
+        long exported = switch (format) {
+            case "csv" -> service.export(TENANT, FROM, TO, false, out);
+            case "csv-gzip" -> service.export(TENANT, FROM, TO, true, out);
+            default -> service.exportParquet(TENANT, FROM, TO, out);
+        };
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%n%s: %d rows, %.1f MB, %.0f rows/s, heap peak %.0f MB%n",
+                format, exported, out.count / 1e6, exported / seconds, heapPeak() / 1e6);
+        return out.count;
+    }
+
+    private static long heapPeak() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ReadingExportBenchmark.class.getSimpleName())
+                .jvmArgsAppend(
+                        "-Djdbc.url=" + System.getProperty("jdbc.url", "jdbc:postgresql://localhost:5432/postgres"),
+                        "-Djdbc.user=" + System.getProperty("jdbc.user", "postgres"),
+                        "-Djdbc.password=" + System.getProperty("jdbc.password", "postgres"),
+                        "-Drows=" + Long.getLong("rows", 10_000_000L))
+                .build()).run();
+    }
+}
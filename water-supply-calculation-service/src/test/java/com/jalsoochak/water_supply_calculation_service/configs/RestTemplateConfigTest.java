@@ -0,0 +1,56 @@
+package com.jalsoochak.water_supply_calculation_service.configs;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.routing.DefaultRoutePlanner;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RestTemplateConfigTest {
+
+    private final DefaultRoutePlanner routePlanner = new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE);
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    @BeforeEach
+    void setUp() {
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setMaxPerRoute(50);
+        properties.setMaxPerHost(Map.of("api.glific.org", 8));
+        connectionManager = RestTemplateConfig.connectionManager(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManager.close();
+    }
+
+    @Test
+    void appliesHostLimitToTheHttpsRouteTheClientUses() throws Exception {
+        assertThat(connectionManager.getMaxPerRoute(routeFor("https://api.glific.org/api"))).isEqualTo(8);
+    }
+
+    @Test
+    void appliesHostLimitToTheHttpRouteTheClientUses() throws Exception {
+        assertThat(connectionManager.getMaxPerRoute(routeFor("http://api.glific.org/api"))).isEqualTo(8);
+    }
+
+    @Test
+    void leavesOtherHostsAtTheDefaultLimit() throws Exception {
+        assertThat(connectionManager.getMaxPerRoute(routeFor("https://flowvision.example.org/ocr"))).isEqualTo(50);
+    }
+
+    private HttpRoute routeFor(String uri) throws HttpException, URISyntaxException {
+        return routePlanner.determineRoute(HttpHost.create(new URI(uri)), HttpClientContext.create());
+    }
+}
@@ -0,0 +1,37 @@
+package com.jalsoochak.water_supply_calculation_service.controllers;
+
+import com.jalsoochak.water_supply_calculation_service.services.ReadingExportService;
+import com.jalsoochak.water_supply_calculation_service.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ReadingExportControllerTest {
+
+    private final ReadingExportService readingExportService = mock(ReadingExportService.class);
+    private final ReadingExportController controller = new ReadingExportController(
+            readingExportService, Duration.ofDays(366));
+
+    @AfterEach
+    void clearTenant() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void refusesToExportAnotherTenantsReadings() {
+        TenantContext.setTenantId("mh");
+
+        var response = controller.exportReadings("up", LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 31),
+                "csv", false, mock(NativeWebRequest.class));
+
+        assertThat(response.getStatusCode().value()).isEqualTo(403);
+        verifyNoInteractions(readingExportService);
+    }
+}
@@ -0,0 +1,164 @@
+package com.jalsoochak.water_supply_calculation_service.jobs;
+
+import com.jalsoochak.water_supply_calculation_service.exceptions.OcrUnavailableException;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResult;
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import com.jalsoochak.water_supply_calculation_service.services.FlowVisionService;
+import com.jalsoochak.water_supply_calculation_service.services.OcrReconciliationService;
+import com.jalsoochak.water_supply_calculation_service.services.OcrReconciliationService.ReconciledReading;
+import com.jalsoochak.water_supply_calculation_service.services.OcrResultCache;
+import com.jalsoochak.water_supply_calculation_service.services.ReconciledReadingNotifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OcrReconciliationJobTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private OcrReconciliationService reconciliationService;
+    private FlowVisionService flowVisionService;
+    private ReconciledReadingNotifier reconciledReadingNotifier;
+    private OcrReconciliationJob job;
+
+    @BeforeEach
+    void setUp() {
+        reconciliationService = mock(OcrReconciliationService.class);
+        flowVisionService = mock(FlowVisionService.class);
+        reconciledReadingNotifier = mock(ReconciledReadingNotifier.class);
+        job = new OcrReconciliationJob(reconciliationService, flowVisionService, mock(OcrResultCache.class),
+                reconciledReadingNotifier,
+                new SimpleMeterRegistry(), 200, 2, MAX_ATTEMPTS, Duration.ofMinutes(1));
+        when(reconciliationService.loadWatermark()).thenReturn(10L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        job.shutdown();
+    }
+
+    @Test
+    void movesWatermarkToLastReadingWhenAllAreResolved() {
+        batch(reading(11, 0), reading(12, 0));
+        answer(11, value("12.5"));
+        answer(12, value("13.0"));
+
+        job.reconcile();
+
+        assertThat(appliedWatermark()).isEqualTo(12L);
+    }
+
+    @Test
+    void notifiesOperatorsOfTheAppliedResults() {
+        batch(reading(11, 0), reading(12, 0));
+        answer(11, value("12.5"));
+        answer(12, null);
+
+        job.reconcile();
+
+        verify(reconciledReadingNotifier).notifyOperators(appliedResults(), MAX_ATTEMPTS);
+    }
+
+    @Test
+    void keepsWatermarkBelowReadingThatGotNoValue() {
+        batch(reading(11, 0), reading(12, 0), reading(13, 0));
+        answer(11, value("12.5"));
+        answer(12, null);
+        answer(13, value("13.0"));
+
+        job.reconcile();
+
+        assertThat(appliedWatermark()).isEqualTo(11L);
+        assertThat(appliedResults()).hasSize(3);
+    }
+
+    @Test
+    void givesUpOnReadingAtItsLastAttempt() {
+        batch(reading(11, MAX_ATTEMPTS - 1), reading(12, 0));
+        answer(11, null);
+        answer(12, value("13.0"));
+
+        job.reconcile();
+
+        assertThat(appliedWatermark()).isEqualTo(12L);
+        ReconciledReading exhausted = appliedResults().get(0);
+        assertThat(exhausted.remainsPending(MAX_ATTEMPTS)).isFalse();
+    }
+
+    @Test
+    void countsRejectedImageAsAnAttempt() {
+        batch(reading(11, 0), reading(12, 0));
+        when(flowVisionService.extractReading("http://minio/11.jpg")).thenThrow(new IllegalStateException("bad image"));
+        answer(12, value("13.0"));
+
+        job.reconcile();
+
+        assertThat(appliedWatermark()).isEqualTo(10L);
+        assertThat(appliedResults()).extracting(r -> r.reading().getId()).containsExactly(11L, 12L);
+    }
+
+    @Test
+    void leavesUnavailableReadingForNextRunWithoutCountingAnAttempt() {
+        batch(reading(11, 0), reading(12, 0), reading(13, 0));
+        answer(11, value("12.5"));
+        when(flowVisionService.extractReading("http://minio/12.jpg")).thenThrow(new OcrUnavailableException("circuit open"));
+        answer(13, value("13.0"));
+
+        job.reconcile();
+
+        assertThat(appliedWatermark()).isEqualTo(11L);
+        assertThat(appliedResults()).extracting(r -> r.reading().getId()).containsExactly(11L, 13L);
+    }
+
+    private void batch(BfmReading... readings) {
+        when(reconciliationService.nextBatch(10L, MAX_ATTEMPTS, 200)).thenReturn(List.of(readings));
+    }
+
+    private void answer(long id, FlowVisionResult result) {
+        when(flowVisionService.extractReading("http://minio/" + id + ".jpg")).thenReturn(result);
+    }
+
+    private long appliedWatermark() {
+        ArgumentCaptor<Long> watermark = ArgumentCaptor.forClass(Long.class);
+        verify(reconciliationService).apply(anyList(), watermark.capture(), eq(MAX_ATTEMPTS));
+        return watermark.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ReconciledReading> appliedResults() {
+        ArgumentCaptor<List<ReconciledReading>> results = ArgumentCaptor.forClass(List.class);
+        verify(reconciliationService).apply(results.capture(), anyLong(), eq(MAX_ATTEMPTS));
+        return results.getValue();
+    }
+
+    private static BfmReading reading(long id, int ocrAttempts) {
+        return BfmReading.builder()
+                .id(id)
+                .readingUrl("http://minio/" + id + ".jpg")
+                .readingDateTime(LocalDateTime.now())
+                .ocrAttempts(ocrAttempts)
+                .build();
+    }
+
+    private static FlowVisionResult value(String reading) {
+        return FlowVisionResult.builder()
+                .adjustedReading(new BigDecimal(reading))
+                .qualityConfidence(new BigDecimal("0.90"))
+                .build();
+    }
+}
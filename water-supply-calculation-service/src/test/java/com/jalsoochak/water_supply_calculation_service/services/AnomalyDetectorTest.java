@@ -0,0 +1,98 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import com.jalsoochak.water_supply_calculation_service.models.entities.SchemeAnomalyState;
+import com.jalsoochak.water_supply_calculation_service.models.entities.SchemeMaster;
+import com.jalsoochak.water_supply_calculation_service.models.enums.AnomalyType;
+import com.jalsoochak.water_supply_calculation_service.repositories.AnomalyRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.SchemeAnomalyStateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnomalyDetectorTest {
+
+    private static final Long SCHEME_ID = 7L;
+    private static final String TENANT = "tenant";
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    private final AnomalyRepository anomalyRepository = mock(AnomalyRepository.class);
+    private final SchemeAnomalyStateRepository schemeAnomalyStateRepository = mock(SchemeAnomalyStateRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        when(schemeAnomalyStateRepository.findAll()).thenReturn(List.of(SchemeAnomalyState.builder()
+                .schemeId(SCHEME_ID)
+                .tenantId(TENANT)
+                .avgDailyLitre(BigDecimal.valueOf(10_000))
+                .avgDays(30)
+                .build()));
+    }
+
+    @Test
+    void opensLowQuantityBelowTheRatioOfTheAverage() {
+        AnomalyDetector detector = newDetector();
+
+        detector.onDailySupply(SCHEME_ID, TENANT, DAY, BigDecimal.valueOf(4_000), 1L);
+
+        verify(anomalyRepository).open(any(), eq(TENANT), eq(SCHEME_ID), eq(AnomalyType.LOW_QUANTITY.name()),
+                eq(DAY), eq(1L), anyString());
+        verify(anomalyRepository, never()).resolve(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void opensARepeatedImageAnomalyPerReading() {
+        AnomalyDetector detector = newDetector();
+
+        detector.onReading(repeatedImage(1L));
+        detector.onReading(repeatedImage(2L));
+
+        verify(anomalyRepository).openRepeatedImage(any(), eq(TENANT), eq(SCHEME_ID), eq(DAY), eq(1L), anyString());
+        verify(anomalyRepository).openRepeatedImage(any(), eq(TENANT), eq(SCHEME_ID), eq(DAY), eq(2L), anyString());
+        verify(anomalyRepository, never()).open(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void resolvesAnomaliesOpenedBeforeARestart() {
+        newDetector().onDailySupply(SCHEME_ID, TENANT, DAY, BigDecimal.valueOf(4_000), 1L);
+
+        // a fresh instance has no memory of the open anomaly; a corrected day still resolves it
+        newDetector().onDailySupply(SCHEME_ID, TENANT, DAY, BigDecimal.valueOf(9_000), 2L);
+
+        verify(anomalyRepository).resolve(SCHEME_ID, AnomalyType.LOW_QUANTITY.name(), DAY);
+    }
+
+    private static BfmReading repeatedImage(Long id) {
+        return BfmReading.builder()
+                .id(id)
+                .tenantId(TENANT)
+                .scheme(SchemeMaster.builder().id(SCHEME_ID).build())
+                .readingDateTime(DAY.atTime(9, 0))
+                .imageHash("hash")
+                .repeatedImage(true)
+                .build();
+    }
+
+    private AnomalyDetector newDetector() {
+        AnomalyDetector detector = new AnomalyDetector(anomalyRepository, schemeAnomalyStateRepository,
+                mock(JdbcTemplate.class), new ObjectMapper(), new SimpleMeterRegistry(), 0.5, 7, Duration.ofMinutes(1));
+        detector.load();
+        return detector;
+    }
+}
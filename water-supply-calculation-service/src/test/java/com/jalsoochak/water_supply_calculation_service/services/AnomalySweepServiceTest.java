@@ -0,0 +1,39 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalsoochak.water_supply_calculation_service.repositories.JobWatermarkRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class AnomalySweepServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AnomalySweepService service = new AnomalySweepService(
+            jdbcTemplate, mock(JobWatermarkRepository.class), new ObjectMapper(), 14);
+
+    @Test
+    void checksEverySchemeAgainstTheDaysReadings() {
+        LocalDate day = LocalDate.of(2026, 3, 10);
+
+        service.sweep(day);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowCallbackHandler.class),
+                eq(Timestamp.valueOf(day.atStartOfDay())), eq(Timestamp.valueOf(day.plusDays(1).atStartOfDay())));
+        String where = sql.getValue().substring(sql.getValue().indexOf("WHERE"));
+        assertThat(where).contains("NOT EXISTS").contains("FROM bfm_reading r");
+        // the snapshotted last submission may lag behind bfm_reading, so it must not decide
+        assertThat(where).doesNotContain("last_submission_at");
+    }
+}
@@ -0,0 +1,143 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs {@code V8__bfm_reading_partitioning} against a plain {@code bfm_reading} in a real Postgres, then the
+ * partition job on top of it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class BfmReadingPartitioningTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final YearMonth now = YearMonth.now();
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createPlainTable() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbcTemplate.execute("DROP SCHEMA public CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA public");
+        jdbcTemplate.execute("CREATE TABLE scheme_master (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE person_master (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("""
+                CREATE TABLE bfm_reading (
+                    id                BIGSERIAL PRIMARY KEY,
+                    tenant_id         VARCHAR(255),
+                    scheme_id         BIGINT REFERENCES scheme_master (id),
+                    person_id         BIGINT REFERENCES person_master (id),
+                    reading_date_time TIMESTAMP(6),
+                    confirmed_reading NUMERIC(10, 1),
+                    image_hash        VARCHAR(64),
+                    correlation_id    VARCHAR(36)
+                )
+                """);
+        jdbcTemplate.execute("CREATE INDEX idx_bfm_reading_image_hash ON bfm_reading (image_hash)");
+        jdbcTemplate.execute("CREATE INDEX idx_bfm_reading_scheme_tenant_time"
+                + " ON bfm_reading (scheme_id, tenant_id, reading_date_time DESC)");
+        jdbcTemplate.update("INSERT INTO scheme_master VALUES (1)");
+        jdbcTemplate.update("INSERT INTO person_master VALUES (1)");
+
+        insertReading(now.minusMonths(14));
+        insertReading(now.minusMonths(2));
+        insertReading(now.minusMonths(2));
+        insertReading(now);
+        insertReading(now.plusMonths(1));
+    }
+
+    @Test
+    void movesEveryReadingIntoItsMonthsPartition() {
+        migrate();
+
+        assertThat(new BfmReadingPartitionManager(jdbcTemplate, 3).isPartitioned()).isTrue();
+        assertThat(jdbcTemplate.queryForList("""
+                SELECT tableoid::regclass::text FROM bfm_reading ORDER BY id
+                """, String.class)).containsExactly(
+                partition(now.minusMonths(14)),
+                partition(now.minusMonths(2)),
+                partition(now.minusMonths(2)),
+                partition(now),
+                partition(now.plusMonths(1)));
+        assertThat(count("bfm_reading_default")).isZero();
+        // every month from the oldest reading on has a partition, up to three months ahead
+        assertThat(exists(partition(now.minusMonths(8)))).isTrue();
+        assertThat(exists(partition(now.plusMonths(3)))).isTrue();
+    }
+
+    @Test
+    void keepsIdsAndForeignKeys() {
+        migrate();
+
+        Long id = jdbcTemplate.queryForObject("""
+                INSERT INTO bfm_reading (scheme_id, person_id, reading_date_time) VALUES (1, 1, now())
+                RETURNING id
+                """, Long.class);
+        assertThat(id).isEqualTo(6L);
+        assertThatThrownBy(() -> jdbcTemplate.update("""
+                INSERT INTO bfm_reading (scheme_id, person_id, reading_date_time) VALUES (2, 1, now())
+                """)).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void createsAPartitionForAMonthThatAlreadyHasRowsInTheDefault() {
+        migrate();
+        YearMonth farAhead = now.plusMonths(6);
+        insertReading(farAhead);
+        assertThat(count("bfm_reading_default")).isEqualTo(1);
+
+        new BfmReadingPartitionManager(jdbcTemplate, 6).ensureFuturePartitions();
+
+        assertThat(count("bfm_reading_default")).isZero();
+        assertThat(count(partition(farAhead))).isEqualTo(1);
+        assertThat(count("bfm_reading")).isEqualTo(6);
+    }
+
+    private void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .table("water_supply_schema_history")
+                .baselineOnMigrate(true)
+                .baselineVersion("7")
+                .target("8")
+                .load()
+                .migrate();
+    }
+
+    private void insertReading(YearMonth month) {
+        jdbcTemplate.update("INSERT INTO bfm_reading (tenant_id, scheme_id, person_id, reading_date_time)"
+                + " VALUES ('tenant', 1, 1, ?)", Timestamp.valueOf(month.atDay(10).atTime(9, 0)));
+    }
+
+    private static String partition(YearMonth month) {
+        return "bfm_reading_p" + month.format(SUFFIX);
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
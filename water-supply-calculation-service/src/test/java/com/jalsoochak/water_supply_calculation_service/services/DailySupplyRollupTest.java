@@ -0,0 +1,76 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.BfmReading;
+import com.jalsoochak.water_supply_calculation_service.models.entities.SchemeMaster;
+import com.jalsoochak.water_supply_calculation_service.repositories.BfmReadingRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.SchemeDailySupplyRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.SchemeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DailySupplyRollupTest {
+
+    private static final Long SCHEME_ID = 7L;
+    private static final String TENANT = "tenant";
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    private final BfmReadingRepository bfmReadingRepository = mock(BfmReadingRepository.class);
+    private final SchemeDailySupplyRepository schemeDailySupplyRepository = mock(SchemeDailySupplyRepository.class);
+    private final SchemeRepository schemeRepository = mock(SchemeRepository.class);
+    private final AnomalyDetector anomalyDetector = mock(AnomalyDetector.class);
+    private final DailySupplyRollup rollup = new DailySupplyRollup(bfmReadingRepository, schemeDailySupplyRepository,
+            schemeRepository, anomalyDetector, BigDecimal.ONE, Duration.ofDays(7));
+
+    @Test
+    void countsEveryReadingOfABusyDay() {
+        when(schemeRepository.getReferenceById(SCHEME_ID)).thenReturn(SchemeMaster.builder().id(SCHEME_ID).build());
+        List<BfmReading> readings = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            readings.add(reading(i + 1L, DAY.atStartOfDay().plusSeconds(i * 60L), BigDecimal.valueOf(i)));
+        }
+        when(bfmReadingRepository.findValidReadingsAsc(eq(SCHEME_ID), eq(TENANT), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    LocalDateTime from = invocation.getArgument(2);
+                    Pageable pageable = invocation.getArgument(5);
+                    if (!from.toLocalDate().equals(DAY)) {
+                        return List.of();
+                    }
+                    int start = (int) Math.min(pageable.getOffset(), readings.size());
+                    int end = Math.min(start + pageable.getPageSize(), readings.size());
+                    return readings.subList(start, end);
+                });
+        when(bfmReadingRepository.findValidReadingsDesc(anyLong(), anyString(), any(), any(), any(), any()))
+                .thenReturn(List.of());
+
+        rollup.onReadingChanged(SCHEME_ID, TENANT, 1L, DAY.atStartOfDay());
+
+        // 1199 deltas of one unit each, at one litre per unit
+        verify(schemeDailySupplyRepository).upsert(eq(SCHEME_ID), eq(TENANT), eq(DAY),
+                argThat(litres -> litres.compareTo(BigDecimal.valueOf(1199)) == 0), any(), eq(1200), eq(1L), eq(1200L));
+    }
+
+    private static BfmReading reading(Long id, LocalDateTime time, BigDecimal value) {
+        return BfmReading.builder()
+                .id(id)
+                .tenantId(TENANT)
+                .readingDateTime(time)
+                .confirmedReading(value)
+                .build();
+    }
+}
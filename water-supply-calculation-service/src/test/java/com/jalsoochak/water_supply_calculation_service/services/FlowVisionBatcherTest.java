@@ -0,0 +1,75 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.exceptions.FlowVisionBatchUnsupportedException;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.FlowVisionResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlowVisionBatcherTest {
+
+    private FlowVisionBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void failsRequestsTheBatchResponseDidNotAnswer() throws Exception {
+        batcher = newBatcher(urls -> List.of(FlowVisionBatcher.Answer.of(result(urls.get(0)))), url -> result(url));
+
+        CompletableFuture<FlowVisionResult> first = batcher.submit("a");
+        CompletableFuture<FlowVisionResult> second = batcher.submit("b");
+
+        assertThat(first.get(2, TimeUnit.SECONDS).getCorrelationId()).isEqualTo("a");
+        assertThatThrownBy(() -> second.get(2, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void failsOnlyTheEntryWhoseAnswerIsAnError() throws Exception {
+        batcher = newBatcher(urls -> List.of(
+                FlowVisionBatcher.Answer.failed(new IllegalStateException("FlowVision batch result is null")),
+                FlowVisionBatcher.Answer.of(result(urls.get(1)))
+        ), url -> result(url));
+
+        CompletableFuture<FlowVisionResult> first = batcher.submit("a");
+        CompletableFuture<FlowVisionResult> second = batcher.submit("b");
+
+        assertThatThrownBy(() -> first.get(2, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(second.get(2, TimeUnit.SECONDS).getCorrelationId()).isEqualTo("b");
+    }
+
+    @Test
+    void fallsBackToSingleRequestsWhenBatchEndpointIsMissing() throws Exception {
+        batcher = newBatcher(urls -> {
+            throw new FlowVisionBatchUnsupportedException("404");
+        }, url -> result(url));
+
+        CompletableFuture<FlowVisionResult> first = batcher.submit("a");
+        CompletableFuture<FlowVisionResult> second = batcher.submit("b");
+
+        assertThat(first.get(2, TimeUnit.SECONDS).getCorrelationId()).isEqualTo("a");
+        assertThat(second.get(2, TimeUnit.SECONDS).getCorrelationId()).isEqualTo("b");
+    }
+
+    private static FlowVisionBatcher newBatcher(Function<List<String>, List<FlowVisionBatcher.Answer>> batchCall,
+                                                Function<String, FlowVisionResult> singleCall) {
+        return new FlowVisionBatcher(2, 500, 10, 2, batchCall, singleCall, new SimpleMeterRegistry());
+    }
+
+    private static FlowVisionResult result(String url) {
+        return FlowVisionResult.builder().correlationId(url).build();
+    }
+}
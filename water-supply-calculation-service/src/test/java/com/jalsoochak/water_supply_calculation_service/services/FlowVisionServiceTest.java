@@ -0,0 +1,72 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalsoochak.water_supply_calculation_service.configs.FlowVisionResilienceProperties;
+import com.jalsoochak.water_supply_calculation_service.exceptions.OcrUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FlowVisionServiceTest {
+
+    private RestTemplate restTemplate;
+    private FlowVisionService service;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        FlowVisionResilienceProperties resilience = new FlowVisionResilienceProperties();
+        resilience.setEnabled(false);
+        service = new FlowVisionService(restTemplate, new ObjectMapper(), new SimpleMeterRegistry(), resilience,
+                "http://flowvision/ocr", "", false, 16, 20, 1000, 8, 15000, 100, 512);
+    }
+
+    @Test
+    void transportFailureIsRetryable() {
+        failWith(new ResourceAccessException("Read timed out"));
+
+        assertThatThrownBy(() -> service.extractReading("http://minio/a.jpg"))
+                .isInstanceOf(OcrUnavailableException.class)
+                .hasCauseInstanceOf(ResourceAccessException.class);
+    }
+
+    @Test
+    void serverErrorAndRateLimitAreRetryable() {
+        failWith(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "Unavailable", HttpHeaders.EMPTY, null, null));
+        assertThatThrownBy(() -> service.extractReading("http://minio/a.jpg"))
+                .isInstanceOf(OcrUnavailableException.class);
+
+        failWith(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", HttpHeaders.EMPTY, null, null));
+        assertThatThrownBy(() -> service.extractReading("http://minio/a.jpg"))
+                .isInstanceOf(OcrUnavailableException.class);
+    }
+
+    @Test
+    void rejectedRequestIsPropagated() {
+        failWith(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", HttpHeaders.EMPTY, null, null));
+
+        assertThatThrownBy(() -> service.extractReading("http://minio/a.jpg"))
+                .isInstanceOf(HttpClientErrorException.BadRequest.class);
+    }
+
+    private void failWith(RuntimeException failure) {
+        when(restTemplate.execute(anyString(), eq(HttpMethod.POST), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenThrow(failure);
+    }
+}
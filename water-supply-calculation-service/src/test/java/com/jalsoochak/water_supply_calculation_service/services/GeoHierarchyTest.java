@@ -0,0 +1,56 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.models.enums.GeoLevel;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class GeoHierarchyTest {
+
+    /**
+     * State 1 > district 2 > blocks 3 and 4; village 10 (scheme 100) under block 3, village 11 (scheme 200)
+     * under block 4.
+     */
+    static GeoHierarchy twoBlocks() {
+        return new GeoHierarchy.Builder()
+                .lgdLocation(1, "State", null, "State")
+                .lgdLocation(2, "District", 1L, "District")
+                .lgdLocation(3, "Block A", 2L, "Block")
+                .lgdLocation(4, "Block B", 2L, "Block")
+                .scheme(100, 10, "Village A", 3L)
+                .scheme(200, 11, "Village B", 4L)
+                .operator(100, 1000)
+                .operator(200, 2000)
+                .build();
+    }
+
+    @Test
+    void chainRunsFromTheVillageUpToTheState() {
+        GeoHierarchy hierarchy = twoBlocks();
+
+        assertThat(hierarchy.chain(100))
+                .extracting(GeoHierarchy.Node::level, GeoHierarchy.Node::id)
+                .containsExactly(
+                        tuple(GeoLevel.VILLAGE, 10L),
+                        tuple(GeoLevel.BLOCK, 3L),
+                        tuple(GeoLevel.DISTRICT, 2L),
+                        tuple(GeoLevel.STATE, 1L));
+        assertThat(hierarchy.chain(999)).isEmpty();
+    }
+
+    @Test
+    void upperLevelsCoverEverySchemeAndOperatorBelowThem() {
+        GeoHierarchy hierarchy = twoBlocks();
+
+        GeoHierarchy.Node state = hierarchy.nodes(GeoLevel.STATE, null).get(0);
+        assertThat(state.schemeIds()).containsExactly(100L, 200L);
+        assertThat(state.operatorIds()).containsExactly(1000L, 2000L);
+        assertThat(hierarchy.nodes(GeoLevel.VILLAGE, 2L))
+                .extracting(GeoHierarchy.Node::name)
+                .containsExactly("Village A", "Village B");
+        assertThat(hierarchy.nodes(GeoLevel.BLOCK, 1L))
+                .extracting(GeoHierarchy.Node::parentId)
+                .containsOnly(2L);
+    }
+}
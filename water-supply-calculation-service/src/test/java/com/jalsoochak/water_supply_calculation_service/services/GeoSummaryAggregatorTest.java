@@ -0,0 +1,149 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.models.entities.GeoDailySummary;
+import com.jalsoochak.water_supply_calculation_service.models.entities.JobWatermark;
+import com.jalsoochak.water_supply_calculation_service.models.enums.GeoLevel;
+import com.jalsoochak.water_supply_calculation_service.repositories.GeoDailySummaryRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.JobWatermarkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GeoSummaryAggregatorTest {
+
+    private static final String TENANT = "tenant";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final GeoHierarchyCache hierarchyCache = mock(GeoHierarchyCache.class);
+    private final GeoDailySummaryRepository geoDailySummaryRepository = mock(GeoDailySummaryRepository.class);
+    private final JobWatermarkRepository jobWatermarkRepository = mock(JobWatermarkRepository.class);
+    private final GeoSummaryAggregator aggregator = new GeoSummaryAggregator(jdbcTemplate, hierarchyCache,
+            geoDailySummaryRepository, jobWatermarkRepository, Duration.ofDays(7), Duration.ofMinutes(1), 200);
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        when(hierarchyCache.get(TENANT)).thenReturn(GeoHierarchyTest.twoBlocks());
+    }
+
+    @Test
+    void recomputesOnlyTheChangedSchemesChain() throws SQLException {
+        rows("WHERE id > ?", 3, new Object[]{5L, TENANT, Timestamp.valueOf(today.atTime(9, 0)), 100L});
+
+        aggregator.refreshChanged();
+
+        assertThat(writtenCells())
+                .extracting(GeoDailySummary::getLevel, GeoDailySummary::getLocationId)
+                .containsExactlyInAnyOrder(
+                        tuple(GeoLevel.VILLAGE, 10L),
+                        tuple(GeoLevel.BLOCK, 3L),
+                        tuple(GeoLevel.DISTRICT, 2L),
+                        tuple(GeoLevel.STATE, 1L));
+    }
+
+    @Test
+    void rescansAnOverlapBelowTheReadingsWatermarkWithoutMovingItBack() {
+        when(jobWatermarkRepository.findById(GeoSummaryAggregator.READINGS_WATERMARK)).thenReturn(Optional.of(
+                JobWatermark.builder().jobName(GeoSummaryAggregator.READINGS_WATERMARK).lastId(1000L).build()));
+
+        aggregator.refreshChanged();
+
+        verify(jdbcTemplate).query(contains("WHERE id > ?"), any(RowCallbackHandler.class), eq(800L), any(), any());
+        ArgumentCaptor<JobWatermark> saved = ArgumentCaptor.forClass(JobWatermark.class);
+        verify(jobWatermarkRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues())
+                .filteredOn(watermark -> watermark.getJobName().equals(GeoSummaryAggregator.READINGS_WATERMARK))
+                .singleElement()
+                .extracting(JobWatermark::getLastId)
+                .isEqualTo(1000L);
+    }
+
+    @Test
+    void keepsTheSupplyWatermarkAsATimestamp() throws SQLException {
+        LocalDateTime previous = today.atTime(8, 0);
+        LocalDateTime updatedAt = today.atTime(8, 30);
+        when(jobWatermarkRepository.findById(GeoSummaryAggregator.SUPPLY_WATERMARK)).thenReturn(Optional.of(
+                JobWatermark.builder().jobName(GeoSummaryAggregator.SUPPLY_WATERMARK).lastId(0L)
+                        .lastTimestamp(previous).build()));
+        rows("WHERE updated_at > ?", 1, new Object[]{TENANT, Date.valueOf(today), 200L, Timestamp.valueOf(updatedAt)});
+
+        aggregator.refreshChanged();
+
+        ArgumentCaptor<JobWatermark> saved = ArgumentCaptor.forClass(JobWatermark.class);
+        verify(jobWatermarkRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues())
+                .filteredOn(watermark -> watermark.getJobName().equals(GeoSummaryAggregator.SUPPLY_WATERMARK))
+                .singleElement()
+                .extracting(JobWatermark::getLastTimestamp)
+                .isEqualTo(updatedAt);
+        // read back with the overlap
+        verify(jdbcTemplate).query(contains("WHERE updated_at > ?"), any(RowCallbackHandler.class),
+                eq(Timestamp.valueOf(previous.minusMinutes(1))));
+        assertThat(writtenCells())
+                .extracting(GeoDailySummary::getLocationId)
+                .containsExactlyInAnyOrder(11L, 4L, 2L, 1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<GeoDailySummary> writtenCells() {
+        ArgumentCaptor<Collection<GeoDailySummary>> cells = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), cells.capture(), anyInt(), any());
+        return cells.getValue();
+    }
+
+    /**
+     * Feeds {@code rows} to the row callback of the query whose SQL contains {@code sqlFragment}.
+     */
+    private void rows(String sqlFragment, int argCount, Object[]... rows) throws SQLException {
+        Object[][] current = new Object[1][];
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(anyInt())).thenAnswer(inv -> ((Number) current[0][(int) inv.getArgument(0) - 1]).longValue());
+        when(rs.getString(anyInt())).thenAnswer(inv -> current[0][(int) inv.getArgument(0) - 1]);
+        when(rs.getTimestamp(anyInt())).thenAnswer(inv -> current[0][(int) inv.getArgument(0) - 1]);
+        when(rs.getDate(anyInt())).thenAnswer(inv -> current[0][(int) inv.getArgument(0) - 1]);
+
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            for (Object[] row : List.of(rows)) {
+                current[0] = row;
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains(sqlFragment), any(RowCallbackHandler.class), anyArgs(argCount));
+    }
+
+    private static Object[] anyArgs(int count) {
+        Object[] args = new Object[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = any();
+        }
+        return args;
+    }
+}
@@ -0,0 +1,107 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.exceptions.ApiException;
+import com.jalsoochak.water_supply_calculation_service.models.entities.MessageTemplate;
+import com.jalsoochak.water_supply_calculation_service.models.entities.StateAdminConfig;
+import com.jalsoochak.water_supply_calculation_service.repositories.MessageTemplateRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.StateAdminConfigRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageTemplateEngineTest {
+
+    private static final String PHONE = "919000000001";
+
+    private final MessageTemplateRepository templateRepository = mock(MessageTemplateRepository.class);
+    private final StateAdminConfigRepository configRepository = mock(StateAdminConfigRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        when(configRepository.findByPhoneNumber(PHONE))
+                .thenReturn(Optional.of(StateAdminConfig.builder().phoneNumber(PHONE).languageCode("hi").build()));
+        when(templateRepository.findByTenantIdAndFlowNameAndLanguageCode(anyString(), anyString(), anyString()))
+                .thenReturn(Optional.empty());
+    }
+
+    @Test
+    void rendersTheTenantsOwnTemplate() {
+        when(templateRepository.findByTenantIdAndFlowNameAndLanguageCode("tn-1", "IntroMessage", "hi"))
+                .thenReturn(Optional.of(template("tn-1", "Hello {name}")));
+
+        assertThat(engine("GLOBAL").render("tn-1", PHONE, "IntroMessage", Map.of("name", "Asha")))
+                .isEqualTo("Hello Asha");
+    }
+
+    @Test
+    void fallsBackOnlyToTheGlobalDefault() {
+        when(templateRepository.findByTenantIdAndFlowNameAndLanguageCode("GLOBAL", "IntroMessage", "hi"))
+                .thenReturn(Optional.of(template("GLOBAL", "Welcome")));
+
+        MessageTemplateEngine engine = engine("GLOBAL");
+
+        assertThat(engine.render("tn-1", PHONE, "IntroMessage")).isEqualTo("Welcome");
+        assertThat(engine.render(null, PHONE, "IntroMessage")).isEqualTo("Welcome");
+    }
+
+    @Test
+    void rendersTheGlobalTemplateForAnUnmappedContactWithoutAConfiguredDefault() {
+        when(templateRepository.findByTenantIdAndFlowNameAndLanguageCode(
+                MessageTemplateEngine.GLOBAL_TENANT_ID, "IntroMessage", "hi"))
+                .thenReturn(Optional.of(template(MessageTemplateEngine.GLOBAL_TENANT_ID, "Welcome")));
+
+        assertThat(engine("").render(null, PHONE, "IntroMessage")).isEqualTo("Welcome");
+    }
+
+    @Test
+    void doesNotUseAnotherTenantsTemplate() {
+        when(templateRepository.findByTenantIdAndFlowNameAndLanguageCode("tn-2", "IntroMessage", "hi"))
+                .thenReturn(Optional.of(template("tn-2", "Hello from tn-2")));
+
+        MessageTemplateEngine engine = engine("");
+
+        assertThatThrownBy(() -> engine.render("tn-1", PHONE, "IntroMessage")).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> engine.render(null, PHONE, "IntroMessage")).isInstanceOf(ApiException.class);
+        verify(templateRepository, times(0)).findByTenantIdAndFlowNameAndLanguageCode(eq("tn-2"), anyString(), anyString());
+    }
+
+    @Test
+    void cachesMisses() {
+        MessageTemplateEngine engine = engine("");
+
+        assertThatThrownBy(() -> engine.render("tn-1", PHONE, "IntroMessage")).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> engine.render("tn-1", PHONE, "IntroMessage")).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> engine.render("tn-1", "unknown", "IntroMessage")).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> engine.render("tn-1", "unknown", "IntroMessage")).isInstanceOf(ApiException.class);
+
+        verify(templateRepository, times(1)).findByTenantIdAndFlowNameAndLanguageCode("tn-1", "IntroMessage", "hi");
+        verify(configRepository, times(1)).findByPhoneNumber("unknown");
+    }
+
+    private MessageTemplateEngine engine(String defaultTenantId) {
+        return new MessageTemplateEngine(templateRepository, configRepository, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(10), defaultTenantId);
+    }
+
+    private static MessageTemplate template(String tenantId, String text) {
+        return MessageTemplate.builder()
+                .tenantId(tenantId)
+                .flowName("IntroMessage")
+                .languageCode("hi")
+                .templateText(text)
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.LocalInputFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadingExportServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    private EmbeddedDatabase database;
+    private ReadingExportService service;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("""
+                CREATE TABLE bfm_reading (
+                    id BIGINT PRIMARY KEY, tenant_id VARCHAR(255), reading_date_time TIMESTAMP, scheme_id BIGINT,
+                    person_id BIGINT, extracted_reading NUMERIC(10, 1), confirmed_reading NUMERIC(10, 1),
+                    quality_confidence NUMERIC(3, 2), ocr_status VARCHAR(20), repeated_image BOOLEAN,
+                    near_duplicate BOOLEAN, near_duplicate_of BIGINT, correlation_id VARCHAR(36),
+                    image_hash VARCHAR(64), reading_url VARCHAR(2048), deleted_at TIMESTAMP)
+                """);
+        jdbcTemplate.update("INSERT INTO bfm_reading VALUES (1, 't1', TIMESTAMP '2026-03-10 08:00:00', 7, 70,"
+                + " 1234.5, 1234.5, 0.97, 'COMPLETED', FALSE, FALSE, NULL, 'c-1', 'h1', 'https://x/a,b.jpg', NULL)");
+        jdbcTemplate.update("INSERT INTO bfm_reading VALUES (2, 't1', TIMESTAMP '2026-03-10 18:00:00', 7, NULL,"
+                + " NULL, 1240.0, NULL, 'PENDING', NULL, NULL, NULL, 'c-2', NULL, NULL, NULL)");
+        jdbcTemplate.update("INSERT INTO bfm_reading VALUES (3, 't2', TIMESTAMP '2026-03-10 09:00:00', 8, 80,"
+                + " NULL, 10.0, NULL, 'PENDING', NULL, NULL, NULL, 'c-3', NULL, NULL, NULL)");
+
+        service = new ReadingExportService(database, new DataSourceTransactionManager(database),
+                new SimpleMeterRegistry(), 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void writesTheTenantsRowsAsCsv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = service.export("t1", DAY, DAY, false, out);
+
+        assertThat(rows).isEqualTo(2);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[1]).startsWith("1,2026-03-10T08:00,7,70,1234.5,1234.5,0.97,COMPLETED,")
+                .endsWith(",\"https://x/a,b.jpg\"");
+    }
+
+    @Test
+    void writesAReadableParquetFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("readings.parquet");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            assertThat(service.exportParquet("t1", DAY, DAY, out)).isEqualTo(2);
+        }
+
+        try (ParquetFileReader reader = ParquetFileReader.open(new LocalInputFile(file))) {
+            assertThat(reader.getRecordCount()).isEqualTo(2);
+            assertThat(reader.getFooter().getFileMetaData().getSchema())
+                    .isEqualTo(ReadingExportService.PARQUET_SCHEMA);
+        }
+    }
+
+    @Test
+    void aPermitIsReleasedOnceHoweverOftenItIsClosed() {
+        Optional<ReadingExportService.Permit> permit = service.tryAcquire();
+        assertThat(permit).isPresent();
+        assertThat(service.tryAcquire()).isEmpty();
+
+        permit.get().close();
+        permit.get().close();
+
+        Optional<ReadingExportService.Permit> next = service.tryAcquire();
+        assertThat(next).isPresent();
+        assertThat(service.tryAcquire()).isEmpty();
+        next.get().close();
+    }
+}
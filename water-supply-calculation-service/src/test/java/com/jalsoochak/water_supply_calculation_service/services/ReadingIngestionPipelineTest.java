@@ -0,0 +1,119 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.jalsoochak.water_supply_calculation_service.exceptions.IngestionBusyException;
+import com.jalsoochak.water_supply_calculation_service.models.app.requests.GlificWebhookRequest;
+import com.jalsoochak.water_supply_calculation_service.models.entities.ReadingSubmission;
+import com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus;
+import com.jalsoochak.water_supply_calculation_service.repositories.ReadingSubmissionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadingIngestionPipelineTest {
+
+    private final GlificWebhookService glificWebhookService = mock(GlificWebhookService.class);
+    private final GlificResultNotifier glificResultNotifier = mock(GlificResultNotifier.class);
+    private final ReadingSubmissionRepository repository = mock(ReadingSubmissionRepository.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ReadingIngestionPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new ReadingIngestionPipeline(glificWebhookService, glificResultNotifier, repository,
+                new SimpleMeterRegistry(), 1, 1, 1, 1);
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        pipeline.shutdown();
+    }
+
+    @Test
+    void recoverStaleSkipsSubmissionsThatMovedOn() throws Exception {
+        ReadingSubmission submission = stale(0);
+        when(repository.findByStatusInAndUpdatedAtBeforeOrderByIdAsc(any(), any(), any())).thenReturn(List.of(submission));
+        when(repository.claimForRetry(anyLong(), any(), any())).thenReturn(0);
+
+        assertThat(pipeline.recoverStale(Duration.ofMinutes(10), 3, 100)).isZero();
+        verify(glificWebhookService, never()).fetchAndStoreImage(any());
+        verify(glificResultNotifier, never()).notifyResult(any(), any());
+    }
+
+    @Test
+    void recoverStaleRerunsFetchWithTheStoredRequest() throws Exception {
+        ReadingSubmission submission = stale(1);
+        when(repository.findByStatusInAndUpdatedAtBeforeOrderByIdAsc(any(), any(), any())).thenReturn(List.of(submission));
+        when(repository.claimForRetry(eq(7L), any(), any())).thenReturn(1);
+
+        assertThat(pipeline.recoverStale(Duration.ofMinutes(10), 3, 100)).isEqualTo(1);
+        verify(glificWebhookService, timeout(1000)).fetchAndStoreImage(argThat(request ->
+                "c-1".equals(request.getContactId())
+                        && "m-1".equals(request.getMediaId())
+                        && "flow-1".equals(request.getFlowId())));
+        assertThat(submission.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void recoverStaleFailsSubmissionAfterMaxAttempts() throws Exception {
+        ReadingSubmission submission = stale(3);
+        when(repository.findByStatusInAndUpdatedAtBeforeOrderByIdAsc(any(), any(), any())).thenReturn(List.of(submission));
+        when(repository.claimForRetry(eq(7L), any(), any())).thenReturn(1);
+
+        assertThat(pipeline.recoverStale(Duration.ofMinutes(10), 3, 100)).isZero();
+        assertThat(submission.getStatus()).isEqualTo(SubmissionStatus.FAILED);
+        verify(glificResultNotifier).notifyResult(argThat(request -> "flow-1".equals(request.getFlowId())), any());
+        verify(glificWebhookService, never()).fetchAndStoreImage(any());
+    }
+
+    @Test
+    void submitRefusesWhenFetchQueueIsFull() throws Exception {
+        when(glificWebhookService.hasImage(any())).thenReturn(true);
+        when(glificWebhookService.fetchAndStoreImage(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("stop");
+        });
+        GlificWebhookRequest request = GlificWebhookRequest.builder().contactId("c-1").mediaId("m-1").build();
+
+        pipeline.submit(request);
+        verify(glificWebhookService, timeout(1000)).fetchAndStoreImage(any());
+        pipeline.submit(request);
+
+        assertThatThrownBy(() -> pipeline.submit(request)).isInstanceOf(IngestionBusyException.class);
+        verify(repository).delete(any(ReadingSubmission.class));
+    }
+
+    private static ReadingSubmission stale(int attempts) {
+        LocalDateTime updatedAt = LocalDateTime.now().minusHours(1);
+        return ReadingSubmission.builder()
+                .id(7L)
+                .contactId("c-1")
+                .mediaId("m-1")
+                .flowId("flow-1")
+                .status(SubmissionStatus.PROCESSING)
+                .attempts(attempts)
+                .createdAt(updatedAt)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+package com.jalsoochak.water_supply_calculation_service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalsoochak.water_supply_calculation_service.models.app.requests.GlificWebhookRequest;
+import com.jalsoochak.water_supply_calculation_service.models.app.responses.CreateReadingResponse;
+import com.jalsoochak.water_supply_calculation_service.models.entities.ReadingSubmission;
+import com.jalsoochak.water_supply_calculation_service.models.entities.WebhookIdempotencyRecord;
+import com.jalsoochak.water_supply_calculation_service.models.enums.SubmissionStatus;
+import com.jalsoochak.water_supply_calculation_service.repositories.ReadingSubmissionRepository;
+import com.jalsoochak.water_supply_calculation_service.repositories.WebhookIdempotencyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookIdempotencyServiceTest {
+
+    private final WebhookIdempotencyRepository idempotencyRepository = mock(WebhookIdempotencyRepository.class);
+    private final ReadingSubmissionRepository submissionRepository = mock(ReadingSubmissionRepository.class);
+    private final GlificWebhookService glificWebhookService = mock(GlificWebhookService.class);
+    private final GlificWebhookRequest request = GlificWebhookRequest.builder()
+            .contactId("42")
+            .mediaId("media-1")
+            .build();
+    private final String key = WebhookIdempotencyService.keyOf(request);
+    private WebhookIdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        when(glificWebhookService.hasImage(request)).thenReturn(true);
+        when(glificWebhookService.submissionReceivedMessage("42")).thenReturn("received");
+        service = new WebhookIdempotencyService(idempotencyRepository, submissionRepository, glificWebhookService,
+                new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofHours(1), Duration.ofMinutes(2),
+                Duration.ofSeconds(1));
+    }
+
+    @Test
+    void storesSuccessfulResponse() {
+        claimSucceeds();
+
+        service.execute(request, () -> response(true, "good"));
+
+        verify(idempotencyRepository).complete(eq(key), anyString(), any(LocalDateTime.class));
+        verify(idempotencyRepository, never()).deleteById(key);
+    }
+
+    @Test
+    void releasesUnsuccessfulResponse() {
+        claimSucceeds();
+
+        service.execute(request, () -> response(false, "LOW_CONFIDENCE"));
+
+        verify(idempotencyRepository, never()).complete(anyString(), anyString(), any(LocalDateTime.class));
+        verify(idempotencyRepository).deleteById(key);
+    }
+
+    @Test
+    void doesNotStoreAsynchronousAcknowledgement() {
+        claimSucceeds();
+
+        service.execute(request, () -> response(true, SubmissionStatus.RECEIVED.name()));
+
+        verify(idempotencyRepository).accept(eq(key), any(LocalDateTime.class));
+        verify(idempotencyRepository, never()).complete(anyString(), anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void answersDuplicateOfAcceptedDeliveryFromSubmission() {
+        when(idempotencyRepository.claim(eq(key), eq("42"), any(), any())).thenReturn(0);
+        when(idempotencyRepository.findById(key)).thenReturn(Optional.of(record(SubmissionStatus.RECEIVED)));
+        when(submissionRepository.findFirstByIdempotencyKeyOrderByIdDesc(key))
+                .thenReturn(Optional.of(submission(SubmissionStatus.COMPLETED)));
+        AtomicInteger runs = new AtomicInteger();
+
+        CreateReadingResponse response = service.execute(request, () -> {
+            runs.incrementAndGet();
+            return response(true, SubmissionStatus.RECEIVED.name());
+        });
+
+        assertThat(runs).hasValue(0);
+        assertThat(response.getQualityStatus()).isEqualTo(SubmissionStatus.COMPLETED.name());
+        assertThat(response.getCorrelationId()).isEqualTo("corr-1");
+    }
+
+    @Test
+    void reprocessesDuplicateOfFailedSubmission() {
+        when(idempotencyRepository.claim(eq(key), eq("42"), any(), any())).thenReturn(0, 1);
+        when(idempotencyRepository.findById(key)).thenReturn(Optional.of(record(SubmissionStatus.RECEIVED)));
+        when(submissionRepository.findFirstByIdempotencyKeyOrderByIdDesc(key))
+                .thenReturn(Optional.of(submission(SubmissionStatus.FAILED)));
+        AtomicInteger runs = new AtomicInteger();
+
+        service.execute(request, () -> {
+            runs.incrementAndGet();
+            return response(true, SubmissionStatus.RECEIVED.name());
+        });
+
+        assertThat(runs).hasValue(1);
+        verify(idempotencyRepository).deleteByKeyHashAndStatus(key, SubmissionStatus.RECEIVED);
+    }
+
+    private void claimSucceeds() {
+        when(idempotencyRepository.claim(eq(key), eq("42"), any(), any())).thenReturn(1);
+    }
+
+    private static CreateReadingResponse response(boolean success, String qualityStatus) {
+        return CreateReadingResponse.builder()
+                .success(success)
+                .qualityStatus(qualityStatus)
+                .correlationId("corr-1")
+                .build();
+    }
+
+    private WebhookIdempotencyRecord record(SubmissionStatus status) {
+        return WebhookIdempotencyRecord.builder()
+                .keyHash(key)
+                .contactId("42")
+                .status(status)
+                .expiresAt(LocalDateTime.now().plusMinutes(5))
+                .build();
+    }
+
+    private static ReadingSubmission submission(SubmissionStatus status) {
+        return ReadingSubmission.builder()
+                .id(7L)
+                .status(status)
+                .correlationId("corr-1")
+                .build();
+    }
+}
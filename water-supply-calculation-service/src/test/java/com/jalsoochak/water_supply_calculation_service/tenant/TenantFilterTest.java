@@ -0,0 +1,40 @@
+package com.jalsoochak.water_supply_calculation_service.tenant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantFilterTest {
+
+    private final TenantFilter filter = new TenantFilter();
+
+    @Test
+    void requiresTheHeaderOnTenantRoutes() throws Exception {
+        assertThat(run("/api/tenants/mh/dashboard/geo-summary", null).getStatus()).isEqualTo(400);
+        assertThat(run("/api/tenants/mh/exports/readings", null).getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void passesTheHeaderTenantOn() throws Exception {
+        assertThat(run("/api/tenants/mh/dashboard/geo-summary", "mh").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void skipsTheGlificWebhook() throws Exception {
+        assertThat(run("/api/v2/webhook/glific", null).getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse run(String path, String tenantId) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRequestURI(path);
+        if (tenantId != null) {
+            request.addHeader("X-Tenant-Id", tenantId);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}